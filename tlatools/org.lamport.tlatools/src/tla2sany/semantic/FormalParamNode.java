@@ -29,6 +29,8 @@ public class FormalParamNode extends SymbolNode {
     // arity of the parameter; 0 for ordinary param; >0 for operator param
   private ModuleNode   moduleNode;
     // the module in which this formal param was declared
+  private int          slot = -1;
+    // position of this param in the frame of its binder (see getSlot)
 
   // Constructor
   public FormalParamNode(UniqueString us, int ar, TreeNode stn,
@@ -51,6 +53,24 @@ public class FormalParamNode extends SymbolNode {
 
   public final ModuleNode getModuleNode() { return this.moduleNode; }
 
+  /**
+   * Returns the position of this parameter in the list of formal parameters
+   * of its binder (an operator definition or the flattened bound identifiers
+   * of a quantifier), or a negative value if the position is unknown or if
+   * this parameter occurs at different positions in several binders.  TLC
+   * uses the slot to look up the parameter's value in a frame of a
+   * tlc2.util.Context without a search.
+   */
+  public final int getSlot() { return this.slot; }
+
+  public final void setSlot(int s) {
+    if (this.slot == -1) {
+      this.slot = s;
+    } else if (this.slot != s) {
+      this.slot = -2;
+    }
+  }
+
   public final boolean match( OpApplNode test, ModuleNode mn ) {
     /***********************************************************************
     * True iff the current object has the same arity as the node operator  *
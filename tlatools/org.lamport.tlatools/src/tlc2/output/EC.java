@@ -215,6 +215,7 @@ public interface EC
     public static final int TLC_STATS = 2199;
     public static final int TLC_STATS_DFID = 2204;
     public static final int TLC_STATS_SIMU = 2210;
+    public static final int TLC_STATS_SIMU_DISTINCT = 2272;
     public static final int TLC_PROGRESS_STATS = 2200;
     public static final int TLC_COVERAGE_START = 2201;
     public static final int TLC_COVERAGE_END = 2202;
@@ -253,6 +254,7 @@ public interface EC
     public static final int TLC_COVERAGE_INIT = 2773;
     public static final int TLC_COVERAGE_PROPERTY = 2774;
     public static final int TLC_COVERAGE_END_OVERHEAD = 2777;
+    public static final int TLC_COVERAGE_MEMO = 2778;
     
     // config file errors
     public static final int TLC_CONFIG_VALUE_NOT_ASSIGNED_TO_CONSTANT_PARAM = 2222;
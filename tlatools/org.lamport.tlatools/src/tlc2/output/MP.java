@@ -1067,6 +1067,9 @@ public class MP
         case EC.TLC_STATS_SIMU:
             b.append("The number of states generated: %1%\nSimulation using seed %2% and aril %3%");
             break;
+        case EC.TLC_STATS_SIMU_DISTINCT:
+            b.append("At least %1% distinct states visited by the swarm");
+            break;
         case EC.TLC_PROGRESS_STATS:
         	if (parameters.length == 4) {
 				b.append("Progress(%1%) at " + now() + ": %2% states generated, "
@@ -1122,6 +1125,9 @@ public class MP
         case EC.TLC_COVERAGE_PROPERTY:
        		b.append("%1%");
             break;
+        case EC.TLC_COVERAGE_MEMO:
+            b.append("<%1% %2%> memoized: %3% hits, %4% misses");
+            break;
         case EC.TLC_COVERAGE_MISMATCH:
 			b.append(
 					"CostModel lookup failed for expression <%1%>. Reporting costs into <%2%> instead (Safety and Liveness checking is unaffected. Please report a bug.)");
@@ -16,6 +16,7 @@ import tlc2.tool.liveness.ILiveCheck;
 import tlc2.tool.liveness.LiveCheck;
 import tlc2.tool.liveness.Liveness;
 import tlc2.tool.liveness.NoOpLiveCheck;
+import tlc2.tool.liveness.OnTheFlyLiveCheck;
 import tlc2.util.IStateWriter;
 import tlc2.util.IdThread;
 import tlc2.util.statistics.ConcurrentBucketStatistics;
@@ -38,6 +39,13 @@ public abstract class AbstractChecker
 	 * it's false.
 	 */
 	public static boolean LIVENESS_TESTING_IMPLEMENTATION = Boolean.getBoolean(ILiveCheck.class.getName() + ".testing");
+
+	/**
+	 * True iff liveness violations should be detected on the fly by
+	 * {@link OnTheFlyLiveCheck} while the state space is explored instead of
+	 * periodically checking the (partial) behavior graph.
+	 */
+	public static boolean LIVENESS_ON_THE_FLY = Boolean.getBoolean(ILiveCheck.class.getName() + ".onTheFly");
 	
 	protected static final boolean LIVENESS_STATS = Boolean.getBoolean(Liveness.class.getPackage().getName() + ".statistics");
 	
@@ -113,6 +121,8 @@ public abstract class AbstractChecker
 			}
 			if (LIVENESS_TESTING_IMPLEMENTATION) {
 				this.liveCheck = new AddAndCheckLiveCheck(this.tool, this.metadir, stats);
+			} else if (LIVENESS_ON_THE_FLY) {
+				this.liveCheck = new OnTheFlyLiveCheck(this.tool, this.metadir, stats, stateWriter);
 			} else {
 				this.liveCheck = new LiveCheck(this.tool, this.metadir, stats, stateWriter);
 			}
@@ -42,6 +42,9 @@ import tlc2.util.LongVec;
  * adds/appends an entry to its (dedicate) file. When a counter-example has to be
  * created, the actual error-trace gets created from the union of all (partial)
  * trace files.
+ * <p>
+ * Each worker's part of the trace is a {@link TLCTraceSegment} of fixed-size
+ * records to which the worker appends without acquiring a lock.
  */
 public class ConcurrentTLCTrace extends TLCTrace {
 	
@@ -146,8 +149,20 @@ public class ConcurrentTLCTrace extends TLCTrace {
 		}
 	}
 
+	@Override
+	public void close() throws IOException {
+		for (Worker worker : workers) {
+			worker.closeTrace();
+		}
+		super.close();
+	}
+
 	/* Checkpoint. */
 	
+	/**
+	 * Checkpointing the trace is O(workers): Each worker's segment merely flushes
+	 * its buffer and records its size.
+	 */
 	public synchronized void beginChkpt() throws IOException {
 		for (Worker worker : workers) {
 			worker.beginChkpt();
@@ -190,7 +205,7 @@ public class ConcurrentTLCTrace extends TLCTrace {
 	/* Enumerator */
 	
 	public synchronized Enumerator elements() throws IOException {
-		final Worker.Enumerator[] enums = new Worker.Enumerator[workers.length];
+		final TLCTraceSegment.Enumerator[] enums = new TLCTraceSegment.Enumerator[workers.length];
 		for (int j = 0; j < workers.length; j++) {
 			enums[j] = workers[j].elements();
 		}
@@ -222,7 +237,7 @@ public class ConcurrentTLCTrace extends TLCTrace {
 
 			@Override
 			public void close() throws IOException {
-				for (Worker.Enumerator enumerator : enums) {
+				for (TLCTraceSegment.Enumerator enumerator : enums) {
 					enumerator.close();
 				}
 			}
@@ -259,7 +274,7 @@ public class ConcurrentTLCTrace extends TLCTrace {
 		}
 
 		public boolean isInitial() {
-			return ptr == 1L;
+			return ptr == TLCTraceSegment.INITIAL;
 		}
 
 		@Override
@@ -66,6 +66,14 @@ public interface ITool extends TraceApp {
 
 	void getInitStates(IStateFunctor functor);
 
+	/**
+	 * Generates the i-th of n disjoint partitions of the initial states (see
+	 * {@link tlc2.tool.impl.Tool}). The union of all n partitions is the set of
+	 * initial states generated by {@link #getInitStates(IStateFunctor)}. The n
+	 * partitions may be generated concurrently.
+	 */
+	void getInitStates(IStateFunctor functor, int partition, int partitions);
+
 	/* Create the state specified by pred.  */
 	TLCState makeState(SemanticNode pred);
 
@@ -119,6 +127,9 @@ public interface ITool extends TraceApp {
 
 	boolean isValid(ExprNode expr);
 
+	/* Reports the hits and misses of the per-state memoization of definitions if enabled. */
+	void reportMemoization();
+
 	/* Reconstruct the initial state whose fingerprint is fp. */
 	TLCStateInfo getState(long fp);
 
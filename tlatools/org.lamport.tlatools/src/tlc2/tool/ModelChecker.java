@@ -12,6 +12,8 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import tla2sany.semantic.ExprNode;
@@ -27,6 +29,8 @@ import tlc2.tool.liveness.LiveCheck;
 import tlc2.tool.queue.DiskByteArrayQueue;
 import tlc2.tool.queue.DiskStateQueue;
 import tlc2.tool.queue.IStateQueue;
+import tlc2.tool.queue.OffHeapByteArrayQueue;
+import tlc2.tool.queue.WorkStealingStateQueue;
 import tlc2.util.IStateWriter;
 import tlc2.util.SetOfStates;
 import tlc2.util.statistics.BucketStatistics;
@@ -54,7 +58,7 @@ public class ModelChecker extends AbstractChecker
 	 */
 	public static final boolean VETO_CLEANUP = Boolean.getBoolean(ModelChecker.class.getName() + ".vetoCleanup");
 
-	private long numberOfInitialStates;
+	private final AtomicLong numberOfInitialStates = new AtomicLong();
     public FPSet theFPSet; // the set of reachable states (SZ: note the type)
     public IStateQueue theStateQueue; // the state queue
     public final ConcurrentTLCTrace trace; // the trace file
@@ -108,9 +112,15 @@ public class ModelChecker extends AbstractChecker
         // call the abstract constructor
         super(tool, metadir, stateWriter, deadlock, fromChkpt, startTime);
 
-		this.theStateQueue = useByteArrayQueue()
-				? new DiskByteArrayQueue(this.metadir)
-				: new DiskStateQueue(this.metadir);
+		if (useWorkStealingQueue()) {
+			this.theStateQueue = new WorkStealingStateQueue(this.metadir);
+		} else if (useOffHeapQueue()) {
+			this.theStateQueue = new OffHeapByteArrayQueue(this.metadir);
+		} else {
+			this.theStateQueue = useByteArrayQueue()
+					? new DiskByteArrayQueue(this.metadir)
+					: new DiskStateQueue(this.metadir);
+		}
         // this.theStateQueue = new MemStateQueue(this.metadir);
 
         // Finally, initialize the trace file:
@@ -187,7 +197,7 @@ public class ModelChecker extends AbstractChecker
                 final CallStackTool cTool = new CallStackTool(this.tool);
                 try
                 {
-                    numberOfInitialStates = 0;
+                    numberOfInitialStates.set(0);
                     // SZ Feb 23, 2009: ignore cancel on error reporting
 					this.doInit(cTool, true);
                 } catch (FingerprintException fe){
@@ -252,7 +262,7 @@ public class ModelChecker extends AbstractChecker
             		MP.printMessage(EC.TLC_PROGRESS_STATS, new String[] {
                             String.valueOf(this.trace.getLevelForReporting()),
                             MP.format(getStatesGenerated()),
-                            MP.format(theFPSet.size()),
+                            MP.format(getDistinctStatesGenerated()),
                             MP.format(this.theStateQueue.size()) });
                 	
                     report("checking liveness");
@@ -373,17 +383,73 @@ public class ModelChecker extends AbstractChecker
 			// what caused Tool to fail to evaluate the init predicate expressions. Thus,
 			// re-check all invariants even if state is already known (= part of theFPSet).
         	functor = new DoInitFunctor(tool, ignoreCancel);
+        } else if (useParallelInit() && this.workers.length > 1) {
+        	return doInitParallel(tool);
         } else {
         	functor = new DoInitFunctor(tool);
         }
 		try {
 			tool.getInitStates(functor);
-		} catch (DoInitFunctor.InvariantViolatedException ive) {
+		} catch (DoInitFunctor.InvariantViolatedException | Assert.TLCRuntimeException e) {
+			return doInit(functor, e);
+		}
+		return doInit(functor, null);
+	}
+
+	/**
+	 * Generates the initial states with as many threads as there are workers.
+	 * Thread i generates the i-th partition of the initial states (see
+	 * {@link ITool#getInitStates(IStateFunctor, int, int)}) and writes them to the
+	 * trace file of worker i. The initial states are thus enqueued in
+	 * non-deterministic order.
+	 */
+	private final int doInitParallel(final ITool tool) throws Throwable {
+		final int partitions = this.workers.length;
+		final AtomicBoolean failed = new AtomicBoolean();
+		final DoInitFunctor[] functors = new DoInitFunctor[partitions];
+		final Throwable[] thrown = new Throwable[partitions];
+		final Thread[] threads = new Thread[partitions];
+		for (int i = 0; i < partitions; i++) {
+			final int partition = i;
+			functors[i] = new DoInitFunctor(tool, false, (Worker) this.workers[i], failed);
+			threads[i] = new Thread(() -> {
+				try {
+					tool.getInitStates(functors[partition], partition, partitions);
+				} catch (Throwable e) {
+					thrown[partition] = e;
+				}
+			}, "TLC Init " + i);
+			threads[i].start();
+		}
+		for (int i = 0; i < partitions; i++) {
+			threads[i].join();
+		}
+		// A partition that failed takes precedence over the ones that stopped
+		// because another partition failed.
+		for (int i = 0; i < partitions; i++) {
+			if (thrown[i] != null || functors[i].errState != null) {
+				if (thrown[i] instanceof DoInitFunctor.InvariantViolatedException
+						|| thrown[i] instanceof Assert.TLCRuntimeException || thrown[i] == null) {
+					return doInit(functors[i], thrown[i]);
+				}
+				throw thrown[i];
+			}
+		}
+		for (int i = 0; i < partitions; i++) {
+			if (functors[i].returnValue != EC.NO_ERROR) {
+				return functors[i].returnValue;
+			}
+		}
+		return EC.NO_ERROR;
+	}
+
+	private final int doInit(final DoInitFunctor functor, final Throwable thrown) throws Throwable {
+		if (thrown instanceof DoInitFunctor.InvariantViolatedException) {
 			this.errState = functor.errState;
 			return functor.returnValue;
-		} catch (Assert.TLCRuntimeException e) {
+		} else if (thrown != null) {
 			this.errState = functor.errState;
-			throw e;
+			throw thrown;
 		}
 		
 		// Iff one of the init states' checks violates any properties, the
@@ -720,6 +786,13 @@ public class ModelChecker extends AbstractChecker
         return EC.NO_ERROR;
     }
 
+	/**
+	 * Creates a checkpoint. The workers are suspended when this is called
+	 * (see {@link IStateQueue#suspendAll()}), which is what makes the state
+	 * queue, the trace and the fingerprint set a consistent cut. They stay
+	 * suspended while beginChkpt takes the in-memory snapshots. Only the I/O
+	 * in commitChkpt overlaps with the workers.
+	 */
 	protected void checkpoint() throws IOException {
 		// start checkpointing:
        	MP.printMessage(EC.TLC_CHECKPOINT_START, this.metadir);
@@ -814,7 +887,7 @@ public class ModelChecker extends AbstractChecker
                     String.valueOf(this.theStateQueue.size()) });
             recovered = true;
             // Not all states are true initial states, but who cares at this point?
-            numberOfInitialStates = this.theFPSet.size();
+            numberOfInitialStates.set(this.theFPSet.size());
         }
         return recovered;
     }
@@ -862,7 +935,7 @@ public class ModelChecker extends AbstractChecker
         }
 
         MP.printMessage(EC.TLC_STATS, new String[] { String.valueOf(getStatesGenerated()),
-                String.valueOf(this.theFPSet.size()), String.valueOf(this.theStateQueue.size()) });
+                String.valueOf(getDistinctStatesGenerated()), String.valueOf(this.theStateQueue.size()) });
         // The depth used to only be reported on success, but this seems bogus since TLC reports
         // the number states above.
         MP.printMessage(EC.TLC_SEARCH_DEPTH, String.valueOf(this.trace.getLevelForReporting()));
@@ -886,7 +959,7 @@ public class ModelChecker extends AbstractChecker
     }
     
     private final void printProgresStats(final long startTime, final boolean isFinal) throws IOException {
-        final long fpSetSize = this.theFPSet.size();
+        final long fpSetSize = getDistinctStatesGenerated();
         
         // print progress showing states per minute metric (spm)
         final double factor;
@@ -1002,13 +1075,49 @@ public class ModelChecker extends AbstractChecker
         DebugPrinter.print(e);
     }
     
+	/**
+	 * @return true iff the initial states should be generated by as many threads
+	 *         as there are workers (see {@link #doInitParallel(ITool)}). The
+	 *         partitions assume that the evaluation of the initial predicate
+	 *         takes the same paths in all partitions (see Tool.InitPartition).
+	 *         This does not hold if Init is non-deterministic, e.g. calls
+	 *         RandomElement or reads TLCGet. Hence, this is opt-in.
+	 */
+	private static boolean useParallelInit() {
+		return Boolean.getBoolean(ModelChecker.class.getName() + ".parallelInit");
+	}
+
 	private static boolean useByteArrayQueue() {
 		return Boolean.getBoolean(ModelChecker.class.getName() + ".BAQueue");
 	}
 
+	/**
+	 * @return true iff workers should dequeue from and enqueue to per-worker
+	 *         deques that support work stealing (see
+	 *         {@link WorkStealingStateQueue}) instead of a single, synchronized
+	 *         state queue.
+	 */
+	private static boolean useWorkStealingQueue() {
+		return Boolean.getBoolean(ModelChecker.class.getName() + ".WSQueue");
+	}
+
+	/**
+	 * @return true iff the unexplored states should be kept serialized in
+	 *         off-heap memory that is swapped to disk only once it is exhausted
+	 *         (see {@link OffHeapByteArrayQueue}).
+	 */
+	private static boolean useOffHeapQueue() {
+		return Boolean.getBoolean(ModelChecker.class.getName() + ".OHQueue");
+	}
+
 	public static String getStateQueueName() {
 		// Ideally, this wouldn't hard-code the simple name of the classes but we don't
 		// have access to the class file yet.
+		if (useWorkStealingQueue()) {
+			return "WorkStealingStateQueue";
+		} else if (useOffHeapQueue()) {
+			return "OffHeapByteArrayQueue";
+		}
 		return useByteArrayQueue() ? "DiskByteArrayQueue" : "DiskStateQueue";
 	}
 
@@ -1017,7 +1126,7 @@ public class ModelChecker extends AbstractChecker
 	 */
 	@Override
     public long getStatesGenerated() {
-    	long sum = numberOfInitialStates;
+    	long sum = numberOfInitialStates.get();
     	for (final IWorker worker : workers) {
 			sum += ((Worker) worker).getStatesGenerated();
 		}
@@ -1077,7 +1186,11 @@ public class ModelChecker extends AbstractChecker
 	 */
 	@Override
 	public long getDistinctStatesGenerated() {
-		return theFPSet.size();
+		long discarded = 0L;
+		for (final IWorker worker : workers) {
+			discarded += ((Worker) worker).getDiscardedStates();
+		}
+		return theFPSet.size() - discarded;
 	}
    
 	/**
@@ -1105,24 +1218,35 @@ public class ModelChecker extends AbstractChecker
 		
 		private final boolean forceChecks;
 		private final ITool tool;
+		// The worker whose trace file the init states are written to.
+		private final Worker worker;
+		// Shared by the functors of all partitions (see doInitParallel) to stop
+		// generating init states once one of them has failed.
+		private final AtomicBoolean failed;
 		
 		public DoInitFunctor(ITool tool) {
 			this(tool, false);
 		}
 		
 		public DoInitFunctor(ITool tool, boolean forceChecks) {
+			this(tool, forceChecks, (Worker) workers[0], new AtomicBoolean());
+		}
+
+		public DoInitFunctor(ITool tool, boolean forceChecks, Worker worker, AtomicBoolean failed) {
 			this.forceChecks = forceChecks;
 			this.tool = tool;
+			this.worker = worker;
+			this.failed = failed;
 		}
 
 		/* (non-Javadoc)
 		 * @see tlc2.tool.IStateFunctor#addElement(tlc2.tool.TLCState)
 		 */
 		public Object addElement(final TLCState curState) {
+			final long numberOfInitialStates = ModelChecker.this.numberOfInitialStates.getAndIncrement();
 			if (Long.bitCount(numberOfInitialStates) == 1 && numberOfInitialStates > 1) {
 				MP.printMessage(EC.TLC_COMPUTING_INIT_PROGRESS, Long.toString(numberOfInitialStates));
 			}
-			numberOfInitialStates++;
 			
 			// getInitStates() does not support aborting init state generation
 			// once a violation has been found (that is why the return values of
@@ -1133,6 +1257,8 @@ public class ModelChecker extends AbstractChecker
 				if (returnValue == EC.NO_ERROR)
 				  returnValue = EC.TLC_INITIAL_STATE;
 				return returnValue;
+			} else if (failed.get()) {
+				return returnValue;
 			}
 			
 			try {
@@ -1150,12 +1276,14 @@ public class ModelChecker extends AbstractChecker
 					seen = theFPSet.put(fp);
 					if (!seen) {
 						allStateWriter.writeState(curState);
-						((Worker) workers[0]).writeState(curState, fp);
-						theStateQueue.enqueue(curState);
+						worker.writeState(curState, fp);
+						theStateQueue.sEnqueue(curState);
 
 						// build behavior graph for liveness checking
 						if (checkLiveness) {
-							liveCheck.addInitState(tool, curState, fp);
+							synchronized (liveCheck) {
+								liveCheck.addInitState(tool, curState, fp);
+							}
 						}
 					}
 				}
@@ -1190,6 +1318,7 @@ public class ModelChecker extends AbstractChecker
 				// or type errors such as in DoInitFunctorInvariantMinimalErrorStackTest test.
 				this.errState = curState;
 				this.e = e;
+				failed.set(true);
 				throw e;
 			} catch (OutOfMemoryError e) {
 				MP.printError(EC.SYSTEM_OUT_OF_MEMORY_TOO_MANY_INIT);
@@ -1199,6 +1328,7 @@ public class ModelChecker extends AbstractChecker
 				// Assert.printStack(e);
 				this.errState = curState;
 				this.e = e;
+				failed.set(true);
 			}
 			return returnValue;
 		}
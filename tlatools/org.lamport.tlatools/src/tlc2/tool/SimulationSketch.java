@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link SimulationSketch} is the knowledge shared by the
+ * {@link SimulationWorker}s of a swarm simulation (see
+ * {@link Simulator#SWARM}). It is a Bloom filter over the fingerprints of the
+ * states visited by all workers plus a counter for each of the spec's actions
+ * that records how often the action was taken. Workers use it to steer their
+ * traces towards novel states and rarely taken actions.
+ * <p>
+ * The sketch is lossy: A false positive merely makes a worker consider a novel
+ * state as visited, which is fine for a heuristic. This is also why the
+ * sketch, contrary to {@link tlc2.tool.fp.FPSet}, never grows and can be
+ * updated without locks.
+ */
+public final class SimulationSketch {
+
+	/**
+	 * log2 of the number of bits of the filter. The default of 2^26 bits
+	 * occupies 8 MB.
+	 */
+	private static final int BITS = Math.max(12,
+			Math.min(36, Integer.getInteger(SimulationSketch.class.getName() + ".bits", 26)));
+
+	private final AtomicLongArray words;
+	private final long mask;
+
+	private final LongAdder distinct = new LongAdder();
+
+	private final AtomicLongArray actions;
+
+	public SimulationSketch(final int numOfActions) {
+		this(numOfActions, BITS);
+	}
+
+	SimulationSketch(final int numOfActions, final int bits) {
+		this.words = new AtomicLongArray((int) ((1L << bits) >>> 6));
+		this.mask = (1L << bits) - 1L;
+		this.actions = new AtomicLongArray(numOfActions);
+	}
+
+	/**
+	 * @return true iff the given fingerprint has (probably) been added before.
+	 */
+	public final boolean contains(final long fp) {
+		return isSet(fp) && isSet(rehash(fp));
+	}
+
+	/**
+	 * Adds the given fingerprint.
+	 * 
+	 * @return true iff the fingerprint has not been added before (the filter
+	 *         changed).
+	 */
+	public final boolean add(final long fp) {
+		// Non-short-circuit or to set both bits.
+		final boolean added = set(fp) | set(rehash(fp));
+		if (added) {
+			distinct.increment();
+		}
+		return added;
+	}
+
+	/**
+	 * @return A lower bound of the number of distinct states added to this
+	 *         sketch (false positives are not counted).
+	 */
+	public final long getDistinct() {
+		return distinct.sum();
+	}
+
+	public final void taken(final int action) {
+		actions.incrementAndGet(action);
+	}
+
+	public final long getTaken(final int action) {
+		return actions.get(action);
+	}
+
+	private boolean isSet(final long hash) {
+		final long bit = hash & mask;
+		return (words.get((int) (bit >>> 6)) & (1L << bit)) != 0L;
+	}
+
+	private boolean set(final long hash) {
+		final long bit = hash & mask;
+		final int idx = (int) (bit >>> 6);
+		final long b = 1L << bit;
+		long w;
+		do {
+			w = words.get(idx);
+			if ((w & b) != 0L) {
+				return false;
+			}
+		} while (!words.compareAndSet(idx, w, w | b));
+		return true;
+	}
+
+	private static long rehash(final long fp) {
+		// The second bit is derived from the fingerprint's high bits (fingerprints
+		// are uniformly distributed already).
+		return Long.rotateLeft(fp, 32) * 0x9E3779B97F4A7C15L;
+	}
+}
@@ -99,6 +99,10 @@ public class SimulationWorker extends IdThread {
 	private final ITool tool;
 	private final ILiveCheck liveCheck;	
 	
+	// The knowledge shared by all workers of a swarm simulation. If it is null,
+	// this worker picks actions and successor states uniformly at random.
+	private final SimulationSketch sketch;
+	
 	/**
 	 * Encapsulates information about an error produced by a simulation worker.
 	 */
@@ -184,6 +188,13 @@ public class SimulationWorker extends IdThread {
 	public SimulationWorker(int id, ITool tool, StateVec initStates, BlockingQueue<SimulationWorkerResult> resultQueue,
 			long seed, long maxTraceDepth, long maxTraceNum, boolean checkDeadlock, String traceFile,
 			ILiveCheck liveCheck, LongAdder numOfGenStates, LongAdder numOfGenTraces) {
+		this(id, tool, initStates, resultQueue, seed, maxTraceDepth, maxTraceNum, checkDeadlock, traceFile, liveCheck,
+				numOfGenStates, numOfGenTraces, null);
+	}
+
+	public SimulationWorker(int id, ITool tool, StateVec initStates, BlockingQueue<SimulationWorkerResult> resultQueue,
+			long seed, long maxTraceDepth, long maxTraceNum, boolean checkDeadlock, String traceFile,
+			ILiveCheck liveCheck, LongAdder numOfGenStates, LongAdder numOfGenTraces, SimulationSketch sketch) {
 		super(id);
 		this.localRng = new RandomGenerator(seed);
 		this.tool = tool;
@@ -196,6 +207,7 @@ public class SimulationWorker extends IdThread {
 		this.liveCheck = liveCheck;
 		this.numOfGenStates = numOfGenStates;
 		this.numOfGenTraces = numOfGenTraces;
+		this.sketch = sketch;
 	}
 	
 	/**
@@ -252,15 +264,28 @@ public class SimulationWorker extends IdThread {
 	/**
 	 * This method returns the set of next states generated by a randomly chosen
 	 * action. It returns null if there is no possible next state.
+	 * <p>
+	 * In a swarm simulation, the action is the one taken less often of two
+	 * randomly chosen actions ("power of two choices"), which favors the actions
+	 * that the swarm has rarely taken so far without starving the others.
 	 */
 	public final StateVec randomNextStates(RandomGenerator rng, TLCState state) {
 		final Action[] actions = this.tool.getActions();
 		final int len = actions.length;
 		int index = (int) Math.floor(rng.nextDouble() * len);
+		if (sketch != null) {
+			final int other = (int) Math.floor(rng.nextDouble() * len);
+			if (sketch.getTaken(other) < sketch.getTaken(index)) {
+				index = other;
+			}
+		}
 		final int p = rng.nextPrime();
 		for (int i = 0; i < len; i++) {
 			final StateVec pstates = this.tool.getNextStates(actions[index], state);
 			if (!pstates.empty()) {
+				if (sketch != null) {
+					sketch.taken(index);
+				}
 				return pstates;
 			}
 			index = (index + p) % len;
@@ -271,11 +296,23 @@ public class SimulationWorker extends IdThread {
 	/**
 	 * This method returns a state that is randomly chosen from the set of states.
 	 * It returns null if the set of states is empty.
+	 * <p>
+	 * In a swarm simulation, states that no worker has visited so far are
+	 * preferred over visited ones, and the chosen state is marked visited.
 	 */
 	private final TLCState randomState(RandomGenerator rng, StateVec states) throws EvalException {
 		final int len = states.size();
 		if (len > 0) {
 			final int index = (int) Math.floor(rng.nextDouble() * len);
+			if (sketch == null) {
+				return states.elementAt(index);
+			}
+			for (int i = 0; i < len; i++) {
+				final TLCState state = states.elementAt((index + i) % len);
+				if (sketch.add(state.fingerPrint())) {
+					return state;
+				}
+			}
 			return states.elementAt(index);
 		}
 		return null;
@@ -40,6 +40,13 @@ public class Simulator {
 	public static boolean EXPERIMENTAL_LIVENESS_SIMULATION = Boolean
 			.getBoolean(Simulator.class.getName() + ".experimentalLiveness");
 
+	/**
+	 * If true, the workers share a {@link SimulationSketch} of the visited states
+	 * and taken actions, and steer their traces towards novel states and rarely
+	 * taken actions instead of choosing uniformly at random.
+	 */
+	public static boolean SWARM = Boolean.getBoolean(Simulator.class.getName() + ".swarm");
+
 	/* Constructors */
 
 	// SZ Feb 20, 2009: added the possibility to pass the SpecObject
@@ -74,6 +81,7 @@ public class Simulator {
 		this.aril = 0;
 		this.numWorkers = numWorkers;
 		this.workers = new ArrayList<>(numWorkers);
+		this.sketch = SWARM ? new SimulationSketch(this.tool.getActions().length) : null;
 		// Initialization for liveness checking
 		if (this.checkLiveness) {
 			if (EXPERIMENTAL_LIVENESS_SIMULATION) {
@@ -143,6 +151,9 @@ public class Simulator {
 	private final long startTime = System.currentTimeMillis();
 	
 	private final List<SimulationWorker> workers;
+
+	// The knowledge shared by the workers of a swarm simulation or null.
+	private final SimulationSketch sketch;
 		 
 	 /**
 	 * Returns whether a given error code is considered "continuable". That is, if
@@ -243,7 +254,7 @@ public class Simulator {
 		for (int i = 0; i < this.numWorkers; i++) {			
 			final SimulationWorker worker = new SimulationWorker(i, this.tool, initStates, this.workerResultQueue,
 					this.rng.nextLong(), this.traceDepth, this.traceNum, this.checkDeadlock, this.traceFile,
-					this.liveCheck, this.numOfGenStates, this.numOfGenTraces);		
+					this.liveCheck, this.numOfGenStates, this.numOfGenTraces, this.sketch);		
 
 			worker.start();
 			workers.add(worker);
@@ -433,6 +444,9 @@ public class Simulator {
 
 		MP.printMessage(EC.TLC_STATS_SIMU, new String[] { String.valueOf(numOfGenStates.longValue()),
 				String.valueOf(this.seed), String.valueOf(this.aril) });
+		if (this.sketch != null) {
+			MP.printMessage(EC.TLC_STATS_SIMU_DISTINCT, String.valueOf(this.sketch.getDistinct()));
+		}
 	}
 
 	/**
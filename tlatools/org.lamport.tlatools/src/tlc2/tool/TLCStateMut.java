@@ -22,6 +22,7 @@ import tlc2.value.IValue;
 import tlc2.value.IValueInputStream;
 import tlc2.value.IValueOutputStream;
 import tlc2.value.Values;
+import tlc2.value.impl.SymmetryCanonicalizer;
 import util.UniqueString;
 import util.WrongInvocationException;
 
@@ -49,6 +50,13 @@ public final class TLCStateMut extends TLCState implements Cloneable, Serializab
    */
   private static IMVPerm[] perms = null;
 
+  /**
+   * If non-null, canonicalizer computes the representative of a state
+   * under the symmetry assumption instead of applying all of perms.
+   * Selected with -Dtlc2.tool.TLCStateMut.canonicalSymmetry=true.
+   */
+  private static SymmetryCanonicalizer canonicalizer = null;
+
   private TLCStateMut(IValue[] vals) { this.values = vals; }
   
   public static void setVariables(OpDeclNode[] variables) 
@@ -72,6 +80,8 @@ public final class TLCStateMut extends TLCState implements Cloneable, Serializab
     mytool = tool;
     viewMap = tool.getViewSpec();
     perms = tool.getSymmetryPerms();
+    canonicalizer = perms != null && Boolean.getBoolean(TLCStateMut.class.getName() + ".canonicalSymmetry")
+        ? SymmetryCanonicalizer.create(perms) : null;
   }
 
   public final TLCState createEmpty() {
@@ -195,13 +205,24 @@ public final class TLCStateMut extends TLCState implements Cloneable, Serializab
 		// the group this.perms (derived from the user-defined orbit). This is known as
 		// the constructive orbit problem and is NP-hard. The loop has O(|perms| * |this.values|)
 		// with |prems| = |symmetry set 1|! * |symmetry set 2|! * ... * |symmetry set n|. 
+		//
+		// Alternatively, the canonicalizer computes a (different) representative by
+		// ordering the model values of the symmetry sets by the positions at which they
+		// occur in the state's values (see SymmetryCanonicalizer). It only applies (a
+		// subset of) the permutations to model values that cannot be told apart. If it
+		// cannot handle a state's values, all permutations are applied below. Should this
+		// happen for some but not all states of an orbit, the orbit is represented by
+		// more than one state, which costs time but is sound.
         //		
 		// minVals is what is used to calculate/generate the fingerprint below.
 		// If this state is not the lexicographically smallest state ss, its current
 		// minVals will be replaced temporarily with the values of ss for the
 		// calculation of the fingerprint.
 		IValue[] minVals = this.values;
-		if (perms != null) {
+		final IValue[] canonical = canonicalizer != null ? canonicalizer.canonicalize(this.values) : null;
+		if (canonical != null) {
+			minVals = canonical;
+		} else if (perms != null) {
 			IValue[] vals = new IValue[sz];
 			// The following for loop converges to the smallest state ss under symmetry by
 			// looping over all permutations applying each. If the outcome turns out to be
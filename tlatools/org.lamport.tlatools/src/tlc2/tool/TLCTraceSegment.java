@@ -0,0 +1,301 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import tlc2.util.BufferedRandomAccessFile;
+import util.FileUtil;
+
+/**
+ * A {@link TLCTraceSegment} is the append-only part of the trace that is owned
+ * by a single {@link Worker}. The union of all segments is the
+ * {@link ConcurrentTLCTrace}.
+ * <p>
+ * Contrary to {@link TLCTrace}, a segment consists of fixed-size records of two
+ * longs: The (encoded) pointer to the record of the predecessor state and the
+ * fingerprint of the state. A pointer to a record is thus simply the index of
+ * the record in its segment, and resolving it is a single positional read
+ * instead of a seek and scan.
+ * <p>
+ * Appending is lock-free: The owning worker appends records to an in-memory
+ * buffer and publishes them by incrementing {@link #size} (volatile). The lock
+ * on this is only acquired by the owner to write the buffer to disk once it is
+ * full. Concurrent readers - a worker that reconstructs an error trace, a
+ * checkpoint, or an enumeration - read records that have already been written
+ * to disk without acquiring the lock, and only synchronize with the owner to
+ * copy records that are still in the buffer. Readers never write the buffer to
+ * disk on behalf of the owner because append does not hold the lock.
+ */
+public final class TLCTraceSegment {
+
+	/**
+	 * The predecessor pointer of an initial state.
+	 */
+	public static final long INITIAL = -1L;
+
+	static final int RECORD_SIZE = 2 * Long.BYTES;
+
+	private static final int BUFFER_RECORDS = Integer.getInteger(TLCTraceSegment.class.getName() + ".bufferRecords",
+			4096);
+
+	/**
+	 * The lower 48 bits of an encoded pointer are the index of the record, the
+	 * upper 16 bits the id of the worker/segment.
+	 */
+	private static final int WORKER_SHIFT = 48;
+	private static final long INDEX_MASK = (1L << WORKER_SHIFT) - 1L;
+
+	public static long encode(final int worker, final long index) {
+		assert 0 <= index && index <= INDEX_MASK;
+		return ((long) worker << WORKER_SHIFT) | index;
+	}
+
+	public static int worker(final long ptr) {
+		return (int) (ptr >>> WORKER_SHIFT);
+	}
+
+	public static long index(final long ptr) {
+		return ptr & INDEX_MASK;
+	}
+
+	private final String filename;
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+
+	/**
+	 * Records [flushed, size) are in the buffer, records [0, flushed) on disk.
+	 */
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE);
+	private volatile long flushed = 0L;
+	private volatile long size = 0L;
+	/**
+	 * The records taken by beginChkpt and written by commitChkpt.
+	 */
+	private Snapshot chkpt;
+
+	public TLCTraceSegment(final String filename) throws IOException {
+		this.filename = filename;
+		this.file = new RandomAccessFile(filename + TLCTrace.EXT, "rw");
+		this.channel = this.file.getChannel();
+	}
+
+	/**
+	 * Must only be called by the owner of this segment.
+	 * 
+	 * @param predecessor An encoded pointer (see
+	 *                    {@link TLCTraceSegment#encode(int, long)}) to the record
+	 *                    of the predecessor or {@link TLCTraceSegment#INITIAL}.
+	 * @return The index of the new record.
+	 */
+	public long append(final long predecessor, final long fp) throws IOException {
+		long idx = this.size;
+		if (idx - this.flushed == BUFFER_RECORDS) {
+			flush();
+		}
+		final int offset = (int) (idx - this.flushed) * RECORD_SIZE;
+		this.buffer.putLong(offset, predecessor);
+		this.buffer.putLong(offset + Long.BYTES, fp);
+		// Publish the record (volatile write).
+		this.size = idx + 1;
+		return idx;
+	}
+
+	/**
+	 * @return A pair of the encoded predecessor pointer and the fingerprint of
+	 *         the record at index idx.
+	 */
+	public long[] read(final long idx) throws IOException {
+		assert 0 <= idx && idx < this.size;
+		if (idx < this.flushed) {
+			// FileChannel's positional reads are safe for concurrent use.
+			return readDisk(idx);
+		}
+		synchronized (this) {
+			// Re-check because the owner might have flushed the buffer meanwhile.
+			if (idx < this.flushed) {
+				return readDisk(idx);
+			}
+			final int offset = (int) (idx - this.flushed) * RECORD_SIZE;
+			return new long[] { this.buffer.getLong(offset), this.buffer.getLong(offset + Long.BYTES) };
+		}
+	}
+
+	private long[] readDisk(final long idx) throws IOException {
+		final ByteBuffer bb = ByteBuffer.allocate(RECORD_SIZE);
+		long pos = idx * RECORD_SIZE;
+		while (bb.hasRemaining()) {
+			final int n = this.channel.read(bb, pos);
+			if (n < 0) {
+				throw new IOException("TLCTraceSegment.read: unexpected end of file " + this.filename);
+			}
+			pos += n;
+		}
+		return new long[] { bb.getLong(0), bb.getLong(Long.BYTES) };
+	}
+
+	/**
+	 * @return The number of records in this segment.
+	 */
+	public long size() {
+		return this.size;
+	}
+
+	/**
+	 * Writes the buffered records to disk. Must only be called by the owner (or
+	 * when there is no owner anymore).
+	 */
+	private synchronized void flush() throws IOException {
+		final long sz = this.size;
+		final ByteBuffer bb = this.buffer.duplicate();
+		bb.position(0).limit((int) (sz - this.flushed) * RECORD_SIZE);
+		long pos = this.flushed * RECORD_SIZE;
+		while (bb.hasRemaining()) {
+			pos += this.channel.write(bb, pos);
+		}
+		this.flushed = sz;
+	}
+
+	public void close() throws IOException {
+		flush();
+		this.channel.close();
+		this.file.close();
+	}
+
+	/* Checkpointing */
+
+	/**
+	 * Checkpointing a segment is cheap: Records are never rewritten, thus the
+	 * size of the segment suffices to restore it. beginChkpt only copies the
+	 * records that are still in the owner's buffer. commitChkpt writes them to
+	 * disk and fsyncs while the owner continues to append records beyond the
+	 * checkpointed size.
+	 */
+	public void beginChkpt() throws IOException {
+		this.chkpt = snapshot();
+	}
+
+	public void commitChkpt() throws IOException {
+		// The owner might write the same records when it flushes its buffer.
+		// This is harmless because records are immutable and FileChannel is safe
+		// for concurrent use.
+		final ByteBuffer bb = ByteBuffer.wrap(this.chkpt.buffered);
+		long pos = this.chkpt.flushed * RECORD_SIZE;
+		while (bb.hasRemaining()) {
+			pos += this.channel.write(bb, pos);
+		}
+		this.channel.force(false);
+		final DataOutputStream dos = FileUtil.newDFOS(filename + ".tmp");
+		dos.writeLong(this.chkpt.size);
+		dos.close();
+		this.chkpt = null;
+
+		final File oldChkpt = new File(filename + ".chkpt");
+		final File newChkpt = new File(filename + ".tmp");
+		if ((oldChkpt.exists() && !oldChkpt.delete()) || !newChkpt.renameTo(oldChkpt)) {
+			throw new IOException("Trace.commitChkpt: cannot delete " + oldChkpt);
+		}
+	}
+
+	public synchronized void recover() throws IOException {
+		final DataInputStream dis = FileUtil.newDFIS(filename + ".chkpt");
+		final long sz = dis.readLong();
+		dis.close();
+		// Records beyond the checkpoint get overwritten.
+		this.flushed = sz;
+		this.size = sz;
+	}
+
+	/* Enumerator */
+
+	public Enumerator elements() throws IOException {
+		return new Enumerator(snapshot());
+	}
+
+	/**
+	 * @return The records [0, size) of which [0, flushed) are on disk and the
+	 *         rest is copied from the buffer.
+	 */
+	private synchronized Snapshot snapshot() {
+		// The owner does not flush while the lock is held, and it appends to the
+		// buffer only beyond size.
+		final long sz = this.size;
+		final long fl = this.flushed;
+		final byte[] buffered = new byte[(int) (sz - fl) * RECORD_SIZE];
+		final ByteBuffer bb = this.buffer.duplicate();
+		bb.position(0);
+		bb.get(buffered);
+		return new Snapshot(fl, sz, buffered);
+	}
+
+	private static final class Snapshot {
+		private final long flushed;
+		private final long size;
+		private final byte[] buffered;
+
+		Snapshot(final long flushed, final long size, final byte[] buffered) {
+			this.flushed = flushed;
+			this.size = size;
+			this.buffered = buffered;
+		}
+	}
+
+	public class Enumerator {
+
+		private final long onDisk;
+		private final ByteBuffer buffered;
+		private final BufferedRandomAccessFile enumRaf;
+
+		Enumerator(final Snapshot snapshot) throws IOException {
+			this.onDisk = snapshot.flushed * RECORD_SIZE;
+			this.buffered = ByteBuffer.wrap(snapshot.buffered);
+			this.enumRaf = new BufferedRandomAccessFile(filename + TLCTrace.EXT, "r");
+		}
+
+		public boolean hasMoreFP() {
+			return this.enumRaf.getFilePointer() < this.onDisk || this.buffered.hasRemaining();
+		}
+
+		public long nextFP() throws IOException {
+			if (this.enumRaf.getFilePointer() < this.onDisk) {
+				this.enumRaf.readLong(); /* drop */
+				return this.enumRaf.readLong();
+			}
+			this.buffered.getLong(); /* drop */
+			return this.buffered.getLong();
+		}
+
+		public void close() throws IOException {
+			this.enumRaf.close();
+		}
+	}
+}
@@ -5,9 +5,6 @@
 
 package tlc2.tool;
 
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
-import java.io.File;
 import java.io.IOException;
 
 import tla2sany.semantic.ExprNode;
@@ -17,7 +14,7 @@ import tlc2.output.MP;
 import tlc2.tool.fp.FPSet;
 import tlc2.tool.impl.FastTool;
 import tlc2.tool.queue.IStateQueue;
-import tlc2.util.BufferedRandomAccessFile;
+import tlc2.util.BitVector;
 import tlc2.util.IStateWriter;
 import tlc2.util.IdThread;
 import tlc2.util.SetOfStates;
@@ -31,6 +28,11 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 
 	protected static final boolean coverage = TLCGlobals.isCoverageEnabled();
 	private static final int INITIAL_CAPACITY = 16;
+	/**
+	 * The maximum number of successor states of a state which are looked up in
+	 * the FPSet at once.
+	 */
+	private static final int BATCH_SIZE = Integer.getInteger(Worker.class.getName() + ".batchSize", 1024);
 	
 	/**
 	 * Multi-threading helps only when running on multiprocessors. TLC can
@@ -43,15 +45,29 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 	private final FPSet theFPSet;
 	private final IStateWriter allStateWriter;
 	private final IBucketStatistics outDegree;
-	private final String filename;
-	private final BufferedRandomAccessFile raf;
+	private final TLCTraceSegment trace;
 	private final boolean checkDeadlock;
 
-	private long lastPtr;
 	private long statesGenerated;
+	/*
+	 * The number of new successor states that have been put into the FPSet as
+	 * part of a batch, but have been batched after a state that violates an
+	 * invariant (see doNextSuccessors).
+	 */
+	private long discardedStates;
 	private int unseenSuccessorStates = 0;
 	private volatile int maxLevel = 0;
 
+	/*
+	 * The (in-model) successor states of the current state that have not been
+	 * looked up in the FPSet yet. The arrays are reused across states.
+	 */
+	private final long[] succFPs = new long[BATCH_SIZE];
+	private final TLCState[] succStates = new TLCState[BATCH_SIZE];
+	private final Action[] succActions = new Action[BATCH_SIZE];
+	private final BitVector seen = new BitVector(BATCH_SIZE);
+	private int batched = 0;
+
 	// SZ Feb 20, 2009: changed due to super type introduction
 	public Worker(int id, AbstractChecker tlc, String metadir, String specFile) throws IOException {
 		super(id);
@@ -67,8 +83,7 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 		this.outDegree = new FixedSizedBucketStatistics(this.getName(), 32); // maximum outdegree of 32 appears sufficient for now.
 		this.setName("TLCWorkerThread-" + String.format("%03d", id));
 
-		this.filename = metadir + FileUtil.separator + specFile + "-" + myGetId();
-		this.raf = new BufferedRandomAccessFile(filename + TLCTrace.EXT, "rw");
+		this.trace = new TLCTraceSegment(metadir + FileUtil.separator + specFile + "-" + myGetId());
 	}
 
 	/**
@@ -105,8 +120,11 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 					this.tool.getNextStates(this, curState);
 				} catch (TLCRuntimeException | EvalException e) {
 					// The next-state relation couldn't be evaluated.
+					doNextSuccessors(curState);
 					this.tlc.doNextFailed(curState, null, e);
 				}
+				// Process the successor states that have not filled up a batch.
+				doNextSuccessors(curState);
 				
 				if (this.checkDeadlock && preNext == this.statesGenerated) {
 					// A deadlock is defined as a state without (seen or unseen) successor
@@ -176,6 +194,14 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 		return this.statesGenerated;
 	}
 
+	/**
+	 * @return The number of fingerprints in the FPSet of successor states this
+	 *         worker has discarded because of an invariant violation.
+	 */
+	final long getDiscardedStates() {
+		return this.discardedStates;
+	}
+
 	public final IBucketStatistics getOutDegree() {
 		return this.outDegree;
 	}
@@ -191,138 +217,74 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 	/* Maintain trace file (to reconstruct error-trace) */
 	
 	/*
-	 * Synchronize reads and writes to read a consistent union of all trace file
-	 * fragments when one worker W wants to create the counter-example. Otherwise, we
-	 * might not be able to correctly trace the path from state to an initial state.
-	 * The W thread holds ModelChecker.this. The other workers might either: a) Wait
-	 * on IStateQueue#sDequeue (waiting for a new state to be read from disk or
-	 * added to the queue) b) Wait on ModelChecker.this (because they also found
-	 * another counter-example but are blocked until we are done printing it) c)
-	 * Wait on ModelChecker.this in Worker#run because the state queue is empty and
-	 * they which to terminate. d) Run state space exploration The on-disk file of
-	 * each worker's trace fragment is potentially inconsistent because the worker's
-	 * cache in BufferedRandomAccessFile hasn't been flushed out.
+	 * Each worker appends to its own segment of the trace without acquiring a
+	 * lock (see TLCTraceSegment). When one worker W wants to create the
+	 * counter-example, it reads the records of the other workers' segments
+	 * concurrently to the other workers which might either: a) Wait on
+	 * IStateQueue#sDequeue (waiting for a new state to be read from disk or added
+	 * to the queue) b) Wait on ModelChecker.this (because they also found another
+	 * counter-example but are blocked until we are done printing it) c) Wait on
+	 * ModelChecker.this in Worker#run because the state queue is empty and they
+	 * which to terminate. d) Run state space exploration. TLCTraceSegment takes
+	 * care of reading records that are not yet written to disk.
 	 */
 	
-	public final synchronized void writeState(final TLCState initialState, final long fp) throws IOException {
-		// Write initial state to trace file.
-		this.lastPtr = this.raf.getFilePointer();
-		this.raf.writeLongNat(1L);
-		this.raf.writeShortNat(myGetId());
-		this.raf.writeLong(fp);
-		
-		// Add predecessor pointer to success state.
+	public final void writeState(final TLCState initialState, final long fp) throws IOException {
+		// Write initial state to trace file and add predecessor pointer to success state.
 		initialState.workerId = (short) myGetId();
-		initialState.uid = this.lastPtr;
+		initialState.uid = this.trace.append(TLCTraceSegment.INITIAL, fp);
 	}
 
-	public final synchronized void writeState(final TLCState curState, final long sucStateFp, final TLCState sucState) throws IOException {
+	public final void writeState(final TLCState curState, final long sucStateFp, final TLCState sucState) throws IOException {
 		// Keep track of maximum diameter.
 		maxLevel = Math.max(curState.getLevel() + 1, maxLevel);
 		
-		// Write to trace file.
-		this.lastPtr = this.raf.getFilePointer();
-		this.raf.writeLongNat(curState.uid);
-		this.raf.writeShortNat(curState.workerId);
-		this.raf.writeLong(sucStateFp);
-		
-		// Add predecessor pointer to success state.
+		// Write to trace file and add predecessor pointer to success state.
 		sucState.workerId = (short) myGetId();
-		sucState.uid = this.lastPtr;
+		sucState.uid = this.trace.append(TLCTraceSegment.encode(curState.workerId, curState.uid), sucStateFp);
 		
 		sucState.setPredecessor(curState);
 		
     	unseenSuccessorStates++;
-		
-//		System.err.println(String.format("<<%s, %s>>: pred=<<%s, %s>>, %s -> %s", myGetId(), this.lastPtr, 
-//				curState.uid, curState.workerId,
-//				curState.fingerPrint(), sucStateFp));
 	}
 
 	// Read from previously written (see writeState) trace file.
-	public final synchronized ConcurrentTLCTrace.Record readStateRecord(final long ptr) throws IOException {
-		// Remember current tip of the file before we rewind.
-		this.raf.mark();
-		
-		// rewind to position we want to read from.
-		this.raf.seek(ptr);
-		
-		final long prev = this.raf.readLongNat();
-		assert 0 <= ptr;
-		
-		final int worker = this.raf.readShortNat();
-		assert 0 <= worker && worker < tlc.workers.length;
-			
-		final long fp = this.raf.readLong();
+	public final ConcurrentTLCTrace.Record readStateRecord(final long ptr) throws IOException {
+		final long[] record = this.trace.read(ptr);
+		final long prev = record[0];
+		final long fp = record[1];
 		assert tlc.theFPSet.contains(fp);
 		
-		// forward/go back back to tip of file.
-		// This is only necessary iff TLC runs with '-continue'. In other words, state
-		// space exploration continues after an error trace has been written.
-		this.raf.seek(this.raf.getMark());
-		
-		return new ConcurrentTLCTrace.Record(prev, worker, fp);
+		if (prev == TLCTraceSegment.INITIAL) {
+			return new ConcurrentTLCTrace.Record(TLCTraceSegment.INITIAL, myGetId(), fp);
+		}
+		final int worker = TLCTraceSegment.worker(prev);
+		assert 0 <= worker && worker < tlc.workers.length;
+		return new ConcurrentTLCTrace.Record(TLCTraceSegment.index(prev), worker, fp);
 	}
 	
 	/* Checkpointing */
 
-	public final synchronized void beginChkpt() throws IOException {
-		this.raf.flush();
-		final DataOutputStream dos = FileUtil.newDFOS(filename + ".tmp");
-		dos.writeLong(this.raf.getFilePointer());
-		dos.writeLong(this.lastPtr);
-		dos.close();
+	public final void beginChkpt() throws IOException {
+		this.trace.beginChkpt();
 	}
 
-	public final synchronized void commitChkpt() throws IOException {
-		final File oldChkpt = new File(filename + ".chkpt");
-		final File newChkpt = new File(filename + ".tmp");
-		if ((oldChkpt.exists() && !oldChkpt.delete()) || !newChkpt.renameTo(oldChkpt)) {
-			throw new IOException("Trace.commitChkpt: cannot delete " + oldChkpt);
-		}
+	public final void commitChkpt() throws IOException {
+		this.trace.commitChkpt();
 	}
 
 	public final void recover() throws IOException {
-		final DataInputStream dis = FileUtil.newDFIS(filename + ".chkpt");
-		final long filePos = dis.readLong();
-		this.lastPtr = dis.readLong();
-		dis.close();
-		this.raf.seek(filePos);
+		this.trace.recover();
+	}
+	
+	public final void closeTrace() throws IOException {
+		this.trace.close();
 	}
 	
 	/* Enumerator */
 	
-	public final Enumerator elements() throws IOException {
-		return new Enumerator();
-	}
-
-	public class Enumerator {
-
-		private final long len;
-		private final BufferedRandomAccessFile enumRaf;
-
-		Enumerator() throws IOException {
-			this.len = raf.getFilePointer();
-			this.enumRaf = new BufferedRandomAccessFile(filename + TLCTrace.EXT, "r");
-		}
-
-		public boolean hasMoreFP() {
-			final long fpos = this.enumRaf.getFilePointer();
-			if (fpos < this.len) {
-				return true;
-			}
-			return false;
-		}
-
-		public long nextFP() throws IOException {
-			this.enumRaf.readLongNat(); /* drop */
-			this.enumRaf.readShortNat(); /* drop */
-			return this.enumRaf.readLong();
-		}
-
-		public void close() throws IOException {
-			this.enumRaf.close();
-		}
+	public final TLCTraceSegment.Enumerator elements() throws IOException {
+		return this.trace.elements();
 	}
 	
 	//**************************************************************//
@@ -339,6 +301,7 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 		
 		try {
 			if (!this.tool.isGoodState(succState)) {
+				doNextSuccessors(curState);
 				this.tlc.doNextSetErr(curState, succState, action);
 				throw new InvariantViolatedException();
 			}
@@ -346,17 +309,27 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 			// Check if state is excluded by a state or action constraint.
 			final boolean inModel = (this.tool.isInModel(succState) && this.tool.isInActions(curState, succState));
 			
-			// Check if state is new or has been seen earlier.
-			boolean unseen = true;
 			if (inModel) {
-				unseen = !isSeenState(curState, succState, action);
+				// Defer the check if the state is new or has been seen earlier
+				// until all successors of curState (or a full batch) have been
+				// generated. Most successors have been seen before, thus the
+				// FPSet is queried for the whole batch at once.
+				this.succFPs[batched] = succState.fingerPrint();
+				this.succStates[batched] = succState;
+				this.succActions[batched] = action;
+				if (++batched == BATCH_SIZE) {
+					doNextSuccessors(curState);
+				}
+				return this;
 			}
 			
-			// Check if succState violates any invariant:
-			if (unseen) {
-				if (this.doNextCheckInvariants(curState, succState)) {
-					throw new InvariantViolatedException();
-				}
+			// A state that is not in the model counts as unseen and is checked
+			// against the invariants, but never explored any further. Check the
+			// successors generated earlier first to report violations in the
+			// order of generation.
+			doNextSuccessors(curState);
+			if (this.doNextCheckInvariants(curState, succState)) {
+				throw new InvariantViolatedException();
 			}
 			
 			// Check if the state violates any implied action. We need to do it
@@ -364,26 +337,98 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 			if (this.doNextCheckImplied(curState, succState)) {
 				throw new InvariantViolatedException();
 			}
-			
-			if (inModel && unseen) {
-				// The state is inModel, unseen and neither invariants
-				// nor implied actions are violated. It is thus eligible
-				// for further processing by other workers.
-				this.squeue.sEnqueue(succState);
-			}
 			return this;
 		} catch (Exception e) {
+			// succState stops the exploration of curState's successors. Without
+			// batching, the successors generated earlier would already have been
+			// processed. This is a no-op if the exception stems from processing
+			// them.
+			try {
+				doNextSuccessors(curState);
+			} catch (Exception e2) {
+				throw new RuntimeException(e2);
+			}
 			throw new RuntimeException(e);
 		}
 	}
 
-	private final boolean isSeenState(final TLCState curState, final TLCState succState, final Action action)
-			throws IOException {
-		final long fp = succState.fingerPrint();
-		final boolean seen = this.theFPSet.put(fp);
+	/**
+	 * Puts the batched successor states of curState into the FPSet and checks
+	 * and enqueues the ones that are new.
+	 * <p>
+	 * The whole batch is put with a single
+	 * {@link FPSet#putAll(long[], int, BitVector)}, after which the successors
+	 * are processed in the order of their generation. If an invariant is
+	 * violated or its evaluation fails, the new successors batched after the
+	 * violating state are in the FPSet although TLC would not have generated
+	 * them without batching. They are neither in the trace nor in the queue,
+	 * and are subtracted from the reported number of distinct states (see
+	 * {@link #getDiscardedStates()}).
+	 * Note that the remaining successors of curState are generated regardless.
+	 */
+	private final void doNextSuccessors(final TLCState curState) throws IOException, WorkerException, Exception {
+		final int len = batched;
+		if (len == 0) {
+			return;
+		}
+		batched = 0;
+		
+		// Check which states have been seen earlier (usually, these are most
+		// of them) and add the new ones. Only the first of duplicates in the
+		// batch is new.
+		this.theFPSet.putAll(this.succFPs, len, this.seen);
+		
+		int i = 0;
+		try {
+			for (; i < len; i++) {
+				final long fp = this.succFPs[i];
+				final TLCState succState = this.succStates[i];
+				final Action action = this.succActions[i];
+				// Do not keep the states alive until the next batch.
+				this.succStates[i] = null;
+				this.succActions[i] = null;
+				
+				final boolean unseen = !this.seen.get(i);
+				markSeenState(curState, succState, action, fp, unseen);
+				
+				// Check if succState violates any invariant and if the state
+				// violates any implied action. We need to do the latter even if
+				// succState is not new.
+				if ((unseen && this.doNextCheckInvariants(curState, succState))
+						|| this.doNextCheckImplied(curState, succState)) {
+					throw new InvariantViolatedException();
+				}
+				
+				if (unseen) {
+					// The state is inModel, unseen and neither invariants
+					// nor implied actions are violated. It is thus eligible
+					// for further processing by other workers.
+					this.squeue.sEnqueue(succState);
+				}
+			}
+		} finally {
+			if (i < len) {
+				// A violation or an exception (e.g. an EvalException) has
+				// stopped the processing at succState i. The successors
+				// batched after it would not have been generated without
+				// batching.
+				this.statesGenerated -= len - i - 1;
+				for (int j = i + 1; j < len; j++) {
+					if (!this.seen.get(j)) {
+						this.discardedStates++;
+					}
+					this.succStates[j] = null;
+					this.succActions[j] = null;
+				}
+			}
+		}
+	}
+
+	private final void markSeenState(final TLCState curState, final TLCState succState, final Action action,
+			final long fp, final boolean unseen) throws IOException {
 		// Write out succState when needed:
-		this.allStateWriter.writeState(curState, succState, !seen, action);
-		if (!seen) {
+		this.allStateWriter.writeState(curState, succState, unseen, action);
+		if (unseen) {
 			// Write succState to trace only if it satisfies the
 			// model constraints. Do not enqueue it yet, but wait
 			// for implied actions and invariants to be checked.
@@ -400,7 +445,6 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 		{
 			this.setOfStates.put(fp, succState);
 		}
-		return seen;
 	}
 
 	private final boolean doNextCheckInvariants(final TLCState curState, final TLCState succState) throws IOException, WorkerException, Exception {
@@ -440,6 +440,8 @@ public class CostModelCreator extends ExplorerVisitor {
         	invariant.cm.report();
 		}	
         
+        tool.reportMemoization();
+        
         // https://github.com/tlaplus/tlaplus/issues/413#issuecomment-577304602
         if (Boolean.getBoolean(CostModelCreator.class.getName() + ".implied")) {
     		for (Action impliedInits : tool.getImpliedInits()) {
@@ -26,6 +26,10 @@ public class NextStateResult implements Serializable {
 		return statesComputed - nextStates.length;
 	}
 
+	public long getStatesComputed() {
+		return statesComputed;
+	}
+
 	public long getComputationTime() {
 		return computationTime;
 	}
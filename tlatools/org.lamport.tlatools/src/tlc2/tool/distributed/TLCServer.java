@@ -104,6 +104,18 @@ public class TLCServer extends UnicastRemoteObject implements TLCServerRMI,
 	 */
 	private static final int expectedFPSetCount = Integer.getInteger(TLCServer.class.getName() + ".expectedFPSetCount", 0);
 
+	/**
+	 * If workers insert the fingerprints of new states into the (partitioned)
+	 * fingerprint set themselves. The server then only receives states that
+	 * have not been seen before and is off the data path to the fingerprint
+	 * servers. If the result of a worker never reaches the server, the server
+	 * computes the successors of the corresponding states itself (see
+	 * TLCServerThread#recover).
+	 * 
+	 * @see TLCServerRMI#getWorkerPutBlock()
+	 */
+	static final boolean WORKER_PUT_BLOCK = Boolean.getBoolean(TLCServer.class.getName() + ".workerPutBlock");
+
 	/**
 	 * Performance metric: distinct states per minute
 	 */
@@ -219,6 +231,21 @@ public class TLCServer extends UnicastRemoteObject implements TLCServerRMI,
 		return this.work.getPreprocess();
 	}
 
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.TLCServerRMI#getWorkerPutBlock()
+	 */
+	public final Boolean getWorkerPutBlock() {
+		return WORKER_PUT_BLOCK;
+	}
+
+	/**
+	 * @return The {@link DistApp} with which the server computes the initial
+	 *         states and, if a worker gets lost, successor states.
+	 */
+	final DistApp getWork() {
+		return this.work;
+	}
+
 	/* (non-Javadoc)
 	 * @see tlc2.tool.distributed.TLCServerRMI#getFPSetManager()
 	 */
@@ -27,6 +27,13 @@ public interface TLCServerRMI extends Remote {
 
 	public IFPSetManager getFPSetManager() throws RemoteException;
 
+	/**
+	 * @return true iff workers add the fingerprints of new states to the
+	 *         {@link IFPSetManager} instead of the server
+	 * @throws RemoteException
+	 */
+	public Boolean getWorkerPutBlock() throws RemoteException;
+
 	public long getIrredPolyForFP() throws RemoteException;
 	
 	/**
@@ -5,12 +5,15 @@
 package tlc2.tool.distributed;
 
 import java.io.EOFException;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.net.URI;
 import java.rmi.RemoteException;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ExecutorService;
@@ -22,7 +25,10 @@ import tlc2.output.MP;
 import tlc2.tool.TLCState;
 import tlc2.tool.TLCStateVec;
 import tlc2.tool.WorkerException;
+import tlc2.tool.distributed.fp.IFPSetManager;
 import tlc2.tool.distributed.selector.IBlockSelector;
+import tlc2.tool.distributed.transport.Transport;
+import tlc2.tool.distributed.transport.TransportFactory;
 import tlc2.tool.fp.FPSet;
 import tlc2.tool.queue.IStateQueue;
 import tlc2.tool.queue.StateQueue;
@@ -99,7 +105,13 @@ public class TLCServerThread extends IdThread {
 	 * 
 	 * @see TLCServerThread#tlcServer
 	 */
-	private final TLCWorkerRMI worker;
+	private final TLCWorkerSmartProxy worker;
+	/**
+	 * Carries the units of work to the remote worker and the results back.
+	 * 
+	 * @see TransportFactory
+	 */
+	private Transport transport;
 	/**
 	 * The {@link TLCServer} master this {@link TLCServerThread} provides the
 	 * service of handling a single remote worker. A {@link TLCServer} uses n
@@ -151,10 +163,17 @@ public class TLCServerThread extends IdThread {
 	 */
 	public void run() {
 		TLCGlobals.incNumWorkers();
-		TLCStateVec[] newStates = null;
-		LongVec[] newFps = null;
 
 		final IStateQueue stateQueue = this.tlcServer.stateQueue;
+		try {
+			transport = TransportFactory.getTransport(worker);
+		} catch (IOException e) {
+			MP.printMessage(EC.TLC_DISTRIBUTED_WORKER_LOST,
+					// have the stack trace on a newline
+					"\n" + throwableToString(e));
+			handleRemoteWorkerLost(stateQueue);
+			return;
+		}
 		try {
 			START: while (true) {
 				// blocks until more states available or all work is done
@@ -177,98 +196,86 @@ public class TLCServerThread extends IdThread {
 				sentStates += states.length;
 
 				// real work happens here:
-				// worker computes next states for states
-				boolean workDone = false;
-				while (!workDone) {
-					try {
-						final NextStateResult res = this.worker.getNextStates(states);
-						newStates = res.getNextStates();
+				// worker computes next states for states. The block is split into
+				// units of work which are all handed to the transport up front. A
+				// pipelining transport thus transfers the next unit while the
+				// worker computes the current one and the result of the previous
+				// unit gets added to the fingerprint set and the queue below. No
+				// new block is dequeued while units are outstanding because this
+				// thread must not block on the queue with work in flight (the
+				// queue would wrongly conclude that all work is done).
+				final TLCState[][] units = split(states, transport.getDepth());
+				try {
+					for (int i = 0; i < units.length; i++) {
+						transport.send(units[i]);
+					}
+					for (int received = 0; received < units.length; received++) {
+						final NextStateResult res = transport.receive();
+						final TLCStateVec[] newStates = res.getNextStates();
 						receivedStates += newStates[0].size();
-						newFps = res.getNextFingerprints();
-						workDone = true;
+						final LongVec[] newFps = res.getNextFingerprints();
 						task.setLastInvocation(System.currentTimeMillis());
 						// Read remote worker cache hits which correspond to
 						// states skipped
 						tlcServer.addStatesGeneratedDelta(res.getStatesComputedDelta());
-					} catch (RemoteException e) {
-						// If a (remote) {@link TLCWorkerRMI} fails due to the
-						// amount of new states we have sent it, try to lower
-						// the amount of states
-						// and re-send (until we just send a single state)
-						if (isRecoverable(e) && states.length > 1) {
-							MP.printMessage(
-									EC.TLC_DISTRIBUTED_EXCEED_BLOCKSIZE,
-									Integer.toString(states.length / 2));
-							// states[] exceeds maximum transferable size
-							// (add states back to queue and retry)
+
+						enqueue(stateQueue, newStates, newFps);
+
+						// The unit is done, a lost worker only returns the remaining units.
+						states = join(units, received + 1);
+					}
+				} catch (RemoteException e) {
+					// If a (remote) {@link TLCWorkerRMI} fails due to the
+					// amount of new states we have sent it, try to lower
+					// the amount of states
+					// and re-send (until we just send a single state)
+					if (isRecoverable(e) && states.length > 1) {
+						MP.printMessage(
+								EC.TLC_DISTRIBUTED_EXCEED_BLOCKSIZE,
+								Integer.toString(states.length / 2));
+						// states[] exceeds maximum transferable size
+						// (add states back to queue and retry)
+						if (TLCServer.WORKER_PUT_BLOCK) {
+							recover(stateQueue, states);
+						} else {
 							stateQueue.sEnqueue(states);
-							// half the maximum size and use it as a limit from
-							// now on
-							selector.setMaxTXSize(states.length / 2);
-							// go back to beginning
-							continue START;
-						} else { 
-							// non recoverable errors, exit...
-							MP.printMessage(
-									EC.TLC_DISTRIBUTED_WORKER_LOST,
+						}
+						// half the maximum size and use it as a limit from
+						// now on
+						selector.setMaxTXSize(states.length / 2);
+						// Results of units still outstanding are of no use,
+						// start over with a fresh transport.
+						transport.close();
+						try {
+							transport = TransportFactory.getTransport(worker);
+						} catch (IOException ioe) {
+							MP.printMessage(EC.TLC_DISTRIBUTED_WORKER_LOST,
 									getUri().toString());
+							// states have been returned to the queue already
+							states = new TLCState[0];
 							handleRemoteWorkerLost(stateQueue);
 							return;
 						}
-					} catch (NullPointerException e) {
-						MP.printMessage(EC.TLC_DISTRIBUTED_WORKER_LOST,
-								// have the stack trace on a newline
-								"\n" + throwableToString(e));
+						// go back to beginning
+						continue START;
+					} else { 
+						// non recoverable errors, exit...
+						MP.printMessage(
+								EC.TLC_DISTRIBUTED_WORKER_LOST,
+								getUri().toString());
 						handleRemoteWorkerLost(stateQueue);
 						return;
 					}
-				}
-
-				// add fingerprints to fingerprint manager (delegates to
-				// corresponding fingerprint server)
-				// (Why isn't this done by workers directly?
-				// -> because if the worker crashes while computing states, the
-				// fp set would be inconsistent => making it an "atomic"
-				// operation)
-				BitVector[] visited = this.tlcServer.fpSetManager
-						.putBlock(newFps, executorService);
-
-				// recreate newly computed states and add them to queue
-				for (int i = 0; i < visited.length; i++) {
-					BitVector.Iter iter = new BitVector.Iter(visited[i]);
-					int index;
-					while ((index = iter.next()) != -1) {
-						TLCState state = newStates[i].elementAt(index);
-						// write state id and state fp to .st file for
-						// checkpointing
-						long fp = newFps[i].elementAt(index);
-						state.uid = this.tlcServer.trace.writeState(state, fp);
-						// add state to state queue for further processing
-						stateQueue.sEnqueue(state);
-					}
+				} catch (NullPointerException e) {
+					MP.printMessage(EC.TLC_DISTRIBUTED_WORKER_LOST,
+							// have the stack trace on a newline
+							"\n" + throwableToString(e));
+					handleRemoteWorkerLost(stateQueue);
+					return;
 				}
 			}
 		} catch (Throwable e) {
-			TLCState state1 = null, state2 = null;
-			if (e instanceof WorkerException) {
-				state1 = ((WorkerException) e).state1;
-				state2 = ((WorkerException) e).state2;
-			}
-			if (this.tlcServer.setErrState(state1, true)) {
-				if (state1 != null) {
-					try {
-						this.tlcServer.trace.printTrace(state1, state2);
-					} catch (Exception e1) {
-						MP.printError(EC.GENERAL, e1);
-					}
-				} else {
-					MP.printError(EC.GENERAL, e);
-				}
-				stateQueue.finishAll();
-				synchronized (this.tlcServer) {
-					this.tlcServer.notify();
-				}
-			}
+			handleError(stateQueue, e);
 		} finally {
 			try {
 				cacheRateHitRatio = worker.getCacheRateRatio();
@@ -283,6 +290,7 @@ public class TLCServerThread extends IdThread {
 						"Failed to read remote worker cache statistic (Expect to see a negative chache hit rate. Does not invalidate model checking results)");
 			}
 			keepAliveTimer.cancel();
+			transport.close();
 			states = new TLCState[0];
 			// not calling TLCGlobals#decNumWorkers here because at this point
 			// TLCServer is shutting down anyway
@@ -300,6 +308,155 @@ public class TLCServerThread extends IdThread {
 				.getCause() instanceof OutOfMemoryError));
 	}
 
+	/**
+	 * Stops model checking because of the given error (e.g. an invariant
+	 * violation reported by the worker).
+	 */
+	private void handleError(final IStateQueue stateQueue, final Throwable e) {
+		TLCState state1 = null, state2 = null;
+		if (e instanceof WorkerException) {
+			state1 = ((WorkerException) e).state1;
+			state2 = ((WorkerException) e).state2;
+		}
+		if (this.tlcServer.setErrState(state1, true)) {
+			if (state1 != null) {
+				try {
+					this.tlcServer.trace.printTrace(state1, state2);
+				} catch (Exception e1) {
+					MP.printError(EC.GENERAL, e1);
+				}
+			} else {
+				MP.printError(EC.GENERAL, e);
+			}
+			stateQueue.finishAll();
+			synchronized (this.tlcServer) {
+				this.tlcServer.notify();
+			}
+		}
+	}
+
+	/**
+	 * A worker that adds the fingerprints of the successor states itself (see
+	 * TLCServer#WORKER_PUT_BLOCK) might have done so for states whose result
+	 * never reached the server. Returned to the queue, the next worker would
+	 * discard their successors as seen although nobody explores them. Instead,
+	 * the server computes the successors itself and enqueues all of them
+	 * regardless of the fingerprint set. A successor that another worker has
+	 * enqueued already is thus explored twice, which is redundant but sound.
+	 */
+	private void recover(final IStateQueue stateQueue, final TLCState[] states) throws IOException, WorkerException {
+		final DistApp work = this.tlcServer.getWork();
+		final IFPSetManager fpSetManager = this.tlcServer.fpSetManager;
+		final int fpServerCnt = fpSetManager.numOfServers();
+		final TLCStateVec[] newStates = new TLCStateVec[fpServerCnt];
+		final LongVec[] newFps = new LongVec[fpServerCnt];
+		for (int i = 0; i < fpServerCnt; i++) {
+			newStates[i] = new TLCStateVec();
+			newFps[i] = new LongVec();
+		}
+		final Set<Long> fps = new HashSet<Long>();
+		for (int i = 0; i < states.length; i++) {
+			final TLCState state1 = states[i];
+			final TLCState[] nstates = work.getNextStates(state1);
+			for (int j = 0; j < nstates.length; j++) {
+				final TLCState state2 = nstates[j];
+				final long fp = state2.fingerPrint();
+				if (fps.add(fp)) {
+					work.checkState(state1, state2);
+					if (work.isInModel(state2) && work.isInActions(state1, state2)) {
+						state2.uid = state1.uid;
+						final int fpIndex = fpSetManager.getFPSetIndex(fp);
+						newStates[fpIndex].addElement(state2);
+						newFps[fpIndex].addElement(fp);
+					}
+				}
+			}
+		}
+		// The worker might have been lost before it inserted the fingerprints.
+		fpSetManager.putBlock(newFps, executorService);
+		for (int i = 0; i < fpServerCnt; i++) {
+			for (int index = 0; index < newStates[i].size(); index++) {
+				enqueue(stateQueue, newStates[i].elementAt(index), newFps[i].elementAt(index));
+			}
+		}
+	}
+
+	private void enqueue(final IStateQueue stateQueue, final TLCStateVec[] newStates, final LongVec[] newFps)
+			throws IOException {
+		// add fingerprints to fingerprint manager (delegates to
+		// corresponding fingerprint server)
+		// (Why isn't this done by workers directly?
+		// -> because if the worker crashes while computing states, the
+		// fp set would be inconsistent => making it an "atomic"
+		// operation)
+		if (TLCServer.WORKER_PUT_BLOCK) {
+			// Unless the worker added them already, in which case all states
+			// are new (see TLCServer#WORKER_PUT_BLOCK).
+			for (int i = 0; i < newStates.length; i++) {
+				for (int index = 0; index < newStates[i].size(); index++) {
+					enqueue(stateQueue, newStates[i].elementAt(index), newFps[i].elementAt(index));
+				}
+			}
+			return;
+		}
+		BitVector[] visited = this.tlcServer.fpSetManager
+				.putBlock(newFps, executorService);
+
+		// recreate newly computed states and add them to queue
+		for (int i = 0; i < visited.length; i++) {
+			BitVector.Iter iter = new BitVector.Iter(visited[i]);
+			int index;
+			while ((index = iter.next()) != -1) {
+				enqueue(stateQueue, newStates[i].elementAt(index), newFps[i].elementAt(index));
+			}
+		}
+	}
+
+	private void enqueue(final IStateQueue stateQueue, final TLCState state, final long fp) throws IOException {
+		// write state id and state fp to .st file for
+		// checkpointing
+		state.uid = this.tlcServer.trace.writeState(state, fp);
+		// add state to state queue for further processing
+		stateQueue.sEnqueue(state);
+	}
+
+	/**
+	 * Splits the given states into at most n units of work of (almost) equal
+	 * size.
+	 */
+	static TLCState[][] split(final TLCState[] states, final int n) {
+		final int units = Math.max(1, Math.min(n, states.length));
+		if (units == 1) {
+			return new TLCState[][] { states };
+		}
+		final TLCState[][] result = new TLCState[units][];
+		int from = 0;
+		for (int i = 0; i < units; i++) {
+			final int to = from + (states.length - from) / (units - i);
+			result[i] = new TLCState[to - from];
+			System.arraycopy(states, from, result[i], 0, to - from);
+			from = to;
+		}
+		return result;
+	}
+
+	/**
+	 * @return The states of the units of work starting at the given index.
+	 */
+	static TLCState[] join(final TLCState[][] units, final int from) {
+		int size = 0;
+		for (int i = from; i < units.length; i++) {
+			size += units[i].length;
+		}
+		final TLCState[] result = new TLCState[size];
+		int pos = 0;
+		for (int i = from; i < units.length; i++) {
+			System.arraycopy(units[i], 0, result, pos, units[i].length);
+			pos += units[i].length;
+		}
+		return result;
+	}
+
 	private String throwableToString(final Exception e) {
 		final Writer result = new StringWriter();
 		final PrintWriter printWriter = new PrintWriter(result);
@@ -332,7 +489,15 @@ public class TLCServerThread extends IdThread {
 			
 			// Return the undone worklist (if any)
 			if (stateQueue != null) {
-				stateQueue.sEnqueue(states != null ? states : new TLCState[0]);
+				if (TLCServer.WORKER_PUT_BLOCK && states != null) {
+					try {
+						recover(stateQueue, states);
+					} catch (Throwable e) {
+						handleError(stateQueue, e);
+					}
+				} else {
+					stateQueue.sEnqueue(states != null ? states : new TLCState[0]);
+				}
 			}
 			
 			// Reset states to empty array to signal to TLCServer that we are not
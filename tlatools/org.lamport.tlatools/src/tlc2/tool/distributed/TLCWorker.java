@@ -34,6 +34,7 @@ import tlc2.tool.TLCState;
 import tlc2.tool.TLCStateVec;
 import tlc2.tool.WorkerException;
 import tlc2.tool.distributed.fp.IFPSetManager;
+import tlc2.tool.distributed.transport.StreamEndpoint;
 import tlc2.util.BitVector;
 import tlc2.util.Cache;
 import tlc2.util.FP64;
@@ -51,6 +52,10 @@ public class TLCWorker extends UnicastRemoteObject implements TLCWorkerRMI {
 	private static RMIFilenameToStreamResolver fts;
 	private static final ExecutorService executorService = Executors.newCachedThreadPool();
 	private static TLCWorkerRunnable[] runnables = new TLCWorkerRunnable[0];
+	/**
+	 * @see TLCServerRMI#getWorkerPutBlock()
+	 */
+	private static boolean putBlock = false;
 
 	private static volatile CountDownLatch cdl;
 	
@@ -65,6 +70,10 @@ public class TLCWorker extends UnicastRemoteObject implements TLCWorkerRMI {
 	private long overallStatesComputed;
 	
 	private final Cache cache;
+	/**
+	 * Receives units of work from a {@link tlc2.tool.distributed.transport.StreamTransport} (lazily opened).
+	 */
+	private volatile StreamEndpoint endpoint;
 	
 
 	public TLCWorker(final int threadId, DistApp work, IFPSetManager fpSetManager, String aHostname)
@@ -183,6 +192,26 @@ public class TLCWorker extends UnicastRemoteObject implements TLCWorkerRMI {
 				}
 			}
 			
+			if (putBlock) {
+				// Add the new states to the fingerprint servers directly instead
+				// of via the server. Only those that have not been added by
+				// another worker since the containsBlock above go back to the
+				// server to be enqueued.
+				visited = this.fpSetManager.putBlock(newFps, executorService);
+				for (int i = 0; i < fpServerCnt; i++) {
+					final TLCStateVec unseen = new TLCStateVec();
+					final LongVec fps = new LongVec();
+					BitVector.Iter iter = new BitVector.Iter(visited[i]);
+					int index;
+					while ((index = iter.next()) != -1) {
+						unseen.addElement(newStates[i].elementAt(index));
+						fps.addElement(newFps[i].elementAt(index));
+					}
+					newStates[i] = unseen;
+					newFps[i] = fps;
+				}
+			}
+			
 			// Prepare the return value.
 			final long computationTime = System.currentTimeMillis() - lastInvocation;
 			return new NextStateResult(newStates, newFps, computationTime, statesComputed);
@@ -199,6 +228,23 @@ public class TLCWorker extends UnicastRemoteObject implements TLCWorkerRMI {
 		}
 	}
 
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.TLCWorkerRMI#openStreamEndpoint()
+	 */
+	public synchronized StreamEndpoint.Ticket openStreamEndpoint() throws RemoteException {
+		if (this.endpoint == null) {
+			try {
+				// Listen on the address that RMI advertises for this worker.
+				final String host = System.getProperty("java.rmi.server.hostname", uri.getHost());
+				this.endpoint = new StreamEndpoint(this, InetAddress.getByName(host),
+						"TLCWorker Stream Endpoint [" + uri.toASCIIString() + "]");
+			} catch (IOException e) {
+				throw new RemoteException("Failed to open stream endpoint at worker: " + uri.toASCIIString(), e);
+			}
+		}
+		return this.endpoint.getTicket();
+	}
+
 	/* (non-Javadoc)
 	 * @see tlc2.tool.distributed.TLCWorkerRMI#exit()
 	 */
@@ -212,6 +258,10 @@ public class TLCWorker extends UnicastRemoteObject implements TLCWorkerRMI {
 		
 		keepAliveTimer.cancel();
 		
+		if (this.endpoint != null) {
+			this.endpoint.close();
+		}
+		
 		UnicastRemoteObject.unexportObject(TLCWorker.this, true);
 		
 		cdl.countDown();
@@ -375,6 +425,7 @@ public class TLCWorker extends UnicastRemoteObject implements TLCWorkerRMI {
 					server.getConfigFileName(), server.getCheckDeadlock(), fts);
 
 			final IFPSetManager fpSetManager = server.getFPSetManager();
+			putBlock = server.getWorkerPutBlock();
 			
 			runnables = new TLCWorkerRunnable[numCores];
 			for (int j = 0; j < numCores; j++) {
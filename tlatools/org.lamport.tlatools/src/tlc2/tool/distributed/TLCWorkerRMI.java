@@ -11,6 +11,7 @@ import java.rmi.RemoteException;
 
 import tlc2.tool.TLCState;
 import tlc2.tool.WorkerException;
+import tlc2.tool.distributed.transport.StreamEndpoint;
 
 /**
  * @author Simon Zambrovski
@@ -27,6 +28,16 @@ public interface TLCWorkerRMI extends Remote {
 	public NextStateResult getNextStates(TLCState[] states) throws RemoteException,
 			WorkerException;
 	
+	/**
+	 * Opens (if not yet open) the endpoint over which the server streams units of
+	 * work to this worker instead of calling {@link #getNextStates(TLCState[])}.
+	 * 
+	 * @return The address and the token of the endpoint
+	 * @see tlc2.tool.distributed.transport.StreamTransport
+	 * @throws RemoteException
+	 */
+	public StreamEndpoint.Ticket openStreamEndpoint() throws RemoteException;
+	
 	/**
 	 * @return true iff worker is still alive
 	 */
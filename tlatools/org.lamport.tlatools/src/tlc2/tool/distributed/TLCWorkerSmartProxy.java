@@ -5,6 +5,7 @@ import java.rmi.RemoteException;
 
 import tlc2.tool.TLCState;
 import tlc2.tool.WorkerException;
+import tlc2.tool.distributed.transport.StreamEndpoint;
 
 /**
  * Poor mans RMI smart proxy which is used to measure network overhead
@@ -34,7 +35,22 @@ public class TLCWorkerSmartProxy implements TLCWorkerRMI {
 		// do actual remote call
 		final NextStateResult nextStates = worker.getNextStates(states);
 
-		final long roundTripTime = (System.currentTimeMillis() - start) + 1; // at least one millisecond if get next below resolution
+		measure(System.currentTimeMillis() - start, nextStates, states.length);
+		
+		return nextStates;
+	}
+
+	/**
+	 * Updates the network overhead with the round trip of a unit of work that
+	 * has not been sent with {@link #getNextStates(TLCState[])}.
+	 * 
+	 * @param elapsed The time in ms spent to transfer and compute the unit of work
+	 * @param nextStates The result computed by the worker
+	 * @param size The amount of states in the unit of work
+	 * @see tlc2.tool.distributed.transport.StreamTransport
+	 */
+	public void measure(final long elapsed, final NextStateResult nextStates, final int size) {
+		final long roundTripTime = elapsed + 1; // at least one millisecond if get next below resolution
 		final long computationTime = sanitizeComputationTime(nextStates.getComputationTime());
 
 		// RTT has to be bigger than computation alone
@@ -43,9 +59,7 @@ public class TLCWorkerSmartProxy implements TLCWorkerRMI {
 		double percentageNetworkOverhead = networkTime / roundTripTime;
 		
 		// network overhead per state
-		networkOverhead = percentageNetworkOverhead / states.length;
-		
-		return nextStates;
+		networkOverhead = percentageNetworkOverhead / size;
 	}
 	
 	// handle illegal values from worker
@@ -69,6 +83,13 @@ public class TLCWorkerSmartProxy implements TLCWorkerRMI {
 		worker.exit();
 	}
 
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.TLCWorkerRMI#openStreamEndpoint()
+	 */
+	public StreamEndpoint.Ticket openStreamEndpoint() throws RemoteException {
+		return worker.openStreamEndpoint();
+	}
+
 	/* (non-Javadoc)
 	 * @see tlc2.tool.distributed.TLCWorkerRMI#getURI()
 	 */
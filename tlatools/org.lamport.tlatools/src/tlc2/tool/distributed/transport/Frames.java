@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.distributed.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.rmi.RemoteException;
+import java.rmi.ServerException;
+
+import tlc2.tool.TLCState;
+import tlc2.tool.TLCStateVec;
+import tlc2.tool.WorkerException;
+import tlc2.tool.distributed.NextStateResult;
+import tlc2.util.LongVec;
+import tlc2.value.ValueInputStream;
+import tlc2.value.ValueOutputStream;
+
+/**
+ * Codec of the frames exchanged by {@link StreamTransport} and
+ * {@link StreamEndpoint}. A frame is its length followed by its payload. The
+ * payload is written with a {@link ValueOutputStream} (the same encoding the
+ * disk-based state queues use) with a handle table that is private to the
+ * frame, i.e. frames can be decoded independently.
+ * <p>
+ * A request frame is the number of states followed by the states. A result
+ * frame is either {@link #OK} followed by the computation time, the number of
+ * states computed and - for each fingerprint server - the number of successors
+ * followed by (fingerprint, successor) pairs, or {@link #ERROR} followed by the
+ * Java serialized exception thrown by the worker.
+ */
+final class Frames {
+
+	static final byte OK = 0;
+	static final byte ERROR = 1;
+
+	/**
+	 * The maximum length of a frame. A larger length read from a stream is taken
+	 * as a corrupt (or foreign) stream instead of allocating a buffer for it.
+	 */
+	static final int MAX_LENGTH = Integer.getInteger(Frames.class.getName() + ".maxLength", 1 << 28);
+
+	private Frames() {
+		// no instances
+	}
+
+	static void write(final DataOutputStream out, final byte[] frame) throws IOException {
+		if (frame.length > MAX_LENGTH) {
+			throw new IOException("Frame length " + frame.length + " exceeds the maximum of " + MAX_LENGTH);
+		}
+		out.writeInt(frame.length);
+		out.write(frame);
+		out.flush();
+	}
+
+	static byte[] read(final DataInputStream in) throws IOException {
+		final int length = in.readInt();
+		// Every frame has at least the number of states or the result type.
+		if (length < 1 || length > MAX_LENGTH) {
+			throw new IOException("Invalid frame length " + length);
+		}
+		final byte[] frame = new byte[length];
+		in.readFully(frame);
+		return frame;
+	}
+
+	static byte[] encodeStates(final TLCState[] states) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ValueOutputStream vos = new ValueOutputStream(bytes);
+		vos.writeInt(states.length);
+		for (int i = 0; i < states.length; i++) {
+			states[i].write(vos);
+		}
+		vos.close();
+		return bytes.toByteArray();
+	}
+
+	static TLCState[] decodeStates(final byte[] frame) throws IOException {
+		final ValueInputStream vis = new ValueInputStream(new ByteArrayInputStream(frame));
+		final TLCState[] states = new TLCState[vis.readInt()];
+		for (int i = 0; i < states.length; i++) {
+			states[i] = TLCState.Empty.createEmpty();
+			states[i].read(vis);
+		}
+		return states;
+	}
+
+	static byte[] encodeResult(final NextStateResult result) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		bytes.write(OK);
+		final ValueOutputStream vos = new ValueOutputStream(bytes);
+		vos.writeLong(result.getComputationTime());
+		vos.writeLong(result.getStatesComputed());
+		final TLCStateVec[] nextStates = result.getNextStates();
+		final LongVec[] nextFps = result.getNextFingerprints();
+		vos.writeInt(nextStates.length);
+		for (int i = 0; i < nextStates.length; i++) {
+			vos.writeInt(nextStates[i].size());
+			for (int j = 0; j < nextStates[i].size(); j++) {
+				vos.writeLong(nextFps[i].elementAt(j));
+				nextStates[i].elementAt(j).write(vos);
+			}
+		}
+		vos.close();
+		return bytes.toByteArray();
+	}
+
+	static byte[] encodeError(final Exception e) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		bytes.write(ERROR);
+		final ObjectOutputStream oos = new ObjectOutputStream(bytes);
+		oos.writeObject(e);
+		oos.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * @throws WorkerException
+	 *             if the worker failed to compute the successors.
+	 * @throws RemoteException
+	 *             if the worker ran into a {@link RemoteException}. It is wrapped
+	 *             in a {@link ServerException} the way RMI does.
+	 */
+	static NextStateResult decodeResult(final byte[] frame) throws IOException, WorkerException {
+		if (frame[0] == ERROR) {
+			final Object e;
+			final ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(frame, 1, frame.length - 1));
+			try {
+				e = ois.readObject();
+			} catch (ClassNotFoundException cnfe) {
+				throw new IOException(cnfe);
+			} finally {
+				ois.close();
+			}
+			if (e instanceof WorkerException) {
+				throw (WorkerException) e;
+			} else if (e instanceof RemoteException) {
+				throw new ServerException("RemoteException occurred in server thread", (RemoteException) e);
+			}
+			throw new RemoteException("Exception occurred at worker", (Throwable) e);
+		}
+		final ValueInputStream vis = new ValueInputStream(new ByteArrayInputStream(frame, 1, frame.length - 1));
+		final long computationTime = vis.readLong();
+		final long statesComputed = vis.readLong();
+		final TLCStateVec[] nextStates = new TLCStateVec[vis.readInt()];
+		final LongVec[] nextFps = new LongVec[nextStates.length];
+		for (int i = 0; i < nextStates.length; i++) {
+			final int size = vis.readInt();
+			nextStates[i] = new TLCStateVec(size);
+			nextFps[i] = new LongVec(size);
+			for (int j = 0; j < size; j++) {
+				nextFps[i].addElement(vis.readLong());
+				final TLCState state = TLCState.Empty.createEmpty();
+				state.read(vis);
+				nextStates[i].addElement(state);
+			}
+		}
+		return new NextStateResult(nextStates, nextFps, computationTime, statesComputed);
+	}
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.distributed.transport;
+
+import java.rmi.RemoteException;
+
+import tlc2.tool.TLCState;
+import tlc2.tool.WorkerException;
+import tlc2.tool.distributed.NextStateResult;
+import tlc2.tool.distributed.TLCWorkerRMI;
+
+/**
+ * The default {@link Transport} which invokes
+ * {@link TLCWorkerRMI#getNextStates(TLCState[])} for each unit of work, i.e. a
+ * synchronous round trip with Java serialization.
+ */
+public class RMITransport implements Transport {
+
+	private final TLCWorkerRMI worker;
+	/**
+	 * The unit of work that has been sent but not yet received.
+	 */
+	private TLCState[] states;
+
+	public RMITransport(final TLCWorkerRMI aWorker) {
+		this.worker = aWorker;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.transport.Transport#getDepth()
+	 */
+	public int getDepth() {
+		return 1;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.transport.Transport#send(tlc2.tool.TLCState[])
+	 */
+	public void send(final TLCState[] states) {
+		this.states = states;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.transport.Transport#receive()
+	 */
+	public NextStateResult receive() throws RemoteException, WorkerException {
+		final TLCState[] unit = this.states;
+		this.states = null;
+		return this.worker.getNextStates(unit);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.transport.Transport#close()
+	 */
+	public void close() {
+		this.states = null;
+	}
+}
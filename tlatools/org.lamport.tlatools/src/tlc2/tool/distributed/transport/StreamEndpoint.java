@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.distributed.transport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.RemoteException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import tlc2.tool.TLCState;
+import tlc2.tool.WorkerException;
+import tlc2.tool.distributed.TLCWorkerRMI;
+
+/**
+ * The worker side of a {@link StreamTransport}. It accepts a connection from
+ * the server and computes the successors of each unit of work it receives with
+ * {@link TLCWorkerRMI#getNextStates(TLCState[])}. The units of work are read
+ * and decoded by a separate thread so that the server never blocks sending
+ * while the worker writes a result.
+ * <p>
+ * The endpoint only listens on the given address (the one RMI advertises for
+ * the worker) and only serves a connection whose first bytes are the random
+ * token of the endpoint's {@link Ticket}. The ticket is handed to the server
+ * over RMI.
+ */
+public class StreamEndpoint {
+
+	/**
+	 * Marks the end of the units of work of a connection.
+	 */
+	private static final Object EOS = new Object();
+
+	private static final int TOKEN_LENGTH = 16;
+
+	/**
+	 * The time in milliseconds a peer has to send the token after it connected.
+	 */
+	private static final int HANDSHAKE_TIMEOUT = Integer.getInteger(StreamEndpoint.class.getName() + ".timeout", 10000);
+
+	private final TLCWorkerRMI worker;
+	private final ServerSocket serverSocket;
+	private final byte[] token = new byte[TOKEN_LENGTH];
+	private final String name;
+	private volatile Socket socket;
+
+	/**
+	 * @param anAddress
+	 *            The local address to accept connections on.
+	 */
+	public StreamEndpoint(final TLCWorkerRMI aWorker, final InetAddress anAddress, final String aName)
+			throws IOException {
+		this.worker = aWorker;
+		this.name = aName;
+		this.serverSocket = new ServerSocket(0, 0, anAddress);
+		new SecureRandom().nextBytes(this.token);
+
+		final Thread t = new Thread(new Runnable() {
+			public void run() {
+				StreamEndpoint.this.run();
+			}
+		}, aName);
+		t.setDaemon(true);
+		t.start();
+	}
+
+	/**
+	 * @return The {@link Ticket} a {@link StreamTransport} connects with.
+	 */
+	public Ticket getTicket() {
+		return new Ticket(this.serverSocket.getInetAddress().getHostAddress(), this.serverSocket.getLocalPort(),
+				this.token.clone());
+	}
+
+	private void run() {
+		// Serve one connection at a time. The server opens a new connection after
+		// it discarded the previous one (e.g. to recover from a failure).
+		while (!this.serverSocket.isClosed()) {
+			try {
+				this.socket = this.serverSocket.accept();
+				serve(this.socket);
+			} catch (IOException e) {
+				// Connection (or endpoint) closed.
+			} catch (InterruptedException e) {
+				return;
+			} finally {
+				closeQuietly(this.socket);
+			}
+		}
+	}
+
+	private void serve(final Socket aSocket) throws IOException, InterruptedException {
+		aSocket.setTcpNoDelay(true);
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(aSocket.getInputStream()));
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(aSocket.getOutputStream()));
+
+		// Do not read (let alone deserialize) anything from a peer that does not
+		// know the token. A peer that sends nothing times out.
+		aSocket.setSoTimeout(HANDSHAKE_TIMEOUT);
+		final byte[] peerToken = new byte[TOKEN_LENGTH];
+		in.readFully(peerToken);
+		if (!MessageDigest.isEqual(this.token, peerToken)) {
+			return;
+		}
+		aSocket.setSoTimeout(0);
+
+		final BlockingQueue<Object> units = new LinkedBlockingQueue<Object>();
+		final Thread reader = new Thread(new Runnable() {
+			public void run() {
+				Object unit;
+				do {
+					try {
+						unit = Frames.decodeStates(Frames.read(in));
+					} catch (IOException e) {
+						unit = EOS;
+					} catch (RuntimeException e) {
+						// Failed to decode a frame, report it to the server.
+						unit = e;
+					}
+					units.add(unit);
+				} while (unit instanceof TLCState[]);
+			}
+		}, this.name + " Reader");
+		reader.setDaemon(true);
+		reader.start();
+
+		while (true) {
+			final Object unit = units.take();
+			if (unit == EOS) {
+				return;
+			}
+			byte[] frame;
+			if (unit instanceof RuntimeException) {
+				frame = Frames.encodeError(new RemoteException("Failed to read states at worker",
+						(RuntimeException) unit));
+			} else {
+				try {
+					frame = Frames.encodeResult(this.worker.getNextStates((TLCState[]) unit));
+				} catch (WorkerException e) {
+					frame = Frames.encodeError(e);
+				} catch (RemoteException e) {
+					frame = Frames.encodeError(e);
+				} catch (RuntimeException e) {
+					// Failed to encode the successors.
+					frame = Frames.encodeError(new RemoteException("Failed to write states at worker", e));
+				}
+			}
+			Frames.write(out, frame);
+			if (unit instanceof RuntimeException) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting connections and closes the current one.
+	 */
+	public void close() {
+		closeQuietly(this.socket);
+		try {
+			this.serverSocket.close();
+		} catch (IOException e) {
+			// ignored
+		}
+	}
+
+	/**
+	 * The address and the token of a {@link StreamEndpoint}.
+	 */
+	@SuppressWarnings("serial")
+	public static final class Ticket implements Serializable {
+
+		private final String host;
+		private final int port;
+		private final byte[] token;
+
+		private Ticket(final String aHost, final int aPort, final byte[] aToken) {
+			this.host = aHost;
+			this.port = aPort;
+			this.token = aToken;
+		}
+
+		public String getHost() {
+			return host;
+		}
+
+		public int getPort() {
+			return port;
+		}
+
+		byte[] getToken() {
+			return token;
+		}
+	}
+
+	private static void closeQuietly(final Socket aSocket) {
+		if (aSocket != null) {
+			try {
+				aSocket.close();
+			} catch (IOException e) {
+				// ignored
+			}
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.distributed.transport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.rmi.MarshalException;
+import java.rmi.RemoteException;
+import java.rmi.UnmarshalException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import tlc2.tool.TLCState;
+import tlc2.tool.WorkerException;
+import tlc2.tool.distributed.NextStateResult;
+import tlc2.tool.distributed.TLCWorkerSmartProxy;
+
+/**
+ * A {@link Transport} which streams units of work as length-prefixed binary
+ * frames (see {@link Frames}) over a socket to the worker's
+ * {@link StreamEndpoint}. Up to {@link #getDepth()} units of work are
+ * outstanding such that the worker computes the successors of the next unit
+ * while the server transfers and processes the result of the previous one. RMI
+ * remains in place for everything else (registration, fingerprint sets, the
+ * intern table, keep-alive).
+ */
+public class StreamTransport implements Transport {
+
+	private static final int DEPTH = Math.max(1, Integer.getInteger(StreamTransport.class.getName() + ".depth", 4));
+
+	/**
+	 * The time in milliseconds to wait for the connection to the worker's
+	 * endpoint to be established.
+	 */
+	private static final int TIMEOUT = Integer.getInteger(StreamTransport.class.getName() + ".timeout", 10000);
+
+	private final TLCWorkerSmartProxy worker;
+	private final Socket socket;
+	private final DataOutputStream out;
+	private final DataInputStream in;
+	/**
+	 * The send time and size of the outstanding units of work in the order they
+	 * have been sent.
+	 */
+	private final Deque<long[]> outstanding = new ArrayDeque<long[]>();
+	/**
+	 * The time the previous result has been received.
+	 */
+	private long lastReceived = 0L;
+
+	public StreamTransport(final TLCWorkerSmartProxy aWorker) throws IOException {
+		this.worker = aWorker;
+		final StreamEndpoint.Ticket ticket = aWorker.openStreamEndpoint();
+		this.socket = new Socket();
+		try {
+			this.socket.connect(new InetSocketAddress(ticket.getHost(), ticket.getPort()), TIMEOUT);
+			this.socket.setTcpNoDelay(true);
+			this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			// Authenticate with the endpoint.
+			this.out.write(ticket.getToken());
+			this.out.flush();
+		} catch (IOException e) {
+			this.socket.close();
+			throw e;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.transport.Transport#getDepth()
+	 */
+	public int getDepth() {
+		return DEPTH;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.transport.Transport#send(tlc2.tool.TLCState[])
+	 */
+	public void send(final TLCState[] states) throws RemoteException {
+		try {
+			Frames.write(this.out, Frames.encodeStates(states));
+		} catch (IOException e) {
+			throw new MarshalException("Failed to send states to worker", e);
+		}
+		this.outstanding.addLast(new long[] { System.currentTimeMillis(), states.length });
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.transport.Transport#receive()
+	 */
+	public NextStateResult receive() throws RemoteException, WorkerException {
+		final long[] unit = this.outstanding.removeFirst();
+		final NextStateResult result;
+		try {
+			result = Frames.decodeResult(Frames.read(this.in));
+		} catch (RemoteException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new UnmarshalException("Failed to receive states from worker", e);
+		}
+		// The worker computes the units of work one after another. Thus, the time
+		// a unit has spent in the worker's backlog does not count towards the
+		// round trip time.
+		final long now = System.currentTimeMillis();
+		this.worker.measure(now - Math.max(unit[0], this.lastReceived), result, (int) unit[1]);
+		this.lastReceived = now;
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.transport.Transport#close()
+	 */
+	public void close() {
+		this.outstanding.clear();
+		try {
+			this.socket.close();
+		} catch (IOException e) {
+			// ignored, the socket is discarded anyway
+		}
+	}
+}
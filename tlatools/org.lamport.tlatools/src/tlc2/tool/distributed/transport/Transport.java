@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.distributed.transport;
+
+import java.rmi.RemoteException;
+
+import tlc2.tool.TLCState;
+import tlc2.tool.WorkerException;
+import tlc2.tool.distributed.NextStateResult;
+import tlc2.tool.distributed.TLCServerThread;
+import tlc2.tool.distributed.TLCWorkerRMI;
+
+/**
+ * A {@link Transport} carries units of work from a {@link TLCServerThread} to
+ * its remote {@link TLCWorkerRMI} and the computed {@link NextStateResult}s
+ * back. A transport may allow several units of work to be outstanding at once,
+ * in which case their results are received in the order the units have been
+ * sent.
+ * 
+ * @see TransportFactory
+ */
+public interface Transport {
+
+	/**
+	 * @return The maximum number of units of work that may be outstanding, i.e.
+	 *         sent but not yet received.
+	 */
+	int getDepth();
+
+	/**
+	 * Hands the given unit of work to the worker. Does not wait for the worker to
+	 * compute the successor states.
+	 */
+	void send(TLCState[] states) throws RemoteException;
+
+	/**
+	 * Blocks until the result of the oldest outstanding unit of work is
+	 * available.
+	 */
+	NextStateResult receive() throws RemoteException, WorkerException;
+
+	/**
+	 * Releases the resources held by this transport. The results of outstanding
+	 * units of work are lost.
+	 */
+	void close();
+}
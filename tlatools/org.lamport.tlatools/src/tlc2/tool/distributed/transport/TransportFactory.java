@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.distributed.transport;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+
+import tlc2.tool.distributed.TLCWorkerSmartProxy;
+
+public class TransportFactory {
+
+	/**
+	 * Delegate to a custom factory if set
+	 */
+	private static final String FACTORY_NAME = System.getProperty("tlc2.tool.distributed.transport.factory");
+
+	/**
+	 * {@link StreamTransport} system property
+	 */
+	private static final String STREAM_TRANSPORT = System.getProperty("tlc2.tool.distributed.transport.stream");
+
+	/**
+	 * Creates a {@link Transport} to the given worker.
+	 * 
+	 * @see Transport
+	 * @param aWorker
+	 * @return A {@link Transport} to the given worker.
+	 * @throws IOException
+	 *             if the connection to the worker cannot be established.
+	 */
+	public static Transport getTransport(final TLCWorkerSmartProxy aWorker) throws IOException {
+		TransportFactory tf = new TransportFactory();
+		if (FACTORY_NAME != null) {
+			tf = loadCustomFactory(FACTORY_NAME, tf);
+		}
+		return tf.createTransport(aWorker);
+	}
+
+	/**
+	 * @param clazz Class string to load
+	 * @param tf Default TransportFactory when loading from String fails
+	 * @return A TransportFactory
+	 */
+	private static TransportFactory loadCustomFactory(final String clazz, TransportFactory tf) {
+		try {
+			final ClassLoader classLoader = TransportFactory.class.getClassLoader();
+			final Class<?> factoryClass = classLoader.loadClass(clazz);
+			final Object instance = factoryClass.getDeclaredConstructor().newInstance();
+			// sanity check if given class from string is a transport factory
+			if (instance instanceof TransportFactory) {
+				tf = (TransportFactory) instance;
+			}
+		} catch (ClassNotFoundException e) {
+			e.printStackTrace();
+		} catch (InstantiationException e) {
+			e.printStackTrace();
+		} catch (IllegalAccessException e) {
+			e.printStackTrace();
+		} catch (NoSuchMethodException e) {
+			e.printStackTrace();
+		} catch (InvocationTargetException e) {
+			e.printStackTrace();
+		}
+		return tf;
+	}
+
+	/**
+	 * @param aWorker
+	 * @return An instance of the requested transport type
+	 */
+	protected Transport createTransport(final TLCWorkerSmartProxy aWorker) throws IOException {
+		if (Boolean.parseBoolean(STREAM_TRANSPORT)) {
+			return new StreamTransport(aWorker);
+		}
+		// RMI by default
+		return new RMITransport(aWorker);
+	}
+}
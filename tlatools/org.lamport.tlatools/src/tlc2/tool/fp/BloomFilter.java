@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import java.io.IOException;
+
+/**
+ * A concurrent, blocked Bloom filter in off-heap memory (see {@link LongArray})
+ * that answers the question if a fingerprint <em>might</em> be stored in the
+ * disk file of a {@link DiskFPSet}. A negative answer is definite and thus
+ * saves a disk lookup.
+ * <p>
+ * All bits of a fingerprint are set in a single 512 bit block, i.e. one cache
+ * line. Compared to a standard Bloom filter, this slightly increases the false
+ * positive rate but reduces the number of cache misses per operation to one.
+ * <p>
+ * Bits are only ever set (with CAS), never cleared. Hence, {@link #put(long)}
+ * can be called concurrently with {@link #mightContain(long)} and other
+ * invocations of {@link #put(long)}.
+ * 
+ * @see "Putze, Sanders, Singler: Cache-, Hash- and Space-Efficient Bloom Filters"
+ */
+final class BloomFilter {
+
+	/**
+	 * Number of longs per block (8 * 64 bit = 512 bit = 64 byte).
+	 */
+	private static final int LONGS_PER_BLOCK = 8;
+	private static final int BITS_PER_BLOCK = LONGS_PER_BLOCK * Long.SIZE;
+
+	private final LongArray bits;
+	private final long blocks;
+	/**
+	 * Number of bits set per fingerprint.
+	 */
+	private final int k;
+
+	/**
+	 * @param bytes
+	 *            Memory used by the filter which is rounded down to a multiple
+	 *            of the block size. Has to be at least the size of one block.
+	 * @param fpr
+	 *            The desired false positive rate in the open interval (0, 1)
+	 *            from which the number of bits per fingerprint is derived.
+	 */
+	BloomFilter(final long bytes, final double fpr) throws IOException {
+		if (fpr <= 0d || fpr >= 1d) {
+			throw new IllegalArgumentException("False positive rate has to be in (0, 1)");
+		}
+		this.blocks = bytes / (LONGS_PER_BLOCK * FPSet.LongSize);
+		if (this.blocks <= 0) {
+			throw new IllegalArgumentException("Bloom filter has to be at least one block large");
+		}
+		// The optimal number of hash functions for a false positive rate p is
+		// -log2(p) (given the filter is sized accordingly).
+		this.k = (int) Math.max(1, Math.min(16, Math.ceil(-Math.log(fpr) / Math.log(2d))));
+		this.bits = new LongArray(this.blocks * LONGS_PER_BLOCK);
+		this.bits.zeroMemory();
+	}
+
+	/**
+	 * Adds fp to the filter. Adding the same fingerprint multiple times has no
+	 * effect.
+	 */
+	void put(final long fp) {
+		final long h = mix(fp);
+		final long base = block(h);
+		final int a = (int) (h & (BITS_PER_BLOCK - 1));
+		final int b = ((int) (h >>> 9) & (BITS_PER_BLOCK - 1)) | 1;
+		for (int i = 0; i < k; i++) {
+			final int bit = (a + i * b) & (BITS_PER_BLOCK - 1);
+			final long pos = base + (bit >>> 6);
+			final long mask = 1L << (bit & 63);
+			long word;
+			while (((word = bits.get(pos)) & mask) == 0L) {
+				if (bits.trySet(pos, word, word | mask)) {
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return false iff fp has definitely not been added to this filter.
+	 */
+	boolean mightContain(final long fp) {
+		final long h = mix(fp);
+		final long base = block(h);
+		final int a = (int) (h & (BITS_PER_BLOCK - 1));
+		final int b = ((int) (h >>> 9) & (BITS_PER_BLOCK - 1)) | 1;
+		for (int i = 0; i < k; i++) {
+			final int bit = (a + i * b) & (BITS_PER_BLOCK - 1);
+			if ((bits.get(base + (bit >>> 6)) & (1L << (bit & 63))) == 0L) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return The size of this filter in bytes.
+	 */
+	long sizeof() {
+		return this.blocks * LONGS_PER_BLOCK * FPSet.LongSize;
+	}
+
+	/**
+	 * @return The number of bits set per fingerprint.
+	 */
+	int getHashCnt() {
+		return this.k;
+	}
+
+	/**
+	 * @param elements
+	 *            The number of (distinct) elements that have been added to
+	 *            this filter.
+	 * @return The expected false positive rate (1 - e^(-kn/m))^k of this filter
+	 *         when it contains the given number of elements.
+	 */
+	double getFalsePositiveRate(final long elements) {
+		final double m = (double) this.blocks * BITS_PER_BLOCK;
+		return Math.pow(1d - Math.exp(-k * (double) elements / m), k);
+	}
+
+	/**
+	 * @return The index of the first long of the block that h maps to.
+	 */
+	private long block(final long h) {
+		return ((h >>> 32) % this.blocks) * LONGS_PER_BLOCK;
+	}
+
+	/**
+	 * Fingerprints are uniformly distributed, but the most significant bits are
+	 * fixed by MultiFPSet and the MSB of a DiskFPSet. MurmurHash3's finalizer
+	 * spreads the remaining bits across the whole long.
+	 */
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
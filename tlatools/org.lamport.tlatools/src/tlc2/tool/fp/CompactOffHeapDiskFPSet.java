@@ -0,0 +1,971 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.rmi.RemoteException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.logging.Level;
+
+import tlc2.output.EC;
+import tlc2.tool.fp.management.DiskFPSetMXWrapper;
+import tlc2.util.BufferedRandomAccessFile;
+import tlc2.util.Striped;
+import util.Assert;
+import util.FileUtil;
+
+/**
+ * A {@link DiskFPSet} whose in-memory table is a quotient filter (see Bender et
+ * al.: "Don't Thrash: How to Cache Your Hash on Flash") in off-heap memory.
+ * <p>
+ * Contrary to {@link OffHeapDiskFPSet}, which stores the full 64 bit
+ * fingerprint in each slot, a slot only stores the remainder of a fingerprint.
+ * The quotient - the high bits of a fingerprint - is implied by the slot's
+ * position and recovered with the help of three metadata bits per slot. With a
+ * table of 2^q slots, a slot thus takes (64 - fpBits - q + 3) bits instead of
+ * 64 bits. For example, 2^34 slots (64 GiB) take 32 bits per fingerprint.
+ * <p>
+ * The table is partitioned into independent quotient filters (segments), each
+ * guarded by its own lock of a {@link Striped} lock. A fingerprint's segment is
+ * determined by its most significant bits. Hence, segments are ordered and
+ * iterating the table segment by segment yields the fingerprints in sorted
+ * order, which is what a flush requires. Segments do not wrap around but have a
+ * small tail. If a cluster grows past the end of the tail, the table is flushed
+ * prematurely.
+ * <p>
+ * A flush merges the table into the (regular) disk file and clears the table.
+ * By default, workers wait for the flush to finish. With
+ * -Dtlc2.tool.fp.CompactOffHeapDiskFPSet.doubleBuffer=true, the memory is split
+ * into two tables instead: A full table is frozen and merged with the disk file
+ * by a background thread while workers continue to insert into the other
+ * table. Lookups consult both tables and the disk file. Workers only have to
+ * wait for the (short) swap of the disk file at the end of the merge, or if the
+ * second table fills up before the merge of the frozen one has finished.
+ */
+@SuppressWarnings("serial")
+public final class CompactOffHeapDiskFPSet extends NonCheckpointableDiskFPSet implements FPSetStatistic {
+
+	/**
+	 * The maximum load of the table after which it gets flushed.
+	 */
+	private static final double LOAD_FACTOR = Double
+			.parseDouble(System.getProperty(CompactOffHeapDiskFPSet.class.getName() + ".loadFactor", "0.9"));
+
+	/**
+	 * true iff a full table is merged with the disk file in the background.
+	 */
+	private static final boolean DOUBLE_BUFFER = Boolean.getBoolean(CompactOffHeapDiskFPSet.class.getName() + ".doubleBuffer");
+
+	/**
+	 * Minimum number of slots in a segment.
+	 */
+	private static final long MIN_SEGMENT_SLOTS = 4096L;
+
+	// The three metadata bits of a slot (the remainder is stored above them).
+	private static final long OCCUPIED = 4L;
+	private static final long CONTINUATION = 2L;
+	private static final long SHIFTED = 1L;
+	private static final long METADATA = OCCUPIED | CONTINUATION | SHIFTED;
+	private static final int METADATA_BITS = 3;
+
+	private static final int INSERTED = 0;
+	private static final int PRESENT = 1;
+	private static final int FULL = 2;
+
+	private static final long UNKNOWN = -1L;
+
+	/**
+	 * The table workers insert into.
+	 */
+	private transient volatile Table active;
+	/**
+	 * The table which is being merged with the disk file in the background or
+	 * null. Only changes while all locks are held. 
+	 */
+	private transient volatile Table frozen;
+	/**
+	 * The (cleared) table that becomes active once the active one gets frozen.
+	 */
+	private transient Table spare;
+	/**
+	 * The number of fingerprints in {@link #frozen}.
+	 */
+	private volatile long frozenCnt;
+	/**
+	 * Incremented whenever fingerprints move from one table to another or to
+	 * disk. Only changes while all locks are held.
+	 */
+	private volatile int swapMark;
+
+	private transient ExecutorService executorService;
+	private transient volatile Future<Void> merge;
+
+	/**
+	 * One lock per segment.
+	 */
+	private final Striped rwLock;
+
+	/**
+	 * The bits of a fingerprint which are not fixed by {@link MultiFPSet}. The
+	 * fixed bits (if any) are the prefix shared by all fingerprints in this set.
+	 */
+	private final long payloadMask;
+	private final AtomicLong prefix = new AtomicLong(UNKNOWN);
+
+	/**
+	 * The payload is right-shifted by segmentShift to obtain the segment. The
+	 * remaining (segmentMask) bits are split into quotient and remainder.
+	 */
+	private final int segmentShift;
+	private final long segmentMask;
+	/**
+	 * Number of canonical slots, i.e. quotients, per segment.
+	 */
+	private final long slots;
+	/**
+	 * Number of slots per segment including the tail.
+	 */
+	private final long segmentSlots;
+	/**
+	 * Number of longs in a {@link Table} per segment. Segments start at a long
+	 * boundary to not share a long with another segment and its lock.
+	 */
+	private final long segmentWords;
+	/**
+	 * quotient = x / divisor, remainder = x % divisor
+	 */
+	private final long divisor;
+	private final int slotBits;
+	private final long slotMask;
+
+	private final boolean doubleBuffer;
+
+	private int numThreads;
+
+	protected CompactOffHeapDiskFPSet(final FPSetConfiguration fpSetConfig) throws RemoteException {
+		this(fpSetConfig, DOUBLE_BUFFER);
+	}
+
+	CompactOffHeapDiskFPSet(final FPSetConfiguration fpSetConfig, final boolean doubleBuffer) throws RemoteException {
+		super(fpSetConfig);
+		this.doubleBuffer = doubleBuffer;
+
+		final int fpBits = fpSetConfig.getFpBits();
+		Assert.check(fpBits > 0, EC.GENERAL);
+		final int payloadBits = Long.SIZE - fpBits;
+		this.payloadMask = -1L >>> fpBits;
+
+		final int tables = doubleBuffer ? 2 : 1;
+		final long memoryInBits = fpSetConfig.getMemoryInBytes() * Byte.SIZE / tables;
+		
+		// Use as many segments as the HeapBasedDiskFPSets use locks unless
+		// segments would get too small.
+		final long maxSegments = Math.max(1L, (memoryInBits / Long.SIZE) / MIN_SEGMENT_SLOTS);
+		final int segments = (int) Math.min(1L << HeapBasedDiskFPSet.LogLockCnt, Long.highestOneBit(maxSegments));
+		final int logSegments = Integer.numberOfTrailingZeros(segments);
+		this.segmentShift = payloadBits - logSegments;
+		this.segmentMask = -1L >>> (Long.SIZE - segmentShift);
+
+		// The number of slots depends on the slot size which in turn depends on
+		// the number of slots (the more slots, the more bits are implied by the
+		// quotient). Start with 64 bit slots and shrink them until the
+		// remainder does not get any smaller.
+		int bits = Long.SIZE;
+		long segSlots, n, d;
+		while (true) {
+			segSlots = (memoryInBits / bits) / segments;
+			n = segSlots - getTailLength(segSlots);
+			Assert.check(n > 0, EC.GENERAL);
+			// ceil(2^segmentShift / n)
+			d = segmentMask / n + 1L;
+			final int remainderBits = Long.SIZE - Long.numberOfLeadingZeros(d - 1L);
+			Assert.check(remainderBits + METADATA_BITS <= Long.SIZE, EC.GENERAL);
+			if (remainderBits + METADATA_BITS >= bits) {
+				break;
+			}
+			bits = remainderBits + METADATA_BITS;
+		}
+		this.slotBits = bits;
+		this.slotMask = bits == Long.SIZE ? -1L : (1L << bits) - 1L;
+		this.segmentSlots = segSlots;
+		this.slots = n;
+		this.divisor = d;
+		this.segmentWords = (segSlots * bits + Long.SIZE - 1L) / Long.SIZE;
+
+		this.active = new Table(new LongArray(segments * segmentWords));
+		if (doubleBuffer) {
+			this.spare = new Table(new LongArray(segments * segmentWords));
+		}
+		this.rwLock = Striped.readWriteLock(segments);
+
+		this.maxTblCnt = (long) (segments * n * LOAD_FACTOR);
+		Assert.check(maxTblCnt > 0, EC.GENERAL);
+
+		this.flusher = new CompactFlusher();
+	}
+
+	private static long getTailLength(final long segmentSlots) {
+		return Math.min(1024L, Math.max(16L, segmentSlots / 16L));
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.DiskFPSet#init(int, java.lang.String, java.lang.String)
+	 */
+	@Override
+	public FPSet init(final int numThreads, final String aMetadir, final String filename) throws IOException {
+		super.init(numThreads, aMetadir, filename);
+		this.numThreads = numThreads;
+
+		active.array.zeroMemory(numThreads);
+		if (doubleBuffer) {
+			spare.array.zeroMemory(numThreads);
+			executorService = Executors.newSingleThreadExecutor(r -> {
+				final Thread t = new Thread(r, CompactOffHeapDiskFPSet.class.getSimpleName() + "-Merger-" + filename);
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return this;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.DiskFPSet#close()
+	 */
+	@Override
+	public void close() {
+		try {
+			awaitMerge();
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Failed to merge fingerprints in the background.", e);
+		}
+		if (executorService != null) {
+			executorService.shutdown();
+		}
+		super.close();
+	}
+
+	//**************************** FPSet ****************************//
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#put(long)
+	 */
+	public final boolean put(final long fp) throws IOException {
+		// zeros the msb
+		final long fp0 = checkValid(fp) & FLUSHED_MASK;
+		checkPrefix(fp0);
+
+		final long v = fp0 & payloadMask;
+		final int seg = (int) (v >>> segmentShift);
+		final long base = seg * segmentWords * Long.SIZE;
+		final long u = v & segmentMask;
+		final long q = u / divisor;
+		final long rem = u % divisor;
+
+		final ReadWriteLock lock = rwLock.getAt(seg);
+		while (true) {
+			final Lock readLock = lock.readLock();
+			readLock.lock();
+			final int mark;
+			try {
+				if (memLookup(base, q, rem)) {
+					this.memHitCnt.increment();
+					return true;
+				}
+				if (this.diskLookup(fp0)) {
+					this.diskHitCnt.increment();
+					return true;
+				}
+				mark = swapMark;
+			} finally {
+				readLock.unlock();
+			}
+
+			final int result;
+			final Lock w = lock.writeLock();
+			w.lock();
+			try {
+				// A flush might have moved fp (inserted by another thread) into
+				// the frozen table or to disk after the read lock has been
+				// released.
+				if (mark != swapMark) {
+					final Table f = frozen;
+					if (f != null && f.lookup(base, q, rem)) {
+						this.memHitCnt.increment();
+						return true;
+					}
+					if (this.diskLookup(fp0)) {
+						this.diskHitCnt.increment();
+						return true;
+					}
+				}
+
+				result = active.insert(base, q, rem);
+				if (result == PRESENT) {
+					this.memHitCnt.increment();
+					return true;
+				} else if (result == INSERTED) {
+					this.tblCnt.increment();
+				} else {
+					// No free slot left in the segment's tail.
+					forceFlush = true;
+				}
+			} finally {
+				w.unlock();
+			}
+
+			// Flush without holding a lock. The flusher might have to wait for
+			// the background merge which needs all locks to finish.
+			if (needsDiskFlush() && this.flusherChosen.compareAndSet(false, true)) {
+				flush();
+			}
+			if (result == INSERTED) {
+				return false;
+			}
+			// The segment has been full. Retry after the table has been
+			// flushed by this or another thread.
+			awaitMerge();
+			Thread.yield();
+		}
+	}
+
+	private void flush() throws IOException {
+		try {
+			if (doubleBuffer) {
+				swapTables();
+			} else {
+				flushTable();
+			}
+		} finally {
+			forceFlush = false;
+			this.flusherChosen.set(false);
+		}
+	}
+
+	private void flushTable() throws IOException {
+		// statistics
+		growDiskMark++;
+		final long timestamp = System.currentTimeMillis();
+		final long insertions = getTblCnt();
+
+		rwLock.acquireAllLocks();
+		try {
+			flusher.flushTable();
+			swapMark++;
+		} finally {
+			rwLock.releaseAllLocks();
+		}
+
+		final long l = System.currentTimeMillis() - timestamp;
+		flushTime += l;
+
+		LOGGER.log(Level.FINE, "Flushed disk {0} {1}. time, in {2} sec after {3} insertions.", new Object[] {
+				((DiskFPSetMXWrapper) diskFPSetMXWrapper).getObjectName(), getGrowDiskMark(), l, insertions });
+	}
+
+	/**
+	 * Freezes the active table and merges it with the disk file in the
+	 * background. Waits for a previous merge to finish first.
+	 */
+	private void swapTables() throws IOException {
+		awaitMerge();
+
+		final Table toMerge;
+		final long cnt;
+		rwLock.acquireAllLocks();
+		try {
+			toMerge = active;
+			cnt = getTblCnt();
+			if (cnt == 0L) {
+				return;
+			}
+			frozen = toMerge;
+			frozenCnt = cnt;
+			active = spare;
+			spare = null;
+			tblCnt.reset();
+			swapMark++;
+		} finally {
+			rwLock.releaseAllLocks();
+		}
+		merge = executorService.submit(() -> {
+			mergeInBackground(toMerge, cnt);
+			return null;
+		});
+	}
+
+	/**
+	 * Waits for the background merge (if any) to finish.
+	 */
+	private void awaitMerge() throws IOException {
+		final Future<Void> f = merge;
+		if (f == null) {
+			return;
+		}
+		try {
+			f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#contains(long)
+	 */
+	public final boolean contains(final long fp) throws IOException {
+		// zeros the msb
+		final long fp0 = checkValid(fp) & FLUSHED_MASK;
+		if ((fp0 & ~payloadMask) != prefix.get()) {
+			// All fingerprints in this set share the same prefix.
+			return false;
+		}
+
+		final long v = fp0 & payloadMask;
+		final int seg = (int) (v >>> segmentShift);
+		final long u = v & segmentMask;
+
+		final Lock readLock = rwLock.getAt(seg).readLock();
+		readLock.lock();
+		try {
+			if (memLookup(seg * segmentWords * Long.SIZE, u / divisor, u % divisor)) {
+				this.memHitCnt.increment();
+				return true;
+			}
+			if (this.diskLookup(fp0)) {
+				this.diskHitCnt.increment();
+				return true;
+			}
+			return false;
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	private void checkPrefix(final long fp0) {
+		final long p = fp0 & ~payloadMask;
+		if (prefix.get() != p && !prefix.compareAndSet(UNKNOWN, p)) {
+			Assert.check(prefix.get() == p, EC.GENERAL, "Fingerprint " + fp0 + " does not belong to this set.");
+		}
+	}
+
+	/**
+	 * Requires the segment's (read) lock to be held.
+	 */
+	private boolean memLookup(final long base, final long q, final long rem) {
+		if (active.lookup(base, q, rem)) {
+			return true;
+		}
+		final Table f = frozen;
+		return f != null && f.lookup(base, q, rem);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.DiskFPSet#memLookup(long)
+	 */
+	boolean memLookup(final long fp0) {
+		if ((fp0 & ~payloadMask) != prefix.get()) {
+			return false;
+		}
+		final long v = fp0 & payloadMask;
+		final long u = v & segmentMask;
+		return memLookup((v >>> segmentShift) * segmentWords * Long.SIZE, u / divisor, u % divisor);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.DiskFPSet#memInsert(long)
+	 */
+	boolean memInsert(final long fp0) throws IOException {
+		// Only called during recovery, which has exclusive access to the set.
+		checkPrefix(fp0);
+		final long v = fp0 & payloadMask;
+		final long base = (v >>> segmentShift) * segmentWords * Long.SIZE;
+		final long u = v & segmentMask;
+
+		int result = active.insert(base, u / divisor, u % divisor);
+		if (result == FULL) {
+			flusher.flushTable();
+			result = active.insert(base, u / divisor, u % divisor);
+		}
+		if (result == INSERTED) {
+			this.tblCnt.increment();
+		}
+		return result == PRESENT;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.DiskFPSet#acquireTblWriteLock()
+	 */
+	void acquireTblWriteLock() {
+		while (true) {
+			rwLock.acquireAllLocks();
+			if (frozen == null) {
+				return;
+			}
+			// The synchronous flusher expects the frozen table to be on disk.
+			// Wait for the merge without holding the locks it needs to finish.
+			rwLock.releaseAllLocks();
+			try {
+				awaitMerge();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.DiskFPSet#releaseTblWriteLock()
+	 */
+	void releaseTblWriteLock() {
+		rwLock.releaseAllLocks();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.DiskFPSet#size()
+	 */
+	public long size() {
+		return super.size() + frozenCnt;
+	}
+
+	//**************************** Quotient filter ****************************//
+
+	/**
+	 * A quotient filter partitioned into segments. The position of a slot is
+	 * given by the bit offset base of its segment and the quotient.
+	 */
+	private final class Table {
+
+		private final LongArray array;
+
+		Table(final LongArray array) {
+			this.array = array;
+		}
+
+		/**
+		 * @return The slot at position i of the segment which starts at bit
+		 *         base. Positions past the end of the segment are empty.
+		 */
+		private long get(final long base, final long i) {
+			if (i >= segmentSlots) {
+				return 0L;
+			}
+			final long bit = base + i * slotBits;
+			final long word = bit >>> 6;
+			final int offset = (int) (bit & 63);
+			long value = array.get(word) >>> offset;
+			if (offset + slotBits > Long.SIZE) {
+				value |= array.get(word + 1L) << (Long.SIZE - offset);
+			}
+			return value & slotMask;
+		}
+
+		private void set(final long base, final long i, final long value) {
+			final long bit = base + i * slotBits;
+			final long word = bit >>> 6;
+			final int offset = (int) (bit & 63);
+			array.set(word, (array.get(word) & ~(slotMask << offset)) | (value << offset));
+			if (offset + slotBits > Long.SIZE) {
+				final long mask = (1L << (offset + slotBits - Long.SIZE)) - 1L;
+				array.set(word + 1L, (array.get(word + 1L) & ~mask) | (value >>> (Long.SIZE - offset)));
+			}
+		}
+
+		/**
+		 * @return The position of the first slot of the run of quotient q,
+		 *         i.e. the position after the runs of all smaller quotients in
+		 *         q's cluster.
+		 */
+		private long findRunStart(final long base, final long q) {
+			// Find the start of the cluster. Segments do not wrap around, thus
+			// the first slot is never shifted.
+			long b = q;
+			while ((get(base, b) & SHIFTED) != 0L) {
+				b--;
+			}
+			// Skip the runs of the occupied quotients between b and q.
+			long s = b;
+			while (b != q) {
+				do {
+					s++;
+				} while ((get(base, s) & CONTINUATION) != 0L);
+				do {
+					b++;
+				} while ((get(base, b) & OCCUPIED) == 0L);
+			}
+			return s;
+		}
+
+		boolean lookup(final long base, final long q, final long rem) {
+			if ((get(base, q) & OCCUPIED) == 0L) {
+				return false;
+			}
+			long s = findRunStart(base, q);
+			do {
+				// Remainders are sorted within a run.
+				final long r = get(base, s) >>> METADATA_BITS;
+				if (r == rem) {
+					return true;
+				} else if (r > rem) {
+					return false;
+				}
+				s++;
+			} while ((get(base, s) & CONTINUATION) != 0L);
+			return false;
+		}
+
+		int insert(final long base, final long q, final long rem) {
+			final long canonical = get(base, q);
+			if (isEmpty(canonical)) {
+				set(base, q, (rem << METADATA_BITS) | OCCUPIED);
+				return INSERTED;
+			}
+
+			// An insert shifts all slots from the insertion point up to the
+			// next empty slot. Fail before the segment is modified if there is
+			// no empty slot left.
+			long e = q + 1L;
+			while (e < segmentSlots && !isEmpty(get(base, e))) {
+				e++;
+			}
+			if (e == segmentSlots) {
+				return lookup(base, q, rem) ? PRESENT : FULL;
+			}
+
+			if ((canonical & OCCUPIED) == 0L) {
+				set(base, q, canonical | OCCUPIED);
+			}
+			final long start = findRunStart(base, q);
+			long s = start;
+			long entry = rem << METADATA_BITS;
+			if ((canonical & OCCUPIED) != 0L) {
+				// Find the insertion point in q's (sorted) run.
+				do {
+					final long r = get(base, s) >>> METADATA_BITS;
+					if (r == rem) {
+						return PRESENT;
+					} else if (r > rem) {
+						break;
+					}
+					s++;
+				} while ((get(base, s) & CONTINUATION) != 0L);
+				if (s == start) {
+					// The old head of the run becomes a continuation.
+					set(base, start, get(base, start) | CONTINUATION);
+				} else {
+					entry |= CONTINUATION;
+				}
+			}
+			if (s != q) {
+				entry |= SHIFTED;
+			}
+
+			// Shift the slots [s, e) by one to the right. The occupied bits
+			// belong to the position, not to the remainder and thus stay in
+			// place.
+			long curr = entry;
+			boolean empty;
+			do {
+				long prev = get(base, s);
+				empty = isEmpty(prev);
+				if (!empty) {
+					prev |= SHIFTED;
+					if ((prev & OCCUPIED) != 0L) {
+						curr |= OCCUPIED;
+						prev &= ~OCCUPIED;
+					}
+				}
+				set(base, s, curr);
+				curr = prev;
+				s++;
+			} while (!empty);
+			return INSERTED;
+		}
+	}
+
+	private static boolean isEmpty(final long slot) {
+		return (slot & METADATA) == 0L;
+	}
+
+	/**
+	 * A non-thread safe iterator which returns the fingerprints in a table in
+	 * ascending order.
+	 */
+	class Iterator {
+		private final Table table;
+		private int segment = 0;
+		private long base = 0L;
+		private long pos = -1L;
+		/**
+		 * The quotient of the run the slot at pos belongs to.
+		 */
+		private long quotient = -1L;
+
+		Iterator(final Table table) {
+			this.table = table;
+		}
+
+		/**
+		 * @throws NoSuchElementException
+		 *             if the table has been exhausted.
+		 */
+		long next() {
+			while (segment < rwLock.size()) {
+				while (++pos < segmentSlots) {
+					final long slot = table.get(base, pos);
+					if (isEmpty(slot)) {
+						continue;
+					}
+					if ((slot & CONTINUATION) == 0L) {
+						// Start of a new run.
+						if ((slot & SHIFTED) == 0L) {
+							quotient = pos;
+						} else {
+							// The next occupied quotient in the same cluster.
+							do {
+								quotient++;
+							} while ((table.get(base, quotient) & OCCUPIED) == 0L);
+						}
+					}
+					final long u = quotient * divisor + (slot >>> METADATA_BITS);
+					return prefix.get() | (((long) segment) << segmentShift) | u;
+				}
+				segment++;
+				base = segment * segmentWords * Long.SIZE;
+				pos = -1L;
+				quotient = -1L;
+			}
+			throw new NoSuchElementException();
+		}
+	}
+
+	//**************************** Flusher ****************************//
+
+	/**
+	 * Merges the (sorted) fingerprints of the table and the disk file into
+	 * outRAF and fills the given index. Contrary to
+	 * {@link DiskFPSet#writeFP(RandomAccessFile, long)}, this does not touch
+	 * the index in use by lookups.
+	 */
+	private void merge(final Iterator itr, long tableReads, final MappedFPFile.Reader in, long diskReads,
+			final RandomAccessFile outRAF, final long[] newIndex) throws IOException {
+		int idx = 0;
+		long cnt = 0L;
+		long value = diskReads > 0 ? in.readLong() : 0L;
+		long fp = tableReads > 0 ? itr.next() : 0L;
+		long last = 0L;
+		while (diskReads > 0 || tableReads > 0) {
+			if (diskReads > 0 && tableReads > 0 && fp == value) {
+				Assert.check(false, EC.TLC_FP_VALUE_ALREADY_ON_DISK, String.valueOf(value));
+			}
+			if (tableReads > 0 && (diskReads == 0 || fp < value)) {
+				last = fp;
+				if (--tableReads > 0) {
+					fp = itr.next();
+				}
+			} else {
+				last = value;
+				if (--diskReads > 0) {
+					value = in.readLong();
+				}
+			}
+			outRAF.writeLong(last);
+			diskWriteCnt.increment();
+			if (this.bloomFilter != null) {
+				this.bloomFilter.put(last);
+			}
+			if (cnt++ % NumEntriesPerPage == 0) {
+				newIndex[idx++] = last;
+			}
+		}
+		Assert.check(idx == newIndex.length - 1, EC.SYSTEM_INDEX_ERROR);
+		newIndex[idx] = last;
+	}
+
+	/**
+	 * Merges the given (frozen) table with the disk file into a new disk file.
+	 * Lookups continue to use the old disk file and the frozen table until both
+	 * are replaced by the new disk file at the very end.
+	 */
+	private void mergeInBackground(final Table table, final long cnt) throws IOException {
+		final long timestamp = System.currentTimeMillis();
+
+		// Read the old file with a private reader. The readers in braf and
+		// brafPool are in use by lookups.
+		final MappedFPFile mfp = mapped;
+		final BufferedRandomAccessFile inRAF = mfp == null && fileCnt > 0
+				? new BufferedRandomAccessFile(fpFilename, "r") : null;
+		final MappedFPFile.Reader in = mfp != null ? mfp.reader(0L) : inRAF != null ? inRAF::readLong : null;
+
+		final File tmpFile = new File(tmpFilename);
+		tmpFile.delete();
+		final RandomAccessFile tmpRAF = new BufferedRandomAccessFile(tmpFile, "rw");
+		final long[] newIndex;
+		try {
+			tmpRAF.setLength((cnt + fileCnt) * FPSet.LongSize);
+			newIndex = new long[calculateIndexLen(cnt)];
+			merge(new Iterator(table), cnt, in, fileCnt, tmpRAF, newIndex);
+		} finally {
+			tmpRAF.close();
+			if (inRAF != null) {
+				inRAF.close();
+			}
+		}
+
+		rwLock.acquireAllLocks();
+		try {
+			for (int i = 0; i < braf.length; i++) {
+				braf[i].close();
+			}
+			for (int i = 0; i < brafPool.length; i++) {
+				brafPool[i].close();
+			}
+			try {
+				FileUtil.replaceFile(tmpFilename, fpFilename);
+			} catch (IOException e) {
+				Assert.fail(EC.SYSTEM_UNABLE_NOT_RENAME_FILE, e);
+			}
+			for (int i = 0; i < braf.length; i++) {
+				braf[i] = new BufferedRandomAccessFile(fpFilename, "r");
+			}
+			for (int i = 0; i < brafPool.length; i++) {
+				brafPool[i] = new BufferedRandomAccessFile(fpFilename, "r");
+			}
+			poolIndex = 0;
+			index = newIndex;
+			fileCnt += cnt;
+			remap();
+
+			frozen = null;
+			frozenCnt = 0L;
+			growDiskMark++;
+			swapMark++;
+		} finally {
+			rwLock.releaseAllLocks();
+		}
+
+		// No lookup can see the frozen table anymore.
+		table.array.zeroMemory(Math.max(1, numThreads));
+		spare = table;
+
+		final long l = System.currentTimeMillis() - timestamp;
+		flushTime += l;
+		LOGGER.log(Level.FINE, "Merged disk {0} {1}. time in the background, in {2} sec after {3} insertions.",
+				new Object[] { ((DiskFPSetMXWrapper) diskFPSetMXWrapper).getObjectName(), getGrowDiskMark(), l, cnt });
+	}
+
+	public class CompactFlusher extends Flusher {
+
+		/* (non-Javadoc)
+		 * @see tlc2.tool.fp.DiskFPSet.Flusher#flushTable()
+		 */
+		@Override
+		void flushTable() throws IOException {
+			super.flushTable();
+			// All fingerprints are on disk now. Contrary to other DiskFPSets,
+			// the table does not keep flushed fingerprints.
+			active.array.zeroMemory(Math.max(1, numThreads));
+		}
+
+		/* (non-Javadoc)
+		 * @see tlc2.tool.fp.DiskFPSet.Flusher#mergeNewEntries(tlc2.util.BufferedRandomAccessFile[], java.io.RandomAccessFile)
+		 */
+		@Override
+		protected void mergeNewEntries(final BufferedRandomAccessFile[] inRAFs, final RandomAccessFile outRAF)
+				throws IOException {
+			final long buffLen = getTblCnt();
+
+			final MappedFPFile mfp = mapped;
+			final MappedFPFile.Reader in = mfp != null ? mfp.reader(0L) : inRAFs[0]::readLong;
+
+			final long[] newIndex = new long[calculateIndexLen(buffLen)];
+			merge(new Iterator(active), buffLen, in, fileCnt, outRAF, newIndex);
+			index = newIndex;
+
+			// maintain object invariants
+			fileCnt += buffLen;
+		}
+	}
+
+	//**************************** Statistics ****************************//
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.DiskFPSet#sizeof()
+	 */
+	public long sizeof() {
+		long size = 44; // approx size of this DiskFPSet object
+		size += (doubleBuffer ? 2 : 1) * active.array.size() * LongSize;
+		size += getIndexCapacity() * 4;
+		return size;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.DiskFPSet#getTblCapacity()
+	 */
+	public long getTblCapacity() {
+		return rwLock.size() * slots;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.DiskFPSet#getOverallCapacity()
+	 */
+	public long getOverallCapacity() {
+		return rwLock.size() * segmentSlots;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.DiskFPSet#getTblLoad()
+	 */
+	public long getTblLoad() {
+		return getTblCnt();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.DiskFPSet#getLockCnt()
+	 */
+	public int getLockCnt() {
+		return rwLock.size();
+	}
+
+	/**
+	 * @return The number of bits per slot (remainder plus three metadata bits).
+	 */
+	public int getSlotBits() {
+		return slotBits;
+	}
+}
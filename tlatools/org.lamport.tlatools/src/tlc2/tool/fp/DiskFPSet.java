@@ -8,6 +8,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.net.InetAddress;
+import java.nio.file.Files;
 import java.rmi.RemoteException;
 import java.text.DecimalFormat;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -22,6 +23,7 @@ import tlc2.tool.TLCTrace;
 import tlc2.tool.TLCTrace.Enumerator;
 import tlc2.tool.fp.management.DiskFPSetMXWrapper;
 import tlc2.tool.management.TLCStandardMBean;
+import tlc2.util.BitVector;
 import tlc2.util.BufferedRandomAccessFile;
 import tlc2.util.IdThread;
 import util.Assert;
@@ -43,6 +45,11 @@ import util.FileUtil;
  * numbers are very close to one (we have measured 1.05 seek operations and 1.1
  * read operations per lookup).
  * <p>
+ * Alternatively, if the system property
+ * <code>tlc2.tool.fp.DiskFPSet.mmap</code> is set to true, the disk file is
+ * memory mapped (see {@link MappedFPFile}) and lookups read directly from the
+ * page cache, saving a system call and a copy per lookup.
+ * <p>
  * The implementation uses smart synchronization (using the
  * <code>ReadersWriterLock</code> class) so lookups on disk can be performed in
  * parallel.
@@ -118,6 +125,25 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 	protected BufferedRandomAccessFile[] brafPool;
 	protected int poolIndex;
 
+	/**
+	 * Read-only memory mapping of the backing file which - if non-null - is used
+	 * instead of {@link DiskFPSet#braf} to look up fingerprints on disk. It gets
+	 * re-created whenever the backing file is replaced.
+	 * 
+	 * @see DiskFPSet#remap()
+	 */
+	protected volatile MappedFPFile mapped;
+	protected boolean useMMap;
+
+	/**
+	 * Optional Bloom filter over the fingerprints in the disk file. If the
+	 * filter rules out a fingerprint, the disk lookup is skipped. Fingerprints
+	 * are added to the filter when they are written to disk.
+	 * 
+	 * @see DiskFPSet#writeFP(RandomAccessFile, long)
+	 */
+	protected BloomFilter bloomFilter;
+
 	/**
 	 * index of first fp on each disk page
 	 * special case: last entry is last fp in file
@@ -132,6 +158,7 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 	protected LongAdder diskWriteCnt = new LongAdder();
 	private LongAdder diskSeekCnt = new LongAdder();
 	private LongAdder diskSeekCache = new LongAdder();
+	private LongAdder bloomFilterNegativeCnt = new LongAdder();
 	
 	// indicate how many cp or disk grow in put(long) has occurred
 	private int checkPointMark;
@@ -240,6 +267,15 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 		this.tmpFilename = filename + ".tmp";
 		this.fpFilename = filename + ".fp";
 		
+		// Optionally look up fingerprints on disk through a memory mapping of
+		// the backing file rather than through per-thread BufferedRandomAccessFiles.
+		this.useMMap = Boolean.getBoolean(DiskFPSet.class.getName() + ".mmap");
+		
+		final long bloomFilterBytes = fpSetConfig.getBloomFilterMemoryInBytes();
+		if (bloomFilterBytes > 0 && LongArray.isSupported()) {
+			this.bloomFilter = new BloomFilter(bloomFilterBytes, fpSetConfig.getBloomFilterFPR());
+		}
+		
 		// allocate array of BufferedRAF objects (+1 for main thread)
 		this.braf = new BufferedRandomAccessFile[numThreads];
 		this.brafPool = new BufferedRandomAccessFile[5];
@@ -247,7 +283,9 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 
 		
 		try {
-			// create/truncate backing file:
+			// create/truncate backing file (delete first, the backing file of a
+			// previous run might be linked to a checkpoint, see beginChkpt):
+			new File(this.fpFilename).delete();
 			FileOutputStream f = new FileOutputStream(this.fpFilename);
 			f.close();
 
@@ -357,6 +395,34 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 	 */
 	abstract boolean memInsert(long fp) throws IOException;
 
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#putAll(long[], int, tlc2.util.BitVector)
+	 */
+	@Override
+	public void putAll(final long[] fps, final int len, final BitVector seen) throws IOException {
+		if (this.index == null) {
+			// Sorting the batch does not pay off as long as no fingerprint has
+			// to be looked up on disk.
+			super.putAll(fps, len, seen);
+			return;
+		}
+		// Look up the fingerprints in the order of the disk file (the msb is
+		// ignored just like in put(long)).
+		SortedFPBatch.putAll(this, fps, len, FLUSHED_MASK, seen);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#containsAll(long[], int, tlc2.util.BitVector)
+	 */
+	@Override
+	public void containsAll(final long[] fps, final int len, final BitVector seen) throws IOException {
+		if (this.index == null) {
+			super.containsAll(fps, len, seen);
+			return;
+		}
+		SortedFPBatch.containsAll(this, fps, len, FLUSHED_MASK, seen);
+	}
+
 	/**
 	 * Locks and unlocks tbl
 	 */
@@ -374,6 +440,12 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 			return false;
 		}
 		
+		// Skip the disk if the Bloom filter rules fp out.
+		if (this.bloomFilter != null && !this.bloomFilter.mightContain(fp)) {
+			this.bloomFilterNegativeCnt.increment();
+			return false;
+		}
+		
 		// Increment disk lookup counter
 		this.diskLookupCnt.increment();
 		
@@ -442,6 +514,28 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 		// upper bound for the interval search in 
 		long hiEntry = ((loPage == indexLength - 2) ? this.fileCnt - 1
 				: ((long) hiPage) * NumEntriesPerPage);
+		
+		final MappedFPFile mfp = this.mapped;
+		if (mfp != null) {
+			// Same search as below, except that fingerprints are read from
+			// the page cache directly.
+			while (loEntry < hiEntry) {
+				midEntry = calculateMidEntry(loVal, hiVal, dfp, loEntry, hiEntry);
+				Assert.check(loEntry <= midEntry && midEntry < hiEntry, EC.SYSTEM_INDEX_ERROR);
+				final long v = mfp.get(midEntry);
+				if (fp < v) {
+					hiEntry = midEntry;
+					hiVal = v;
+				} else if (fp > v) {
+					loEntry = midEntry + 1;
+					loVal = v;
+				} else {
+					return true;
+				}
+			}
+			return false;
+		}
+		
 		try {
 			// b0) open file for reading that is associated with current thread
 			BufferedRandomAccessFile raf;
@@ -501,6 +595,16 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 		return diskHit;
 	}
 
+	/**
+	 * (Re-)Maps the backing file into memory if memory mapped lookups are enabled.
+	 * Has to be called whenever the backing file has been replaced.
+	 */
+	protected void remap() throws IOException {
+		if (this.useMMap) {
+			this.mapped = new MappedFPFile(this.fpFilename);
+		}
+	}
+
 	private final BufferedRandomAccessFile poolOpen() throws IOException {
 		synchronized (this.brafPool) {
 			if (this.poolIndex < this.brafPool.length) {
@@ -557,6 +661,9 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 			throws IOException {
 		outRAF.writeLong(fp);
 		diskWriteCnt.increment();
+		if (this.bloomFilter != null) {
+			this.bloomFilter.put(fp);
+		}
 		// update in-memory index file
 		if (this.counter == 0) {
 			this.index[this.currIndex++] = fp;
@@ -582,10 +689,12 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 	/* (non-Javadoc)
 	 * @see tlc2.tool.fp.FPSet#close()
 	 */
-	public final void close() {
+	public void close() {
 		// close JMX stats
 		diskFPSetMXWrapper.unregister();
 		
+		this.mapped = null;
+		
 		for (int i = 0; i < this.braf.length; i++) {
 			try {
 				this.braf[i].close();
@@ -655,8 +764,17 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 		acquireTblWriteLock();
 		
 		flusher.flushTable();
-		FileUtil.copyFile(this.fpFilename,
-				this.getChkptName(fname, "tmp"));
+		// The backing file is never modified in place but replaced as a whole
+		// by the next flush (see Flusher#mergeNewEntries). Thus, a link is as
+		// good as a copy while taking constant time and no disk space.
+		final File tmpChkpt = new File(this.getChkptName(fname, "tmp"));
+		tmpChkpt.delete();
+		try {
+			Files.createLink(tmpChkpt.toPath(), new File(this.fpFilename).toPath());
+		} catch (UnsupportedOperationException | IOException e) {
+			// The file system does not support (hard) links.
+			FileUtil.copyFile(this.fpFilename, tmpChkpt.getPath());
+		}
 		checkPointMark++;
 
 		releaseTblWriteLock();
@@ -681,6 +799,8 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 	public void recover(String fname) throws IOException {
 		RandomAccessFile chkptRAF = new BufferedRandomAccessFile(
 				this.getChkptName(fname, "chkpt"), "r");
+		// The backing file might be linked to the checkpoint (see beginChkpt).
+		new File(this.fpFilename).delete();
 		RandomAccessFile currRAF = new BufferedRandomAccessFile(
 				this.fpFilename, "rw");
 
@@ -724,6 +844,8 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 					this.fpFilename, "r");
 		}
 		this.poolIndex = 0;
+		
+		remap();
 	}
 
 	/* (non-Javadoc)
@@ -931,6 +1053,35 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 		return diskSeekCache.sum();
 	}
 
+	/**
+	 * @return The number of disk lookups answered by the Bloom filter alone.
+	 */
+	public long getBloomFilterNegativeCnt() {
+		return bloomFilterNegativeCnt.sum();
+	}
+
+	/**
+	 * @return The size of the Bloom filter in bytes or zero if none is used.
+	 */
+	public long getBloomFilterSize() {
+		if (bloomFilter == null) {
+			return 0L;
+		}
+		return bloomFilter.sizeof();
+	}
+
+	/**
+	 * @return The expected false positive rate of the Bloom filter given the
+	 *         number of fingerprints currently on disk or <code>-1d</code> if
+	 *         no filter is used.
+	 */
+	public double getBloomFilterFPR() {
+		if (bloomFilter == null) {
+			return -1d;
+		}
+		return bloomFilter.getFalsePositiveRate(fileCnt);
+	}
+
 	/**
 	 * @return the growDiskMark
 	 */
@@ -1126,6 +1277,8 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 			assert checkFile(braf[0], index, fileCnt);
 			
 			poolIndex = 0;
+			
+			remap();
 		}
 		
 		protected abstract void mergeNewEntries(BufferedRandomAccessFile[] inRAFs, RandomAccessFile outRAF) throws IOException;
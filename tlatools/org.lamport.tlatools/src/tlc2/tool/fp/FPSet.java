@@ -65,11 +65,64 @@ public abstract class FPSet extends UnicastRemoteObject implements FPSetRMI
      */
     public abstract boolean put(long fp) throws IOException;
 
+	/**
+	 * Puts the first len fingerprints of fps into this set. This is the
+	 * batched variant of {@link #put(long)}: seen.get(i) is true iff fps[i] was
+	 * in the set before. If a fingerprint occurs more than once in fps, only
+	 * its first occurrence is new.
+	 * <p>
+	 * Contrary to {@link #putBlock(LongVec)}, the caller provides (and can
+	 * reuse) the result {@link BitVector}.
+	 */
+	public void putAll(final long[] fps, final int len, final BitVector seen) throws IOException {
+		for (int i = 0; i < len; i++) {
+			seen.set(i, this.put(fps[i]));
+		}
+	}
+
     /* (non-Javadoc)
      * @see tlc2.tool.distributed.fp.FPSetRMI#contains(long)
      */
     public abstract boolean contains(long fp) throws IOException;
 
+	/**
+	 * Looks up the first len fingerprints of fps in this set. This is the
+	 * batched variant of {@link #contains(long)}: seen.get(i) is true iff fps[i]
+	 * is in the set. The set is not modified.
+	 * <p>
+	 * Contrary to {@link #containsBlock(LongVec)}, the caller provides (and can
+	 * reuse) the result {@link BitVector} which has to be able to hold len
+	 * bits.
+	 */
+	public void containsAll(final long[] fps, final int len, final BitVector seen) throws IOException {
+		for (int i = 0; i < len; i++) {
+			seen.set(i, this.contains(fps[i]));
+		}
+	}
+
+	/**
+	 * Puts the fingerprints fps[from, to) into this set which are sorted in
+	 * ascending order and distinct. seen.get(i) is set to true iff fps[i] was in
+	 * the set before. Subclasses override this method to look up the sorted
+	 * fingerprints cheaper than one after the other (see {@link SortedFPBatch}).
+	 */
+	protected void putSorted(final long[] fps, final int from, final int to, final BitVector seen)
+			throws IOException {
+		for (int i = from; i < to; i++) {
+			seen.set(i, this.put(fps[i]));
+		}
+	}
+
+	/**
+	 * @see #putSorted(long[], int, int, BitVector)
+	 */
+	protected void containsSorted(final long[] fps, final int from, final int to, final BitVector seen)
+			throws IOException {
+		for (int i = from; i < to; i++) {
+			seen.set(i, this.contains(fps[i]));
+		}
+	}
+
     /* (non-Javadoc)
      * @see tlc2.tool.distributed.fp.FPSetRMI#close()
      */
@@ -19,6 +19,19 @@ public class FPSetConfiguration implements Serializable {
 	protected long memoryInBytes = -1L;
 	protected double ratio;
 	protected String implementation;
+	
+	/**
+	 * Off-heap memory in bytes dedicated to the Bloom filter in front of the
+	 * disk file of a {@link DiskFPSet}. Zero disables the filter.
+	 * 
+	 * @see BloomFilter
+	 */
+	protected long bloomFilterMemoryInBytes = Long.getLong(FPSetConfiguration.class.getName() + ".bloomFilterBytes", 0L);
+	/**
+	 * The false positive rate the Bloom filter is sized for.
+	 */
+	protected double bloomFilterFPR = Double
+			.parseDouble(System.getProperty(FPSetConfiguration.class.getName() + ".bloomFilterFPR", "0.01"));
 
 	public FPSetConfiguration() {
 		// By default allocate 25% of memory for fingerprint storage
@@ -125,4 +138,29 @@ public class FPSetConfiguration implements Serializable {
 	public String getImplementation() {
 		return implementation;
 	}
+
+	/**
+	 * @return The memory in bytes of the Bloom filter in front of the disk
+	 *         file of a {@link DiskFPSet} or zero if no filter is to be used.
+	 */
+	public long getBloomFilterMemoryInBytes() {
+		return bloomFilterMemoryInBytes;
+	}
+
+	public void setBloomFilterMemoryInBytes(long bytes) {
+		Assert.check(bytes >= 0, EC.GENERAL);
+		this.bloomFilterMemoryInBytes = bytes;
+	}
+
+	/**
+	 * @return The false positive rate in (0, 1) the Bloom filter is sized for.
+	 */
+	public double getBloomFilterFPR() {
+		return bloomFilterFPR;
+	}
+
+	public void setBloomFilterFPR(double fpr) {
+		Assert.check(fpr > 0 && fpr < 1, EC.GENERAL);
+		this.bloomFilterFPR = fpr;
+	}
 }
@@ -26,7 +26,8 @@ public abstract class FPSetFactory {
 	public static final String IMPL_PROPERTY = FPSet.class.getName() + ".impl";
 	
 	private static boolean allocatesOnHeap(final Class<? extends FPSet> clazz) {
-		return !OffHeapDiskFPSet.class.isAssignableFrom(clazz);
+		return !OffHeapDiskFPSet.class.isAssignableFrom(clazz)
+				&& !CompactOffHeapDiskFPSet.class.isAssignableFrom(clazz);
 	}
 
 	public static boolean allocatesOnHeap(final String clazz) {
@@ -55,7 +56,8 @@ public abstract class FPSetFactory {
 
 	private static boolean supports32Bits(final Class<? extends FPSet> clazz) {
 		if (TLCRuntime.getInstance().getArchitecture() == TLCRuntime.ARCH.x86
-				&& OffHeapDiskFPSet.class.isAssignableFrom(clazz)) {
+				&& (OffHeapDiskFPSet.class.isAssignableFrom(clazz)
+						|| CompactOffHeapDiskFPSet.class.isAssignableFrom(clazz))) {
 			return false;
 		}
 		return true;
@@ -153,6 +155,7 @@ public abstract class FPSetFactory {
 		l.add(MSBDiskFPSet.class.getName());
 		l.add(LSBDiskFPSet.class.getName());
 		l.add(OffHeapDiskFPSet.class.getName());
+		l.add(CompactOffHeapDiskFPSet.class.getName());
 
 		return l.toArray(new String[l.size()]);
 	}
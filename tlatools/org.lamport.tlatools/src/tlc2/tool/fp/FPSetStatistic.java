@@ -76,6 +76,21 @@ public interface FPSetStatistic {
 	 */
 	public long getDiskSeekCache();
 	
+	/**
+	 * @see DiskFPSet#getBloomFilterNegativeCnt()
+	 */
+	public long getBloomFilterNegativeCnt();
+
+	/**
+	 * @see DiskFPSet#getBloomFilterSize()
+	 */
+	public long getBloomFilterSize();
+
+	/**
+	 * @see DiskFPSet#getBloomFilterFPR()
+	 */
+	public double getBloomFilterFPR();
+	
 	/**
 	 * @return the growDiskMark
 	 */
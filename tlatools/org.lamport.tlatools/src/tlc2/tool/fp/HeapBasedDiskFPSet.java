@@ -1,15 +1,25 @@
 // Copyright (c) 2012 Microsoft Corporation. All rights reserved.
 package tlc2.tool.fp;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.rmi.RemoteException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.Lock;
 import java.util.logging.Level;
 
 import tlc2.TLCGlobals;
+import tlc2.output.EC;
 import tlc2.tool.fp.management.DiskFPSetMXWrapper;
+import tlc2.util.BitVector;
+import tlc2.util.BufferedRandomAccessFile;
 import tlc2.util.Striped;
 import util.Assert;
+import util.FileUtil;
 
 @SuppressWarnings("serial")
 public abstract class HeapBasedDiskFPSet extends DiskFPSet {
@@ -38,6 +48,45 @@ public abstract class HeapBasedDiskFPSet extends DiskFPSet {
 	 */
 	protected long[][] tbl;
 	
+	/**
+	 * true iff a full {@link #tbl} is frozen and merged with the disk file in
+	 * the background while workers continue to insert into a fresh table.
+	 * Lookups consult both tables and the disk file. Workers only have to wait
+	 * for the sort of the full table, the (short) swap of the disk file at the
+	 * end of the merge, or if the fresh table fills up before the merge of the
+	 * frozen one has finished.
+	 */
+	protected final boolean doubleBuffer;
+	
+	/**
+	 * The table which is being merged with the disk file in the background or
+	 * null. Only changes while all locks are held.
+	 */
+	protected transient volatile long[][] frozen;
+	
+	/**
+	 * The number of fingerprints in {@link #frozen}. Only changes while all
+	 * locks are held.
+	 */
+	private volatile long frozenCnt;
+	
+	/**
+	 * Incremented whenever fingerprints move from {@link #tbl} to
+	 * {@link #frozen} or from {@link #frozen} to disk. Only changes while all
+	 * locks are held.
+	 */
+	private volatile int swapMark;
+	
+	private transient ExecutorService executorService;
+	
+	private transient volatile Future<Void> merge;
+	
+	/**
+	 * Notified when the flusher (see {@link DiskFPSet#flusherChosen}) has
+	 * swapped the tables. Inserters wait on it while {@link #tbl} is full.
+	 */
+	private final Object swapped = new Object();
+	
 	/**
 	 * mask for computing hash function
 	 */
@@ -62,7 +111,20 @@ public abstract class HeapBasedDiskFPSet extends DiskFPSet {
 	static final int DefaultMaxTblCnt = (1 << LogDefaultMaxTblCnt);
 
 	protected HeapBasedDiskFPSet(final FPSetConfiguration fpSetConfig) throws RemoteException {
+		this(fpSetConfig, false);
+	}
+
+	/**
+	 * @param doubleBuffer
+	 *            Subclasses which pass true have to implement
+	 *            {@link #mergeFrozen(long[][], long, MappedFPFile.Reader, RandomAccessFile)}.
+	 */
+	protected HeapBasedDiskFPSet(final FPSetConfiguration fpSetConfig, final boolean doubleBuffer) throws RemoteException {
 		super(fpSetConfig);
+		this.doubleBuffer = doubleBuffer;
+		// Fail right away instead of at the first flush.
+		Assert.check(!doubleBuffer || implementsMergeFrozen(getClass()),
+				"Double buffering not supported by " + getClass().getName());
 
 		// Ideally we use one lock per bucket because even with relatively high
 		// lock counts, we fall victim to the birthday paradox. However, locks
@@ -122,24 +184,102 @@ public abstract class HeapBasedDiskFPSet extends DiskFPSet {
 		this.tbl = new long[capacity][];
 	}
 
+	/**
+	 * @return true iff clazz or one of its super classes below
+	 *         {@link HeapBasedDiskFPSet} overrides
+	 *         {@link #mergeFrozen(long[][], long, MappedFPFile.Reader, RandomAccessFile)}.
+	 */
+	static boolean implementsMergeFrozen(final Class<?> clazz) {
+		for (Class<?> c = clazz; c != HeapBasedDiskFPSet.class; c = c.getSuperclass()) {
+			try {
+				c.getDeclaredMethod("mergeFrozen", long[][].class, long.class, MappedFPFile.Reader.class,
+						RandomAccessFile.class);
+				return true;
+			} catch (NoSuchMethodException e) {
+				// try the super class
+			}
+		}
+		return false;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.DiskFPSet#init(int, java.lang.String, java.lang.String)
+	 */
+	@Override
+	public FPSet init(final int numThreads, final String aMetadir, final String filename) throws IOException {
+		super.init(numThreads, aMetadir, filename);
+		if (doubleBuffer) {
+			executorService = Executors.newSingleThreadExecutor(r -> {
+				final Thread t = new Thread(r, getClass().getSimpleName() + "-Merger-" + filename);
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return this;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.DiskFPSet#close()
+	 */
+	@Override
+	public void close() {
+		try {
+			awaitMerge();
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Failed to merge fingerprints in the background.", e);
+		}
+		if (executorService != null) {
+			executorService.shutdown();
+		}
+		super.close();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.DiskFPSet#beginChkpt(java.lang.String)
+	 */
+	@Override
+	public void beginChkpt(final String fname) throws IOException {
+		super.beginChkpt(fname);
+		// beginChkpt acts as the flusher and has emptied the table.
+		synchronized (swapped) {
+			swapped.notifyAll();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.DiskFPSet#size()
+	 */
+	@Override
+	public long size() {
+		return super.size() + this.frozenCnt;
+	}
+
 	/* (non-Javadoc)
 	 * @see tlc2.tool.fp.DiskFPSet#sizeof()
 	 */
 	public long sizeof() {
 		long size = 44; // approx size of this DiskFPSet object
 		rwLock.acquireAllLocks();
-		size += 16 + (this.tbl.length * 4); // for this.tbl
-		for (int i = 0; i < this.tbl.length; i++) {
-			if (this.tbl[i] != null) {
-				// 16 bytes overhead for each row in tbl!
-				size += 16 + (this.tbl[i].length * (long) LongSize);
-			}
+		size += sizeof(this.tbl);
+		if (this.frozen != null) {
+			size += sizeof(this.frozen);
 		}
 		// size of index array if non-null
 		size += getIndexCapacity() * 4;
 		rwLock.releaseAllLocks();
 		return size;
 	}
+
+	private static long sizeof(final long[][] table) {
+		long size = 16 + (table.length * 4);
+		for (int i = 0; i < table.length; i++) {
+			if (table[i] != null) {
+				// 16 bytes overhead for each row in tbl!
+				size += 16 + (table[i].length * (long) LongSize);
+			}
+		}
+		return size;
+	}
 	
 	/* (non-Javadoc)
 	 * @see tlc2.tool.fp.DiskFPSet#getLockCnt()
@@ -210,7 +350,13 @@ public abstract class HeapBasedDiskFPSet extends DiskFPSet {
 	 * @see tlc2.tool.fp.DiskFPSet#memLookup(long)
 	 */
 	boolean memLookup(long fp) {
-		long[] bucket = this.tbl[getIndex(fp)];
+		return memLookup(this.tbl, fp) || memLookup(this.frozen, fp);
+	}
+
+	private final boolean memLookup(final long[][] table, final long fp) {
+		if (table == null)
+			return false;
+		long[] bucket = table[getIndex(fp)];
 		if (bucket == null)
 			return false;
 
@@ -255,6 +401,7 @@ public abstract class HeapBasedDiskFPSet extends DiskFPSet {
 		
 		final Lock readLock = rwLock.getAt(getLockIndex(fp0)).readLock();
 		readLock.lock();
+		final int mark = swapMark;
 		// First, look in in-memory buffer
 		if (this.memLookup(fp0)) {
 			readLock.unlock();
@@ -282,10 +429,41 @@ public abstract class HeapBasedDiskFPSet extends DiskFPSet {
 		// Another writer could write the same fingerprint here if it gets
 		// interleaved. This is no problem though, because memInsert again
 		// checks existence for fp to be inserted
+		return insert(fp0, mark);
+	}
+
+	/**
+	 * Adds fp0 to the in-memory buffer unless it is already there and flushes
+	 * the buffer to disk when it is full. fp0 has been looked up on disk by the
+	 * caller.
+	 * 
+	 * @param mark
+	 *            The value of {@link #swapMark} before the caller's lookup.
+	 * @return true iff fp0 was in the in-memory buffer.
+	 */
+	private final boolean insert(final long fp0, final int mark) throws IOException {
+		if (doubleBuffer) {
+			awaitRoom();
+		}
 		
 		final Lock w = rwLock.getAt(getLockIndex(fp0)).writeLock();
 		w.lock();
 		
+		// A swap might have moved fp0 (inserted by another thread) into the
+		// frozen table or to disk after the caller's lookup.
+		if (mark != swapMark) {
+			if (memLookup(this.frozen, fp0)) {
+				w.unlock();
+				this.memHitCnt.increment();
+				return true;
+			}
+			if (this.diskLookup(fp0)) {
+				w.unlock();
+				this.diskHitCnt.increment();
+				return true;
+			}
+		}
+		
 		// if disk lookup failed, add to memory buffer
 		if (this.memInsert(fp0)) {
 			w.unlock();
@@ -293,6 +471,16 @@ public abstract class HeapBasedDiskFPSet extends DiskFPSet {
 			return true;
 		}
 		
+		if (doubleBuffer) {
+			w.unlock();
+			// Swap without holding a lock. The swap might have to wait for
+			// the background merge which needs all locks to finish.
+			if (needsDiskFlush() && this.flusherChosen.compareAndSet(false, true)) {
+				swapTablesAsFlusher();
+			}
+			return false;
+		}
+		
 		// test if buffer is full && block until there are no more readers 
 		if (needsDiskFlush() && this.flusherChosen.compareAndSet(false, true)) {
 			
@@ -326,6 +514,260 @@ public abstract class HeapBasedDiskFPSet extends DiskFPSet {
 		return false;
 	}
 
+	/**
+	 * Blocks while {@link #tbl} is full. The fresh table fills up if the
+	 * background merge of the frozen one takes longer, in which case the
+	 * flusher waits for the merge before it can swap the tables again. Without
+	 * waiting, inserts would grow the table beyond {@link #maxTblCnt} in the
+	 * meantime. If no flusher has been chosen yet, the caller becomes the
+	 * flusher.
+	 */
+	private void awaitRoom() throws IOException {
+		while (getTblCnt() >= this.maxTblCnt) {
+			if (this.flusherChosen.compareAndSet(false, true)) {
+				swapTablesAsFlusher();
+				continue;
+			}
+			synchronized (swapped) {
+				while (this.flusherChosen.get() && getTblCnt() >= this.maxTblCnt) {
+					try {
+						swapped.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new IOException(e);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Swaps the tables on behalf of the caller who has been chosen as the
+	 * flusher and wakes up the inserters waiting in {@link #awaitRoom()}.
+	 */
+	private void swapTablesAsFlusher() throws IOException {
+		try {
+			swapTables();
+		} finally {
+			forceFlush = false;
+			this.flusherChosen.set(false);
+			synchronized (swapped) {
+				swapped.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Freezes the (sorted) table and merges it with the disk file in the
+	 * background. Waits for a previous merge to finish first.
+	 */
+	private void swapTables() throws IOException {
+		awaitMerge();
+
+		final long[][] toMerge;
+		final long cnt;
+		rwLock.acquireAllLocks();
+		try {
+			cnt = getTblCnt();
+			if (cnt == 0L) {
+				return;
+			}
+			flusher.prepareTable();
+			toMerge = tbl;
+			frozen = toMerge;
+			frozenCnt = cnt;
+			tbl = new long[capacity][];
+			tblCnt.reset();
+			bucketsCapacity = 0;
+			tblLoad.reset();
+			swapMark++;
+		} finally {
+			rwLock.releaseAllLocks();
+		}
+		merge = executorService.submit(() -> {
+			mergeInBackground(toMerge, cnt);
+			return null;
+		});
+	}
+
+	/**
+	 * Waits for the background merge (if any) to finish.
+	 */
+	private void awaitMerge() throws IOException {
+		final Future<Void> f = merge;
+		if (f == null) {
+			return;
+		}
+		try {
+			f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Merges the given (frozen) table with the disk file into a new disk file.
+	 * Lookups continue to use the old disk file and the frozen table until both
+	 * are replaced by the new disk file at the very end.
+	 */
+	private void mergeInBackground(final long[][] table, final long cnt) throws IOException {
+		final long timestamp = System.currentTimeMillis();
+
+		// Read the old file with a private reader. The readers in braf and
+		// brafPool are in use by lookups.
+		final MappedFPFile mfp = mapped;
+		final BufferedRandomAccessFile inRAF = mfp == null && fileCnt > 0
+				? new BufferedRandomAccessFile(fpFilename, "r") : null;
+		final MappedFPFile.Reader in = mfp != null ? mfp.reader(0L) : inRAF != null ? inRAF::readLong : null;
+
+		final File tmpFile = new File(tmpFilename);
+		tmpFile.delete();
+		final RandomAccessFile tmpRAF = new BufferedRandomAccessFile(tmpFile, "rw");
+		final long[] newIndex;
+		try {
+			tmpRAF.setLength((cnt + fileCnt) * FPSet.LongSize);
+			newIndex = mergeFrozen(table, cnt, in, tmpRAF);
+		} finally {
+			tmpRAF.close();
+			if (inRAF != null) {
+				inRAF.close();
+			}
+		}
+
+		rwLock.acquireAllLocks();
+		try {
+			for (int i = 0; i < braf.length; i++) {
+				braf[i].close();
+			}
+			for (int i = 0; i < brafPool.length; i++) {
+				brafPool[i].close();
+			}
+			try {
+				FileUtil.replaceFile(tmpFilename, fpFilename);
+			} catch (IOException e) {
+				Assert.fail(EC.SYSTEM_UNABLE_NOT_RENAME_FILE, e);
+			}
+			for (int i = 0; i < braf.length; i++) {
+				braf[i] = new BufferedRandomAccessFile(fpFilename, "r");
+			}
+			for (int i = 0; i < brafPool.length; i++) {
+				brafPool[i] = new BufferedRandomAccessFile(fpFilename, "r");
+			}
+			poolIndex = 0;
+			index = newIndex;
+			fileCnt += cnt;
+			remap();
+
+			frozen = null;
+			frozenCnt = 0L;
+			growDiskMark++;
+			swapMark++;
+		} finally {
+			rwLock.releaseAllLocks();
+		}
+
+		final long l = System.currentTimeMillis() - timestamp;
+		flushTime += l;
+		LOGGER.log(Level.FINE, "Merged disk {0} {1}. time in the background, in {2} sec after {3} insertions.",
+				new Object[] { ((DiskFPSetMXWrapper) diskFPSetMXWrapper).getObjectName(), getGrowDiskMark(), l, cnt });
+	}
+
+	/**
+	 * Merges the cnt (not yet flushed) fingerprints of the given frozen table
+	 * with the fileCnt fingerprints read from in into outRAF. Contrary to
+	 * {@link Flusher#mergeNewEntries(BufferedRandomAccessFile[], RandomAccessFile)},
+	 * this must neither modify the table nor the index in use by lookups.
+	 * <p>
+	 * Only called if double buffering is enabled, which the constructor
+	 * rejects for subclasses that do not override this method.
+	 * 
+	 * @return The index of outRAF.
+	 */
+	protected long[] mergeFrozen(final long[][] table, final long cnt, final MappedFPFile.Reader in,
+			final RandomAccessFile outRAF) throws IOException {
+		throw new UnsupportedOperationException("Double buffering not supported by " + getClass().getName());
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#putSorted(long[], int, int, tlc2.util.BitVector)
+	 */
+	@Override
+	protected void putSorted(final long[] fps, final int from, final int to, final BitVector seen) throws IOException {
+		final int mark = swapMark;
+		if (lookupSorted(fps, from, to, seen) == 0) {
+			return;
+		}
+		// Lastly, add the fingerprints neither found in memory nor on disk to
+		// the in-memory buffer (see put(long)).
+		for (int i = from; i < to; i++) {
+			if (!seen.get(i)) {
+				seen.set(i, insert(checkValid(fps[i]) & 0x7FFFFFFFFFFFFFFFL, mark));
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#containsSorted(long[], int, int, tlc2.util.BitVector)
+	 */
+	@Override
+	protected void containsSorted(final long[] fps, final int from, final int to, final BitVector seen) throws IOException {
+		lookupSorted(fps, from, to, seen);
+	}
+
+	/**
+	 * Looks up the sorted fingerprints fps[from, to) first in memory and then
+	 * on disk.
+	 * 
+	 * @return The number of fingerprints found neither in memory nor on disk.
+	 */
+	private final int lookupSorted(final long[] fps, final int from, final int to, final BitVector seen) throws IOException {
+		// First, look in in-memory buffer
+		int misses = 0;
+		for (int i = from; i < to; i++) {
+			final long fp0 = checkValid(fps[i]) & 0x7FFFFFFFFFFFFFFFL;
+			final Lock readLock = this.rwLock.getAt(getLockIndex(fp0)).readLock();
+			readLock.lock();
+			final boolean memHit = this.memLookup(fp0);
+			readLock.unlock();
+			if (memHit) {
+				this.memHitCnt.increment();
+				seen.set(i);
+			} else {
+				seen.reset(i);
+				misses++;
+			}
+		}
+		if (misses == 0) {
+			return 0;
+		}
+		
+		// Next, look on disk. A flush acquires all locks, thus holding a single
+		// read lock suffices to keep the disk file from being re-written. The
+		// fingerprints are sorted, which is why the disk file is read front to
+		// back (reads from the same page hit the buffer of the
+		// BufferedRandomAccessFile).
+		final Lock readLock = this.rwLock.getAt(0).readLock();
+		readLock.lock();
+		try {
+			for (int i = from; i < to; i++) {
+				if (!seen.get(i) && this.diskLookup(checkValid(fps[i]) & 0x7FFFFFFFFFFFFFFFL)) {
+					this.diskHitCnt.increment();
+					seen.set(i);
+					misses--;
+				}
+			}
+		} finally {
+			readLock.unlock();
+		}
+		return misses;
+	}
+
 	/* (non-Javadoc)
 	 * @see tlc2.tool.fp.DiskFPSet#memInsert(long)
 	 */
@@ -387,7 +829,20 @@ public abstract class HeapBasedDiskFPSet extends DiskFPSet {
 	 * @see tlc2.tool.fp.DiskFPSet#acquireTblWriteLock()
 	 */
 	void acquireTblWriteLock() {
-		rwLock.acquireAllLocks();
+		while (true) {
+			rwLock.acquireAllLocks();
+			if (frozen == null) {
+				return;
+			}
+			// The synchronous flusher expects the frozen table to be on disk.
+			// Wait for the merge without holding the locks it needs to finish.
+			rwLock.releaseAllLocks();
+			try {
+				awaitMerge();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
 	}
 
 	/* (non-Javadoc)
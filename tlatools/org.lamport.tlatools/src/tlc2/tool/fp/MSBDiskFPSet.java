@@ -16,6 +16,12 @@ import util.Assert;
 @SuppressWarnings("serial")
 public class MSBDiskFPSet extends HeapBasedDiskFPSet {
 
+	/**
+	 * true iff a full table is merged with the disk file in the background
+	 * (see {@link HeapBasedDiskFPSet#doubleBuffer}).
+	 */
+	private static final boolean DOUBLE_BUFFER = Boolean.getBoolean(MSBDiskFPSet.class.getName() + ".doubleBuffer");
+
 	/**
 	 * Number of bits to right shift bits during index calculation
 	 */
@@ -32,7 +38,11 @@ public class MSBDiskFPSet extends HeapBasedDiskFPSet {
 	 * @throws RemoteException
 	 */
 	protected MSBDiskFPSet(final FPSetConfiguration fpSetConfig) throws RemoteException {
-		super(fpSetConfig);
+		this(fpSetConfig, DOUBLE_BUFFER);
+	}
+
+	MSBDiskFPSet(final FPSetConfiguration fpSetConfig, final boolean doubleBuffer) throws RemoteException {
+		super(fpSetConfig, doubleBuffer);
 
 		// To pre-sort fingerprints in memory, use n MSB fp bits for the
 		// index. However, we cannot use the 32st bit, because it is used to
@@ -52,8 +62,9 @@ public class MSBDiskFPSet extends HeapBasedDiskFPSet {
 	@Override
 	protected double getAuxiliaryStorageRequirement() {
 		// Need auxiliary storage for the disk file index which needs approx.
-		// 1/3 of the overall memory.
-		return 1.5d;
+		// 1/3 of the overall memory. With a double buffer, the frozen table
+		// takes up as much memory as the active one.
+		return doubleBuffer ? 3d : 1.5d;
 	}
 	
 	/* (non-Javadoc)
@@ -68,6 +79,77 @@ public class MSBDiskFPSet extends HeapBasedDiskFPSet {
 		// 3) Right shift by moveBy (the bits which have previously been zeroed because of mask.
 		return ((int) (fp >>> 32) & aMask) >> moveBy;
 	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.HeapBasedDiskFPSet#mergeFrozen(long[][], long, tlc2.tool.fp.MappedFPFile.Reader, java.io.RandomAccessFile)
+	 */
+	@Override
+	protected long[] mergeFrozen(final long[][] table, final long cnt, final MappedFPFile.Reader in,
+			final RandomAccessFile outRAF) throws IOException {
+		final long[] newIndex = new long[calculateIndexLen(cnt)];
+		int idx = 0;
+		long written = 0L;
+
+		long diskReads = fileCnt;
+		long value = diskReads > 0 ? in.readLong() : 0L;
+
+		// The buckets have been sorted by prepareTable and are ordered by the
+		// MSBs of their fingerprints. Contrary to TLCIterator, do not mark the
+		// fingerprints as flushed: Lookups read the frozen table concurrently.
+		long tableReads = 0L;
+		int bucketIdx = 0;
+		int pos = 0;
+		long[] bucket = null;
+		long fp = 0L;
+		long last = 0L;
+		while (true) {
+			if (bucket == null || pos >= bucket.length || bucket[pos] <= 0L) {
+				// Advance to the next bucket with unflushed fingerprints.
+				bucket = null;
+				while (bucketIdx < table.length) {
+					final long[] b = table[bucketIdx++];
+					if (b != null && b.length > 0 && b[0] > 0L) {
+						bucket = b;
+						pos = 0;
+						break;
+					}
+				}
+			}
+			final boolean eol = bucket == null;
+			if (!eol) {
+				fp = bucket[pos];
+			}
+			if (eol && diskReads == 0) {
+				break;
+			}
+			if (!eol && diskReads > 0 && fp == value) {
+				Assert.check(false, EC.TLC_FP_VALUE_ALREADY_ON_DISK, String.valueOf(value));
+			}
+			if (!eol && (diskReads == 0 || fp < value)) {
+				Assert.check(written == 0L || last < fp, EC.GENERAL);
+				last = fp;
+				pos++;
+				tableReads++;
+			} else {
+				last = value;
+				if (--diskReads > 0) {
+					value = in.readLong();
+				}
+			}
+			outRAF.writeLong(last);
+			diskWriteCnt.increment();
+			if (this.bloomFilter != null) {
+				this.bloomFilter.put(last);
+			}
+			if (written++ % NumEntriesPerPage == 0) {
+				newIndex[idx++] = last;
+			}
+		}
+		Assert.check(tableReads == cnt, EC.GENERAL);
+		Assert.check(idx == newIndex.length - 1, EC.SYSTEM_INDEX_ERROR);
+		newIndex[idx] = last;
+		return newIndex;
+	}
 	
 	public class MSBFlusher extends Flusher {
 
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * A read-only, memory-mapped view of a sorted fingerprint (.fp) file.
+ * <p>
+ * A single {@link MappedByteBuffer} is limited to 2^31-1 bytes. Thus, the file
+ * is mapped as a sequence of equally sized segments (except for the last one)
+ * whose size is a multiple of {@link FPSet#LongSize}. A fingerprint never
+ * straddles two segments.
+ * <p>
+ * Compared to {@link tlc2.util.BufferedRandomAccessFile}, lookups go straight
+ * to the page cache without a system call and without copying the page into a
+ * user-space buffer. An instance is immutable and can thus be shared by all
+ * worker threads. The mapping is released by the garbage collector once the
+ * instance becomes unreachable.
+ */
+public final class MappedFPFile {
+
+	/**
+	 * 1 GiB segments.
+	 */
+	static final int DEFAULT_SEGMENT_SHIFT = 30;
+
+	private final MappedByteBuffer[] segments;
+	private final int shift;
+	private final long mask;
+	/**
+	 * The number of fingerprints in the file.
+	 */
+	private final long entries;
+
+	public MappedFPFile(final String filename) throws IOException {
+		this(filename, DEFAULT_SEGMENT_SHIFT);
+	}
+
+	MappedFPFile(final String filename, final int segmentShift) throws IOException {
+		if (segmentShift < 3 || segmentShift > 30) {
+			throw new IllegalArgumentException("Segment size must be in [2^3, 2^30] bytes");
+		}
+		this.shift = segmentShift;
+		this.mask = (1L << segmentShift) - 1L;
+
+		final RandomAccessFile raf = new RandomAccessFile(filename, "r");
+		try {
+			final FileChannel channel = raf.getChannel();
+			final long length = channel.size();
+			this.entries = length / FPSet.LongSize;
+
+			final long segmentSize = 1L << segmentShift;
+			final int numSegments = (int) ((length + segmentSize - 1L) >>> segmentShift);
+			this.segments = new MappedByteBuffer[numSegments];
+			for (int i = 0; i < numSegments; i++) {
+				final long position = ((long) i) << segmentShift;
+				this.segments[i] = channel.map(MapMode.READ_ONLY, position, Math.min(segmentSize, length - position));
+			}
+		} finally {
+			// A mapping remains valid after its channel has been closed.
+			raf.close();
+		}
+	}
+
+	/**
+	 * @return The fingerprint at the (zero-based) position entry.
+	 */
+	public long get(final long entry) {
+		final long position = entry * FPSet.LongSize;
+		return this.segments[(int) (position >>> shift)].getLong((int) (position & mask));
+	}
+
+	/**
+	 * @return The number of fingerprints in the mapped file.
+	 */
+	public long size() {
+		return this.entries;
+	}
+
+	/**
+	 * @return A (non thread-safe) {@link Reader} positioned at entry.
+	 */
+	public Reader reader(final long entry) {
+		return new Reader() {
+			private long pos = entry;
+
+			public long readLong() throws IOException {
+				if (pos >= entries) {
+					throw new EOFException();
+				}
+				return get(pos++);
+			}
+		};
+	}
+
+	/**
+	 * A sequential source of fingerprints.
+	 * {@link java.io.RandomAccessFile#readLong()} satisfies this interface too.
+	 */
+	public interface Reader {
+		long readLong() throws IOException;
+	}
+}
@@ -15,6 +15,7 @@ import java.util.stream.IntStream;
 import tlc2.output.EC;
 import tlc2.tool.TLCTrace;
 import tlc2.tool.TLCTrace.Enumerator;
+import tlc2.util.BitVector;
 import util.Assert;
 
 /**
@@ -131,6 +132,59 @@ public class MultiFPSet extends FPSet {
 		return getFPSet(fp).contains(fp);
 	}
 
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#putAll(long[], int, tlc2.util.BitVector)
+	 */
+	public final void putAll(final long[] fps, final int len, final BitVector seen) throws IOException {
+		SortedFPBatch.putAll(this, fps, len, 0xFFFFFFFFFFFFFFFFL, seen);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#containsAll(long[], int, tlc2.util.BitVector)
+	 */
+	public final void containsAll(final long[] fps, final int len, final BitVector seen) throws IOException {
+		SortedFPBatch.containsAll(this, fps, len, 0xFFFFFFFFFFFFFFFFL, seen);
+	}
+
+	/**
+	 * Passes each nested {@link FPSet} its share of the sorted fingerprints
+	 * with a single call.
+	 * 
+	 * @see tlc2.tool.fp.FPSet#putSorted(long[], int, int, BitVector)
+	 */
+	protected final void putSorted(final long[] fps, final int from, final int to, final BitVector seen)
+			throws IOException {
+		// The fingerprints of a nested FPSet are adjacent because the nested
+		// FPSet is determined by the fingerprint's leftmost bits.
+		int lo = from;
+		while (lo < to) {
+			final FPSet fpSet = getFPSet(fps[lo]);
+			int hi = lo + 1;
+			while (hi < to && getFPSet(fps[hi]) == fpSet) {
+				hi++;
+			}
+			fpSet.putSorted(fps, lo, hi, seen);
+			lo = hi;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#containsSorted(long[], int, int, tlc2.util.BitVector)
+	 */
+	protected final void containsSorted(final long[] fps, final int from, final int to, final BitVector seen)
+			throws IOException {
+		int lo = from;
+		while (lo < to) {
+			final FPSet fpSet = getFPSet(fps[lo]);
+			int hi = lo + 1;
+			while (hi < to && getFPSet(fps[hi]) == fpSet) {
+				hi++;
+			}
+			fpSet.containsSorted(fps, lo, hi, seen);
+			lo = hi;
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see tlc2.tool.fp.FPSet#close()
 	 */
@@ -12,6 +12,8 @@ class MultiFPSetConfiguration extends FPSetConfiguration {
 		this.fpBits = fpSetConfig.getFpBits();
 		this.ratio = fpSetConfig.getRatio();
 		this.implementation = fpSetConfig.getImplementation();		
+		this.bloomFilterMemoryInBytes = fpSetConfig.getBloomFilterMemoryInBytes();
+		this.bloomFilterFPR = fpSetConfig.getBloomFilterFPR();
 		// Sanity check configuration right away
 		if (getMemoryInFingerprintCnt() <= 0) {
 			throw new IllegalArgumentException(
@@ -33,6 +35,13 @@ class MultiFPSetConfiguration extends FPSetConfiguration {
 		return super.getMemoryInBytes() / getMultiFPSetCnt();
 	}
 
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSetConfiguration#getBloomFilterMemoryInBytes()
+	 */
+	public long getBloomFilterMemoryInBytes() {
+		return super.getBloomFilterMemoryInBytes() / getMultiFPSetCnt();
+	}
+
 	/* (non-Javadoc)
 	 * @see tlc2.tool.fp.FPSetConfiguration#getMemoryInFingerprintCnt()
 	 */
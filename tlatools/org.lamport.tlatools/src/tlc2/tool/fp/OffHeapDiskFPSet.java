@@ -29,6 +29,7 @@ import tlc2.output.EC;
 import tlc2.output.MP;
 import tlc2.tool.fp.LongArrays.LongComparator;
 import tlc2.tool.fp.management.DiskFPSetMXWrapper;
+import tlc2.util.BitVector;
 import tlc2.util.BufferedRandomAccessFile;
 import util.Assert;
 
@@ -349,8 +350,10 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 		}
 
 		// zeros the msb
-		final long fp0 = fp & FLUSHED_MASK;
+		return put0(fp & FLUSHED_MASK);
+	}
 
+	private final boolean put0(final long fp0) throws IOException {
 		// Only check primary and disk iff there exists a disk file. index is
 		// created when we wait and thus cannot race.
 		int start = 0;
@@ -399,6 +402,46 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 		return false;
 	}
 	
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#putSorted(long[], int, int, tlc2.util.BitVector)
+	 */
+	@Override
+	protected void putSorted(final long[] fps, final int from, final int to, final BitVector seen) throws IOException {
+		// Eviction does not start before all workers wait for it (see
+		// OffHeapSynchronizer), hence it suffices to check once per batch. If
+		// the table fills up while the batch gets inserted, memInsert0 waits
+		// for eviction.
+		checkEvictPending();
+		
+		// The Indexer maps sorted fingerprints to ascending positions in the
+		// table and the disk file is sorted too. Thus, both are accessed front
+		// to back.
+		for (int i = from; i < to; i++) {
+			seen.set(i, put0(fps[i] & FLUSHED_MASK));
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#containsSorted(long[], int, int, tlc2.util.BitVector)
+	 */
+	@Override
+	protected void containsSorted(final long[] fps, final int from, final int to, final BitVector seen) throws IOException {
+		// See putSorted.
+		checkEvictPending();
+		
+		for (int i = from; i < to; i++) {
+			final long fp0 = fps[i] & FLUSHED_MASK;
+			if (memLookup(fp0)) {
+				seen.set(i);
+			} else if (this.diskLookup(fp0)) {
+				diskHitCnt.increment();
+				seen.set(i);
+			} else {
+				seen.reset(i);
+			}
+		}
+	}
+	
 	/* (non-Javadoc)
 	 * @see tlc2.tool.fp.DiskFPSet#forceFlush()
 	 */
@@ -775,10 +818,16 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 		long loEntry = ((long) loPage) * NumEntriesPerPage;
 		long hiEntry = ((loPage == indexLength - 2) ? this.fileCnt - 1 : ((long) hiPage) * NumEntriesPerPage);
 		final BufferedRandomAccessFile raf = this.braf[id];
+		final MappedFPFile mfp = this.mapped;
 		while (loEntry < hiEntry) {
 			midEntry = calculateMidEntry(loVal, hiVal, dfp, loEntry, hiEntry);
-			raf.seek(midEntry * LongSize);
-			final long v = raf.readLong();
+			final long v;
+			if (mfp != null) {
+				v = mfp.get(midEntry);
+			} else {
+				raf.seek(midEntry * LongSize);
+				v = raf.readLong();
+			}
 
 			if (fp < v) {
 				hiEntry = midEntry;
@@ -974,9 +1023,12 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 				// nothing can be read from disk.
 				final long diskReads = id == numThreads - 1 ? fileCnt - result.getInOffset() : result.getDisk();
 				
+				// Read from the memory mapped file if available.
+				final MappedFPFile.Reader in = mapped != null ? mapped.reader(result.getInOffset()) : inRAF::readLong;
+				
 				tasks.add(new Callable<Void>() {
 					public Void call() throws Exception {
-						ConcurrentOffHeapMSBFlusher.super.mergeNewEntries(inRAF, tmpRAFs[id], itr, diskReads);
+						ConcurrentOffHeapMSBFlusher.super.mergeNewEntries(in, tmpRAFs[id], itr, diskReads);
 						assert tmpRAFs[id].getFilePointer() == (result.getOutOffset() + result.getTotal()) * FPSet.LongSize : id
 								+ " writer did not write expected amount of fingerprints to disk.";
 						return null;
@@ -1093,14 +1145,19 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 
 		protected void mergeNewEntries(BufferedRandomAccessFile[] inRAFs, RandomAccessFile outRAF, Iterator itr)
 				throws IOException {
-			inRAFs[0].seek(0);
-			mergeNewEntries(inRAFs[0], outRAF, itr, inRAFs[0].length() / FPSet.LongSize);
+			final MappedFPFile mfp = mapped;
+			if (mfp != null) {
+				mergeNewEntries(mfp.reader(0L), outRAF, itr, mfp.size());
+			} else {
+				inRAFs[0].seek(0);
+				mergeNewEntries(inRAFs[0]::readLong, outRAF, itr, inRAFs[0].length() / FPSet.LongSize);
+			}
 		}
 
 		/*
 		 * See PlusCal spec OpenAddressing.ConcurrentFlusher.tla which has been checked for Nat == 0..6.
 		 */
-		protected void mergeNewEntries(BufferedRandomAccessFile inRAF, RandomAccessFile outRAF, final Iterator itr,
+		protected void mergeNewEntries(MappedFPFile.Reader inRAF, RandomAccessFile outRAF, final Iterator itr,
 				long diskReads) throws IOException {
 			
 			// Disk might be empty.
@@ -1125,6 +1182,10 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 					outRAF.writeLong(fp);
 					tableReads--;
 					diskWriteCnt.increment();
+					// Only new fingerprints have to be added to the filter.
+					if (bloomFilter != null) {
+						bloomFilter.put(fp);
+					}
 					// Read next value if any.
 		            if (tableReads > 0) {
 						final long nextFP = itr.markNext();
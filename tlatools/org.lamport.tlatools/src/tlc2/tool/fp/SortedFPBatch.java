@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import tlc2.util.BitVector;
+
+/**
+ * A batch of fingerprints passed to {@link FPSet#putAll(long[], int, BitVector)}
+ * or {@link FPSet#containsAll(long[], int, BitVector)}, sorted in ascending
+ * order with duplicates removed. {@link FPSet}s whose in-memory table and/or
+ * disk file are ordered by fingerprint (see {@link DiskFPSet}) then look up
+ * the fingerprints of the batch in a single sweep (see
+ * {@link FPSet#putSorted(long[], int, int, BitVector)}).
+ * <p>
+ * Workers look up their batches one after the other. Thus, each thread reuses
+ * a single instance to not allocate new arrays per batch.
+ */
+final class SortedFPBatch {
+
+	private static final ThreadLocal<SortedFPBatch> BATCHES = ThreadLocal.withInitial(SortedFPBatch::new);
+
+	/**
+	 * Puts the given fingerprints into fpSet in ascending order (see
+	 * {@link FPSet#putAll(long[], int, BitVector)}).
+	 * 
+	 * @param mask
+	 *            Applied to each fingerprint prior to sorting. {@link DiskFPSet}s
+	 *            e.g. ignore the msb of fingerprints.
+	 */
+	static void putAll(final FPSet fpSet, final long[] fps, final int len, final long mask, final BitVector seen)
+			throws IOException {
+		final SortedFPBatch batch = BATCHES.get().init(fps, len, mask);
+		fpSet.putSorted(batch.fps, 0, batch.size, batch.seen);
+		batch.copyTo(fps, len, mask, seen, true);
+	}
+
+	/**
+	 * Looks up the given fingerprints in fpSet in ascending order (see
+	 * {@link FPSet#containsAll(long[], int, BitVector)}).
+	 */
+	static void containsAll(final FPSet fpSet, final long[] fps, final int len, final long mask,
+			final BitVector seen) throws IOException {
+		final SortedFPBatch batch = BATCHES.get().init(fps, len, mask);
+		fpSet.containsSorted(batch.fps, 0, batch.size, batch.seen);
+		batch.copyTo(fps, len, mask, seen, false);
+	}
+
+	private long[] fps = new long[0];
+	private int size;
+	private final BitVector seen = new BitVector(64);
+	private final BitVector visited = new BitVector(64);
+
+	private SortedFPBatch init(final long[] fps, final int len, final long mask) {
+		if (this.fps.length < len) {
+			this.fps = new long[len];
+		}
+		for (int i = 0; i < len; i++) {
+			this.fps[i] = fps[i] & mask;
+		}
+		Arrays.sort(this.fps, 0, len);
+
+		// Remove duplicates.
+		int n = 0;
+		for (int i = 0; i < len; i++) {
+			if (n == 0 || this.fps[n - 1] != this.fps[i]) {
+				this.fps[n++] = this.fps[i];
+			}
+		}
+		this.size = n;
+		this.seen.clear();
+		return this;
+	}
+
+	/**
+	 * Maps the results of the sorted batch back to the order of fps.
+	 * 
+	 * @param put
+	 *            If true, only the first occurrence of a duplicate fingerprint
+	 *            in fps is new (as if the fingerprints had been put one after
+	 *            the other).
+	 */
+	private void copyTo(final long[] fps, final int len, final long mask, final BitVector result, final boolean put) {
+		if (put) {
+			this.visited.clear();
+		}
+		for (int i = 0; i < len; i++) {
+			final int idx = Arrays.binarySearch(this.fps, 0, this.size, fps[i] & mask);
+			if (put) {
+				result.set(i, this.seen.get(idx) || this.visited.get(idx));
+				this.visited.set(idx);
+			} else {
+				result.set(i, this.seen.get(idx));
+			}
+		}
+	}
+}
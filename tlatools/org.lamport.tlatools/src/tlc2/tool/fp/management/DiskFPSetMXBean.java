@@ -114,6 +114,21 @@ public interface DiskFPSetMXBean {
 	 */
 	double getLoadFactor();
 	
+	/**
+	 * @see DiskFPSet#getBloomFilterNegativeCnt()
+	 */
+	long getBloomFilterNegativeCnt();
+
+	/**
+	 * @see DiskFPSet#getBloomFilterSize()
+	 */
+	long getBloomFilterSize();
+
+	/**
+	 * @see DiskFPSet#getBloomFilterFPR()
+	 */
+	double getBloomFilterFPR();
+	
 	/**
 	 * @see DiskFPSet#forceFlush()
 	 */
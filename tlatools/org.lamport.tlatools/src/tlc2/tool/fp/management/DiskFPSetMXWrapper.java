@@ -174,6 +174,27 @@ public class DiskFPSetMXWrapper extends TLCStandardMBean implements DiskFPSetMXB
 		return fpset.getLoadFactor();
 	}
 
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.management.DiskFPSetMXBean#getBloomFilterNegativeCnt()
+	 */
+	public long getBloomFilterNegativeCnt() {
+		return fpset.getBloomFilterNegativeCnt();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.management.DiskFPSetMXBean#getBloomFilterSize()
+	 */
+	public long getBloomFilterSize() {
+		return fpset.getBloomFilterSize();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.management.DiskFPSetMXBean#getBloomFilterFPR()
+	 */
+	public double getBloomFilterFPR() {
+		return fpset.getBloomFilterFPR();
+	}
+
 	/* (non-Javadoc)
 	 * @see tlc2.tool.fp.management.DiskFPSetMXBean#forceFlush()
 	 */
@@ -20,6 +20,10 @@ public final class ContextEnumerator implements IContextEnumerator {
   private ValueEnumeration[] enums;
   private Value[] currentElems;
   private boolean isDone;
+  // The bound identifiers of all vars in the order of their slots (see
+  // SpecProcessor#processFrameSlots). All bound identifiers are bound with a
+  // single frame.
+  private final SymbolNode[] names;
   
   public ContextEnumerator(Object[] vars, ValueEnumeration[] enums, Context con) {
     this.con = con;
@@ -34,15 +38,31 @@ public final class ContextEnumerator implements IContextEnumerator {
 	break;
       }
     }
+    int len = 0;
+    for (int i = 0; i < vars.length; i++) {
+      len += (vars[i] instanceof SymbolNode) ? 1 : ((SymbolNode[]) vars[i]).length;
+    }
+    this.names = new SymbolNode[len];
+    int idx = 0;
+    for (int i = 0; i < vars.length; i++) {
+      if (vars[i] instanceof SymbolNode) {
+        this.names[idx++] = (SymbolNode) vars[i];
+      } else {
+        final SymbolNode[] varList = (SymbolNode[]) vars[i];
+        System.arraycopy(varList, 0, this.names, idx, varList.length);
+        idx += varList.length;
+      }
+    }
   }
   
   @Override
   public final Context nextElement() {
-      Context con1 = this.con;
       if (this.isDone) return null;
+      final Object[] values = new Object[this.names.length];
+      int idx = 0;
       for (int i = 0; i < enums.length; i++) {
           if (this.vars[i] instanceof SymbolNode) {
-              con1 = con1.cons((SymbolNode)this.vars[i], this.currentElems[i]);
+              values[idx++] = this.currentElems[i];
           }
           else {
               SymbolNode[] varList = (SymbolNode[])this.vars[i];
@@ -54,11 +74,11 @@ public final class ContextEnumerator implements IContextEnumerator {
               if (varList.length != valList.length) {
                   Assert.fail(EC.TLC_ARGUMENT_MISMATCH, varList[0].toString());
               }
-              for (int j = 0; j < varList.length; j++) {
-                  con1 = con1.cons(varList[j], valList[j]);
-              }
+              System.arraycopy(valList, 0, values, idx, valList.length);
+              idx += valList.length;
           }
       }
+      final Context con1 = this.con.cons(this.names, values);
       for (int i = 0; i < enums.length; i++) {
           this.currentElems[i] = this.enums[i].nextElement();
           if (this.currentElems[i] != null) break;
@@ -73,4 +93,3 @@ public final class ContextEnumerator implements IContextEnumerator {
   }
 
 }
-
@@ -0,0 +1,725 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import tla2sany.semantic.ExprNode;
+import tla2sany.semantic.ExprOrOpArgNode;
+import tla2sany.semantic.FormalParamNode;
+import tla2sany.semantic.LabelNode;
+import tla2sany.semantic.OpApplNode;
+import tla2sany.semantic.OpDefNode;
+import tla2sany.semantic.SemanticNode;
+import tla2sany.semantic.SymbolNode;
+import tlc2.output.EC;
+import tlc2.tool.BuiltInOPs;
+import tlc2.tool.EvalControl;
+import tlc2.tool.TLCState;
+import tlc2.tool.ToolGlobals;
+import tlc2.tool.coverage.CostModel;
+import tlc2.util.Context;
+import tlc2.value.Values;
+import tlc2.value.impl.Applicable;
+import tlc2.value.impl.BoolValue;
+import tlc2.value.impl.Enumerable;
+import tlc2.value.impl.EvaluatingValue;
+import tlc2.value.impl.FcnLambdaValue;
+import tlc2.value.impl.FcnRcdValue;
+import tlc2.value.impl.LazyValue;
+import tlc2.value.impl.MethodValue;
+import tlc2.value.impl.RecordValue;
+import tlc2.value.impl.SetEnumValue;
+import tlc2.value.impl.TupleValue;
+import tlc2.value.impl.Value;
+import tlc2.value.impl.ValueEnumeration;
+import tlc2.value.impl.ValueVec;
+import util.Assert;
+
+/**
+ * A compilation tier for the expressions that TLC evaluates for (almost) every
+ * state such as invariants, state and action constraints, and the conjuncts of
+ * actions. An expression is translated once into a tree of {@link Node}s that
+ * already know what to do at runtime: the operator of an OpApplNode is decoded
+ * at compile time, and variables bound by quantifiers are stored in the slots
+ * of a frame instead of being looked up in a chain of {@link Context}s.
+ * <p>
+ * Only a subset of TLA+ is compiled. The remaining constructs - LET, SUBST,
+ * set comprehensions, function constructors, EXCEPT, ... - are handed back to
+ * the interpreter (see {@link Interpreted}), for which the bound variables in
+ * the slots are pushed onto the context. The semantics, including the error
+ * messages, follow Tool#evalImpl and Tool#evalApplImpl.
+ * <p>
+ * The compiled code does not record coverage, thus the compiler is only used
+ * when coverage is off.
+ */
+final class ExprCompiler implements ToolGlobals {
+
+	private static final Value[] NO_SLOTS = new Value[0];
+
+	private final Tool tool;
+
+	private final ConcurrentHashMap<SemanticNode, Root> roots = new ConcurrentHashMap<>();
+
+	ExprCompiler(final Tool tool) {
+		this.tool = tool;
+	}
+
+	/**
+	 * Equivalent to tool.eval(expr, c, s0, s1, control, cm) with coverage
+	 * disabled.
+	 */
+	final Value eval(final SemanticNode expr, final Context c, final TLCState s0, final TLCState s1,
+			final int control) {
+		return root(expr).eval(c, s0, s1, control);
+	}
+
+	private final Root root(final SemanticNode expr) {
+		final Root root = this.roots.get(expr);
+		if (root != null) {
+			return root;
+		}
+		return this.roots.computeIfAbsent(expr, e -> {
+			final Scope scope = new Scope();
+			final Node node = compile(e, scope);
+			return new Root(node, scope.size);
+		});
+	}
+
+	/* Compilation */
+
+	/**
+	 * The variables bound by the enclosing quantifiers. The i-th variable is
+	 * stored in slot i of the frame.
+	 */
+	private static final class Scope {
+		private final List<FormalParamNode> params = new ArrayList<>();
+		private int size;
+
+		int indexOf(final SymbolNode param) {
+			return this.params.indexOf(param);
+		}
+
+		void push(final FormalParamNode param) {
+			this.params.add(param);
+			this.size = Math.max(this.size, this.params.size());
+		}
+
+		void pop(final int n) {
+			for (int i = 0; i < n; i++) {
+				this.params.remove(this.params.size() - 1);
+			}
+		}
+
+		FormalParamNode[] toArray() {
+			return this.params.toArray(new FormalParamNode[this.params.size()]);
+		}
+	}
+
+	private final Node compile(final SemanticNode expr, final Scope scope) {
+		switch (expr.getKind()) {
+		case LabelKind:
+			return compile(((LabelNode) expr).getBody(), scope);
+		case OpApplKind:
+			return compileAppl((OpApplNode) expr, scope);
+		case NumeralKind:
+		case DecimalKind:
+		case StringKind:
+			return new Literal(expr);
+		default:
+			return new Interpreted(expr, scope);
+		}
+	}
+
+	private final Node[] compile(final ExprOrOpArgNode[] args, final int from, final Scope scope) {
+		final Node[] nodes = new Node[args.length - from];
+		for (int i = from; i < args.length; i++) {
+			if (!(args[i] instanceof ExprNode)) {
+				return null;
+			}
+			nodes[i - from] = compile(args[i], scope);
+		}
+		return nodes;
+	}
+
+	private final Node compileAppl(final OpApplNode expr, final Scope scope) {
+		final ExprOrOpArgNode[] args = expr.getArgs();
+		final SymbolNode opNode = expr.getOperator();
+		final int opcode = BuiltInOPs.getOpCode(opNode.getName());
+
+		if (opcode == 0) {
+			final int slot = scope.indexOf(opNode);
+			if (slot >= 0 && args.length == 0) {
+				return new Slot(slot);
+			}
+			return new Call(expr, compile(args, 0, scope), scope);
+		}
+
+		switch (opcode) {
+		case OPCODE_cl:
+		case OPCODE_dl:
+		case OPCODE_land:
+		case OPCODE_lor:
+		case OPCODE_implies:
+		case OPCODE_lnot:
+		case OPCODE_equiv:
+		case OPCODE_eq:
+		case OPCODE_noteq:
+		case OPCODE_in:
+		case OPCODE_notin:
+		case OPCODE_ite:
+		case OPCODE_fa:
+		case OPCODE_se:
+		case OPCODE_tup:
+		case OPCODE_prime: {
+			final Node[] nodes = compile(args, 0, scope);
+			if (nodes != null) {
+				return new Builtin(expr, opcode, nodes);
+			}
+			break;
+		}
+		case OPCODE_rs: {
+			final Node[] nodes = compile(args, 0, scope);
+			if (nodes != null) {
+				return new Builtin(expr, opcode, new Node[] { nodes[0] });
+			}
+			break;
+		}
+		case OPCODE_case:
+			return compileCase(expr, scope);
+		case OPCODE_be:
+		case OPCODE_bf:
+			return compileBoundedQuant(expr, opcode == OPCODE_bf, scope);
+		}
+		return new Interpreted(expr, scope);
+	}
+
+	private final Node compileCase(final OpApplNode expr, final Scope scope) {
+		final ExprOrOpArgNode[] args = expr.getArgs();
+		final List<Node> guards = new ArrayList<>();
+		final List<Node> arms = new ArrayList<>();
+		final List<SemanticNode> guardExprs = new ArrayList<>();
+		Node other = null;
+		for (int i = 0; i < args.length; i++) {
+			final ExprOrOpArgNode[] pairArgs = ((OpApplNode) args[i]).getArgs();
+			if (pairArgs[0] == null) {
+				other = compile(pairArgs[1], scope);
+			} else {
+				guards.add(compile(pairArgs[0], scope));
+				guardExprs.add(pairArgs[0]);
+				arms.add(compile(pairArgs[1], scope));
+			}
+		}
+		return new Case(expr, guards.toArray(new Node[guards.size()]),
+				guardExprs.toArray(new SemanticNode[guardExprs.size()]), arms.toArray(new Node[arms.size()]), other);
+	}
+
+	private final Node compileBoundedQuant(final OpApplNode expr, final boolean forall, final Scope scope) {
+		final FormalParamNode[][] formals = expr.getBdedQuantSymbolLists();
+		final boolean[] isTuples = expr.isBdedQuantATuple();
+		final ExprNode[] domains = expr.getBdedQuantBounds();
+		final int[] arities = new int[formals.length];
+		final Node[] bounds = new Node[formals.length];
+		int vars = 0;
+		for (int i = 0; i < formals.length; i++) {
+			if (isTuples[i]) {
+				return new Interpreted(expr, scope);
+			}
+			// The domains are evaluated in the enclosing scope.
+			bounds[i] = compile(domains[i], scope);
+			arities[i] = formals[i].length;
+			vars += arities[i];
+		}
+		final int first = scope.params.size();
+		for (int i = 0; i < formals.length; i++) {
+			for (FormalParamNode param : formals[i]) {
+				scope.push(param);
+			}
+		}
+		final Node body = compile(expr.getArgs()[0], scope);
+		scope.pop(vars);
+		return new BoundedQuant(expr, forall, domains, bounds, arities, first, vars, body);
+	}
+
+	/* Runtime */
+
+	/**
+	 * The context in which a compiled expression is evaluated and the values of
+	 * the variables bound by compiled quantifiers.
+	 */
+	private static final class Frame {
+		final Context c;
+		final Value[] slots;
+
+		Frame(final Context c, final Value[] slots) {
+			this.c = c;
+			this.slots = slots;
+		}
+	}
+
+	private static abstract class Node {
+		abstract Value eval(Frame f, TLCState s0, TLCState s1, int control);
+	}
+
+	private static final class Root {
+		private final Node node;
+		private final int slots;
+
+		Root(final Node node, final int slots) {
+			this.node = node;
+			this.slots = slots;
+		}
+
+		Value eval(final Context c, final TLCState s0, final TLCState s1, final int control) {
+			return this.node.eval(new Frame(c, this.slots == 0 ? NO_SLOTS : new Value[this.slots]), s0, s1, control);
+		}
+	}
+
+	private static final class Slot extends Node {
+		private final int idx;
+
+		Slot(final int idx) {
+			this.idx = idx;
+		}
+
+		@Override
+		Value eval(final Frame f, final TLCState s0, final TLCState s1, final int control) {
+			return f.slots[this.idx];
+		}
+	}
+
+	private static final class Literal extends Node {
+		private final SemanticNode expr;
+
+		Literal(final SemanticNode expr) {
+			this.expr = expr;
+		}
+
+		@Override
+		Value eval(final Frame f, final TLCState s0, final TLCState s1, final int control) {
+			return (Value) WorkerValue.mux(this.expr.getToolObject(Spec.toolId));
+		}
+	}
+
+	/**
+	 * Hands expr back to the interpreter in a context that binds the variables of
+	 * the enclosing compiled quantifiers.
+	 */
+	private class Interpreted extends Node {
+		protected final SemanticNode expr;
+		private final FormalParamNode[] scope;
+
+		Interpreted(final SemanticNode expr, final Scope scope) {
+			this.expr = expr;
+			this.scope = scope.toArray();
+		}
+
+		@Override
+		Value eval(final Frame f, final TLCState s0, final TLCState s1, final int control) {
+			Context c = f.c;
+			for (int i = 0; i < this.scope.length; i++) {
+				c = c.cons(this.scope[i], f.slots[i]);
+			}
+			return tool.eval(this.expr, c, s0, s1, control, CostModel.DO_NOT_RECORD);
+		}
+	}
+
+	/**
+	 * The application of a user-defined operator, a constant, or a (state)
+	 * variable. Like the interpreter, the operator is looked up at runtime.
+	 * Operators without parameters are inlined, Java overrides (e.g. of the
+	 * standard modules) are applied to the compiled arguments, and everything
+	 * else is interpreted.
+	 */
+	private final class Call extends Interpreted {
+		private final SymbolNode opNode;
+		private final Node[] args;
+		private volatile Inlined inlined;
+
+		Call(final OpApplNode expr, final Node[] args, final Scope scope) {
+			super(expr, scope);
+			this.opNode = expr.getOperator();
+			this.args = args;
+		}
+
+		@Override
+		Value eval(final Frame f, final TLCState s0, final TLCState s1, final int control) {
+			final Object val = tool.lookup(this.opNode, f.c, s0, EvalControl.isPrimed(control));
+			if (val instanceof OpDefNode) {
+				final OpDefNode opDef = (OpDefNode) val;
+				if (this.args != null && this.args.length == 0 && BuiltInOPs.getOpCode(opDef.getName()) == 0) {
+					// getOpContext(opDef, args, c, ...) returns c for an operator without
+					// parameters.
+					return inline(opDef).eval(f.c, s0, s1, control);
+				}
+			} else if (val instanceof MethodValue && val.getClass() == MethodValue.class && this.args != null
+					&& this.args.length > 0) {
+				// OpValue#eval
+				final Value[] argVals = new Value[this.args.length];
+				for (int i = 0; i < this.args.length; i++) {
+					argVals[i] = this.args[i].eval(f, s0, s1, control);
+				}
+				return ((MethodValue) val).apply(argVals, control);
+			} else if (val instanceof Value && !(val instanceof LazyValue) && !(val instanceof MethodValue)
+					&& !(val instanceof EvaluatingValue) && this.args != null && this.args.length == 0) {
+				return (Value) val;
+			}
+			return super.eval(f, s0, s1, control);
+		}
+
+		private final Root inline(final OpDefNode opDef) {
+			final Inlined i = this.inlined;
+			if (i != null && i.opDef == opDef) {
+				return i.root;
+			}
+			final Root root = root(opDef.getBody());
+			this.inlined = new Inlined(opDef, root);
+			return root;
+		}
+	}
+
+	private static final class Inlined {
+		final OpDefNode opDef;
+		final Root root;
+
+		Inlined(final OpDefNode opDef, final Root root) {
+			this.opDef = opDef;
+			this.root = root;
+		}
+	}
+
+	private static final class Builtin extends Node {
+		private final OpApplNode expr;
+		private final int opcode;
+		private final Node[] args;
+
+		Builtin(final OpApplNode expr, final int opcode, final Node[] args) {
+			this.expr = expr;
+			this.opcode = opcode;
+			this.args = args;
+		}
+
+		@Override
+		Value eval(final Frame f, final TLCState s0, final TLCState s1, final int control) {
+			final Node[] args = this.args;
+			switch (this.opcode) {
+			case OPCODE_cl: {
+				for (int i = 0; i < args.length; i++) {
+					final Value bval = args[i].eval(f, s0, s1, control);
+					if (!(bval instanceof BoolValue)) {
+						Assert.fail("A non-boolean expression (" + bval.getKindString()
+								+ ") was used as a formula in a conjunction.\n" + this.expr.getArgs()[i]);
+					}
+					if (!((BoolValue) bval).val) {
+						return BoolValue.ValFalse;
+					}
+				}
+				return BoolValue.ValTrue;
+			}
+			case OPCODE_dl: {
+				for (int i = 0; i < args.length; i++) {
+					final Value bval = args[i].eval(f, s0, s1, control);
+					if (!(bval instanceof BoolValue)) {
+						Assert.fail("A non-boolean expression (" + bval.getKindString()
+								+ ") was used as a formula in a disjunction.\n" + this.expr.getArgs()[i]);
+					}
+					if (((BoolValue) bval).val) {
+						return BoolValue.ValTrue;
+					}
+				}
+				return BoolValue.ValFalse;
+			}
+			case OPCODE_land: {
+				final Value arg1 = args[0].eval(f, s0, s1, control);
+				if (!(arg1 instanceof BoolValue)) {
+					Assert.fail("Attempted to evaluate an expression of form P /\\ Q" + " when P was\n"
+							+ arg1.getKindString() + ".\n" + this.expr);
+				}
+				if (((BoolValue) arg1).val) {
+					final Value arg2 = args[1].eval(f, s0, s1, control);
+					if (!(arg2 instanceof BoolValue)) {
+						Assert.fail("Attempted to evaluate an expression of form P /\\ Q" + " when Q was\n"
+								+ arg2.getKindString() + ".\n" + this.expr);
+					}
+					return arg2;
+				}
+				return BoolValue.ValFalse;
+			}
+			case OPCODE_lor: {
+				final Value arg1 = args[0].eval(f, s0, s1, control);
+				if (!(arg1 instanceof BoolValue)) {
+					Assert.fail("Attempted to evaluate an expression of form P \\/ Q" + " when P was\n"
+							+ arg1.getKindString() + ".\n" + this.expr);
+				}
+				if (((BoolValue) arg1).val) {
+					return BoolValue.ValTrue;
+				}
+				final Value arg2 = args[1].eval(f, s0, s1, control);
+				if (!(arg2 instanceof BoolValue)) {
+					Assert.fail("Attempted to evaluate an expression of form P \\/ Q" + " when Q was\n"
+							+ arg2.getKindString() + ".\n" + this.expr);
+				}
+				return arg2;
+			}
+			case OPCODE_implies: {
+				final Value arg1 = args[0].eval(f, s0, s1, control);
+				if (!(arg1 instanceof BoolValue)) {
+					Assert.fail("Attempted to evaluate an expression of form P => Q" + " when P was\n"
+							+ arg1.getKindString() + ".\n" + this.expr);
+				}
+				if (((BoolValue) arg1).val) {
+					final Value arg2 = args[1].eval(f, s0, s1, control);
+					if (!(arg2 instanceof BoolValue)) {
+						Assert.fail("Attempted to evaluate an expression of form P => Q" + " when Q was\n"
+								+ arg2.getKindString() + ".\n" + this.expr);
+					}
+					return arg2;
+				}
+				return BoolValue.ValTrue;
+			}
+			case OPCODE_lnot: {
+				final Value arg = args[0].eval(f, s0, s1, control);
+				if (!(arg instanceof BoolValue)) {
+					Assert.fail("Attempted to apply the operator ~ to a non-boolean\n(" + arg.getKindString() + ")\n"
+							+ this.expr);
+				}
+				return (((BoolValue) arg).val) ? BoolValue.ValFalse : BoolValue.ValTrue;
+			}
+			case OPCODE_equiv: {
+				final Value arg1 = args[0].eval(f, s0, s1, control);
+				final Value arg2 = args[1].eval(f, s0, s1, control);
+				if (!(arg1 instanceof BoolValue) || !(arg2 instanceof BoolValue)) {
+					Assert.fail("Attempted to evaluate an expression of form P <=> Q"
+							+ " when P or Q was not a boolean.\n" + this.expr);
+				}
+				return (((BoolValue) arg1).val == ((BoolValue) arg2).val) ? BoolValue.ValTrue : BoolValue.ValFalse;
+			}
+			case OPCODE_eq: {
+				final Value arg1 = args[0].eval(f, s0, s1, control);
+				final Value arg2 = args[1].eval(f, s0, s1, control);
+				return (arg1.equals(arg2)) ? BoolValue.ValTrue : BoolValue.ValFalse;
+			}
+			case OPCODE_noteq: {
+				final Value arg1 = args[0].eval(f, s0, s1, control);
+				final Value arg2 = args[1].eval(f, s0, s1, control);
+				return arg1.equals(arg2) ? BoolValue.ValFalse : BoolValue.ValTrue;
+			}
+			case OPCODE_in: {
+				final Value arg1 = args[0].eval(f, s0, s1, control);
+				final Value arg2 = args[1].eval(f, s0, s1, control);
+				return (arg2.member(arg1)) ? BoolValue.ValTrue : BoolValue.ValFalse;
+			}
+			case OPCODE_notin: {
+				final Value arg1 = args[0].eval(f, s0, s1, control);
+				final Value arg2 = args[1].eval(f, s0, s1, control);
+				return (arg2.member(arg1)) ? BoolValue.ValFalse : BoolValue.ValTrue;
+			}
+			case OPCODE_ite: {
+				final Value bval = args[0].eval(f, s0, s1, control);
+				if (!(bval instanceof BoolValue)) {
+					Assert.fail("A non-boolean expression (" + bval.getKindString()
+							+ ") was used as the condition of an IF.\n" + this.expr);
+				}
+				if (((BoolValue) bval).val) {
+					return args[1].eval(f, s0, s1, control);
+				}
+				return args[2].eval(f, s0, s1, control);
+			}
+			case OPCODE_fa: {
+				Value result = null;
+				final Value fval = args[0].eval(f, s0, s1, EvalControl.setKeepLazy(control));
+				if ((fval instanceof FcnRcdValue) || (fval instanceof FcnLambdaValue)) {
+					final Applicable fcn = (Applicable) fval;
+					final Value argVal = args[1].eval(f, s0, s1, control);
+					result = fcn.apply(argVal, control);
+				} else if ((fval instanceof TupleValue) || (fval instanceof RecordValue)) {
+					final Applicable fcn = (Applicable) fval;
+					if (args.length != 2) {
+						Assert.fail("Attempted to evaluate an expression of form f[e1, ... , eN]"
+								+ "\nwith f a tuple or record and N > 1.\n" + this.expr);
+					}
+					final Value aval = args[1].eval(f, s0, s1, control);
+					result = fcn.apply(aval, control);
+				} else {
+					Assert.fail("A non-function (" + fval.getKindString() + ") was applied" + " as a function.\n"
+							+ this.expr);
+				}
+				return result;
+			}
+			case OPCODE_rs: {
+				final Value rval = args[0].eval(f, s0, s1, control);
+				final Value sval = (Value) WorkerValue.mux(this.expr.getArgs()[1].getToolObject(Spec.toolId));
+				if (rval instanceof RecordValue) {
+					final Value result = ((RecordValue) rval).select(sval);
+					if (result == null) {
+						Assert.fail("Attempted to select nonexistent field " + sval + " from the" + " record\n"
+								+ Values.ppr(rval.toString()) + "\n" + this.expr);
+					}
+					return result;
+				} else {
+					final FcnRcdValue fcn = (FcnRcdValue) rval.toFcnRcd();
+					if (fcn == null) {
+						Assert.fail("Attempted to select field " + sval + " from a non-record" + " value "
+								+ Values.ppr(rval.toString()) + "\n" + this.expr);
+					}
+					return fcn.apply(sval, control);
+				}
+			}
+			case OPCODE_se: {
+				final ValueVec vals = new ValueVec(args.length);
+				for (int i = 0; i < args.length; i++) {
+					vals.addElement(args[i].eval(f, s0, s1, control));
+				}
+				return new SetEnumValue(vals, false);
+			}
+			case OPCODE_tup: {
+				final Value[] vals = new Value[args.length];
+				for (int i = 0; i < args.length; i++) {
+					vals[i] = args[i].eval(f, s0, s1, control);
+				}
+				return new TupleValue(vals);
+			}
+			case OPCODE_prime: {
+				return args[0].eval(f, s1, null, EvalControl.setPrimedIfEnabled(control));
+			}
+			default:
+				throw new IllegalStateException();
+			}
+		}
+	}
+
+	private static final class Case extends Node {
+		private final OpApplNode expr;
+		private final Node[] guards;
+		private final SemanticNode[] guardExprs;
+		private final Node[] arms;
+		private final Node other;
+
+		Case(final OpApplNode expr, final Node[] guards, final SemanticNode[] guardExprs, final Node[] arms,
+				final Node other) {
+			this.expr = expr;
+			this.guards = guards;
+			this.guardExprs = guardExprs;
+			this.arms = arms;
+			this.other = other;
+		}
+
+		@Override
+		Value eval(final Frame f, final TLCState s0, final TLCState s1, final int control) {
+			for (int i = 0; i < this.guards.length; i++) {
+				final Value bval = this.guards[i].eval(f, s0, s1, control);
+				if (!(bval instanceof BoolValue)) {
+					Assert.fail("A non-boolean expression (" + bval.getKindString()
+							+ ") was used as a condition of a CASE. " + this.guardExprs[i]);
+				}
+				if (((BoolValue) bval).val) {
+					return this.arms[i].eval(f, s0, s1, control);
+				}
+			}
+			if (this.other == null) {
+				Assert.fail("Attempted to evaluate a CASE with no conditions true.\n" + this.expr);
+			}
+			return this.other.eval(f, s0, s1, control);
+		}
+	}
+
+	/**
+	 * \A and \E over (non-tuple) bounded variables. The values are enumerated in
+	 * the same order as ContextEnumerator does.
+	 */
+	private static final class BoundedQuant extends Node {
+		private final OpApplNode expr;
+		private final boolean forall;
+		private final ExprNode[] domains;
+		private final Node[] bounds;
+		private final int[] arities;
+		private final int first;
+		private final int vars;
+		private final Node body;
+
+		BoundedQuant(final OpApplNode expr, final boolean forall, final ExprNode[] domains, final Node[] bounds,
+				final int[] arities, final int first, final int vars, final Node body) {
+			this.expr = expr;
+			this.forall = forall;
+			this.domains = domains;
+			this.bounds = bounds;
+			this.arities = arities;
+			this.first = first;
+			this.vars = vars;
+			this.body = body;
+		}
+
+		@Override
+		Value eval(final Frame f, final TLCState s0, final TLCState s1, final int control) {
+			final ValueEnumeration[] enums = new ValueEnumeration[this.vars];
+			int idx = 0;
+			for (int i = 0; i < this.bounds.length; i++) {
+				final Value boundSet = this.bounds[i].eval(f, s0, s1, control);
+				if (!(boundSet instanceof Enumerable)) {
+					Assert.fail("TLC encountered a non-enumerable quantifier bound\n"
+							+ Values.ppr(boundSet.toString()) + ".\n" + this.domains[i]);
+				}
+				for (int j = 0; j < this.arities[i]; j++) {
+					enums[idx++] = ((Enumerable) boundSet).elements();
+				}
+			}
+			final Value[] elems = new Value[this.vars];
+			boolean done = false;
+			for (int i = 0; i < enums.length; i++) {
+				elems[i] = enums[i].nextElement();
+				if (elems[i] == null) {
+					done = true;
+					break;
+				}
+			}
+			while (!done) {
+				System.arraycopy(elems, 0, f.slots, this.first, this.vars);
+				for (int i = 0; i < enums.length; i++) {
+					elems[i] = enums[i].nextElement();
+					if (elems[i] != null) {
+						break;
+					}
+					if (i == enums.length - 1) {
+						done = true;
+						break;
+					}
+					enums[i].reset();
+					elems[i] = enums[i].nextElement();
+				}
+				final Value bval = this.body.eval(f, s0, s1, control);
+				if (!(bval instanceof BoolValue)) {
+					Assert.fail(EC.TLC_EXPECTED_VALUE, new String[] { "boolean", this.expr.toString() });
+				}
+				if (((BoolValue) bval).val != this.forall) {
+					return this.forall ? BoolValue.ValFalse : BoolValue.ValTrue;
+				}
+			}
+			return this.forall ? BoolValue.ValTrue : BoolValue.ValFalse;
+		}
+	}
+}
@@ -377,13 +377,12 @@ abstract class Spec
     {
         FormalParamNode[] formals = opDef.getParams();
         int alen = args.length;
-        Context c1 = c;
+        Object[] avals = new Object[alen];
         for (int i = 0; i < alen; i++)
         {
-            Object aval = this.getVal(args[i], c, cachable, toolId);
-            c1 = c1.cons(formals[i], aval);
+            avals[i] = this.getVal(args[i], c, cachable, toolId);
         }
-        return c1;
+        return c.cons(formals, avals);
     }
     
     /**
@@ -39,6 +39,8 @@ import java.util.Set;
 
 import tla2sany.drivers.FrontEndException;
 import tla2sany.drivers.SANY;
+import tla2sany.explorer.ExploreNode;
+import tla2sany.explorer.ExplorerVisitor;
 import tla2sany.modanalyzer.SpecObj;
 import tla2sany.semantic.APSubstInNode;
 import tla2sany.semantic.AssumeNode;
@@ -46,6 +48,7 @@ import tla2sany.semantic.DecimalNode;
 import tla2sany.semantic.ExprNode;
 import tla2sany.semantic.ExprOrOpArgNode;
 import tla2sany.semantic.ExternalModuleTable;
+import tla2sany.semantic.FormalParamNode;
 import tla2sany.semantic.LabelNode;
 import tla2sany.semantic.LetInNode;
 import tla2sany.semantic.ModuleNode;
@@ -60,6 +63,7 @@ import tla2sany.semantic.Subst;
 import tla2sany.semantic.SubstInNode;
 import tla2sany.semantic.SymbolNode;
 import tla2sany.semantic.TheoremNode;
+import tla2sany.semantic.ThmOrAssumpDefNode;
 import tlc2.TLCGlobals;
 import tlc2.module.BuiltInModuleHelper;
 import tlc2.output.EC;
@@ -164,6 +168,9 @@ public class SpecProcessor implements ValueConstants, ToolGlobals {
 		// It takes care of all overrides.
 		processSpec();
 
+		// Resolve the formal parameters to their slots in the frames of their binders.
+		processFrameSlots();
+
 		snapshot = defns.snapshot();
 
 		if (opDefEvaluator != null) {
@@ -296,6 +303,61 @@ public class SpecProcessor implements ValueConstants, ToolGlobals {
       }
     }
 
+    /**
+     * Assigns every formal parameter its position in the list of formal
+     * parameters of its binder, i.e. of an operator definition or of the
+     * flattened bound identifiers of a quantifier (see
+     * FormalParamNode#getSlot). Tool binds the parameters of a binder with a
+     * single frame (see Context#cons(SymbolNode[], Object[])) in which the
+     * value of a parameter is found at its slot.
+     */
+    private void processFrameSlots() {
+        final Hashtable<Integer, ExploreNode> visited = new Hashtable<>();
+        final ExplorerVisitor visitor = new ExplorerVisitor() {
+            @Override
+            public void preVisit(final ExploreNode node) {
+                if (node instanceof OpDefNode) {
+                    setSlots(((OpDefNode) node).getParams(), 0);
+                } else if (node instanceof ThmOrAssumpDefNode) {
+                    setSlots(((ThmOrAssumpDefNode) node).getParams(), 0);
+                } else if (node instanceof OpApplNode) {
+                    final FormalParamNode[][] formals = ((OpApplNode) node).getBdedQuantSymbolLists();
+                    if (formals != null) {
+                        int slot = 0;
+                        for (int i = 0; i < formals.length; i++) {
+                            slot = setSlots(formals[i], slot);
+                        }
+                    }
+                }
+            }
+        };
+        final ModuleNode[] mods = this.moduleTbl.getModuleNodes();
+        for (int i = 0; i < mods.length; i++) {
+            this.processFrameSlots(mods[i], visited, visitor);
+        }
+    }
+
+    private void processFrameSlots(final ModuleNode mod, final Hashtable<Integer, ExploreNode> visited,
+            final ExplorerVisitor visitor) {
+        final OpDefNode[] opDefs = mod.getOpDefs();
+        for (int i = 0; i < opDefs.length; i++) {
+            opDefs[i].walkGraph(visited, visitor);
+        }
+        final ModuleNode[] imods = mod.getInnerModules();
+        for (int i = 0; i < imods.length; i++) {
+            this.processFrameSlots(imods[i], visited, visitor);
+        }
+    }
+
+    private static int setSlots(final FormalParamNode[] formals, int slot) {
+        if (formals != null) {
+            for (int i = 0; i < formals.length; i++) {
+                formals[i].setSlot(slot++);
+            }
+        }
+        return slot;
+    }
+
 	public static final String LAZY_CONSTANT_OPERATORS = SpecProcessor.class.getName() + ".vetoed";
 
 	private static final Set<String> vetos = new HashSet<String>(
@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.impl;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import tla2sany.semantic.ExprNode;
+import tla2sany.semantic.LevelConstants;
+import tla2sany.semantic.ModuleNode;
+import tla2sany.semantic.OpDefNode;
+import tlc2.TLCGlobals;
+import tlc2.output.EC;
+import tlc2.output.MP;
+import tlc2.tool.BuiltInOPs;
+import tlc2.tool.EvalControl;
+import tlc2.tool.TLCState;
+import tlc2.tool.coverage.CostModel;
+import tlc2.util.Context;
+import tlc2.value.impl.Value;
+
+/**
+ * A bounded, per-thread memo table of the values of state-level (level 1)
+ * definitions without arguments. A definition such as a derived set that is
+ * referenced by several actions and invariants is evaluated once per state
+ * instead of once per reference.
+ * <p>
+ * The entries are keyed by the pair (OpDefNode, TLCState), where the state is
+ * compared by identity. A TLCStateMut is mutable while Tool generates it, thus
+ * the memo only answers lookups for the state of the innermost scope opened by
+ * {@link #enter(TLCState)}. Tool opens a scope only for complete states (the
+ * predecessor in getNextStates, the state passed to isInModel, isInActions, and
+ * isValid), which are never modified afterwards. The entries of a state thus
+ * remain valid across scopes, e.g. from checking the state constraints to
+ * checking the invariants of a successor state.
+ * <p>
+ * Memoized are the definitions of modules that are not instantiated with
+ * parameters. A definition of a module M that is instantiated with
+ * substitutions (or of a module extended by M) is evaluated in contexts that
+ * substitute M's constants and variables, thus its value depends on more than
+ * the state. Like LazyValue, the memo assumes that a definition does not have
+ * side effects (Print, TLCSet, RandomElement, ...).
+ * <p>
+ * If coverage is enabled, the hits and misses of each definition are appended
+ * to the coverage report (see {@link #report()}).
+ */
+final class StateMemo {
+
+	private static final int SIZE = Integer.highestOneBit(
+			Math.max(1, Integer.getInteger(StateMemo.class.getName() + ".size", 256)));
+
+	private static final boolean coverage = TLCGlobals.isCoverageEnabled();
+
+	private static final class Table {
+		private final OpDefNode[] defs = new OpDefNode[SIZE];
+		private final TLCState[] states = new TLCState[SIZE];
+		private final Value[] vals = new Value[SIZE];
+
+		// The state of the innermost scope.
+		private TLCState active;
+	}
+
+	private final ThreadLocal<Table> tables = ThreadLocal.withInitial(Table::new);
+
+	// Maps the uid of a memoizable OpDefNode to its index into defs (-1 if the
+	// OpDefNode is not memoizable).
+	private final int[] uid2idx;
+	private final OpDefNode[] defs;
+	private final AtomicLongArray hits;
+	private final AtomicLongArray misses;
+
+	StateMemo(final SpecProcessor specProcessor) {
+		final Set<ModuleNode> parameterized = new HashSet<>();
+		final ModuleNode[] mods = specProcessor.getModuleTbl().getModuleNodes();
+		for (ModuleNode mod : mods) {
+			if (mod.isInstantiated()
+					&& (mod.getConstantDecls().length > 0 || mod.getVariableDecls().length > 0)) {
+				parameterized.add(mod);
+				parameterized.addAll(mod.getExtendedModuleSet());
+			}
+		}
+
+		final Set<OpDefNode> memoizable = new HashSet<>();
+		for (ModuleNode mod : mods) {
+			collect(mod, parameterized, memoizable);
+		}
+
+		int maxUid = -1;
+		for (OpDefNode def : memoizable) {
+			maxUid = Math.max(maxUid, def.getUid());
+		}
+		this.uid2idx = new int[maxUid + 1];
+		Arrays.fill(this.uid2idx, -1);
+		this.defs = memoizable.toArray(new OpDefNode[memoizable.size()]);
+		for (int i = 0; i < this.defs.length; i++) {
+			this.uid2idx[this.defs[i].getUid()] = i;
+		}
+		this.hits = new AtomicLongArray(coverage ? this.defs.length : 0);
+		this.misses = new AtomicLongArray(coverage ? this.defs.length : 0);
+	}
+
+	private static void collect(final ModuleNode mod, final Set<ModuleNode> parameterized,
+			final Set<OpDefNode> memoizable) {
+		final OpDefNode[] opDefs = mod.getOpDefs();
+		for (OpDefNode opDef : opDefs) {
+			if (opDef.getArity() != 0 || BuiltInOPs.getOpCode(opDef.getName()) != 0) {
+				continue;
+			}
+			final ExprNode body = opDef.getBody();
+			if (body == null || body.getLevel() != LevelConstants.VariableLevel) {
+				continue;
+			}
+			final ModuleNode origin = opDef.getOriginallyDefinedInModuleNode();
+			if (origin == null || parameterized.contains(origin)) {
+				continue;
+			}
+			memoizable.add(opDef);
+		}
+		final ModuleNode[] imods = mod.getInnerModules();
+		for (ModuleNode imod : imods) {
+			collect(imod, parameterized, memoizable);
+		}
+	}
+
+	/**
+	 * @return The index of opDef if its value may be memoized when evaluated with
+	 *         control, -1 otherwise.
+	 */
+	final int indexOf(final OpDefNode opDef, final int control) {
+		final int uid = opDef.getUid();
+		if (uid >= this.uid2idx.length || EvalControl.isPrimed(control) || EvalControl.isEnabled(control)
+				|| EvalControl.isInit(control)) {
+			return -1;
+		}
+		return this.uid2idx[uid];
+	}
+
+	/**
+	 * Opens a scope in which the values of definitions in state may be memoized.
+	 * 
+	 * @return The state of the enclosing scope that has to be passed to
+	 *         {@link #exit(TLCState)}.
+	 */
+	final TLCState enter(final TLCState state) {
+		final Table t = this.tables.get();
+		final TLCState prev = t.active;
+		t.active = state;
+		return prev;
+	}
+
+	final void exit(final TLCState prev) {
+		this.tables.get().active = prev;
+	}
+
+	final Value eval(final Tool tool, final int idx, final OpDefNode opDef, final Context c,
+			final TLCState s0, final TLCState s1, final int control, final CostModel cm) {
+		final Table t = this.tables.get();
+		if (s0 != t.active || s0 == null) {
+			return tool.eval(opDef.getBody(), c, s0, s1, control, cm);
+		}
+		final int slot = (idx ^ (System.identityHashCode(s0) * 0x9E3779B9 >>> 7)) & (SIZE - 1);
+		if (t.defs[slot] == opDef && t.states[slot] == s0) {
+			if (coverage) {
+				this.hits.incrementAndGet(idx);
+			}
+			return t.vals[slot];
+		}
+		final Value val = tool.eval(opDef.getBody(), c, s0, s1, control, cm);
+		t.defs[slot] = opDef;
+		t.states[slot] = s0;
+		t.vals[slot] = val;
+		if (coverage) {
+			this.misses.incrementAndGet(idx);
+		}
+		return val;
+	}
+
+	final void report() {
+		if (!coverage) {
+			return;
+		}
+		for (int i = 0; i < this.defs.length; i++) {
+			final long h = this.hits.get(i);
+			final long m = this.misses.get(i);
+			if (h > 0 || m > 0) {
+				MP.printMessage(EC.TLC_COVERAGE_MEMO, new String[] { this.defs[i].getName().toString(),
+						this.defs[i].getLocation().toString(), String.valueOf(h), String.valueOf(m) });
+			}
+		}
+	}
+}
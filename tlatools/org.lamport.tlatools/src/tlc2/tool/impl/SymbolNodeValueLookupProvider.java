@@ -102,12 +102,11 @@ public interface SymbolNodeValueLookupProvider {
 			final boolean cachable, final CostModel cm, int forToolId) {
 		final FormalParamNode[] formals = opDef.getParams();
 		final int alen = args.length;
-		Context c1 = c;
+		final Object[] avals = new Object[alen];
 		for (int i = 0; i < alen; i++) {
-			Object aval = getVal(args[i], c, cachable, cm, forToolId);
-			c1 = c1.cons(formals[i], aval);
+			avals[i] = getVal(args[i], c, cachable, cm, forToolId);
 		}
-		return c1;
+		return c.cons(formals, avals);
 	}
 
     /**
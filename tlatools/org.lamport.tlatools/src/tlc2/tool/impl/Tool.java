@@ -62,6 +62,7 @@ import tlc2.value.impl.EvaluatingValue;
 import tlc2.value.impl.FcnLambdaValue;
 import tlc2.value.impl.FcnParams;
 import tlc2.value.impl.FcnRcdValue;
+import tlc2.value.impl.IntervalValue;
 import tlc2.value.impl.LazyValue;
 import tlc2.value.impl.MVPerm;
 import tlc2.value.impl.MVPerms;
@@ -110,6 +111,19 @@ public abstract class Tool
   protected final Action[] actions;     // the list of TLA actions.
   private Vect<Action> actionVec = new Vect<>(10);
 
+  /**
+   * If non-null, invariants, constraints, and the conjuncts of actions are
+   * evaluated by the compiled code of the ExprCompiler. Enabled with
+   * -Dtlc2.tool.impl.Tool.compile=true unless coverage is on.
+   */
+  private final ExprCompiler compiler;
+
+  /**
+   * If non-null, the values of state-level definitions without arguments are
+   * memoized per state. Enabled with -Dtlc2.tool.impl.Tool.memoize=true.
+   */
+  private final StateMemo memo;
+
   /**
    * Creates a new tool handle
    */
@@ -132,6 +146,8 @@ public abstract class Tool
 
       // Initialize state.
       TLCStateMut.setTool(this);
+      this.compiler = !coverage && Boolean.getBoolean(Tool.class.getName() + ".compile") ? new ExprCompiler(this) : null;
+      this.memo = Boolean.getBoolean(Tool.class.getName() + ".memoize") ? new StateMemo(getSpecProcessor()) : null;
       
 		Action next = this.getNextStateSpec();
 		if (next == null) {
@@ -150,6 +166,9 @@ public abstract class Tool
 	  super(other);
 	  this.actions = other.actions;
 	  this.actionVec = other.actionVec;
+	  // CallStackTool has to see every evaluation.
+	  this.compiler = null;
+	  this.memo = null;
   }
 
 	/**
@@ -249,12 +268,11 @@ public abstract class Tool
               if (argLevel != 0) break;
             }
             if (argLevel == 0) {
-              Context con1 = con;
+              Object[] avals = new Object[alen];
               for (int i = 0; i < alen; i++) {
-                IValue aval = this.eval(args[i], con, TLCState.Empty, cm);
-                con1 = con1.cons(formals[i], aval);
+                avals[i] = this.eval(args[i], con, TLCState.Empty, cm);
               }
-              this.getActions(opDef.getBody(), con1, opDef, cm);
+              this.getActions(opDef.getBody(), con.cons(formals, avals), opDef, cm);
               return;
             }
           }
@@ -337,6 +355,64 @@ public abstract class Tool
 	  }
   }
 
+  @Override
+  public final void getInitStates(final IStateFunctor functor, final int partition, final int partitions) {
+	  if (partitions <= 1) {
+		  getInitStates(functor);
+	  } else {
+		  getInitStates(new InitPartition(functor, partition, partitions));
+	  }
+  }
+
+  /**
+   * An {@link InitPartition} restricts the generation of initial states to one
+   * of n disjoint partitions. Along each path through the init predicate, the
+   * domain of the first enumerated (unbound) variable - x in x \in S - is
+   * partitioned: The i-th partition only enumerates the elements of S whose
+   * index modulo n is i. This assumes that the evaluation of the init predicate
+   * is deterministic, i.e. that the paths are identical across partitions
+   * (which is why partitioning is opt-in, see ModelChecker). An init state whose
+   * path does not enumerate a domain (Init == x = 42) is generated by all
+   * partitions and thus only passed on by the first.
+   */
+  private static final class InitPartition implements IStateFunctor {
+	  private final IStateFunctor functor;
+	  private final int partition;
+	  private final int partitions;
+	  // True iff the current path has been partitioned.
+	  private boolean partitioned;
+
+	  InitPartition(final IStateFunctor functor, final int partition, final int partitions) {
+		  this.functor = functor;
+		  this.partition = partition;
+		  this.partitions = partitions;
+	  }
+
+	  /**
+	   * @return true iff the enumeration of the given domain is to be partitioned.
+	   */
+	  boolean partition(final Value domain) {
+		  if (partitioned) {
+			  return false;
+		  }
+		  // Do not partition small domains such as {"a", "b"} or 1..3 which would
+		  // leave partitions idle. The size of other domains (SUBSET S, [S -> T], ...)
+		  // might be expensive to compute or overflow.
+		  if ((domain instanceof SetEnumValue || domain instanceof IntervalValue) && domain.size() < partitions) {
+			  return false;
+		  }
+		  return true;
+	  }
+
+	  @Override
+	  public Object addElement(final TLCState state) {
+		  if (partitioned || partition == 0) {
+			  return functor.addElement(state);
+		  }
+		  return null;
+	  }
+  }
+
   /* Create the state specified by pred.  */
   @Override
   public final TLCState makeState(SemanticNode pred) {
@@ -692,6 +768,22 @@ public abstract class Tool
                 }
                 ValueEnumeration Enum = ((Enumerable)rval).elements();
                 Value elem;
+                if (states instanceof InitPartition && ((InitPartition) states).partition(rval)) {
+                  final InitPartition ip = (InitPartition) states;
+                  ip.partitioned = true;
+                  try {
+                    for (int i = 0; (elem = Enum.nextElement()) != null; i++) {
+                      if (i % ip.partitions == ip.partition) {
+                        ps.bind(varName, elem);
+                        this.getInitStates(acts, ps, states, cm);
+                        ps.unbind(varName);
+                      }
+                    }
+                  } finally {
+                    ip.partitioned = false;
+                  }
+                  return;
+                }
                 while ((elem = Enum.nextElement()) != null) {
                   ps.bind(varName, elem);
                   this.getInitStates(acts, ps, states, cm);
@@ -759,19 +851,51 @@ public abstract class Tool
     ActionItemList acts = ActionItemList.Empty;
     TLCState s1 = TLCState.Empty.createEmpty();
     StateVec nss = new StateVec(0);
-    this.getNextStates(action, action.pred, acts, ctx, state, s1, nss, action.cm);
+    final TLCState prev = this.enterMemo(state);
+    try {
+      this.getNextStates(action, action.pred, acts, ctx, state, s1, nss, action.cm);
+    } finally {
+      this.exitMemo(prev);
+    }
     if (coverage) { action.cm.incInvocations(nss.size()); }
     return nss;
   }
   
   @Override
   public final boolean getNextStates(final INextStateFunctor functor, final TLCState state) {
-	  for (int i = 0; i < actions.length; i++) {
-			final Action action = actions[i];
-			this.getNextStates(action, action.pred, ActionItemList.Empty, action.con, state, TLCState.Empty.createEmpty(),
-					functor, action.cm);
-		}
-		return false;
+	  final TLCState prev = this.enterMemo(state);
+	  try {
+		  for (int i = 0; i < actions.length; i++) {
+			  final Action action = actions[i];
+			  this.getNextStates(action, action.pred, ActionItemList.Empty, action.con, state, TLCState.Empty.createEmpty(),
+					  functor, action.cm);
+		  }
+	  } finally {
+		  this.exitMemo(prev);
+	  }
+	  return false;
+  }
+
+  /*
+   * Opens a scope in which the state-level definitions evaluated in the (complete)
+   * state are memoized (see StateMemo). Returns the state that has to be passed to
+   * exitMemo.
+   */
+  private final TLCState enterMemo(final TLCState state) {
+	  return this.memo != null ? this.memo.enter(state) : null;
+  }
+
+  private final void exitMemo(final TLCState prev) {
+	  if (this.memo != null) {
+		  this.memo.exit(prev);
+	  }
+  }
+
+  @Override
+  public final void reportMemoization() {
+	  if (this.memo != null) {
+		  this.memo.report();
+	  }
   }
 
   protected abstract TLCState getNextStates(final Action action, SemanticNode pred, ActionItemList acts, Context c,
@@ -894,7 +1018,7 @@ public abstract class Tool
       CostModel cm2 = acts.cm;
 	  while (!acts.isEmpty()) {
 		  if (kind > 0 || kind == -1) {
-			  final Value bval = this.eval(pred, c, s0, s1, EvalControl.Clear, cm2);
+			  final Value bval = this.evalCompiled(pred, c, s0, s1, EvalControl.Clear, cm2);
 			  if (!(bval instanceof BoolValue)) {
 				  // TODO Choose more fitting error message.
 				  Assert.fail(EC.TLC_EXPECTED_EXPRESSION_IN_COMPUTING,
@@ -1399,6 +1523,19 @@ public abstract class Tool
    */
   public abstract Value eval(SemanticNode expr, Context c, TLCState s0,
                           TLCState s1, final int control, final CostModel cm);
+
+  /*
+   * Like eval, but for the expressions that are evaluated for (almost) every
+   * state, which the compiler - if enabled - translates into compiled code.
+   */
+  @ExpectInlined
+  private final Value evalCompiled(final SemanticNode expr, final Context c, final TLCState s0,
+          final TLCState s1, final int control, final CostModel cm) {
+	  if (this.compiler != null) {
+		  return this.compiler.eval(expr, c, s0, s1, control);
+	  }
+	  return this.eval(expr, c, s0, s1, control, cm);
+  }
   
   @ExpectInlined
   protected final Value evalImpl(final SemanticNode expr, final Context c, final TLCState s0,
@@ -1637,8 +1774,13 @@ public abstract class Tool
             OpDefNode opDef = (OpDefNode)val;
             opcode = BuiltInOPs.getOpCode(opDef.getName());
             if (opcode == 0) {
-              Context c1 = this.getOpContext(opDef, args, c, true, cm, toolId);
-              res = this.eval(opDef.getBody(), c1, s0, s1, control, cm);
+              final int idx = this.memo != null && args.length == 0 ? this.memo.indexOf(opDef, control) : -1;
+              if (idx >= 0) {
+                res = this.memo.eval(this, idx, opDef, c, s0, s1, control, cm);
+              } else {
+                Context c1 = this.getOpContext(opDef, args, c, true, cm, toolId);
+                res = this.eval(opDef.getBody(), c1, s0, s1, control, cm);
+              }
             }
           }
           else if (val instanceof Value) {
@@ -2420,12 +2562,17 @@ public abstract class Tool
   @Override
   public final boolean isInModel(TLCState state) throws EvalException {
     ExprNode[] constrs = this.getModelConstraints();
-    for (int i = 0; i < constrs.length; i++) {
-      IValue bval = this.eval(constrs[i], Context.Empty, state, CostModel.DO_NOT_RECORD);
-      if (!(bval instanceof BoolValue)) {
-        Assert.fail(EC.TLC_EXPECTED_VALUE, new String[]{"boolean", constrs[i].toString()});
+    final TLCState prev = this.enterMemo(state);
+    try {
+      for (int i = 0; i < constrs.length; i++) {
+        IValue bval = this.evalCompiled(constrs[i], Context.Empty, state, TLCState.Empty, EvalControl.Clear, CostModel.DO_NOT_RECORD);
+        if (!(bval instanceof BoolValue)) {
+          Assert.fail(EC.TLC_EXPECTED_VALUE, new String[]{"boolean", constrs[i].toString()});
+        }
+        if (!((BoolValue)bval).val) return false;
       }
-      if (!((BoolValue)bval).val) return false;
+    } finally {
+      this.exitMemo(prev);
     }
     return true;
   }
@@ -2434,12 +2581,17 @@ public abstract class Tool
   @Override
   public final boolean isInActions(TLCState s1, TLCState s2) throws EvalException {
     ExprNode[] constrs = this.getActionConstraints();
-    for (int i = 0; i < constrs.length; i++) {
-      Value bval = this.eval(constrs[i], Context.Empty, s1, s2, EvalControl.Clear, CostModel.DO_NOT_RECORD);
-      if (!(bval instanceof BoolValue)) {
-        Assert.fail(EC.TLC_EXPECTED_VALUE, new String[]{"boolean", constrs[i].toString()});
+    final TLCState prev = this.enterMemo(s1);
+    try {
+      for (int i = 0; i < constrs.length; i++) {
+        Value bval = this.evalCompiled(constrs[i], Context.Empty, s1, s2, EvalControl.Clear, CostModel.DO_NOT_RECORD);
+        if (!(bval instanceof BoolValue)) {
+          Assert.fail(EC.TLC_EXPECTED_VALUE, new String[]{"boolean", constrs[i].toString()});
+        }
+        if (!((BoolValue)bval).val) return false;
       }
-      if (!((BoolValue)bval).val) return false;
+    } finally {
+      this.exitMemo(prev);
     }
     return true;
   }
@@ -3069,7 +3221,13 @@ public abstract class Tool
   /* This method determines if the action predicate is valid in (s0, s1). */
   @Override
   public final boolean isValid(Action act, TLCState s0, TLCState s1) {
-    Value val = this.eval(act.pred, act.con, s0, s1, EvalControl.Clear, act.cm);
+    final Value val;
+    final TLCState prev = this.enterMemo(s0);
+    try {
+      val = this.evalCompiled(act.pred, act.con, s0, s1, EvalControl.Clear, act.cm);
+    } finally {
+      this.exitMemo(prev);
+    }
     if (!(val instanceof BoolValue)) {
       Assert.fail(EC.TLC_EXPECTED_VALUE, new String[]{"boolean", act.pred.toString()});
     }
@@ -21,7 +21,9 @@ import tlc2.output.EC;
 import tlc2.output.MP;
 import tlc2.util.BufferedRandomAccessFile;
 import tlc2.util.LongVec;
+import tlc2.util.MemIntQueue;
 import tlc2.util.statistics.IBucketStatistics;
+import util.Assert;
 import util.FileUtil;
 
 /*
@@ -33,6 +35,7 @@ import util.FileUtil;
  * - Technically, it stores the triple of <<state (fingerprint), tableau node index, link (transitions)>>
  * -- Technically does *not* store States, but only a state's fingerprints
  * --- Stores a fingerprint split into 2 ints (low & high part of a fingerprint)
+ *     in memory (see GraphNode#toBytes() for the on-disk record format)
  * -- Stores the index of the tableau node, not the tableau node itself
  * --- The TableauGraphNode (TBGraphNode) instance can be obtained by reading
  *     the DiskGraph triple into a GraphNode instance and calling 
@@ -72,6 +75,15 @@ public abstract class AbstractDiskGraph {
 	/* Links are from MAX_PTR and MAX_LINK. */
 	public static final long MAX_LINK = 0x7FFFFFFFFFFFFFFFL;
 
+	/*
+	 * The checkpoint file dgraph_N.chkpt starts with CHKPT_MAGIC and the
+	 * FORMAT_VERSION of the node records in nodes_N. Version 2 is the compact
+	 * record format (see GraphNode#write). Checkpoints of version 1 records
+	 * have no header and cannot be recovered.
+	 */
+	private static final int CHKPT_MAGIC = 0x44475248; // "DGRH"
+	private static final int FORMAT_VERSION = 2;
+
 	public static boolean isFilePointer(long loc) {
 		// TODO Does not check >= 0 and thus accepts TableauDiskGraph.UNDONE as
 		// ptr.
@@ -79,6 +91,7 @@ public abstract class AbstractDiskGraph {
 	}
 
 	private final String chkptName;
+	private final String fnameForNodes;
 	protected final String metadir;
 	/**
 	 * @see tlatools/test/tlc2/tool/liveness/AbstractDiskGraph.JPG
@@ -95,11 +108,22 @@ public abstract class AbstractDiskGraph {
 
 	private long sizeAtCheck = 1; // initialize with 1 to avoid div by zero
 
+	/*
+	 * The lengths of the ptrs and nodes file at the beginning of the last
+	 * completed liveness check of this graph (see beginCheck() and
+	 * recordSize()). The nodes whose records lie beyond are the ones that have
+	 * been added (or re-written) since.
+	 */
+	private long ptrsAtCheck = 0L;
+	private long nodesAtCheck = 0L;
+	private long ptrsAtBeginCheck = 0L;
+	private long nodesAtBeginCheck = 0L;
+
 	public AbstractDiskGraph(String metadir, int soln, IBucketStatistics graphStats) throws IOException {
 		this.metadir = metadir;
 		this.outDegreeGraphStats = graphStats;
 		this.chkptName = metadir + FileUtil.separator + "dgraph_" + soln;
-		String fnameForNodes = metadir + FileUtil.separator + "nodes_" + soln;
+		this.fnameForNodes = metadir + FileUtil.separator + "nodes_" + soln;
 		this.nodeRAF = new BufferedRandomAccessFile(fnameForNodes, "rw");
 		String fnameForPtrs = metadir + FileUtil.separator + "ptrs_" + soln;
 		this.nodePtrRAF = new BufferedRandomAccessFile(fnameForPtrs, "rw");
@@ -167,6 +191,16 @@ public abstract class AbstractDiskGraph {
 	 *      testAddSameGraphN	odeTwiceCorrectSuccessors
 	 */
 	public final long addNode(GraphNode node) throws IOException {
+		return addNode(node, null);
+	}
+
+	/**
+	 * Same as {@link #addNode(GraphNode)} except that node has already been
+	 * serialized into record by {@link GraphNode#toBytes()} (if record is not
+	 * null). Callers serialize the node before they acquire the lock that
+	 * guards this graph to shorten the critical section.
+	 */
+	public final long addNode(GraphNode node, byte[] record) throws IOException {
 		outDegreeGraphStats.addSample(node.succSize());
 		
 		long ptr = this.nodeRAF.getFilePointer();
@@ -181,7 +215,11 @@ public abstract class AbstractDiskGraph {
 		this.nodePtrRAF.writeInt(node.tindex);
 		this.nodePtrRAF.writeLongNat(ptr);
 		// Write fields of node to nodeRAF:
-		node.write(this.nodeRAF);
+		if (record == null) {
+			node.write(this.nodeRAF);
+		} else {
+			this.nodeRAF.write(record);
+		}
 		return ptr;
 	}
 	
@@ -249,6 +287,21 @@ public abstract class AbstractDiskGraph {
 		return gnode1;
 	}
 
+	/**
+	 * Maps the nodes file read-only into memory. The mapping only covers the
+	 * nodes added so far, nodes added afterwards have to be read with
+	 * {@link #getNode(long, int, long)}. Thus, map the file after the graph has
+	 * stopped growing (e.g. when liveness checking runs).
+	 */
+	final MappedNodeFile map() throws IOException {
+		return map(MappedNodeFile.DEFAULT_SEGMENT_SHIFT);
+	}
+
+	final MappedNodeFile map(final int segmentShift) throws IOException {
+		this.nodeRAF.flush();
+		return new MappedNodeFile(this.fnameForNodes, this.nodeRAF.length(), segmentShift);
+	}
+
 	public abstract long getPtr(long l, int tidx);
 
 	/* Create the in-memory node-pointer table from the node-pointer file. */
@@ -281,6 +334,36 @@ public abstract class AbstractDiskGraph {
 	 */
 	protected abstract void makeNodePtrTbl(final long ptr) throws IOException;
 
+	/**
+	 * Numbers the nodes in the ptrs file consecutively from zero on. Node n is
+	 * assigned the link MAX_PTR + n (see {@link #putLink(long, int, long)}).
+	 * Has to be called right after {@link #makeNodePtrTbl()}.
+	 * 
+	 * @return The numbered nodes as consecutive triples &lt;&lt;fingerprint,
+	 *         tableau idx, file pointer&gt;&gt;.
+	 */
+	final LongVec numberNodes() throws IOException {
+		final LongVec nodes = new LongVec((int) Math.min(Integer.MAX_VALUE / 2, 3L * size() + 3L));
+		final long pos = this.nodePtrRAF.getFilePointer();
+		final long len = this.nodePtrRAF.length();
+		this.nodePtrRAF.seek(0);
+		while (this.nodePtrRAF.getFilePointer() < len) {
+			final long fp = this.nodePtrRAF.readLong();
+			final int tidx = this.nodePtrRAF.readInt();
+			this.nodePtrRAF.readLongNat();
+			// A node with more than one record in the ptrs file is numbered
+			// once. Its file pointer is the one of the nodePtrTbl.
+			final long ptr = getPtr(fp, tidx);
+			if (0 <= ptr && isFilePointer(ptr) && putLink(fp, tidx, MAX_PTR + (nodes.size() / 3)) == -1) {
+				nodes.addElement(fp);
+				nodes.addElement(tidx);
+				nodes.addElement(ptr);
+			}
+		}
+		this.nodePtrRAF.seek(pos);
+		return nodes;
+	}
+
 	/* Link information for SCC search */
 	
 	/**
@@ -423,6 +506,75 @@ public abstract class AbstractDiskGraph {
 
 	public void recordSize() {
 		this.sizeAtCheck = size();
+		this.ptrsAtCheck = this.ptrsAtBeginCheck;
+		this.nodesAtCheck = this.nodesAtBeginCheck;
+	}
+
+	/**
+	 * Marks the beginning of a liveness check of this graph. Once the check has
+	 * completed ({@link #recordSize()}), a subsequent check only has to search
+	 * for SCCs that contain a node added to the graph after this point:
+	 * <p>
+	 * Records are only ever appended to the nodes file. An SCC of the current
+	 * graph without a new node thus consists of nodes whose successors have not
+	 * changed since. It has been an SCC of the graph at the time of the
+	 * previous check already, and it has not violated liveness then.
+	 * 
+	 * @see #isIncremental()
+	 * @see #isNew(long)
+	 */
+	public void beginCheck() throws IOException {
+		this.ptrsAtBeginCheck = this.nodePtrRAF.length();
+		this.nodesAtBeginCheck = this.nodeRAF.length();
+	}
+
+	/**
+	 * @return true iff a check of this graph has completed before (see
+	 *         {@link #beginCheck()}).
+	 */
+	final boolean isIncremental() {
+		return this.nodesAtCheck > 0L;
+	}
+
+	/**
+	 * @return true iff the node record at the given file pointer has been
+	 *         written since the beginning of the last completed check.
+	 */
+	final boolean isNew(final long ptr) {
+		return ptr >= this.nodesAtCheck;
+	}
+
+	/**
+	 * Adds the nodes with a record written since the beginning of the last
+	 * completed check as triples &lt;&lt;fingerprint, tableau idx, file
+	 * pointer&gt;&gt; to the given queue. Has to be called right after
+	 * {@link #makeNodePtrTbl()}.
+	 */
+	final void enqueueNewNodes(final MemIntQueue queue) throws IOException {
+		final long pos = this.nodePtrRAF.getFilePointer();
+		final long len = this.nodePtrRAF.length();
+		this.nodePtrRAF.seek(this.ptrsAtCheck);
+		while (this.nodePtrRAF.getFilePointer() < len) {
+			final long fp = this.nodePtrRAF.readLong();
+			final int tidx = this.nodePtrRAF.readInt();
+			this.nodePtrRAF.readLongNat();
+			final long ptr = getPtr(fp, tidx);
+			if (0 <= ptr && isFilePointer(ptr)) {
+				queue.enqueueLong(fp);
+				queue.enqueueInt(tidx);
+				queue.enqueueLong(ptr);
+			}
+		}
+		this.nodePtrRAF.seek(pos);
+	}
+
+	/**
+	 * Forgets about the last completed check, e.g. because the graph has been
+	 * reset.
+	 */
+	protected final void resetCheck() {
+		this.ptrsAtCheck = this.nodesAtCheck = 0L;
+		this.ptrsAtBeginCheck = this.nodesAtBeginCheck = 0L;
 	}
 	
 	/**
@@ -513,6 +665,8 @@ public abstract class AbstractDiskGraph {
 		this.nodePtrRAF.flush();
 		FileOutputStream fos = new FileOutputStream(this.chkptName + ".chkpt.tmp");
 		DataOutputStream dos = new DataOutputStream(fos);
+		dos.writeInt(CHKPT_MAGIC);
+		dos.writeInt(FORMAT_VERSION);
 		dos.writeLong(this.nodeRAF.getFilePointer());
 		dos.writeLong(this.nodePtrRAF.getFilePointer());
 		dos.close();
@@ -528,8 +682,20 @@ public abstract class AbstractDiskGraph {
 	}
 
 	public final void recover() throws IOException {
-		FileInputStream fis = new FileInputStream(chkptName + ".chkpt");
+		final File chkpt = new File(chkptName + ".chkpt");
+		FileInputStream fis = new FileInputStream(chkpt);
 		DataInputStream dis = new DataInputStream(fis);
+		// A checkpoint of version 1 has no header but only the two longs.
+		final int version = chkpt.length() == 2 * Long.BYTES || dis.readInt() != CHKPT_MAGIC ? 1 : dis.readInt();
+		if (version != FORMAT_VERSION) {
+			dis.close();
+			fis.close();
+			Assert.fail(EC.SYSTEM_CHECKPOINT_RECOVERY_CORRUPT,
+					"The liveness graph " + chkpt + " has been written with version " + version
+							+ " of the node record format, but this version of TLC only reads version "
+							+ FORMAT_VERSION + ". Liveness checkpoints taken by an older version of TLC"
+							+ " cannot be recovered; restart model checking without -recover.");
+		}
 		long nodeRAFPos = dis.readLong();
 		long nodePtrRAFPos = dis.readLong();
 		dis.close();
@@ -556,7 +722,7 @@ public abstract class AbstractDiskGraph {
 
 				final long ptr = nodePtrRAF.readLongNat();
 				nodeRAF.seek(ptr);
-				int outArcCount = nodeRAF.readNat() / 3;
+				int outArcCount = GraphNode.readVarInt(nodeRAF);
 				outDegreeGraphStats.addSample(outArcCount);
 			}
 		} catch (IOException e) {
@@ -585,21 +751,17 @@ public abstract class AbstractDiskGraph {
 			long len = this.nodeRAF.length();
 			while (this.nodeRAF.getFilePointer() < len) {
 				// Get the next cnt nodes from disk:
-				int cnt = nodeRAF.readNat() / 3;
+				final GraphNode gnode = new GraphNode(0L, -1);
+				gnode.read(this.nodeRAF);
 				// for each node increment the in arc counter
-				for (int i = 0; i < cnt; i++) {
-					NodeRAFRecord record = new NodeRAFRecord();
-					record.read(this.nodeRAF);
+				for (int i = 0; i < gnode.succSize(); i++) {
+					NodeRAFRecord record = new NodeRAFRecord(gnode.getStateFP(i), gnode.getTidx(i));
 					Integer inArcCounter = nodes2count.get(record);
 					if (inArcCounter == null) {
 						inArcCounter = new Integer(0);
 					}
 					nodes2count.put(record, inArcCounter + 1);
 				}
-				// Skip checks
-				// (we don't care for the checks) 
-				int checksLen = nodeRAF.readNat();
-				nodeRAF.seek(nodeRAF.getFilePointer() + (checksLen * 8)); // 8 bytes is long
 			}
 		} catch (IOException e) {
 			MP.printError(EC.SYSTEM_DISKGRAPH_ACCESS, e);
@@ -618,15 +780,12 @@ public abstract class AbstractDiskGraph {
 	 */
 	private class NodeRAFRecord {
 
-		private long fp;
-		private int tidx;
+		private final long fp;
+		private final int tidx;
 
-		public void read(BufferedRandomAccessFile nodeRAF) throws IOException {
-			long high = nodeRAF.readInt();
-			long low = nodeRAF.readInt();
-			fp = (high << 32) | (low & 0xFFFFFFFFL);
-			
-			tidx = nodeRAF.readInt();
+		public NodeRAFRecord(final long fp, final int tidx) {
+			this.fp = fp;
+			this.tidx = tidx;
 		}
 
 		public String toString() {
@@ -62,6 +62,7 @@ public class DiskGraph extends AbstractDiskGraph {
 		this.nodePtrRAF.reset();
 		this.nodeRAF.reset();
 		this.nodePtrTbl = new NodePtrTable(255);
+		resetCheck();
 	}
 	
 	/* (non-Javadoc)
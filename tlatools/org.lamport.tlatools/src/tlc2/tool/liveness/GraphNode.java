@@ -6,6 +6,7 @@
 package tlc2.tool.liveness;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -357,6 +358,26 @@ public class GraphNode extends AbstractGraphNode {
 		return tableau.getNode(this.tindex);
 	}
 
+	/*
+	 * On disk (nodes_N file of AbstractDiskGraph), a GraphNode is stored as a
+	 * record whose successors are laid out column by column:
+	 * 
+	 *   varint  cnt           number of successors
+	 *   long    fp[cnt]       fingerprints of the successors
+	 *   varint  tidx[cnt]     zigzag encoded delta of the successor's tableau
+	 *                         index to the one of its predecessor in the
+	 *                         record (the first successor's delta is to -1)
+	 *   varint  len           number of bytes of checks
+	 *   byte    checks[len]   BitVector#writePacked
+	 *
+	 * Fingerprints are (pseudo) random and thus stored as is. The tableau
+	 * indices on the other hand are small (-1 without a tableau) and consecutive
+	 * successors often share it, which is why the delta is usually encoded in a
+	 * single byte. Trailing zero bytes of checks are not stored.
+	 * 
+	 * MappedGraphNode reads this record from a memory-mapped nodes file.
+	 */
+
 	/**
 	 * Writes this {@link GraphNode} into the given
 	 * {@link BufferedRandomAccessFile}
@@ -365,31 +386,99 @@ public class GraphNode extends AbstractGraphNode {
 	 * @throws IOException
 	 */
 	void write(final BufferedRandomAccessFile nodeRAF) throws IOException {
+		nodeRAF.write(toBytes());
+	}
+
+	/**
+	 * @return The record {@link #write(BufferedRandomAccessFile)} writes. This
+	 *         allows to serialize a node before the lock of the graph is
+	 *         acquired.
+	 */
+	byte[] toBytes() {
 		assert offset == NO_FREE_SLOTS; // assert that nnodes hasn't been overallocated.
-		// Write nnodes
-		final int cnt = nnodes.length;
-		nodeRAF.writeNat(cnt);
+		final int cnt = succSize();
+		int size = varIntSize(cnt) + 8 * cnt;
+		int prev = -1;
 		for (int i = 0; i < cnt; i++) {
-			nodeRAF.writeInt(nnodes[i]);
+			final int tidx = getTidx(i);
+			size += varIntSize(zigzag(tidx - prev));
+			prev = tidx;
+		}
+		final int len = checks.packedSize();
+		size += varIntSize(len) + len;
+
+		final ByteBuffer buf = ByteBuffer.allocate(size);
+		putVarInt(buf, cnt);
+		for (int i = 0; i < cnt; i++) {
+			buf.putLong(getStateFP(i));
 		}
-		// Write checks
-		checks.write(nodeRAF);
+		prev = -1;
+		for (int i = 0; i < cnt; i++) {
+			final int tidx = getTidx(i);
+			putVarInt(buf, zigzag(tidx - prev));
+			prev = tidx;
+		}
+		putVarInt(buf, len);
+		checks.writePacked(buf);
+		assert !buf.hasRemaining();
+		return buf.array();
 	}
 
 	void read(final BufferedRandomAccessFile nodeRAF) throws IOException {
 		// Read nnodes
-		final int cnt = nodeRAF.readNat();
-		nnodes = new int[cnt];
+		final int cnt = readVarInt(nodeRAF);
+		nnodes = new int[NNODE_RECORD_SIZE * cnt];
 		for (int i = 0; i < cnt; i++) {
-			nnodes[i] = nodeRAF.readInt();
+			final long fp = nodeRAF.readLong();
+			nnodes[NNODE_RECORD_SIZE * i] = (int) (fp >>> 32);
+			nnodes[NNODE_RECORD_SIZE * i + 1] = (int) (fp & 0xFFFFFFFFL);
+		}
+		int tidx = -1;
+		for (int i = 0; i < cnt; i++) {
+			tidx += unzigzag(readVarInt(nodeRAF));
+			nnodes[NNODE_RECORD_SIZE * i + 2] = tidx;
 		}
 		// Read checks
 		checks = new BitVector();
-		checks.read(nodeRAF);
+		checks.readPacked(nodeRAF, readVarInt(nodeRAF));
 		
 		assert offset == NO_FREE_SLOTS;
 	}
 
+	static int zigzag(final int n) {
+		return (n << 1) ^ (n >> 31);
+	}
+
+	static int unzigzag(final int n) {
+		return (n >>> 1) ^ -(n & 1);
+	}
+
+	/**
+	 * @return The number of bytes of the (unsigned) varint n (7 bits per byte).
+	 */
+	static int varIntSize(final int n) {
+		return n == 0 ? 1 : (31 - Integer.numberOfLeadingZeros(n)) / 7 + 1;
+	}
+
+	static void putVarInt(final ByteBuffer buf, int n) {
+		while ((n & ~0x7F) != 0) {
+			buf.put((byte) ((n & 0x7F) | 0x80));
+			n >>>= 7;
+		}
+		buf.put((byte) n);
+	}
+
+	static int readVarInt(final BufferedRandomAccessFile raf) throws IOException {
+		int n = 0;
+		for (int shift = 0;; shift += 7) {
+			final byte b = raf.readByte();
+			n |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return n;
+			}
+		}
+	}
+
 	public final String toString() {
 		// A GraphNode does not know the action length. This is kept elsewhere in the code.
 		return toString(0).replace("[] ", "");
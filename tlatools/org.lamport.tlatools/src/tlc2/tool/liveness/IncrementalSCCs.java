@@ -0,0 +1,441 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved.
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.liveness;
+
+import java.util.Arrays;
+
+/**
+ * {@link IncrementalSCCs} maintains the strongly connected components (SCC) of
+ * a directed graph to which nodes and edges are only ever added. It keeps the
+ * components in a topological order and collapses the components of a cycle
+ * into a single one the moment an edge closes the cycle (Pearce and Kelly's
+ * dynamic topological sort, see "A dynamic topological sort algorithm for
+ * directed acyclic graphs", JEA 2007). Adding an edge which agrees with the
+ * current order is constant time. Otherwise, only the components whose order
+ * lies between the edge's endpoints are visited.
+ * <p>
+ * Nodes and edges carry a set of labels (a bit mask). A component accumulates
+ * the labels of its nodes and of its internal edges. Bit 63 (
+ * {@link #NONTRIVIAL}) is reserved and set iff the component has an internal
+ * edge, i.e. it is a cycle and not just a single node. A component is
+ * accepting if it has all labels of the mask passed to the constructor.
+ * <p>
+ * Nodes are identified by consecutive integers starting at 0. This class is
+ * not thread-safe.
+ */
+final class IncrementalSCCs {
+
+	static final long NONTRIVIAL = 1L << 63;
+
+	private final long accepting;
+	private final boolean labeledEdges;
+
+	private int size;
+	// Union-find of nodes to the representative of their component.
+	private int[] parent;
+	// The topological order of the components (only valid for representatives).
+	private int[] ord;
+	private long[] labels;
+	// Adjacency lists of components. The elements are nodes, not components.
+	private int[][] out;
+	private long[][] outLabels;
+	private int[] outLen;
+	private int[][] in;
+	private long[][] inLabels;
+	private int[] inLen;
+	private int nextOrd;
+
+	// Marks of the forward and backward search.
+	private int[] fwd;
+	private int[] bwd;
+	private int epoch;
+	private int[] stack = new int[16];
+	private int[] deltaF = new int[16];
+	private int[] deltaB = new int[16];
+
+	private boolean found;
+
+	/**
+	 * @param accepting
+	 *            The labels an accepting component has to have (besides
+	 *            {@link #NONTRIVIAL}).
+	 * @param labeledEdges
+	 *            false iff edges are never labeled. Saves the memory for the
+	 *            edge labels.
+	 */
+	IncrementalSCCs(final long accepting, final boolean labeledEdges) {
+		this.accepting = accepting | NONTRIVIAL;
+		this.labeledEdges = labeledEdges;
+		final int capacity = 1024;
+		this.parent = new int[capacity];
+		this.ord = new int[capacity];
+		this.labels = new long[capacity];
+		this.out = new int[capacity][];
+		this.outLen = new int[capacity];
+		this.in = new int[capacity][];
+		this.inLen = new int[capacity];
+		this.fwd = new int[capacity];
+		this.bwd = new int[capacity];
+		if (labeledEdges) {
+			this.outLabels = new long[capacity][];
+			this.inLabels = new long[capacity][];
+		}
+	}
+
+	/**
+	 * @return true iff an accepting component has been found so far.
+	 */
+	boolean hasAccepting() {
+		return found;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Adds the given labels to node u (and thus to its component).
+	 *
+	 * @return true iff u's component is accepting.
+	 */
+	boolean label(final int u, final long l) {
+		ensure(u);
+		final int r = find(u);
+		labels[r] |= l;
+		return check(r);
+	}
+
+	/**
+	 * Adds the edge u -> v with the given labels.
+	 *
+	 * @return true iff the edge made (or left) the component of u and v
+	 *         accepting.
+	 */
+	boolean addEdge(final int u, final int v, final long l) {
+		ensure(Math.max(u, v));
+		final int a = find(u);
+		final int b = find(v);
+		if (a == b) {
+			labels[a] |= l | NONTRIVIAL;
+			return check(a);
+		}
+		if (ord[a] < ord[b]) {
+			// The edge agrees with the topological order.
+			link(a, u, b, v, l);
+			return false;
+		}
+
+		// The edge invalidates the order. Search forward from b and backward
+		// from a through the components in the affected region [ord[b], ord[a]].
+		if (++epoch == Integer.MAX_VALUE) {
+			Arrays.fill(fwd, 0);
+			Arrays.fill(bwd, 0);
+			epoch = 1;
+		}
+		final int nf = forward(b, ord[a]);
+		final boolean cycle = fwd[a] == epoch;
+		final int nb = backward(a, ord[b]);
+
+		// Collect the (old) order of all components in the region and sort the
+		// reached components by their order. Components reached by both searches
+		// are on the cycle closed by u -> v.
+		final int[] slots = new int[nf + nb];
+		int ns = 0;
+		for (int i = 0; i < nf; i++) {
+			slots[ns++] = ord[deltaF[i]];
+		}
+		int nbOnly = 0;
+		for (int i = 0; i < nb; i++) {
+			final int x = deltaB[i];
+			if (fwd[x] != epoch) {
+				slots[ns++] = ord[x];
+				deltaB[nbOnly++] = x;
+			}
+		}
+		Arrays.sort(slots, 0, ns);
+		sortByOrd(deltaB, nbOnly);
+		sortByOrd(deltaF, nf);
+
+		// Components reached backward only move to the front and those reached
+		// forward only move to the back of the region (see Pearce and Kelly).
+		int s = 0;
+		for (int i = 0; i < nbOnly; i++) {
+			ord[deltaB[i]] = slots[s++];
+		}
+		if (cycle) {
+			final int r = merge(nf, l);
+			ord[r] = slots[s];
+		}
+		int t = ns;
+		for (int i = nf - 1; i >= 0; i--) {
+			final int x = deltaF[i];
+			if (bwd[x] != epoch) {
+				ord[x] = slots[--t];
+			}
+		}
+		if (cycle) {
+			return check(find(a));
+		}
+		link(a, u, b, v, l);
+		return false;
+	}
+
+	private boolean check(final int r) {
+		if ((labels[r] & accepting) == accepting) {
+			found = true;
+			return true;
+		}
+		return false;
+	}
+
+	private int find(int x) {
+		while (parent[x] != x) {
+			parent[x] = parent[parent[x]];
+			x = parent[x];
+		}
+		return x;
+	}
+
+	/**
+	 * Collects (into deltaF) the components reachable from b whose order is at
+	 * most ub.
+	 */
+	private int forward(final int b, final int ub) {
+		int n = 0;
+		int sp = 0;
+		fwd[b] = epoch;
+		stack = push(stack, sp++, b);
+		while (sp > 0) {
+			final int x = stack[--sp];
+			deltaF = push(deltaF, n++, x);
+			final int[] succs = out[x];
+			final long[] ls = labeledEdges ? outLabels[x] : null;
+			int w = 0;
+			for (int k = 0, len = outLen[x]; k < len; k++) {
+				final int y = find(succs[k]);
+				if (y == x) {
+					// Became internal by an earlier merge; drop it.
+					continue;
+				}
+				succs[w] = succs[k];
+				if (ls != null) {
+					ls[w] = ls[k];
+				}
+				w++;
+				if (ord[y] <= ub && fwd[y] != epoch) {
+					fwd[y] = epoch;
+					stack = push(stack, sp++, y);
+				}
+			}
+			outLen[x] = w;
+		}
+		return n;
+	}
+
+	/**
+	 * Collects (into deltaB) the components from which a is reachable whose
+	 * order is at least lb.
+	 */
+	private int backward(final int a, final int lb) {
+		int n = 0;
+		int sp = 0;
+		bwd[a] = epoch;
+		stack = push(stack, sp++, a);
+		while (sp > 0) {
+			final int x = stack[--sp];
+			deltaB = push(deltaB, n++, x);
+			final int[] preds = in[x];
+			final long[] ls = labeledEdges ? inLabels[x] : null;
+			int w = 0;
+			for (int k = 0, len = inLen[x]; k < len; k++) {
+				final int y = find(preds[k]);
+				if (y == x) {
+					continue;
+				}
+				preds[w] = preds[k];
+				if (ls != null) {
+					ls[w] = ls[k];
+				}
+				w++;
+				if (ord[y] >= lb && bwd[y] != epoch) {
+					bwd[y] = epoch;
+					stack = push(stack, sp++, y);
+				}
+			}
+			inLen[x] = w;
+		}
+		return n;
+	}
+
+	/**
+	 * Merges the components that have been reached by both the forward and the
+	 * backward search into the one with the most edges.
+	 *
+	 * @return the representative of the merged component.
+	 */
+	private int merge(final int nf, final long l) {
+		int r = -1;
+		for (int i = 0; i < nf; i++) {
+			final int x = deltaF[i];
+			if (bwd[x] == epoch && (r == -1 || outLen[x] + inLen[x] > outLen[r] + inLen[r])) {
+				r = x;
+			}
+		}
+		for (int i = 0; i < nf; i++) {
+			final int x = deltaF[i];
+			if (bwd[x] == epoch && x != r) {
+				parent[x] = r;
+				labels[r] |= labels[x];
+			}
+		}
+		// Move the edges of the merged components to r. Edges inside of the
+		// new component only contribute their labels. Edges from or to the old
+		// component r which became internal show up in the lists of the other
+		// components, those in r's own lists are dropped lazily by the searches.
+		for (int i = 0; i < nf; i++) {
+			final int x = deltaF[i];
+			if (bwd[x] != epoch || x == r) {
+				continue;
+			}
+			for (int k = 0; k < outLen[x]; k++) {
+				final long el = labeledEdges ? outLabels[x][k] : 0L;
+				if (find(out[x][k]) == r) {
+					labels[r] |= el;
+				} else {
+					appendOut(r, out[x][k], el);
+				}
+			}
+			for (int k = 0; k < inLen[x]; k++) {
+				final long el = labeledEdges ? inLabels[x][k] : 0L;
+				if (find(in[x][k]) == r) {
+					labels[r] |= el;
+				} else {
+					appendIn(r, in[x][k], el);
+				}
+			}
+			out[x] = null;
+			in[x] = null;
+			outLen[x] = 0;
+			inLen[x] = 0;
+			if (labeledEdges) {
+				outLabels[x] = null;
+				inLabels[x] = null;
+			}
+		}
+		labels[r] |= l | NONTRIVIAL;
+		return r;
+	}
+
+	private void link(final int a, final int u, final int b, final int v, final long l) {
+		appendOut(a, v, l);
+		appendIn(b, u, l);
+	}
+
+	private void appendOut(final int x, final int v, final long l) {
+		final int len = outLen[x];
+		if (out[x] == null) {
+			out[x] = new int[2];
+		} else if (len == out[x].length) {
+			out[x] = Arrays.copyOf(out[x], len * 2);
+		}
+		out[x][len] = v;
+		if (labeledEdges) {
+			if (outLabels[x] == null) {
+				outLabels[x] = new long[out[x].length];
+			} else if (outLabels[x].length < out[x].length) {
+				outLabels[x] = Arrays.copyOf(outLabels[x], out[x].length);
+			}
+			outLabels[x][len] = l;
+		}
+		outLen[x] = len + 1;
+	}
+
+	private void appendIn(final int x, final int u, final long l) {
+		final int len = inLen[x];
+		if (in[x] == null) {
+			in[x] = new int[2];
+		} else if (len == in[x].length) {
+			in[x] = Arrays.copyOf(in[x], len * 2);
+		}
+		in[x][len] = u;
+		if (labeledEdges) {
+			if (inLabels[x] == null) {
+				inLabels[x] = new long[in[x].length];
+			} else if (inLabels[x].length < in[x].length) {
+				inLabels[x] = Arrays.copyOf(inLabels[x], in[x].length);
+			}
+			inLabels[x][len] = l;
+		}
+		inLen[x] = len + 1;
+	}
+
+	private void sortByOrd(final int[] xs, final int n) {
+		final long[] tmp = new long[n];
+		for (int i = 0; i < n; i++) {
+			tmp[i] = ((long) ord[xs[i]] << 32) | xs[i];
+		}
+		Arrays.sort(tmp);
+		for (int i = 0; i < n; i++) {
+			xs[i] = (int) tmp[i];
+		}
+	}
+
+	private static int[] push(int[] a, final int idx, final int x) {
+		if (idx == a.length) {
+			a = Arrays.copyOf(a, idx * 2);
+		}
+		a[idx] = x;
+		return a;
+	}
+
+	/**
+	 * Makes sure nodes 0..u exist. New nodes are appended to the topological
+	 * order.
+	 */
+	private void ensure(final int u) {
+		if (u >= parent.length) {
+			final int capacity = Math.max(u + 1, parent.length * 2);
+			parent = Arrays.copyOf(parent, capacity);
+			ord = Arrays.copyOf(ord, capacity);
+			labels = Arrays.copyOf(labels, capacity);
+			out = Arrays.copyOf(out, capacity);
+			outLen = Arrays.copyOf(outLen, capacity);
+			in = Arrays.copyOf(in, capacity);
+			inLen = Arrays.copyOf(inLen, capacity);
+			fwd = Arrays.copyOf(fwd, capacity);
+			bwd = Arrays.copyOf(bwd, capacity);
+			if (labeledEdges) {
+				outLabels = Arrays.copyOf(outLabels, capacity);
+				inLabels = Arrays.copyOf(inLabels, capacity);
+			}
+		}
+		while (size <= u) {
+			parent[size] = size;
+			ord[size] = nextOrd++;
+			size++;
+		}
+	}
+}
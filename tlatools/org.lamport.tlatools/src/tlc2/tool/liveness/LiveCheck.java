@@ -228,13 +228,17 @@ public class LiveCheck implements ILiveCheck {
 		 * model checking after all LWs completed.
 		 */
 		final int wNum = TLCGlobals.doSequentialLiveness() ? 1 : Math.min(checker.length, TLCGlobals.getNumWorkers());
+		// With fewer checkers than workers (commonly a single checker), let
+		// each LiveWorker search the SCCs of its disk graph with the otherwise
+		// idle threads.
+		final int parallelism = TLCGlobals.doSequentialLiveness() ? 1 : TLCGlobals.getNumWorkers() / wNum;
 		final ExecutorService pool = Executors.newFixedThreadPool(wNum);
 		// CS is really just a container around the set of Futures returned by the pool. It saves us from
 		// creating a low-level array.
 		final CompletionService<Boolean> completionService = new ExecutorCompletionService<Boolean>(pool);
 
 		for (int i = 0; i < wNum; i++) {
-			completionService.submit(new LiveWorker(tool, i, wNum, this, queue, finalCheck));
+			completionService.submit(new LiveWorker(tool, i, wNum, this, queue, finalCheck, parallelism));
 		}
 		// Wait for all LWs to complete.
 		pool.shutdown();
@@ -423,14 +427,28 @@ public class LiveCheck implements ILiveCheck {
 		return aGraphStats;
 	}
 	
+	/**
+	 * Called right after node has been written to the behavior graph of the
+	 * soln-th {@link OrderOfSolution} while the caller holds the lock of the
+	 * {@link OrderOfSolution}. The node is not modified afterwards.
+	 * <p>
+	 * Subclasses may override, the default implementation does nothing.
+	 */
+	protected void addedNode(final int soln, final GraphNode node) throws IOException {
+		// subclasses may override
+	}
+	
 	static abstract class AbstractLiveChecker implements ILiveChecker {
 		
 		protected final ILivenessStateWriter writer;
 		
 		protected final OrderOfSolution oos;
 
-		public AbstractLiveChecker(OrderOfSolution oos, ILivenessStateWriter writer) {
+		protected final int soln;
+
+		public AbstractLiveChecker(OrderOfSolution oos, int soln, ILivenessStateWriter writer) {
 			this.oos = oos;
+			this.soln = soln;
 			this.writer = writer;
 		}
 
@@ -458,7 +476,7 @@ public class LiveCheck implements ILiveCheck {
 
 		public LiveChecker(OrderOfSolution oos, int soln, IBucketStatistics bucketStatistics, ILivenessStateWriter writer)
 			throws IOException {
-			super(oos, writer);
+			super(oos, soln, writer);
 			this.dgraph = new DiskGraph(metadir, soln, bucketStatistics);
 		}
 
@@ -475,70 +493,136 @@ public class LiveCheck implements ILiveCheck {
 		 */
 		public void addNextState(ITool tool, final TLCState s0, final long fp0,
 				final SetOfStates nextStates, final BitVector checkActionResults, final boolean[] checkStateResults) throws IOException {
-			int cnt = 0;
-			// if there is no tableau ...
+			// The lock on oos guards the complete behavior graph. In regular
+			// model checking, each state is added exactly once and thus s0 is a
+			// new node. Only look up which successors are in the graph already
+			// while holding the lock, but create and serialize the GraphNode
+			// outside of it. The lock is then re-acquired to append the node to
+			// the graph. The successors' fingerprints are also calculated
+			// outside of the lock.
 			final int succCnt = nextStates.size();
 			final int alen = oos.getCheckAction().length;
+			final long[] fps = new long[succCnt];
+			for (int sidx = 0; sidx < succCnt; sidx++) {
+				fps[sidx] = nextStates.next().fingerPrint();
+			}
+			nextStates.resetNext();
+
+			final BitVector exists = new BitVector(succCnt);
 			synchronized (oos) {
-				final GraphNode node0 = dgraph.getNode(fp0);
-				final int s = node0.succSize();
-				node0.setCheckState(checkStateResults);
+				if (dgraph.getPtr(fp0) != -1) {
+					// s0 is in the graph already (simulation).
+					update(s0, fp0, nextStates, checkActionResults, checkStateResults);
+					return;
+				}
 				for (int sidx = 0; sidx < succCnt; sidx++) {
-					final TLCState successorState = nextStates.next();
-					final long successor = successorState.fingerPrint();
-					// Only add the transition if:
-					// a) The successor itself has not been written to disk
-					//    TODO Why is an existing successor ignored?
-					// b) The successor is a new outgoing transition for s0 
-					final long ptr1 = dgraph.getPtr(successor);
-					if (ptr1 == -1 || !node0.transExists(successor, -1)) {
-						// Eagerly allocate as many (N) transitions (outgoing arcs)
-						// as we are maximally going to add within the for
-						// loop. This reduces GraphNode's internal and
-						// *performance-wise expensive* System.arraycopy calls
-						// from N invocations to one (best case) or two (worst
-						// case). It has been found empirically (VoteProof) that
-						// the best case is used most of the time (99%).
-						// It should also minimize the work created for Garbage
-						// Collection to clean up even in the worst-case (two invocations)
-						// when the pre-allocated memory has to be freed (see
-						// realign call).
-						// Rather than allocating N memory regions and freeing
-						// N-1 immediately after, it now just has to free a
-						// single one (and only iff we over-allocated).
-						node0.addTransition(successor, -1, checkStateResults.length, alen,
-								checkActionResults, sidx * alen, (succCnt - cnt++));
-					} else {
-						cnt++;
+					if (dgraph.getPtr(fps[sidx]) != -1) {
+						exists.set(sidx);
 					}
-					writer.writeState(s0, successorState, checkActionResults, sidx * alen, alen, ptr1 == -1);
 				}
-				nextStates.resetNext();
-				// In simulation mode (see Simulator), it's possible that this
-				// method is called multiple times for the same state (s0/fp0)
-				// but with changing successors caused by the random successor
-				// selection. If the successor is truly new (it has not been
-				// added before), the GraphNode instance has to be updated
-				// (creating a new record on disk). However, when the successor
-				// parameter happens to pass known successors only, there is no
-				// point in adding the GraphNode again. It would just waste disk
-				// space.
-				// The amount of successors is either 0 (no new successor has
-				// been added) or used to be less than it is now.
-				if ((s == 0 && s == node0.succSize()) || s < node0.succSize()) {
-					node0.realign(); // see node0.addTransition() hint
-					// Add a node for the current state. It gets added *after*
-					// all transitions have been added because addNode
-					// immediately writes the GraphNode to disk including its
-					// transitions.
-					dgraph.addNode(node0);
+			}
+
+			final GraphNode node0 = new GraphNode(fp0, -1);
+			node0.setCheckState(checkStateResults);
+			int cnt = 0;
+			for (int sidx = 0; sidx < succCnt; sidx++) {
+				// see update(..) below
+				if (!exists.get(sidx) || !node0.transExists(fps[sidx], -1)) {
+					node0.addTransition(fps[sidx], -1, checkStateResults.length, alen, checkActionResults, sidx * alen,
+							(succCnt - cnt++));
 				} else {
-					// Since the condition is only supposed to evaluate to false
-					// when LiveCheck is used in simulation mode, mainChecker
-					// has to be null.
-					Assert.check(TLCGlobals.mainChecker == null, EC.GENERAL);
+					cnt++;
 				}
 			}
+			node0.realign(); // see node0.addTransition() hint
+			final byte[] record = node0.toBytes();
+
+			synchronized (oos) {
+				if (dgraph.getPtr(fp0) != -1) {
+					// Another thread added s0 in the meantime (simulation).
+					update(s0, fp0, nextStates, checkActionResults, checkStateResults);
+					return;
+				}
+				if (!writer.isNoop()) {
+					for (int sidx = 0; sidx < succCnt; sidx++) {
+						writer.writeState(s0, nextStates.next(), checkActionResults, sidx * alen, alen, !exists.get(sidx));
+					}
+					nextStates.resetNext();
+				}
+				dgraph.addNode(node0, record);
+				addedNode(soln, node0);
+			}
+		}
+
+		/**
+		 * Adds the successors to the node s0 which might be in the graph
+		 * already. The caller has to hold the lock on oos.
+		 */
+		private void update(final TLCState s0, final long fp0, final SetOfStates nextStates,
+				final BitVector checkActionResults, final boolean[] checkStateResults) throws IOException {
+			int cnt = 0;
+			// if there is no tableau ...
+			final int succCnt = nextStates.size();
+			final int alen = oos.getCheckAction().length;
+			final GraphNode node0 = dgraph.getNode(fp0);
+			final int s = node0.succSize();
+			node0.setCheckState(checkStateResults);
+			for (int sidx = 0; sidx < succCnt; sidx++) {
+				final TLCState successorState = nextStates.next();
+				final long successor = successorState.fingerPrint();
+				// Only add the transition if:
+				// a) The successor itself has not been written to disk
+				//    TODO Why is an existing successor ignored?
+				// b) The successor is a new outgoing transition for s0 
+				final long ptr1 = dgraph.getPtr(successor);
+				if (ptr1 == -1 || !node0.transExists(successor, -1)) {
+					// Eagerly allocate as many (N) transitions (outgoing arcs)
+					// as we are maximally going to add within the for
+					// loop. This reduces GraphNode's internal and
+					// *performance-wise expensive* System.arraycopy calls
+					// from N invocations to one (best case) or two (worst
+					// case). It has been found empirically (VoteProof) that
+					// the best case is used most of the time (99%).
+					// It should also minimize the work created for Garbage
+					// Collection to clean up even in the worst-case (two invocations)
+					// when the pre-allocated memory has to be freed (see
+					// realign call).
+					// Rather than allocating N memory regions and freeing
+					// N-1 immediately after, it now just has to free a
+					// single one (and only iff we over-allocated).
+					node0.addTransition(successor, -1, checkStateResults.length, alen,
+							checkActionResults, sidx * alen, (succCnt - cnt++));
+				} else {
+					cnt++;
+				}
+				writer.writeState(s0, successorState, checkActionResults, sidx * alen, alen, ptr1 == -1);
+			}
+			nextStates.resetNext();
+			// In simulation mode (see Simulator), it's possible that this
+			// method is called multiple times for the same state (s0/fp0)
+			// but with changing successors caused by the random successor
+			// selection. If the successor is truly new (it has not been
+			// added before), the GraphNode instance has to be updated
+			// (creating a new record on disk). However, when the successor
+			// parameter happens to pass known successors only, there is no
+			// point in adding the GraphNode again. It would just waste disk
+			// space.
+			// The amount of successors is either 0 (no new successor has
+			// been added) or used to be less than it is now.
+			if ((s == 0 && s == node0.succSize()) || s < node0.succSize()) {
+				node0.realign(); // see node0.addTransition() hint
+				// Add a node for the current state. It gets added *after*
+				// all transitions have been added because addNode
+				// immediately writes the GraphNode to disk including its
+				// transitions.
+				dgraph.addNode(node0);
+				addedNode(soln, node0);
+			} else {
+				// Since the condition is only supposed to evaluate to false
+				// when LiveCheck is used in simulation mode, mainChecker
+				// has to be null.
+				Assert.check(TLCGlobals.mainChecker == null, EC.GENERAL);
+			}
 		}
 
 		public DiskGraph getDiskGraph() {
@@ -552,7 +636,7 @@ public class LiveCheck implements ILiveCheck {
 
 		public TableauLiveChecker(OrderOfSolution oos, int soln, IBucketStatistics statistics, ILivenessStateWriter writer)
 				throws IOException {
-			super(oos, writer);
+			super(oos, soln, writer);
 			this.dgraph = new TableauDiskGraph(metadir, soln, statistics);
 		}
 
@@ -605,6 +689,13 @@ public class LiveCheck implements ILiveCheck {
 				}
 				nextStates.resetNext();
 			}
+			// Also calculate the successors' fingerprints before acquiring the
+			// lock. The loop below visits each successor once per node of fp0.
+			final long[] fps = new long[succCnt];
+			for (int sidx = 0; sidx < succCnt; sidx++) {
+				fps[sidx] = nextStates.next().fingerPrint();
+			}
+			nextStates.resetNext();
 			
 			// At this point only constant time operations are allowed =>
 			// Shortly lock the graph.
@@ -640,7 +731,7 @@ public class LiveCheck implements ILiveCheck {
 					node0.setCheckState(checkStateResults);
 					for (int sidx = 0; sidx < succCnt; sidx++) {
 						final TLCState s1 = nextStates.next();
-						final long successor = s1.fingerPrint();
+						final long successor = fps[sidx];
 						final boolean isDone = dgraph.isDone(successor);
 						for (int k = 0; k < tnode0.nextSize(); k++) {
 							final TBGraphNode tnode1 = tnode0.nextAt(k);
@@ -672,6 +763,7 @@ public class LiveCheck implements ILiveCheck {
 					if ((s == 0 && s == node0.succSize()) || s < node0.succSize()) {
 						node0.realign(); // see node0.addTransition() hint
 						dgraph.addNode(node0);
+						addedNode(soln, node0);
 					} else {
 						// Since the condition is only supposed to evaluate to false
 						// when LiveCheck is used in simulation mode, mainChecker
@@ -767,6 +859,7 @@ public class LiveCheck implements ILiveCheck {
 			if (numSucc < node.succSize()) {
 				node.realign(); // see node.addTransition() hint
 				dgraph.addNode(node);
+				addedNode(soln, node);
 			}
 		}
 
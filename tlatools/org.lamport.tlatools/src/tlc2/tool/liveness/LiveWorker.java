@@ -12,7 +12,11 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
 
 import tlc2.TLCGlobals;
 import tlc2.output.EC;
@@ -37,6 +41,9 @@ import tlc2.util.statistics.IBucketStatistics;
  * <li>Checks each SCC if it violates the liveness properties.</li>
  * <li>In case of a violation, reconstructs and prints the error trace.</li>
  * </ul>
+ * If there are fewer disk graphs than threads, a {@link LiveWorker} searches
+ * the SCCs of a single disk graph with more than one thread (see
+ * {@link ParallelSCCs}).
  */
 public class LiveWorker implements Callable<Boolean> {
 
@@ -48,6 +55,14 @@ public class LiveWorker implements Callable<Boolean> {
 	 */
 	private static final long SCC_MARKER = -42L;
 
+	/**
+	 * Disk graphs with fewer nodes are searched with Tarjan's algorithm even if
+	 * more than one thread is available. Loading the graph into memory for
+	 * {@link ParallelSCCs} does not pay off for small graphs.
+	 */
+	private static final long PARALLEL_THRESHOLD = Long
+			.getLong(LiveWorker.class.getName() + ".parallelThreshold", 1L << 16);
+
 	public static final IBucketStatistics STATS = new BucketStatistics("Histogram SCC sizes", LiveWorker.class
 			.getPackage().getName(), "StronglyConnectedComponent sizes");
 	
@@ -56,6 +71,13 @@ public class LiveWorker implements Callable<Boolean> {
 
 	private OrderOfSolution oos = null;
 	private AbstractDiskGraph dg = null;
+	private MappedNodeFile file = null;
+	/**
+	 * A view of the nodes in the memory-mapped nodes file of {@link #dg}. It is
+	 * used by the SCC search to visit nodes without creating a
+	 * {@link GraphNode} each time.
+	 */
+	private MappedGraphNode node = null;
 	private PossibleErrorModel pem = null;
 	private final ILiveCheck liveCheck;
 	private final BlockingQueue<ILiveChecker> queue;
@@ -64,18 +86,24 @@ public class LiveWorker implements Callable<Boolean> {
 	 * Total number of LiveWorkers simultaneously checking liveness.
 	 */
 	private final int numWorkers;
+	/**
+	 * The number of threads with which this LiveWorker searches the SCCs of a
+	 * disk graph. Tarjan's algorithm is used iff 1.
+	 */
+	private final int parallelism;
 
 	private final ITool tool;
 
 	private final int id;
 
-	public LiveWorker(final ITool tool, int id, int numWorkers, final ILiveCheck liveCheck, final BlockingQueue<ILiveChecker> queue, final boolean finalCheck) {
+	public LiveWorker(final ITool tool, int id, int numWorkers, final ILiveCheck liveCheck, final BlockingQueue<ILiveChecker> queue, final boolean finalCheck, final int parallelism) {
 		this.id = id;
 		this.tool = tool;
 		this.numWorkers = numWorkers;
 		this.liveCheck = liveCheck;
 		this.queue = queue;
 		this.isFinalCheck = finalCheck;
+		this.parallelism = parallelism;
 	}
 
 	/**
@@ -165,12 +193,24 @@ public class LiveWorker implements Callable<Boolean> {
 		// nodeQueue of unexplored states, but only the initial states. Since we
 		// know that all non-initial states are reachable from the set of
 		// initial states, this is sufficient to start with.
+		//
+		// If an earlier check of the graph has completed, only the SCCs which
+		// contain a node added since have to be searched (see
+		// AbstractDiskGraph#beginCheck). Each such SCC is found by a search
+		// started from its new node. Thus, the nodes added since the earlier
+		// check replace the initial states in nodeQueue. The search then
+		// skips the parts of the graph that are not reachable from the new
+		// nodes.
+		final boolean incremental = this.dg.isIncremental();
 		final LongVec initNodes = this.dg.getInitNodes();
-		final int numOfInits = initNodes.size();
+		final int numOfInits = incremental ? 0 : initNodes.size();
 		// Allocate space for all initial states, assuming the majority of
 		// initial nodes will be done. Multiplied by 5 because of
 		// <<long, int, long>> per "record.
 		final MemIntQueue nodeQueue = new MemIntQueue(liveCheck.getMetaDir(), "root", (numOfInits / 2) * 5);
+		if (incremental) {
+			this.dg.enqueueNewNodes(nodeQueue);
+		}
 		for (int j = 0; j < numOfInits; j += 2) {
 			final long state = initNodes.elementAt(j);
 			final int tidx = (int) initNodes.elementAt(j + 1);
@@ -348,7 +388,7 @@ public class LiveWorker implements Callable<Boolean> {
 						comStack.pushLong(curState);
 						
 						// Look at all the successors of curState:
-						final GraphNode gnode = this.dg.getNode(curState, curTidx, curLoc);
+						final MappedGraphNode gnode = this.node.read(curState, curTidx, curLoc);
 						final int succCnt = gnode.succSize();
 						long nextLowLink = newLink;
 						// DFS moved on to a new node, thus increment the newLink
@@ -434,7 +474,10 @@ public class LiveWorker implements Callable<Boolean> {
 									// on disk state). The current path
 									// potentially might be the only one by
 									// which DFS can reach it.
-									if (DiskGraph.isFilePointer(nextLink)) {
+									// An incremental search does not have to
+									// reach it: If it is a new node, it is
+									// in nodeQueue already.
+									if (DiskGraph.isFilePointer(nextLink) && !incremental) {
 									nodeQueue.enqueueLong(nextState);
 									nodeQueue.enqueueInt(nextTidx);
 									nodeQueue.enqueueLong(nextLink); // nextLink is logically a ptr/loc here
@@ -562,11 +605,13 @@ public class LiveWorker implements Callable<Boolean> {
 		// passed on to printTrace iff an error is found. The implementation
 		// here could use a simple java.util.Map or HashTable technically.)
 		final TableauNodePtrTable com = new TableauNodePtrTable(128);
+		boolean hasNew = false;
 		while (true) {
 			// Add <state1, tidx1> into com:
 			com.put(state1, tidx1, loc1);
 			assert AbstractDiskGraph.isFilePointer(loc1);
 			this.dg.setMaxLink(state1, tidx1);
+			hasNew |= this.dg.isNew(loc1);
 
 			// Get the next node of the component:
 			if (state == state1 && tidx == tidx1) {
@@ -580,6 +625,12 @@ public class LiveWorker implements Callable<Boolean> {
 		// Just parameter node in com OR com subset of comStack
 		assert com.size() <= (comStackSize / 5);
 
+		// The component has been checked by an earlier check already unless
+		// it contains a new node (see AbstractDiskGraph#beginCheck).
+		if (!hasNew) {
+			return true;
+		}
+
 		STATS.addSample(com.size());
 
 		// Check this component:
@@ -619,7 +670,7 @@ public class LiveWorker implements Callable<Boolean> {
 				tidx1 = TableauNodePtrTable.getTidx(nodes, nidx);
 				loc1 = TableauNodePtrTable.getElem(nodes, nidx);
 
-				final GraphNode curNode = this.dg.getNode(state1, tidx1, loc1);
+				final MappedGraphNode curNode = this.node.read(state1, tidx1, loc1);
 
 				// Check AEState:
 				for (int i = 0; i < aeslen; i++) {
@@ -769,7 +820,7 @@ public class LiveWorker implements Callable<Boolean> {
 		final int alen = this.oos.getCheckAction().length;
 
 		// Find the self loop and check its <>[]action
-		final GraphNode gnode = this.dg.getNode(state, tidx, loc);
+		final MappedGraphNode gnode = this.node.read(state, tidx, loc);
 		final int succCnt = gnode.succSize();
 		for (int i = 0; i < succCnt; i++) {
 			final long nextState = gnode.getStateFP(i);
@@ -782,6 +833,257 @@ public class LiveWorker implements Callable<Boolean> {
 		return false;
 	}
 
+	/**
+	 * A variant of {@link #checkSccs(ITool)} that decomposes the behavior graph
+	 * into its SCCs with the threads of the given pool (see
+	 * {@link ParallelSCCs}) instead of with Tarjan's algorithm on this thread.
+	 * Contrary to Tarjan's algorithm, the forward-backward search needs the
+	 * graph in memory. Only the arcs which satisfy the PEM's EAAction are
+	 * loaded, which are the ones the depth-first search of
+	 * {@link #checkSccs(ITool)} follows.
+	 * 
+	 * @return false iff the graph is too small (see
+	 *         {@link #PARALLEL_THRESHOLD}) or does not fit into memory in which
+	 *         case the caller has to fall back to {@link #checkSccs(ITool)}.
+	 */
+	private final boolean checkSccs(final ITool tool, final ForkJoinPool pool) throws IOException, InterruptedException, ExecutionException {
+		// Per node, <<fp, tidx, ptr>> and six ints (the two offsets, the
+		// color, Tarjan's index and lowlink, and the initial set). Per arc,
+		// the arc and its reversal. An arc takes more than 8 bytes in the
+		// nodes file.
+		final long nodes = this.dg.size();
+		if (nodes < PARALLEL_THRESHOLD) {
+			return false;
+		}
+		final double freeMemoryInBytes = (Runtime.getRuntime().freeMemory() / (numWorkers * 1d));
+		final long requiredInBytes = nodes * (3L * Long.BYTES + 6L * Integer.BYTES) + this.dg.getSizeOnDisk();
+		if (requiredInBytes > freeMemoryInBytes || 3L * nodes >= Integer.MAX_VALUE / 2) {
+			return false;
+		}
+
+		// Number the nodes from 0 to size - 1. The nodePtrTbl maps a node to
+		// its number (MAX_PTR + number) the way it maps a node to its link
+		// number during Tarjan's search.
+		this.dg.makeNodePtrTbl();
+		final LongVec vec = this.dg.numberNodes();
+		final int size = vec.size() / 3;
+
+		// The arcs in compressed sparse row format (see ParallelSCCs).
+		final int[] offsets = new int[size + 1];
+		pool.invoke(new Arcs(vec, offsets, null, 0, size));
+		for (int v = 0; v < size; v++) {
+			final long sum = (long) offsets[v] + offsets[v + 1];
+			if (sum > Integer.MAX_VALUE - 8) {
+				return false;
+			}
+			offsets[v + 1] = (int) sum;
+		}
+		final int[] targets = new int[offsets[size]];
+		pool.invoke(new Arcs(vec, offsets, targets, 0, size));
+
+		final ParallelSCCs sccs = new ParallelSCCs(size, offsets, targets);
+		final AtomicReference<int[]> violation = new AtomicReference<int[]>();
+		sccs.search(pool, scc -> {
+			if (hasErrFound()) {
+				// Another LiveWorker has found a violation.
+				return true;
+			}
+			if (!this.checkComponent(sccs, vec, scc)) {
+				violation.compareAndSet(null, scc);
+				return true;
+			}
+			return false;
+		});
+
+		final int[] scc = violation.get();
+		if (scc != null && setErrFound()) {
+			// printTrace expects the component in a TableauNodePtrTable (see
+			// checkComponent(ITool, long, int, IntStack)).
+			final TableauNodePtrTable com = new TableauNodePtrTable(128);
+			for (int i = 0; i < scc.length; i++) {
+				com.put(vec.elementAt(3 * scc[i]), (int) vec.elementAt(3 * scc[i] + 1), vec.elementAt(3 * scc[i] + 2));
+			}
+			this.printTrace(tool, vec.elementAt(3 * scc[0]), (int) vec.elementAt(3 * scc[0] + 1), com);
+		}
+		return true;
+	}
+
+	/**
+	 * Counts (targets is null) or collects the successors of the nodes in
+	 * [lo, hi) along arcs which satisfy the PEM's EAAction. Successors which
+	 * are not done are skipped.
+	 */
+	@SuppressWarnings("serial")
+	private final class Arcs extends RecursiveAction {
+
+		private final LongVec nodes;
+		private final int[] offsets;
+		private final int[] targets;
+		private final int lo;
+		private final int hi;
+
+		Arcs(final LongVec nodes, final int[] offsets, final int[] targets, final int lo, final int hi) {
+			this.nodes = nodes;
+			this.offsets = offsets;
+			this.targets = targets;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo > 4096) {
+				final int mid = (lo + hi) >>> 1;
+				invokeAll(new Arcs(nodes, offsets, targets, lo, mid), new Arcs(nodes, offsets, targets, mid, hi));
+				return;
+			}
+			final int[] eaaction = pem.EAAction;
+			final int slen = oos.getCheckState().length;
+			final int alen = oos.getCheckAction().length;
+			final MappedGraphNode gnode = new MappedGraphNode(file);
+			for (int v = lo; v < hi; v++) {
+				gnode.read(nodes.elementAt(3 * v), (int) nodes.elementAt(3 * v + 1), nodes.elementAt(3 * v + 2));
+				int k = targets == null ? 0 : offsets[v];
+				final int succCnt = gnode.succSize();
+				for (int i = 0; i < succCnt; i++) {
+					if (!gnode.getCheckAction(slen, alen, i, eaaction)) {
+						continue;
+					}
+					final long link = dg.getLink(gnode.getStateFP(i), gnode.getTidx(i));
+					if (link < AbstractDiskGraph.MAX_PTR) {
+						// See the corresponding comment in checkSccs(ITool).
+						// isFinalCheck => nextLink # UNDONE
+						assert link < 0 && (!isFinalCheck || link != TableauNodePtrTable.UNDONE);
+						continue;
+					}
+					if (targets != null) {
+						targets[k] = (int) (link - AbstractDiskGraph.MAX_PTR);
+					}
+					k++;
+				}
+				if (targets == null) {
+					offsets[v + 1] = k;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The equivalent of {@link #checkComponent(ITool, long, int, IntStack)} for
+	 * an SCC found by {@link ParallelSCCs}. Large components are checked in
+	 * parallel. It does not print the error trace.
+	 * 
+	 * @return false iff the component violates the liveness properties.
+	 */
+	private boolean checkComponent(final ParallelSCCs sccs, final LongVec nodes, final int[] scc) {
+		// See checkComponent(ITool, long, int, IntStack).
+		boolean hasNew = false;
+		for (int i = 0; i < scc.length && !hasNew; i++) {
+			hasNew = this.dg.isNew(nodes.elementAt(3 * scc[i] + 2));
+		}
+		if (!hasNew) {
+			return true;
+		}
+		synchronized (STATS) {
+			STATS.addSample(scc.length);
+		}
+		final boolean[] res = new Component(sccs, nodes, scc, 0, scc.length).invoke();
+		for (int i = 0; i < res.length; i++) {
+			if (!res[i]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks the AEStates, AEActions and promises of the nodes scc[lo] to
+	 * scc[hi - 1] (in this order in the resulting array).
+	 */
+	@SuppressWarnings("serial")
+	private final class Component extends RecursiveTask<boolean[]> {
+
+		private final ParallelSCCs sccs;
+		private final LongVec nodes;
+		private final int[] scc;
+		private final int lo;
+		private final int hi;
+
+		Component(final ParallelSCCs sccs, final LongVec nodes, final int[] scc, final int lo, final int hi) {
+			this.sccs = sccs;
+			this.nodes = nodes;
+			this.scc = scc;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected boolean[] compute() {
+			if (hi - lo > 4096) {
+				final int mid = (lo + hi) >>> 1;
+				final Component left = new Component(sccs, nodes, scc, lo, mid);
+				final Component right = new Component(sccs, nodes, scc, mid, hi);
+				invokeAll(left, right);
+				final boolean[] res = left.join();
+				final boolean[] other = right.join();
+				for (int i = 0; i < res.length; i++) {
+					res[i] |= other[i];
+				}
+				return res;
+			}
+			final int slen = oos.getCheckState().length;
+			final int alen = oos.getCheckAction().length;
+			final int aeslen = pem.AEState.length;
+			final int aealen = pem.AEAction.length;
+			final int plen = oos.getPromises().length;
+			final int[] eaaction = pem.EAAction;
+			final boolean[] res = new boolean[aeslen + aealen + plen];
+			final int comp = sccs.component(scc[0]);
+
+			final MappedGraphNode curNode = new MappedGraphNode(file);
+			for (int n = lo; n < hi; n++) {
+				final int v = scc[n];
+				curNode.read(nodes.elementAt(3 * v), (int) nodes.elementAt(3 * v + 1), nodes.elementAt(3 * v + 2));
+
+				// Check AEState:
+				for (int i = 0; i < aeslen; i++) {
+					if (!res[i]) {
+						res[i] = curNode.getCheckState(pem.AEState[i]);
+					}
+				}
+
+				// Check AEAction of the arcs within the component which
+				// satisfy the EAAction (see MAK 10/23/2018 above):
+				final int succCnt = aealen > 0 ? curNode.succSize() : 0;
+				for (int i = 0; i < succCnt; i++) {
+					final long link = dg.getLink(curNode.getStateFP(i), curNode.getTidx(i));
+					if (link < AbstractDiskGraph.MAX_PTR
+							|| sccs.component((int) (link - AbstractDiskGraph.MAX_PTR)) != comp) {
+						continue;
+					}
+					if (!curNode.getCheckAction(slen, alen, i, eaaction)) {
+						continue;
+					}
+					for (int j = 0; j < aealen; j++) {
+						if (!res[aeslen + j]) {
+							res[aeslen + j] = curNode.getCheckAction(slen, alen, i, pem.AEAction[j]);
+						}
+					}
+				}
+
+				// Check that the component is fulfilling:
+				for (int i = 0; i < plen; i++) {
+					final LNEven promise = oos.getPromises()[i];
+					final TBPar par = curNode.getTNode(oos.getTableau()).getPar();
+					if (par.isFulfilling(promise)) {
+						res[aeslen + aealen + i] = true;
+					}
+				}
+			}
+			return res;
+		}
+	}
+
 	/**
 	 * Print out the error state trace by finding a cycle in the given SCC. The
 	 * method first generates a "bad" cycle from the current scc, and then
@@ -1235,6 +1537,17 @@ public class LiveWorker implements Callable<Boolean> {
 	}
 
 	public final Boolean call() throws IOException, InterruptedException, ExecutionException {
+		final ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+		try {
+			return call(pool);
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+	}
+
+	private final Boolean call(final ForkJoinPool pool) throws IOException, InterruptedException, ExecutionException {
 		while (true) {
 			// Use poll() to get the next checker from the queue or null if
 			// there is none. Do *not* block when there are no more checkers
@@ -1250,13 +1563,20 @@ public class LiveWorker implements Callable<Boolean> {
 			this.oos = checker.getSolution();
 			this.dg = checker.getDiskGraph();
 			this.dg.createCache();
+			this.dg.beginCheck();
+			this.file = this.dg.map();
+			this.node = new MappedGraphNode(this.file);
 			PossibleErrorModel[] pems = this.oos.getPems();
 			for (int i = 0; i < pems.length; i++) {
 				if (!hasErrFound()) {
 					this.pem = pems[i];
-					this.checkSccs(tool);
+					if (pool == null || !this.checkSccs(tool, pool)) {
+						this.checkSccs(tool);
+					}
 				}
 			}
+			this.node = null;
+			this.file = null;
 			this.dg.destroyCache();
 			// Record the size of the disk graph at the time its checked. This
 			// information is later used to decide if it it makes sense to
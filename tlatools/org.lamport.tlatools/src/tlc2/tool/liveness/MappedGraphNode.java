@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.liveness;
+
+/**
+ * A {@link MappedGraphNode} is a reusable, read-only view of a
+ * {@link GraphNode} record in a {@link MappedNodeFile}. Contrary to
+ * {@link AbstractDiskGraph#getNode(long, int, long)}, reading a node neither
+ * creates a {@link GraphNode} nor copies its successors and checks into the
+ * heap. Only the (varint encoded) tableau indices are decoded into an array
+ * that is reused across nodes. Fingerprints and checks are read from the
+ * mapping on demand.
+ * <p>
+ * The view is invalidated by the next call to
+ * {@link #read(long, int, long)}. It is not thread-safe.
+ */
+final class MappedGraphNode {
+
+	private final MappedNodeFile file;
+
+	private long stateFP;
+	private int tindex;
+
+	private int succCnt;
+	private long fpPos;
+	private int[] tidxs = new int[16];
+	private long checksPos;
+	private int checksLen;
+
+	/**
+	 * The position of the next byte to be decoded by {@link #readVarInt()}.
+	 */
+	private long pos;
+
+	MappedGraphNode(final MappedNodeFile file) {
+		this.file = file;
+	}
+
+	/**
+	 * Positions this view on the record of the node &lt;stateFP, tidx&gt; at
+	 * the file location ptr.
+	 */
+	MappedGraphNode read(final long stateFP, final int tidx, final long ptr) {
+		if (ptr < 0) {
+			throw new IllegalArgumentException("Invalid negative file pointer: " + ptr);
+		}
+		this.stateFP = stateFP;
+		this.tindex = tidx;
+
+		this.pos = ptr;
+		this.succCnt = readVarInt();
+		this.fpPos = this.pos;
+		this.pos += 8L * this.succCnt;
+		if (this.tidxs.length < this.succCnt) {
+			this.tidxs = new int[Math.max(this.succCnt, 2 * this.tidxs.length)];
+		}
+		int t = -1;
+		for (int i = 0; i < this.succCnt; i++) {
+			t += GraphNode.unzigzag(readVarInt());
+			this.tidxs[i] = t;
+		}
+		this.checksLen = readVarInt();
+		this.checksPos = this.pos;
+		return this;
+	}
+
+	private int readVarInt() {
+		int n = 0;
+		for (int shift = 0;; shift += 7) {
+			final byte b = this.file.get(this.pos++);
+			n |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return n;
+			}
+		}
+	}
+
+	long getStateFP() {
+		return this.stateFP;
+	}
+
+	int getTidx() {
+		return this.tindex;
+	}
+
+	/* The methods below mirror those of GraphNode and AbstractGraphNode. */
+
+	int succSize() {
+		return this.succCnt;
+	}
+
+	long getStateFP(final int i) {
+		return this.file.getLong(this.fpPos + 8L * i);
+	}
+
+	int getTidx(final int i) {
+		return this.tidxs[i];
+	}
+
+	TBGraphNode getTNode(final TBGraph tableau) {
+		return tableau.getNode(this.tindex);
+	}
+
+	boolean getCheckState(final int i) {
+		return get(i);
+	}
+
+	boolean getCheckAction(final int slen, final int alen, final int nodeIdx, final int i) {
+		return get(slen + alen * nodeIdx + i);
+	}
+
+	boolean getCheckAction(final int slen, final int alen, final int nodeIdx, final int[] is) {
+		final int len = is.length;
+		for (int i = 0; i < len; i++) {
+			if (!get(slen + alen * nodeIdx + is[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean get(final int bit) {
+		final int idx = bit >>> 3;
+		if (idx >= this.checksLen) {
+			// Trailing zero bytes of checks are not stored.
+			return false;
+		}
+		return (this.file.get(this.checksPos + idx) & (1 << (bit & 7))) != 0;
+	}
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.liveness;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * A read-only, memory-mapped view of the nodes_N file of an
+ * {@link AbstractDiskGraph} (see {@link GraphNode#toBytes()} for the format of
+ * its records).
+ * <p>
+ * A single {@link MappedByteBuffer} is limited to 2^31-1 bytes. Thus, the file
+ * is mapped as a sequence of equally sized segments (except for the last one).
+ * Contrary to {@link tlc2.tool.fp.MappedFPFile}, records are of variable length
+ * and may straddle two segments.
+ * <p>
+ * An instance is immutable. The mapping is released by the garbage collector
+ * once the instance becomes unreachable.
+ * 
+ * @see MappedGraphNode
+ */
+final class MappedNodeFile {
+
+	/**
+	 * 1 GiB segments.
+	 */
+	static final int DEFAULT_SEGMENT_SHIFT = 30;
+
+	private final MappedByteBuffer[] segments;
+	private final int shift;
+	private final long mask;
+
+	MappedNodeFile(final String filename, final long length) throws IOException {
+		this(filename, length, DEFAULT_SEGMENT_SHIFT);
+	}
+
+	MappedNodeFile(final String filename, final long length, final int segmentShift) throws IOException {
+		if (segmentShift < 3 || segmentShift > 30) {
+			throw new IllegalArgumentException("Segment size must be in [2^3, 2^30] bytes");
+		}
+		this.shift = segmentShift;
+		this.mask = (1L << segmentShift) - 1L;
+
+		final RandomAccessFile raf = new RandomAccessFile(filename, "r");
+		try {
+			final FileChannel channel = raf.getChannel();
+			final long segmentSize = 1L << segmentShift;
+			final int numSegments = (int) ((length + segmentSize - 1L) >>> segmentShift);
+			this.segments = new MappedByteBuffer[numSegments];
+			for (int i = 0; i < numSegments; i++) {
+				final long position = ((long) i) << segmentShift;
+				this.segments[i] = channel.map(MapMode.READ_ONLY, position, Math.min(segmentSize, length - position));
+			}
+		} finally {
+			// A mapping remains valid after its channel has been closed.
+			raf.close();
+		}
+	}
+
+	final byte get(final long position) {
+		return this.segments[(int) (position >>> shift)].get((int) (position & mask));
+	}
+
+	final long getLong(final long position) {
+		final MappedByteBuffer segment = this.segments[(int) (position >>> shift)];
+		final int offset = (int) (position & mask);
+		if (offset + Long.BYTES <= segment.limit()) {
+			return segment.getLong(offset);
+		}
+		// The long straddles two segments (big-endian like ByteBuffer#getLong).
+		long l = 0L;
+		for (int i = 0; i < Long.BYTES; i++) {
+			l = (l << 8) | (get(position + i) & 0xFFL);
+		}
+		return l;
+	}
+}
@@ -0,0 +1,400 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved.
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.liveness;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import tlc2.TLC;
+import tlc2.TLCGlobals;
+import tlc2.output.EC;
+import tlc2.output.MP;
+import tlc2.tool.AbstractChecker;
+import tlc2.tool.ITool;
+import tlc2.util.IStateWriter;
+import tlc2.util.statistics.IBucketStatistics;
+
+/**
+ * {@link OnTheFlyLiveCheck} is a {@link LiveCheck} that detects liveness
+ * violations while the state space is being explored instead of periodically
+ * searching the complete behavior graph for strongly connected components
+ * (SCC). For each {@link OrderOfSolution}, a background thread receives the
+ * nodes the moment they are written to the {@link AbstractDiskGraph} and adds
+ * them to an {@link IncrementalSCCs} per {@link PossibleErrorModel}.
+ * <p>
+ * The incremental SCCs are built from the edges that satisfy the PEM's
+ * EAActions and are labeled with the AEStates, AEActions and promises, i.e. a
+ * component is accepting iff {@link LiveWorker#checkComponent} would report a
+ * violation for it. Once a background thread finds an accepting component, it
+ * wakes up the main thread which then runs the regular (complete) liveness
+ * check to construct the error trace. Unless a violation is found, the
+ * behavior graph is never searched, not even at the end of model checking.
+ * <p>
+ * The background threads fall back to the regular periodic checks of
+ * {@link LiveCheck} if they run out of memory or if the behavior graph has
+ * been recovered from a checkpoint (the background threads have not seen its
+ * nodes).
+ */
+public class OnTheFlyLiveCheck extends LiveCheck {
+
+	private static final int QueueSize = Integer.getInteger(OnTheFlyLiveCheck.class.getName() + ".queueSize", 1 << 16);
+
+	private static final GraphNode END = new GraphNode(0L, -1);
+
+	private final Detector[] detectors;
+
+	/**
+	 * true iff a background thread found an accepting component that has not
+	 * been reported by {@link #check0(ITool, boolean)} yet.
+	 */
+	private volatile boolean violation = false;
+
+	/**
+	 * true iff a background thread ever found an accepting component.
+	 */
+	private volatile boolean detected = false;
+
+	/**
+	 * false iff at least one background thread stopped to process nodes.
+	 */
+	private volatile boolean complete = true;
+
+	public OnTheFlyLiveCheck(ITool tool, String mdir, IBucketStatistics bucketStatistics, IStateWriter stateWriter)
+			throws IOException {
+		super(tool, mdir, bucketStatistics, stateWriter);
+		this.detectors = new Detector[getNumChecker()];
+		for (int i = 0; i < detectors.length; i++) {
+			detectors[i] = new Detector(getChecker(i).getSolution(), i);
+		}
+		for (int i = 0; i < detectors.length; i++) {
+			detectors[i].start();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.liveness.LiveCheck#addedNode(int, tlc2.tool.liveness.GraphNode)
+	 */
+	@Override
+	protected void addedNode(final int soln, final GraphNode node) throws IOException {
+		if (complete) {
+			detectors[soln].add(node);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.liveness.LiveCheck#doLiveCheck()
+	 */
+	@Override
+	public boolean doLiveCheck() {
+		if (!complete) {
+			return super.doLiveCheck();
+		}
+		return violation;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.liveness.LiveCheck#check(tlc2.tool.ITool, boolean)
+	 */
+	@Override
+	public int check(final ITool tool, final boolean forceCheck) throws Exception {
+		if (!complete) {
+			return super.check(tool, forceCheck);
+		}
+		if (forceCheck || (violation && TLCGlobals.doLiveness())) {
+			return check0(tool, false);
+		}
+		return EC.NO_ERROR;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.liveness.LiveCheck#finalCheck(tlc2.tool.ITool)
+	 */
+	@Override
+	public int finalCheck(final ITool tool) throws InterruptedException, IOException {
+		// All workers are done, wait for the background threads to process the
+		// remaining nodes.
+		for (int i = 0; i < detectors.length; i++) {
+			detectors[i].finish();
+		}
+		if (!complete || detected) {
+			return super.finalCheck(tool);
+		}
+		// No accepting component exists in the complete behavior graph. Still
+		// report that the temporal properties have been checked.
+		final long startTime = System.currentTimeMillis();
+		long sum = 0L;
+		for (int i = 0; i < getNumChecker(); i++) {
+			sum += getChecker(i).getDiskGraph().size();
+		}
+		MP.printMessage(EC.TLC_CHECKING_TEMPORAL_PROPS, new String[] { "complete", Long.toString(sum),
+				getNumChecker() == 1 ? "" : getNumChecker() + " branches of " });
+		MP.printMessage(EC.TLC_CHECKING_TEMPORAL_PROPS_END,
+				TLC.convertRuntimeToHumanReadable(System.currentTimeMillis() - startTime));
+		return EC.NO_ERROR;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.liveness.LiveCheck#check0(tlc2.tool.ITool, boolean)
+	 */
+	@Override
+	protected int check0(final ITool tool, final boolean finalCheck) throws InterruptedException, IOException {
+		final int result = super.check0(tool, finalCheck);
+		// A violation found on the fly is found by the regular check too.
+		violation = false;
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.liveness.LiveCheck#recover()
+	 */
+	@Override
+	public void recover() throws IOException {
+		fallback();
+		super.recover();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.liveness.LiveCheck#reset()
+	 */
+	@Override
+	public void reset() throws IOException {
+		fallback();
+		super.reset();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.liveness.LiveCheck#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		for (int i = 0; i < detectors.length; i++) {
+			detectors[i].terminate();
+		}
+		super.close();
+	}
+
+	private void fallback() {
+		complete = false;
+		for (int i = 0; i < detectors.length; i++) {
+			detectors[i].terminate();
+		}
+	}
+
+	private void found() {
+		detected = true;
+		violation = true;
+		// Wake up the main thread to not wait for the next progress report.
+		final AbstractChecker mainChecker = TLCGlobals.mainChecker;
+		if (mainChecker != null) {
+			synchronized (mainChecker) {
+				mainChecker.notifyAll();
+			}
+		}
+	}
+
+	private final class Detector extends Thread {
+
+		private final BlockingQueue<GraphNode> queue = new ArrayBlockingQueue<GraphNode>(QueueSize);
+		private final NodeIds ids = new NodeIds();
+		private final OrderOfSolution oos;
+		private final PossibleErrorModel[] pems;
+		private final IncrementalSCCs[] sccs;
+		private final int slen;
+		private final int alen;
+		private final int plen;
+
+		public Detector(final OrderOfSolution oos, final int soln) {
+			super("TLCOnTheFlyLiveness-" + soln);
+			setDaemon(true);
+			this.oos = oos;
+			this.pems = oos.getPems();
+			this.slen = oos.getCheckState().length;
+			this.alen = oos.getCheckAction().length;
+			this.plen = oos.hasTableau() ? oos.getPromises().length : 0;
+			this.sccs = new IncrementalSCCs[pems.length];
+			for (int i = 0; i < pems.length; i++) {
+				final PossibleErrorModel pem = pems[i];
+				if (pem.AEState.length + pem.AEAction.length + plen >= 63) {
+					// Labels do not fit into a long.
+					complete = false;
+					return;
+				}
+				final long all = (1L << (pem.AEState.length + pem.AEAction.length + plen)) - 1L;
+				sccs[i] = new IncrementalSCCs(all, pem.AEAction.length > 0);
+			}
+		}
+
+		void add(final GraphNode node) throws IOException {
+			try {
+				queue.put(node);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			}
+		}
+
+		void finish() throws InterruptedException {
+			if (isAlive()) {
+				queue.put(END);
+				join();
+			}
+		}
+
+		void terminate() {
+			// Do not block, a full queue is drained by a running thread.
+			queue.offer(END);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Thread#run()
+		 */
+		@Override
+		public void run() {
+			try {
+				GraphNode node;
+				while ((node = queue.take()) != END && complete) {
+					if (process(node)) {
+						found();
+					}
+				}
+			} catch (InterruptedException e) {
+				complete = false;
+			} catch (OutOfMemoryError e) {
+				// Free the memory before anything else.
+				for (int i = 0; i < sccs.length; i++) {
+					sccs[i] = null;
+				}
+				complete = false;
+				MP.printWarning(EC.GENERAL,
+						"Out of memory detecting liveness violations on the fly, falling back to periodic liveness checking.");
+			}
+			// Unblock workers that raced with complete becoming false.
+			queue.clear();
+		}
+
+		private boolean process(final GraphNode node) {
+			boolean accepting = false;
+			final int u = ids.get(node.stateFP, node.tindex);
+
+			TBPar par = null;
+			if (plen > 0) {
+				par = node.getTNode(oos.getTableau()).getPar();
+			}
+			for (int p = 0; p < pems.length; p++) {
+				final PossibleErrorModel pem = pems[p];
+				long l = 0L;
+				for (int i = 0; i < pem.AEState.length; i++) {
+					if (node.getCheckState(pem.AEState[i])) {
+						l |= 1L << i;
+					}
+				}
+				final int offset = pem.AEState.length + pem.AEAction.length;
+				for (int i = 0; i < plen; i++) {
+					if (par.isFulfilling(oos.getPromises()[i])) {
+						l |= 1L << (offset + i);
+					}
+				}
+				accepting |= sccs[p].label(u, l);
+			}
+
+			final int succCnt = node.succSize();
+			for (int i = 0; i < succCnt; i++) {
+				final int v = ids.get(node.getStateFP(i), node.getTidx(i));
+				for (int p = 0; p < pems.length; p++) {
+					final PossibleErrorModel pem = pems[p];
+					if (!node.getCheckAction(slen, alen, i, pem.EAAction)) {
+						continue;
+					}
+					long l = 0L;
+					for (int j = 0; j < pem.AEAction.length; j++) {
+						if (node.getCheckAction(slen, alen, i, pem.AEAction[j])) {
+							l |= 1L << (pem.AEState.length + j);
+						}
+					}
+					accepting |= sccs[p].addEdge(u, v, l);
+				}
+			}
+			return accepting;
+		}
+	}
+
+	/**
+	 * Maps the nodes <<fp, tidx>> of a behavior graph to consecutive ids.
+	 */
+	private static final class NodeIds {
+
+		private long[] fps = new long[1 << 12];
+		private int[] tidxs = new int[1 << 12];
+		// id + 1 (0 marks an empty slot)
+		private int[] ids = new int[1 << 12];
+		private int size = 0;
+
+		int get(final long fp, final int tidx) {
+			int mask = fps.length - 1;
+			int slot = hash(fp, tidx) & mask;
+			while (ids[slot] != 0) {
+				if (fps[slot] == fp && tidxs[slot] == tidx) {
+					return ids[slot] - 1;
+				}
+				slot = (slot + 1) & mask;
+			}
+			fps[slot] = fp;
+			tidxs[slot] = tidx;
+			ids[slot] = ++size;
+			if (size > (fps.length >>> 1)) {
+				grow();
+			}
+			return size - 1;
+		}
+
+		private void grow() {
+			final long[] oldFps = fps;
+			final int[] oldTidxs = tidxs;
+			final int[] oldIds = ids;
+			fps = new long[oldFps.length << 1];
+			tidxs = new int[oldFps.length << 1];
+			ids = new int[oldFps.length << 1];
+			final int mask = fps.length - 1;
+			for (int i = 0; i < oldFps.length; i++) {
+				if (oldIds[i] != 0) {
+					int slot = hash(oldFps[i], oldTidxs[i]) & mask;
+					while (ids[slot] != 0) {
+						slot = (slot + 1) & mask;
+					}
+					fps[slot] = oldFps[i];
+					tidxs[slot] = oldTidxs[i];
+					ids[slot] = oldIds[i];
+				}
+			}
+		}
+
+		private static int hash(final long fp, final int tidx) {
+			// Fingerprints are uniformly distributed already.
+			return (int) (fp ^ (fp >>> 32)) ^ (tidx * 0x9E3779B9);
+		}
+	}
+}
@@ -0,0 +1,541 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.liveness;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * {@link ParallelSCCs} decomposes a directed graph into its strongly connected
+ * components (SCC) on the threads of a {@link ForkJoinPool}. It is the
+ * forward-backward algorithm (Fleischer, Hendrickson and Pinar, "On
+ * identifying strongly connected components in parallel", IPDPS 2000)
+ * combined with trimming (McLendon et al., "Finding strongly connected
+ * components in distributed graphs", JPDC 2005):
+ * <ul>
+ * <li>Nodes without a predecessor or without a successor in their set are
+ * trivial SCCs and removed first.</li>
+ * <li>The intersection of the nodes reachable from a pivot node (forward) and
+ * the nodes that reach the pivot (backward) is the pivot's SCC. The rest of
+ * the forward set, the rest of the backward set, and the remaining nodes are
+ * closed under SCC membership and are thus decomposed independently. The
+ * former two by new tasks, the latter by picking the next pivot.</li>
+ * <li>The forward and backward closures are computed by a level-synchronous
+ * breadth-first search whose frontier is split across threads.</li>
+ * <li>Small sets are decomposed by (sequential) Tarjan's algorithm.</li>
+ * </ul>
+ * The sets are represented by colors: A node's color identifies the set it is
+ * in. Sets are disjoint, and a node changes its color only by an atomic
+ * compare-and-set from the color of its current set. Thus, no locks are
+ * needed.
+ * <p>
+ * Nodes are identified by consecutive integers starting at 0 and the graph is
+ * given in compressed sparse row format: The successors of node v are
+ * targets[offsets[v]] to targets[offsets[v + 1] - 1].
+ */
+final class ParallelSCCs {
+
+	interface Visitor {
+		/**
+		 * Called for each non-trivial SCC, i.e. an SCC with more than one node or
+		 * a single node with a self loop. Calls can be concurrent and are made
+		 * by the threads of the {@link ForkJoinPool}.
+		 * 
+		 * @return true iff the search is to stop.
+		 */
+		boolean visit(int[] scc);
+	}
+
+	/**
+	 * Sets with at most this many nodes are decomposed with Tarjan's algorithm.
+	 */
+	private static final int SEQUENTIAL_THRESHOLD = 1 << 10;
+	/**
+	 * Frontiers and sets with at most this many nodes are not split across
+	 * threads.
+	 */
+	private static final int SPLIT_THRESHOLD = 1 << 10;
+
+	/**
+	 * The color of nodes removed by trimming. The nodes of an SCC are colored
+	 * with {@link #TRIMMED} - 1 - v where v is one of its nodes.
+	 */
+	private static final int TRIMMED = -1;
+	private static final int NONE = Integer.MIN_VALUE;
+
+	private final int sequentialThreshold;
+	private final int splitThreshold;
+
+	private final int size;
+	private final int[] outOffsets;
+	private final int[] out;
+	private final int[] inOffsets;
+	private final int[] in;
+
+	private final AtomicIntegerArray color;
+	// 0 is the color of the initial set of all nodes.
+	private final AtomicInteger colors = new AtomicInteger(1);
+
+	// Index and lowlink of Tarjan's algorithm. A node is visited by at most one
+	// invocation of tarjan(..), thus no synchronization is needed.
+	private final int[] index;
+	private final int[] low;
+
+	private Visitor visitor;
+	private volatile boolean stop;
+
+	ParallelSCCs(final int size, final int[] offsets, final int[] targets) {
+		this(size, offsets, targets, SEQUENTIAL_THRESHOLD, SPLIT_THRESHOLD);
+	}
+
+	ParallelSCCs(final int size, final int[] offsets, final int[] targets, final int sequentialThreshold,
+			final int splitThreshold) {
+		this.sequentialThreshold = sequentialThreshold;
+		this.splitThreshold = splitThreshold;
+		this.size = size;
+		this.outOffsets = offsets;
+		this.out = targets;
+
+		// Reverse the graph.
+		this.inOffsets = new int[size + 1];
+		for (int i = 0; i < offsets[size]; i++) {
+			this.inOffsets[targets[i] + 1]++;
+		}
+		for (int v = 0; v < size; v++) {
+			this.inOffsets[v + 1] += this.inOffsets[v];
+		}
+		this.in = new int[offsets[size]];
+		final int[] pos = Arrays.copyOf(this.inOffsets, size);
+		for (int v = 0; v < size; v++) {
+			for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+				this.in[pos[targets[i]]++] = v;
+			}
+		}
+
+		this.color = new AtomicIntegerArray(size);
+		this.index = new int[size];
+		this.low = new int[size];
+	}
+
+	/**
+	 * Searches the SCCs and passes the non-trivial ones to the given visitor
+	 * until it asks to stop. Can only be called once.
+	 * 
+	 * @return true iff the visitor stopped the search.
+	 */
+	boolean search(final ForkJoinPool pool, final Visitor visitor) {
+		this.visitor = visitor;
+		final int[] nodes = new int[size];
+		for (int v = 0; v < size; v++) {
+			nodes[v] = v;
+		}
+		pool.invoke(new Decompose(0, nodes, size));
+		return stop;
+	}
+
+	/**
+	 * @return The same value for all nodes of an SCC once the SCC has been
+	 *         passed to the visitor.
+	 */
+	int component(final int v) {
+		return color.get(v);
+	}
+
+	@SuppressWarnings("serial")
+	private final class Decompose extends RecursiveAction {
+
+		private final int c;
+		private final int[] nodes;
+		private int len;
+
+		Decompose(final int c, final int[] nodes, final int len) {
+			this.c = c;
+			this.nodes = nodes;
+			this.len = len;
+		}
+
+		@Override
+		protected void compute() {
+			if (stop) {
+				return;
+			}
+			new Trim(c, nodes, 0, len).invoke();
+			len = retain(c, nodes, len);
+
+			// Contrary to the forward and backward set, the remaining nodes are
+			// not decomposed by a new task. Instead, the next pivot is picked
+			// from them. Otherwise, a graph with many small, disconnected
+			// components would cause a deep recursion with the remaining nodes
+			// being copied over and over again.
+			final List<Decompose> forked = new ArrayList<Decompose>();
+			int remaining = len;
+			for (int p = 0; p < len && !stop; p++) {
+				if (remaining <= sequentialThreshold) {
+					final int[] rest = Arrays.copyOfRange(nodes, p, len);
+					tarjan(c, rest, retain(c, rest, rest.length));
+					break;
+				}
+				final int pivot = nodes[p];
+				if (color.get(pivot) != c) {
+					continue;
+				}
+				final int fwd = colors.getAndIncrement();
+				final int bwd = colors.getAndIncrement();
+				final int scc = colors.getAndIncrement();
+				if (scc < 0) {
+					// Ran out of colors (practically impossible).
+					final int[] rest = Arrays.copyOfRange(nodes, p, len);
+					tarjan(c, rest, retain(c, rest, rest.length));
+					break;
+				}
+
+				color.set(pivot, fwd);
+				final Ints f = closure(pivot, outOffsets, out, c, fwd, NONE, NONE);
+				color.set(pivot, scc);
+				final Ints b = closure(pivot, inOffsets, in, fwd, scc, c, bwd);
+
+				// The pivot's SCC is the intersection of f and b.
+				final Ints sccNodes = new Ints(16);
+				final Ints fwdNodes = new Ints(f.size);
+				for (int i = 0; i < f.size; i++) {
+					final int v = f.elements[i];
+					(color.get(v) == scc ? sccNodes : fwdNodes).add(v);
+				}
+				final Ints bwdNodes = new Ints(b.size);
+				for (int i = 0; i < b.size; i++) {
+					final int v = b.elements[i];
+					if (color.get(v) == bwd) {
+						bwdNodes.add(v);
+					}
+				}
+				remaining -= f.size + bwdNodes.size;
+
+				if (found(Arrays.copyOf(sccNodes.elements, sccNodes.size))) {
+					break;
+				}
+				decompose(fwd, fwdNodes, forked);
+				decompose(bwd, bwdNodes, forked);
+			}
+			for (Decompose d : forked) {
+				d.join();
+			}
+		}
+
+		private void decompose(final int col, final Ints set, final List<Decompose> forked) {
+			if (set.size == 0) {
+				return;
+			} else if (set.size <= sequentialThreshold) {
+				tarjan(col, set.elements, set.size);
+			} else {
+				final Decompose d = new Decompose(col, set.elements, set.size);
+				d.fork();
+				forked.add(d);
+			}
+		}
+	}
+
+	/**
+	 * Colors the nodes of the given SCC with the SCC's final color and passes
+	 * it to the visitor if it is non-trivial.
+	 * 
+	 * @return true iff the search is to stop.
+	 */
+	private boolean found(final int[] scc) {
+		final int col = TRIMMED - 1 - scc[0];
+		for (int i = 0; i < scc.length; i++) {
+			color.set(scc[i], col);
+		}
+		if (scc.length > 1 || hasSelfLoop(scc[0])) {
+			if (visitor.visit(scc)) {
+				stop = true;
+			}
+		}
+		return stop;
+	}
+
+	private boolean hasSelfLoop(final int v) {
+		for (int i = outOffsets[v]; i < outOffsets[v + 1]; i++) {
+			if (out[i] == v) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Moves the nodes with color c to the front of the given array.
+	 * 
+	 * @return The number of nodes with color c.
+	 */
+	private int retain(final int c, final int[] nodes, final int len) {
+		int j = 0;
+		for (int i = 0; i < len; i++) {
+			if (color.get(nodes[i]) == c) {
+				nodes[j++] = nodes[i];
+			}
+		}
+		return j;
+	}
+
+	/**
+	 * Recolors the nodes (transitively) reachable from the given node along
+	 * the given edges and whose color is from1 (from2) with to1 (to2).
+	 * 
+	 * @return The given node and the recolored nodes.
+	 */
+	private Ints closure(final int v, final int[] offsets, final int[] edges, final int from1, final int to1,
+			final int from2, final int to2) {
+		final Ints reached = new Ints(16);
+		reached.add(v);
+		int lo = 0;
+		while (lo < reached.size) {
+			final int hi = reached.size;
+			reached.addAll(new Expand(reached.elements, lo, hi, offsets, edges, from1, to1, from2, to2).invoke());
+			lo = hi;
+		}
+		return reached;
+	}
+
+	/**
+	 * One level of the breadth-first search of
+	 * {@link ParallelSCCs#closure(int, int[], int[], int, int, int, int)}.
+	 */
+	@SuppressWarnings("serial")
+	private final class Expand extends RecursiveTask<Ints> {
+
+		private final int[] frontier;
+		private final int lo;
+		private final int hi;
+		private final int[] offsets;
+		private final int[] edges;
+		private final int from1;
+		private final int to1;
+		private final int from2;
+		private final int to2;
+
+		Expand(final int[] frontier, final int lo, final int hi, final int[] offsets, final int[] edges,
+				final int from1, final int to1, final int from2, final int to2) {
+			this.frontier = frontier;
+			this.lo = lo;
+			this.hi = hi;
+			this.offsets = offsets;
+			this.edges = edges;
+			this.from1 = from1;
+			this.to1 = to1;
+			this.from2 = from2;
+			this.to2 = to2;
+		}
+
+		@Override
+		protected Ints compute() {
+			if (hi - lo > splitThreshold) {
+				final int mid = (lo + hi) >>> 1;
+				final Expand left = new Expand(frontier, lo, mid, offsets, edges, from1, to1, from2, to2);
+				final Expand right = new Expand(frontier, mid, hi, offsets, edges, from1, to1, from2, to2);
+				invokeAll(left, right);
+				return left.join().addAll(right.join());
+			}
+			final Ints next = new Ints(hi - lo);
+			for (int i = lo; i < hi; i++) {
+				final int v = frontier[i];
+				for (int j = offsets[v]; j < offsets[v + 1]; j++) {
+					final int w = edges[j];
+					if (color.compareAndSet(w, from1, to1) || (from2 != NONE && color.compareAndSet(w, from2, to2))) {
+						next.add(w);
+					}
+				}
+			}
+			return next;
+		}
+	}
+
+	/**
+	 * Removes the nodes with color c that have no predecessor or no successor
+	 * with color c, and then the nodes for which this holds after the removal
+	 * of their neighbors.
+	 * <p>
+	 * Two threads which concurrently remove two neighbors of a node both
+	 * re-check the node afterwards. Because the colors are read and written
+	 * atomically, at least one of them observes both removals. Either way,
+	 * trimming is an optimization: A node that escapes trimming is found to be
+	 * a trivial SCC by the forward-backward search.
+	 */
+	@SuppressWarnings("serial")
+	private final class Trim extends RecursiveAction {
+
+		private final int c;
+		private final int[] nodes;
+		private final int lo;
+		private final int hi;
+
+		Trim(final int c, final int[] nodes, final int lo, final int hi) {
+			this.c = c;
+			this.nodes = nodes;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo > splitThreshold) {
+				final int mid = (lo + hi) >>> 1;
+				invokeAll(new Trim(c, nodes, lo, mid), new Trim(c, nodes, mid, hi));
+				return;
+			}
+			final Ints stack = new Ints(16);
+			for (int i = lo; i < hi; i++) {
+				if (trim(nodes[i])) {
+					stack.add(nodes[i]);
+					while (stack.size > 0) {
+						final int v = stack.elements[--stack.size];
+						for (int j = outOffsets[v]; j < outOffsets[v + 1]; j++) {
+							if (trim(out[j])) {
+								stack.add(out[j]);
+							}
+						}
+						for (int j = inOffsets[v]; j < inOffsets[v + 1]; j++) {
+							if (trim(in[j])) {
+								stack.add(in[j]);
+							}
+						}
+					}
+				}
+			}
+		}
+
+		private boolean trim(final int v) {
+			return color.get(v) == c && (!hasNeighbor(v, inOffsets, in) || !hasNeighbor(v, outOffsets, out))
+					&& color.compareAndSet(v, c, TRIMMED);
+		}
+
+		private boolean hasNeighbor(final int v, final int[] offsets, final int[] edges) {
+			for (int j = offsets[v]; j < offsets[v + 1]; j++) {
+				if (color.get(edges[j]) == c) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Tarjan's algorithm (iteratively) on the subgraph induced by the nodes
+	 * with color c. A visited node is on Tarjan's stack iff it still has color
+	 * c.
+	 */
+	private void tarjan(final int c, final int[] nodes, final int len) {
+		final int[] stack = new int[len];
+		int sp = 0;
+		// The call stack of the depth-first search and the next edge of each
+		// node on it.
+		final int[] calls = new int[len];
+		final int[] edges = new int[len];
+		int csp = 0;
+		int counter = 0;
+		for (int r = 0; r < len; r++) {
+			final int root = nodes[r];
+			if (color.get(root) != c || index[root] != 0) {
+				continue;
+			}
+			index[root] = low[root] = ++counter;
+			stack[sp++] = root;
+			calls[csp] = root;
+			edges[csp++] = outOffsets[root];
+
+			while (csp > 0) {
+				final int v = calls[csp - 1];
+				final int e = edges[csp - 1];
+				if (e < outOffsets[v + 1]) {
+					edges[csp - 1] = e + 1;
+					final int w = out[e];
+					if (color.get(w) != c) {
+						continue;
+					}
+					if (index[w] == 0) {
+						index[w] = low[w] = ++counter;
+						stack[sp++] = w;
+						calls[csp] = w;
+						edges[csp++] = outOffsets[w];
+					} else {
+						low[v] = Math.min(low[v], index[w]);
+					}
+				} else {
+					csp--;
+					if (low[v] == index[v]) {
+						int i = sp - 1;
+						while (stack[i] != v) {
+							i--;
+						}
+						final int[] scc = Arrays.copyOfRange(stack, i, sp);
+						sp = i;
+						if (found(scc)) {
+							return;
+						}
+					}
+					if (csp > 0) {
+						final int u = calls[csp - 1];
+						low[u] = Math.min(low[u], low[v]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * A growable array of ints.
+	 */
+	private static final class Ints {
+
+		private int[] elements;
+		private int size;
+
+		Ints(final int capacity) {
+			this.elements = new int[Math.max(capacity, 1)];
+		}
+
+		void add(final int i) {
+			if (size == elements.length) {
+				elements = Arrays.copyOf(elements, 2 * size);
+			}
+			elements[size++] = i;
+		}
+
+		Ints addAll(final Ints other) {
+			if (size + other.size > elements.length) {
+				elements = Arrays.copyOf(elements, size + other.size);
+			}
+			System.arraycopy(other.elements, 0, elements, size, other.size);
+			size += other.size;
+			return this;
+		}
+	}
+}
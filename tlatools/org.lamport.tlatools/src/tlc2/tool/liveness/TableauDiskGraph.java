@@ -196,6 +196,7 @@ public class TableauDiskGraph extends AbstractDiskGraph {
 		this.nodePtrRAF.setLength(0);
 		this.nodeRAF.setLength(0);
 		this.nodePtrTbl = new TableauNodePtrTable(255);
+		resetCheck();
 	 }
 
 	/* (non-Javadoc)
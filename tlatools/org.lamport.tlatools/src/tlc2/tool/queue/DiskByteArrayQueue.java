@@ -70,6 +70,12 @@ public class DiskByteArrayQueue extends ByteArrayQueue {
 	protected final StatePoolCleaner cleaner;
 	private int loPool, hiPool, lastLoPool, newLastLoPool;
 	private File loFile;
+	/**
+	 * The snapshot taken by beginChkpt and written by commitChkpt.
+	 */
+	private long chkptLen;
+	private int chkptLoPool, chkptHiPool, chkptDeqIndex;
+	private byte[][] chkptEnq, chkptDeq;
 	
 	// TESTING ONLY!
 	DiskByteArrayQueue() throws IOException {
@@ -184,26 +190,37 @@ public class DiskByteArrayQueue extends ByteArrayQueue {
 			this.cleaner.notifyAll();
 		}
 		
+		// Only copy the references to the buffered states (see
+		// DiskStateQueue#beginChkpt).
+		this.chkptLen = this.len;
+		this.chkptLoPool = this.loPool;
+		this.chkptHiPool = this.hiPool;
+		this.chkptDeqIndex = this.deqIndex;
+		this.chkptEnq = Arrays.copyOf(this.enqBuf, this.enqIndex);
+		this.chkptDeq = Arrays.copyOfRange(this.deqBuf, this.deqIndex, this.deqBuf.length);
+		this.newLastLoPool = this.loPool - 1;
+	}
+
+	public final void commitChkpt() throws IOException {
 		String filename = this.filePrefix + "queue.tmp";
 	  	final BufferedDataOutputStream vos = new BufferedDataOutputStream(filename);
-		vos.writeLong(this.len);
-		vos.writeInt(this.loPool);
-		vos.writeInt(this.hiPool);
-		vos.writeInt(this.enqIndex);
-		vos.writeInt(this.deqIndex);
-		for (int i = 0; i < this.enqIndex; i++) {
-	  		vos.writeInt(this.enqBuf[i].length);
-	  		vos.write(this.enqBuf[i]);
-		}
-		for (int i = this.deqIndex; i < this.deqBuf.length; i++) {
-	  		vos.writeInt(this.deqBuf[i].length);
-	  		vos.write(this.deqBuf[i]);
+		vos.writeLong(this.chkptLen);
+		vos.writeInt(this.chkptLoPool);
+		vos.writeInt(this.chkptHiPool);
+		vos.writeInt(this.chkptEnq.length);
+		vos.writeInt(this.chkptDeqIndex);
+		for (int i = 0; i < this.chkptEnq.length; i++) {
+	  		vos.writeInt(this.chkptEnq[i].length);
+	  		vos.write(this.chkptEnq[i]);
+		}
+		for (int i = 0; i < this.chkptDeq.length; i++) {
+	  		vos.writeInt(this.chkptDeq[i].length);
+	  		vos.write(this.chkptDeq[i]);
 		}
 		vos.close();
-		this.newLastLoPool = this.loPool - 1;
-	}
+		this.chkptEnq = null;
+		this.chkptDeq = null;
 
-	public final void commitChkpt() throws IOException {
 		for (int i = this.lastLoPool; i < this.newLastLoPool; i++) {
 			String pstr = Integer.toString(i);
 			File oldPool = new File(this.filePrefix + pstr);
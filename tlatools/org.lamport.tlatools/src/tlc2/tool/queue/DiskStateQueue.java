@@ -8,6 +8,7 @@ package tlc2.tool.queue;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.Arrays;
 
 import tlc2.output.EC;
 import tlc2.output.MP;
@@ -51,6 +52,12 @@ public class DiskStateQueue extends StateQueue {
 	protected final StatePoolCleaner cleaner;
 	private int loPool, hiPool, lastLoPool, newLastLoPool;
 	private File loFile;
+	/**
+	 * The snapshot taken by beginChkpt and written by commitChkpt.
+	 */
+	private long chkptLen;
+	private int chkptLoPool, chkptHiPool, chkptDeqIndex;
+	private TLCState[] chkptEnq, chkptDeq;
 
 	// TESTING ONLY!
 	DiskStateQueue() throws IOException {
@@ -168,24 +175,36 @@ public class DiskStateQueue extends StateQueue {
 			this.cleaner.notifyAll();
 		}
 		
+		// Only copy the references to the buffered states. The states themselves
+		// are not modified once enqueued, and the pool files are not deleted
+		// before commitChkpt, which writes the snapshot while the workers run.
+		this.chkptLen = this.len;
+		this.chkptLoPool = this.loPool;
+		this.chkptHiPool = this.hiPool;
+		this.chkptDeqIndex = this.deqIndex;
+		this.chkptEnq = Arrays.copyOf(this.enqBuf, this.enqIndex);
+		this.chkptDeq = Arrays.copyOfRange(this.deqBuf, this.deqIndex, this.deqBuf.length);
+		this.newLastLoPool = this.loPool - 1;
+	}
+
+	public final void commitChkpt() throws IOException {
 		String filename = this.filePrefix + "queue.tmp";
 		ValueOutputStream vos = new ValueOutputStream(filename);
-		vos.writeLongNat(this.len);
-		vos.writeInt(this.loPool);
-		vos.writeInt(this.hiPool);
-		vos.writeInt(this.enqIndex);
-		vos.writeInt(this.deqIndex);
-		for (int i = 0; i < this.enqIndex; i++) {
-			this.enqBuf[i].write(vos);
+		vos.writeLongNat(this.chkptLen);
+		vos.writeInt(this.chkptLoPool);
+		vos.writeInt(this.chkptHiPool);
+		vos.writeInt(this.chkptEnq.length);
+		vos.writeInt(this.chkptDeqIndex);
+		for (int i = 0; i < this.chkptEnq.length; i++) {
+			this.chkptEnq[i].write(vos);
 		}
-		for (int i = this.deqIndex; i < this.deqBuf.length; i++) {
-			this.deqBuf[i].write(vos);
+		for (int i = 0; i < this.chkptDeq.length; i++) {
+			this.chkptDeq[i].write(vos);
 		}
 		vos.close();
-		this.newLastLoPool = this.loPool - 1;
-	}
+		this.chkptEnq = null;
+		this.chkptDeq = null;
 
-	public final void commitChkpt() throws IOException {
 		for (int i = this.lastLoPool; i < this.newLastLoPool; i++) {
 			String pstr = Integer.toString(i);
 			File oldPool = new File(this.filePrefix + pstr);
@@ -78,8 +78,20 @@ public interface IStateQueue {
 	public abstract long size();
 
 	/* Checkpoint. */
+
+	/**
+	 * Takes a snapshot of the queue's content. It is called while all workers
+	 * are suspended (see {@link #suspendAll()}) and thus should not do any I/O
+	 * that is proportional to the size of the queue. Instead, such I/O belongs
+	 * into {@link #commitChkpt()}.
+	 */
 	public abstract void beginChkpt() throws IOException;
 
+	/**
+	 * Writes the snapshot taken by {@link #beginChkpt()} to disk. It is called
+	 * after the workers have been resumed and thus runs concurrently with
+	 * {@link #sEnqueue(TLCState)} and {@link #sDequeue()}.
+	 */
 	public abstract void commitChkpt() throws IOException;
 
 	public abstract void recover() throws IOException;
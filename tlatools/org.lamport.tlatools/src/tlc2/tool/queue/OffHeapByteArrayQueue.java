@@ -0,0 +1,537 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved.
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.queue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import tlc2.output.EC;
+import util.Assert;
+import util.FileUtil;
+import util.TLCRuntime;
+
+/**
+ * An {@link OffHeapByteArrayQueue} keeps the serialized states (see
+ * {@link ByteArrayQueue}) in a sequence of fixed-size, direct (off-heap)
+ * {@link ByteBuffer} segments. Contrary to {@link MemStateQueue}, the states do
+ * not occupy the Java heap (and thus do not burden the garbage collector), and
+ * contrary to {@link DiskByteArrayQueue}, no state is written to disk as long as
+ * all segments fit into the memory budget.
+ * <p>
+ * Once the budget is exhausted, the segment that has just been filled up is
+ * swapped to disk whereas the first (dequeue) and the last (enqueue) segment
+ * always remain in memory. Since states are dequeued in FIFO order, the swapped
+ * segments are the ones that are needed last. A swapped segment is read back
+ * into memory when it becomes the first segment.
+ * <p>
+ * Each state is stored as its length (an int) followed by its bytes.
+ */
+public class OffHeapByteArrayQueue extends ByteArrayQueue {
+
+	/**
+	 * The size of a segment in bytes. A state whose serialized form exceeds the
+	 * segment size gets a segment of its own.
+	 */
+	private static final int SegmentSize = Integer.getInteger(OffHeapByteArrayQueue.class.getName() + ".segmentSize",
+			1 << 22);
+
+	/**
+	 * The default memory budget is a quarter of the JVM's direct memory (see
+	 * -XX:MaxDirectMemorySize) because the rest goes to e.g. the
+	 * {@link tlc2.tool.fp.OffHeapDiskFPSet}.
+	 */
+	private static final long MaxMemory = Long.getLong(OffHeapByteArrayQueue.class.getName() + ".maxMemory",
+			TLCRuntime.getInstance().getNonHeapPhysicalMemory() / 4L);
+
+	private static final class Segment {
+		/**
+		 * The enqueue (write) view of the segment, null iff the segment has been
+		 * swapped to disk.
+		 */
+		private ByteBuffer w;
+		/**
+		 * The dequeue (read) view sharing its content with w.
+		 */
+		private ByteBuffer r;
+		/**
+		 * The swap file iff the segment has been swapped to disk, -1 otherwise.
+		 */
+		private int id = -1;
+		/**
+		 * The number of bytes in the swap file.
+		 */
+		private int size;
+		/**
+		 * The file to which a checkpoint has written the content of this
+		 * (in-memory) segment, -1 if none. Subsequent checkpoints reference the
+		 * file instead of writing the content again, and so does swapOut.
+		 */
+		private int persisted = -1;
+
+		private Segment(final ByteBuffer buf) {
+			setBuffer(buf);
+		}
+
+		private Segment(final int id, final int size) {
+			this.id = id;
+			this.size = size;
+		}
+
+		private void setBuffer(final ByteBuffer buf) {
+			this.w = buf;
+			this.r = buf.duplicate();
+			this.r.clear();
+		}
+
+		private boolean isSwapped() {
+			return this.w == null;
+		}
+
+		private boolean hasRemaining() {
+			return this.r.position() < this.w.position();
+		}
+	}
+
+	private final String filePrefix;
+	private final int segmentSize;
+	/**
+	 * The maximum number of (regular-sized) segments that are kept in memory.
+	 * Never less than two, the first and the last segment.
+	 */
+	private int maxSegments;
+	private int inMemory = 0;
+	private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+	/**
+	 * Buffers of dequeued segments to be reused by new segments.
+	 */
+	private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+
+	/**
+	 * The id of the next swap file.
+	 */
+	private int nextId = 0;
+	/**
+	 * Swap files whose id is lower than keepBelow are referenced by a
+	 * checkpoint and thus must not be deleted right after they have been read
+	 * back. The ids of such files are collected in consumed and are deleted by
+	 * the commit of the next checkpoint (obsolete).
+	 */
+	private int keepBelow = 0;
+	private final List<Integer> consumed = new ArrayList<>();
+	private final List<Integer> obsolete = new ArrayList<>();
+
+	/**
+	 * The snapshot taken by beginChkpt and written by commitChkpt: For each
+	 * segment, either a file (chkptIds and chkptSizes) or, if chkptIds is -1, a
+	 * read-only view of its content. A view paired with a file is the content
+	 * to be written to the file.
+	 */
+	private long chkptLen;
+	private int chkptNextId;
+	private ByteBuffer[] chkptContent;
+	private int[] chkptIds;
+	private int[] chkptSizes;
+	/**
+	 * True from beginChkpt until commitChkpt has written the snapshot. Buffers of
+	 * the snapshot must neither be reused nor cleared in the meantime, thus their
+	 * release is deferred.
+	 */
+	private boolean pinned = false;
+	private final List<ByteBuffer> deferred = new ArrayList<>();
+
+	// TESTING ONLY!
+	OffHeapByteArrayQueue(final int segmentSize, final int maxSegments) throws IOException {
+		this(Files.createTempDirectory("OffHeapByteArrayQueue").toFile().toString(), segmentSize, maxSegments);
+	}
+
+	public OffHeapByteArrayQueue(final String diskdir) {
+		this(diskdir, SegmentSize, (int) Math.min(Integer.MAX_VALUE, MaxMemory / SegmentSize));
+	}
+
+	OffHeapByteArrayQueue(final String diskdir, final int segmentSize, final int maxSegments) {
+		this.filePrefix = diskdir + FileUtil.separator;
+		this.segmentSize = segmentSize;
+		this.maxSegments = Math.max(2, maxSegments);
+	}
+
+	String getDiskdir() {
+		return this.filePrefix;
+	}
+
+	final void enqueueInner(final byte[] state) {
+		final int need = 4 + state.length;
+		Segment tail = this.segments.peekLast();
+		if (tail == null || tail.isSwapped() || tail.w.remaining() < need) {
+			tail = newTail(tail, need);
+		}
+		tail.w.putInt(state.length);
+		tail.w.put(state);
+	}
+
+	final byte[] dequeueInner() {
+		final Segment head = head();
+		final byte[] state = new byte[head.r.getInt()];
+		head.r.get(state);
+		if (!head.hasRemaining() && this.segments.size() == 1 && !this.pinned) {
+			// The queue is empty, start over at the beginning of the segment.
+			head.w.clear();
+			head.r.clear();
+		}
+		return state;
+	}
+
+	final byte[] peekInner() {
+		final Segment head = head();
+		final int pos = head.r.position();
+		final byte[] state = new byte[head.r.getInt()];
+		head.r.get(state);
+		head.r.position(pos);
+		return state;
+	}
+
+	private final Segment head() {
+		Segment head = this.segments.peekFirst();
+		if (!head.hasRemaining()) {
+			// The first segment has been consumed, continue with the next one.
+			this.segments.pollFirst();
+			release(head.w);
+			try {
+				if (head.persisted >= 0) {
+					discard(head.persisted);
+				}
+				head = this.segments.peekFirst();
+				if (head.isSwapped()) {
+					swapIn(head);
+				}
+			} catch (IOException e) {
+				Assert.fail(EC.SYSTEM_ERROR_READING_STATES,
+						new String[] { "queue", (e.getMessage() == null) ? e.toString() : e.getMessage() });
+			}
+		}
+		return head;
+	}
+
+	private final Segment newTail(final Segment full, final int need) {
+		if (full != null && !full.isSwapped() && full != this.segments.peekFirst()
+				&& this.inMemory >= this.maxSegments) {
+			try {
+				swapOut(full);
+			} catch (IOException e) {
+				Assert.fail(EC.SYSTEM_ERROR_WRITING_STATES,
+						new String[] { "queue", (e.getMessage() == null) ? e.toString() : e.getMessage() });
+			}
+		}
+		final Segment tail = new Segment(allocate(need));
+		this.segments.addLast(tail);
+		return tail;
+	}
+
+	private final ByteBuffer allocate(final int need) {
+		ByteBuffer buf = need <= this.segmentSize ? this.free.pollFirst() : null;
+		if (buf != null) {
+			buf.clear();
+		} else {
+			try {
+				buf = ByteBuffer.allocateDirect(Math.max(this.segmentSize, need));
+			} catch (OutOfMemoryError e) {
+				// Out of direct memory before the budget is exhausted. Lower the
+				// budget to what has been allocated so far.
+				final Segment full = this.segments.peekLast();
+				if (full == null || full.isSwapped() || full == this.segments.peekFirst()) {
+					throw e;
+				}
+				this.maxSegments = Math.max(2, this.inMemory);
+				try {
+					swapOut(full);
+				} catch (IOException ioe) {
+					Assert.fail(EC.SYSTEM_ERROR_WRITING_STATES, new String[] { "queue",
+							(ioe.getMessage() == null) ? ioe.toString() : ioe.getMessage() });
+				}
+				return allocate(need);
+			}
+		}
+		this.inMemory++;
+		return buf;
+	}
+
+	private final void release(final ByteBuffer buf) {
+		if (this.pinned) {
+			this.deferred.add(buf);
+			return;
+		}
+		this.inMemory--;
+		if (buf.capacity() == this.segmentSize) {
+			this.free.addFirst(buf);
+		}
+	}
+
+	private final File getFile(final int id) {
+		return new File(this.filePrefix + Integer.toString(id));
+	}
+
+	private final void swapOut(final Segment segment) throws IOException {
+		final ByteBuffer buf = segment.w;
+		buf.flip();
+		if (segment.persisted >= 0 && !this.pinned) {
+			// A committed checkpoint has already written the segment.
+			segment.id = segment.persisted;
+		} else {
+			try (FileChannel ch = FileChannel.open(getFile(this.nextId).toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				while (buf.hasRemaining()) {
+					ch.write(buf);
+				}
+			}
+			segment.id = this.nextId++;
+			if (segment.persisted >= 0) {
+				// The checkpoint being committed writes the file concurrently.
+				discard(segment.persisted);
+			}
+		}
+		segment.persisted = -1;
+		segment.size = buf.limit();
+		segment.w = null;
+		segment.r = null;
+		release(buf);
+	}
+
+	private final void swapIn(final Segment segment) throws IOException {
+		final ByteBuffer buf = allocate(segment.size);
+		read(getFile(segment.id), buf, segment.size);
+		segment.setBuffer(buf);
+		discard(segment.id);
+		segment.id = -1;
+	}
+
+	/**
+	 * Deletes the given file unless the current checkpoint references it.
+	 */
+	private final void discard(final int id) throws IOException {
+		if (id >= this.keepBelow) {
+			if (!getFile(id).delete()) {
+				throw new IOException("OffHeapByteArrayQueue: cannot delete " + getFile(id));
+			}
+		} else {
+			this.consumed.add(id);
+		}
+	}
+
+	private static void read(final File file, final ByteBuffer buf, final int size) throws IOException {
+		try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			read(ch, buf, size);
+		}
+	}
+
+	private static void read(final FileChannel ch, final ByteBuffer buf, final int size) throws IOException {
+		buf.limit(buf.position() + size);
+		while (buf.hasRemaining()) {
+			if (ch.read(buf) < 0) {
+				throw new IOException("OffHeapByteArrayQueue: unexpected end of file");
+			}
+		}
+		buf.limit(buf.capacity());
+	}
+
+	/* Checkpoint. */
+
+	/*
+	 * A checkpoint is incremental: The swap files become part of the checkpoint
+	 * and are thus kept until the next checkpoint has been committed. Of the
+	 * segments in memory, only the first and the last segment are written to
+	 * the checkpoint itself. All other in-memory segments are full and do not
+	 * change until they have become the first segment. Each of them is written
+	 * to a file of its own by the first checkpoint that sees it, and referenced
+	 * by subsequent ones (like a swap file). Files are deleted once their
+	 * segment has been dequeued, hence the chain of files never outgrows the
+	 * queue and needs no compaction.
+	 * 
+	 * beginChkpt merely pins the in-memory segments, which commitChkpt writes
+	 * while the workers continue to enqueue (behind the pinned content) and
+	 * dequeue (without releasing a pinned buffer).
+	 */
+	public final void beginChkpt() throws IOException {
+		this.obsolete.addAll(this.consumed);
+		this.consumed.clear();
+
+		this.chkptLen = this.len;
+		this.chkptContent = new ByteBuffer[this.segments.size()];
+		this.chkptIds = new int[this.segments.size()];
+		this.chkptSizes = new int[this.segments.size()];
+		final Segment first = this.segments.peekFirst();
+		final Segment last = this.segments.peekLast();
+		int i = 0;
+		for (Segment segment : this.segments) {
+			if (segment.isSwapped()) {
+				this.chkptIds[i] = segment.id;
+				this.chkptSizes[i] = segment.size;
+			} else if (segment != first && segment != last) {
+				if (segment.persisted < 0) {
+					segment.persisted = this.nextId++;
+					this.chkptContent[i] = segment.r.duplicate();
+					this.chkptContent[i].limit(segment.w.position());
+				}
+				this.chkptIds[i] = segment.persisted;
+				this.chkptSizes[i] = segment.w.position();
+			} else {
+				if (segment.persisted >= 0) {
+					// The (partially dequeued) first segment is written again.
+					this.obsolete.add(segment.persisted);
+					segment.persisted = -1;
+				}
+				this.chkptIds[i] = -1;
+				this.chkptContent[i] = segment.r.duplicate();
+				this.chkptContent[i].limit(segment.w.position());
+			}
+			i++;
+		}
+		this.keepBelow = this.nextId;
+		this.chkptNextId = this.nextId;
+		this.pinned = true;
+	}
+
+	private static void write(final FileChannel ch, final ByteBuffer buf) throws IOException {
+		while (buf.hasRemaining()) {
+			ch.write(buf);
+		}
+	}
+
+	public final void commitChkpt() throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(16);
+		try {
+			for (int i = 0; i < this.chkptContent.length; i++) {
+				if (this.chkptIds[i] >= 0 && this.chkptContent[i] != null) {
+					try (FileChannel ch = FileChannel.open(getFile(this.chkptIds[i]).toPath(),
+							StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+							StandardOpenOption.TRUNCATE_EXISTING)) {
+						write(ch, this.chkptContent[i]);
+					}
+				}
+			}
+			try (FileChannel ch = FileChannel.open(new File(this.filePrefix + "queue.tmp").toPath(),
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				header.putLong(this.chkptLen).putInt(this.chkptNextId).putInt(this.chkptContent.length).flip();
+				write(ch, header);
+				for (int i = 0; i < this.chkptContent.length; i++) {
+					header.clear();
+					if (this.chkptIds[i] >= 0) {
+						header.putInt(this.chkptIds[i]).putInt(this.chkptSizes[i]).flip();
+						write(ch, header);
+					} else {
+						final ByteBuffer content = this.chkptContent[i];
+						header.putInt(-1).putInt(content.remaining()).flip();
+						write(ch, header);
+						write(ch, content);
+					}
+				}
+			}
+		} finally {
+			// Unpin the snapshot's buffers (synchronized with the workers, see
+			// ByteArrayQueue).
+			synchronized (this) {
+				this.pinned = false;
+				for (ByteBuffer buf : this.deferred) {
+					release(buf);
+				}
+				this.deferred.clear();
+			}
+			this.chkptContent = null;
+		}
+
+		final File oldChkpt = new File(this.filePrefix + "queue.chkpt");
+		final File newChkpt = new File(this.filePrefix + "queue.tmp");
+		if ((oldChkpt.exists() && !oldChkpt.delete()) || !newChkpt.renameTo(oldChkpt)) {
+			throw new IOException("OffHeapByteArrayQueue.commitChkpt: cannot delete " + oldChkpt);
+		}
+		// Delete the files of the previous checkpoint only after the new one is
+		// in place.
+		for (Integer id : this.obsolete) {
+			final File oldPool = getFile(id);
+			if (!oldPool.delete()) {
+				throw new IOException("OffHeapByteArrayQueue.commitChkpt: cannot delete " + oldPool);
+			}
+		}
+		this.obsolete.clear();
+	}
+
+	public final void recover() throws IOException {
+		while (!this.segments.isEmpty()) {
+			final Segment segment = this.segments.pollFirst();
+			if (!segment.isSwapped()) {
+				release(segment.w);
+			}
+		}
+		this.consumed.clear();
+		this.obsolete.clear();
+
+		final ByteBuffer header = ByteBuffer.allocate(16);
+		try (FileChannel ch = FileChannel.open(new File(this.filePrefix + "queue.chkpt").toPath(),
+				StandardOpenOption.READ)) {
+			read(ch, header, 16);
+			header.flip();
+			this.len = header.getLong();
+			this.nextId = header.getInt();
+			this.keepBelow = this.nextId;
+			final int size = header.getInt();
+			for (int i = 0; i < size; i++) {
+				header.clear();
+				read(ch, header, 8);
+				header.flip();
+				final int id = header.getInt();
+				final int bytes = header.getInt();
+				if (id >= 0) {
+					this.segments.addLast(new Segment(id, bytes));
+				} else {
+					final ByteBuffer buf = allocate(bytes);
+					read(ch, buf, bytes);
+					this.segments.addLast(new Segment(buf));
+				}
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#delete()
+	 */
+	@Override
+	public void delete() {
+		finishAll();
+		for (Segment segment : this.segments) {
+			if (segment.isSwapped()) {
+				getFile(segment.id).delete();
+			} else if (segment.persisted >= 0) {
+				getFile(segment.persisted).delete();
+			}
+		}
+		new File(this.filePrefix).delete();
+	}
+}
@@ -0,0 +1,596 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.queue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import tlc2.TLCGlobals;
+import tlc2.output.EC;
+import tlc2.output.MP;
+import tlc2.tool.StateVec;
+import tlc2.tool.TLCState;
+import tlc2.tool.Worker;
+import tlc2.util.IdThread;
+import tlc2.value.ValueInputStream;
+import tlc2.value.ValueOutputStream;
+import util.FileUtil;
+
+/**
+ * A {@link WorkStealingStateQueue} gives each {@link Worker} its own in-memory
+ * deque instead of funneling all workers through the single monitor of
+ * {@link StateQueue}. A worker appends its successor states to a private batch
+ * that is published to its deque at the latest when the worker asks for its
+ * next state. When its own deque runs dry, a worker steals half of the states
+ * of another worker's deque. Only when stealing fails too, a worker falls back
+ * to the (synchronized) slow-path which implements the same
+ * {@link #suspendAll()}/{@link #resumeAll()} checkpoint protocol and
+ * {@link #finishAll()} termination detection as {@link StateQueue}.
+ * <p>
+ * States are dequeued in FIFO order per deque and stolen from the head of the
+ * victim's deque. Thus, the search order is close to, but no longer strictly,
+ * breadth-first. A counter-example is still valid but not necessarily the
+ * shortest one.
+ * <p>
+ * Threads other than the {@link Worker}s (e.g. the main thread generating the
+ * initial states) share an additional deque.
+ * <p>
+ * Like {@link MemStateQueue}, this queue keeps all states on the heap.
+ */
+public class WorkStealingStateQueue implements IStateQueue {
+
+	/**
+	 * The number of successor states a worker accumulates locally before it
+	 * publishes them to its deque.
+	 */
+	private static final int BatchSize = Integer.getInteger(WorkStealingStateQueue.class.getName() + ".BatchSize", 64);
+
+	private final WorkDeque[] deques;
+	/**
+	 * The index of the deque shared by all non-worker threads.
+	 */
+	private final int shared;
+	private final int numWorkers;
+	private final String diskdir;
+
+	/**
+	 * The number of states published to the deques (this excludes the states in
+	 * the workers' local batches).
+	 */
+	private final AtomicLong len = new AtomicLong();
+
+	/**
+	 * The snapshot taken by beginChkpt and written by commitChkpt.
+	 */
+	private List<TLCState> chkpt;
+
+	/*
+	 * The fields below are the slow-path counterparts of StateQueue's fields.
+	 * numWaiting and stop are only ever written while holding the lock on this.
+	 */
+	private volatile int numWaiting = 0;
+	private volatile boolean finish = false;
+	private volatile boolean stop = false;
+	private final Object mu = new Object();
+
+	/**
+	 * TESTING ONLY!
+	 */
+	WorkStealingStateQueue() throws IOException {
+		this(Files.createTempDirectory("WorkStealingStateQueue").toFile().toString());
+	}
+
+	public WorkStealingStateQueue(final String metadir) {
+		this(metadir, TLCGlobals.getNumWorkers());
+	}
+
+	WorkStealingStateQueue(final String metadir, final int numWorkers) {
+		this.diskdir = metadir;
+		this.numWorkers = numWorkers;
+		this.shared = numWorkers;
+		this.deques = new WorkDeque[numWorkers + 1];
+		for (int i = 0; i < deques.length; i++) {
+			this.deques[i] = new WorkDeque();
+		}
+	}
+
+	/**
+	 * @return The index of the deque owned by the calling thread, or the index of
+	 *         the shared deque if the caller is not a worker.
+	 */
+	private final int getIndex() {
+		final int id = IdThread.GetId(shared);
+		return id >= 0 && id < shared ? id : shared;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#enqueue(tlc2.tool.TLCState)
+	 */
+	public final void enqueue(final TLCState state) {
+		this.deques[shared].add(state);
+		this.len.incrementAndGet();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#dequeue()
+	 */
+	public final TLCState dequeue() {
+		for (int i = 0; i < deques.length; i++) {
+			final TLCState state = this.deques[(shared + i) % deques.length].poll();
+			if (state != null) {
+				this.len.decrementAndGet();
+				return state;
+			}
+		}
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#sEnqueue(tlc2.tool.TLCState)
+	 */
+	public final void sEnqueue(final TLCState state) {
+		final int idx = getIndex();
+		if (idx == shared) {
+			publish(this.deques[shared].add(state));
+		} else {
+			// Only the owner accesses its local batch, thus no synchronization needed.
+			publish(this.deques[idx].batch(state));
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#sEnqueue(tlc2.tool.TLCState[])
+	 */
+	public final void sEnqueue(final TLCState[] states) {
+		publish(this.deques[getIndex()].addAll(states, states.length));
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#sEnqueue(tlc2.tool.StateVec)
+	 */
+	public final void sEnqueue(final StateVec stateVec) {
+		final TLCState[] states = new TLCState[stateVec.size()];
+		int cnt = 0;
+		for (int j = 0; j < stateVec.size(); j++) {
+			final TLCState state = stateVec.elementAt(j);
+			if (state != null) {
+				states[cnt++] = state;
+			}
+		}
+		publish(this.deques[getIndex()].addAll(states, cnt));
+	}
+
+	/**
+	 * Accounts for states that have just been made visible to other workers, and
+	 * wakes up waiting workers if any.
+	 */
+	private final void publish(final int cnt) {
+		if (cnt == 0) {
+			return;
+		}
+		// len has to be incremented *before* numWaiting is read. Otherwise, a worker
+		// might go to sleep in isAvail without anybody waking it up.
+		this.len.addAndGet(cnt);
+		if (this.numWaiting > 0 && !this.stop) {
+			synchronized (this) {
+				this.notifyAll();
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#sDequeue()
+	 */
+	public final TLCState sDequeue() {
+		final int idx = getIndex();
+		final WorkDeque own = this.deques[idx];
+		// Publish the successors of the previous state before this worker
+		// potentially blocks below. Otherwise, other workers couldn't steal them
+		// and suspendAll/finishAll would miss them.
+		publish(own.flush());
+
+		while (true) {
+			if (!this.stop && !this.finish) {
+				TLCState state = own.poll();
+				if (state == null) {
+					state = steal(idx);
+				}
+				if (state != null) {
+					this.len.decrementAndGet();
+					return state;
+				}
+			}
+			if (!isAvail()) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Steals half of the states of the first non-empty deque other than the
+	 * calling thread's and moves them to the calling thread's deque.
+	 *
+	 * @return One of the stolen states or null if all other deques are empty.
+	 */
+	private final TLCState steal(final int idx) {
+		for (int i = 1; i < deques.length; i++) {
+			final WorkDeque victim = this.deques[(idx + i) % deques.length];
+			final TLCState[] loot = victim.stealHalf();
+			if (loot != null) {
+				// The loot remains accounted for in len.
+				this.deques[idx].addAll(loot, loot.length, 1);
+				return loot[0];
+			}
+		}
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#sDequeue(int)
+	 */
+	public final TLCState[] sDequeue(final int cnt) {
+		assert cnt > 0 : "Nonpositive number of states requested.";
+		if (cnt <= 0) {
+			throw new RuntimeException("Nonpositive number of states requested.");
+		}
+		final TLCState first = sDequeue();
+		if (first == null) {
+			return null;
+		}
+		final StateVec states = new StateVec(Math.min(cnt, 1024));
+		states.addElement(first);
+		TLCState state;
+		while (states.size() < cnt && (state = dequeue()) != null) {
+			states.addElement(state);
+		}
+		final TLCState[] res = new TLCState[states.size()];
+		for (int i = 0; i < res.length; i++) {
+			res[i] = states.elementAt(i);
+		}
+		return res;
+	}
+
+	/**
+	 * Contrary to {@link StateQueue#sPeek()}, this never blocks but returns null if
+	 * no state is available.
+	 *
+	 * @see tlc2.tool.queue.IStateQueue#sPeek()
+	 */
+	public final TLCState sPeek() {
+		for (int i = 0; i < deques.length; i++) {
+			final TLCState state = this.deques[i].peek();
+			if (state != null) {
+				return state;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @see StateQueue#isAvail()
+	 */
+	private final synchronized boolean isAvail() {
+		if (this.finish) {
+			return false;
+		}
+		while (isEmpty() || this.stop) {
+			this.numWaiting++;
+			// Contrary to StateQueue, states are published without holding the lock
+			// on this. Thus, re-check len after numWaiting has been incremented to not
+			// miss a state published by publish(int) which read numWaiting before.
+			if (!this.stop && !isEmpty()) {
+				this.numWaiting--;
+				return true;
+			}
+			// the last worker accessing notices that all other workers are
+			// waiting. This indicates that all work is done.
+			if (this.numWaiting >= this.numWorkers) {
+				if (isEmpty()) {
+					this.numWaiting--;
+					return false;
+				}
+				synchronized (this.mu) {
+					this.mu.notify();
+				}
+			}
+			try {
+				this.wait();
+			} catch (Exception e) {
+				MP.printError(EC.GENERAL, "making a worker wait for a state from the queue", e);
+				System.exit(1);
+			}
+			this.numWaiting--;
+			if (this.finish) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#finishAll()
+	 */
+	public synchronized void finishAll() {
+		this.finish = true;
+		this.notifyAll();
+		// See StateQueue#finishAll.
+		synchronized (this.mu) {
+			this.mu.notify();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#suspendAll()
+	 */
+	public final boolean suspendAll() {
+		boolean needWait = false;
+		synchronized (this) {
+			if (this.finish) {
+				return false;
+			}
+			this.stop = true;
+			needWait = this.numWaiting < this.numWorkers;
+		}
+		// Wait for all worker threads to stop (see StateQueue#suspendAll for the
+		// finishAll & suspendAll race).
+		while (needWait) {
+			synchronized (this.mu) {
+				try {
+					if (this.finish) {
+						return false;
+					}
+					this.mu.wait();
+				} catch (Exception e) {
+					MP.printError(EC.GENERAL, "waiting for a worker to wake up", e);
+					System.exit(1);
+				}
+			}
+			synchronized (this) {
+				if (this.finish) {
+					return false;
+				}
+				needWait = this.numWaiting < this.numWorkers;
+			}
+		}
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#resumeAll()
+	 */
+	public final synchronized void resumeAll() {
+		this.stop = false;
+		this.notifyAll();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#resumeAllStuck()
+	 */
+	public void resumeAllStuck() {
+		if (stop) {
+			synchronized (mu) {
+				mu.notifyAll();
+			}
+		}
+		if (!stop && !isEmpty() && this.numWaiting > 0) {
+			synchronized (this) {
+				this.notifyAll();
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#size()
+	 */
+	public final long size() {
+		return this.len.get();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#isEmpty()
+	 */
+	public final boolean isEmpty() {
+		return this.len.get() < 1;
+	}
+
+	/* Checkpoint. */
+
+	/**
+	 * Must only be called when all workers are suspended (see
+	 * {@link #suspendAll()}), i.e. when all workers have published their local
+	 * batches. The snapshot consists of the references to the states, which are
+	 * serialized by {@link #commitChkpt()}.
+	 *
+	 * @see tlc2.tool.queue.IStateQueue#beginChkpt()
+	 */
+	public final void beginChkpt() throws IOException {
+		final List<TLCState> snapshot = new ArrayList<>((int) this.len.get());
+		for (int i = 0; i < deques.length; i++) {
+			this.deques[i].copyTo(snapshot);
+		}
+		this.chkpt = snapshot;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#commitChkpt()
+	 */
+	public final void commitChkpt() throws IOException {
+		final ValueOutputStream vos = new ValueOutputStream(this.diskdir + FileUtil.separator + "queue.tmp");
+		vos.writeLongNat(this.chkpt.size());
+		for (TLCState state : this.chkpt) {
+			state.write(vos);
+		}
+		vos.close();
+		this.chkpt = null;
+
+		final File oldChkpt = new File(this.diskdir + FileUtil.separator + "queue.chkpt");
+		final File newChkpt = new File(this.diskdir + FileUtil.separator + "queue.tmp");
+		if ((oldChkpt.exists() && !oldChkpt.delete()) || !newChkpt.renameTo(oldChkpt)) {
+			throw new IOException("WorkStealingStateQueue.commitChkpt: cannot delete " + oldChkpt);
+		}
+	}
+
+	/**
+	 * The recovered states are distributed round-robin across the deques. A
+	 * checkpoint is thus independent of the number of workers.
+	 *
+	 * @see tlc2.tool.queue.IStateQueue#recover()
+	 */
+	public final void recover() throws IOException {
+		final ValueInputStream vis = new ValueInputStream(this.diskdir + FileUtil.separator + "queue.chkpt");
+		final long n = vis.readLongNat();
+		for (long i = 0; i < n; i++) {
+			final TLCState state = TLCState.Empty.createEmpty();
+			state.read(vis);
+			this.deques[(int) (i % deques.length)].add(state);
+		}
+		vis.close();
+		this.len.set(n);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#delete()
+	 */
+	@Override
+	public void delete() throws IOException {
+		// no-op
+	}
+
+	/**
+	 * A growable ring buffer guarded by its own monitor plus an unsynchronized
+	 * batch that only the owning worker accesses.
+	 */
+	private static final class WorkDeque {
+		private TLCState[] states = new TLCState[BatchSize];
+		private int head = 0;
+		private int size = 0;
+
+		// Owner-only
+		private final TLCState[] batch = new TLCState[BatchSize];
+		private int batched = 0;
+
+		/**
+		 * @return The number of states published to the deque (0 or BatchSize).
+		 */
+		int batch(final TLCState state) {
+			this.batch[batched++] = state;
+			if (batched == batch.length) {
+				return flush();
+			}
+			return 0;
+		}
+
+		/**
+		 * @return The number of states published to the deque.
+		 */
+		int flush() {
+			if (batched == 0) {
+				return 0;
+			}
+			final int cnt = addAll(batch, batched);
+			// Do not retain published states.
+			Arrays.fill(batch, 0, batched, null);
+			batched = 0;
+			return cnt;
+		}
+
+		synchronized int add(final TLCState state) {
+			ensureCapacity(1);
+			this.states[(head + size) % states.length] = state;
+			size++;
+			return 1;
+		}
+
+		int addAll(final TLCState[] elems, final int cnt) {
+			return addAll(elems, cnt, 0);
+		}
+
+		synchronized int addAll(final TLCState[] elems, final int cnt, final int from) {
+			ensureCapacity(cnt - from);
+			for (int i = from; i < cnt; i++) {
+				this.states[(head + size) % states.length] = elems[i];
+				size++;
+			}
+			return cnt - from;
+		}
+
+		synchronized TLCState poll() {
+			if (size == 0) {
+				return null;
+			}
+			final TLCState state = this.states[head];
+			this.states[head] = null;
+			head = (head + 1) % states.length;
+			size--;
+			return state;
+		}
+
+		synchronized TLCState peek() {
+			return size == 0 ? null : this.states[head];
+		}
+
+		/**
+		 * @return Half (rounded up) of the states in this deque or null if this
+		 *         deque is empty.
+		 */
+		synchronized TLCState[] stealHalf() {
+			if (size == 0) {
+				return null;
+			}
+			final TLCState[] loot = new TLCState[(size + 1) / 2];
+			for (int i = 0; i < loot.length; i++) {
+				loot[i] = this.states[head];
+				this.states[head] = null;
+				head = (head + 1) % states.length;
+			}
+			size -= loot.length;
+			return loot;
+		}
+
+		synchronized void copyTo(final List<TLCState> dst) {
+			for (int i = 0; i < size; i++) {
+				dst.add(this.states[(head + i) % states.length]);
+			}
+		}
+
+		private void ensureCapacity(final int cnt) {
+			if (size + cnt <= states.length) {
+				return;
+			}
+			final TLCState[] newStates = new TLCState[Math.max(states.length * 2, size + cnt)];
+			for (int i = 0; i < size; i++) {
+				newStates[i] = this.states[(head + i) % states.length];
+			}
+			this.states = newStates;
+			this.head = 0;
+		}
+	}
+}
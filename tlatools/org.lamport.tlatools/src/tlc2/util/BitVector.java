@@ -17,6 +17,7 @@ package tlc2.util;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 
 public class BitVector implements Serializable {
 
@@ -208,6 +209,43 @@ public class BitVector implements Serializable {
     }
   }
 
+  /** The number of bytes <code>writePacked</code> writes, which is the
+      length of this bit vector in bytes without trailing zero bytes. */
+  public int packedSize() {
+    for (int i = this.word.length - 1; i >= 0; i--) {
+      long w = this.word[i];
+      if (w != 0L) {
+        return 8 * i + (64 - Long.numberOfLeadingZeros(w) + 7) / 8;
+      }
+    }
+    return 0;
+  }
+
+  /** Write the first <code>packedSize()</code> bytes of the bit vector to
+      buf. Bit <code>i</code> is bit <code>i % 8</code> of byte
+      <code>i / 8</code>. */
+  public void writePacked(ByteBuffer buf) {
+    int len = this.packedSize();
+    for (int i = 0; i < len; i++) {
+      buf.put((byte)(this.word[i / 8] >>> (8 * (i % 8))));
+    }
+  }
+
+  /** Read a bit vector of <code>len</code> bytes written by
+      <code>writePacked</code> from a file. */
+  public void readPacked(BufferedRandomAccessFile raf, int len) throws IOException {
+    this.word = new long[(len + 7) / 8];
+    if (len == 0) {
+      // readFully might read (EOF) even if there is nothing to read.
+      return;
+    }
+    byte[] bytes = new byte[len];
+    raf.readFully(bytes);
+    for (int i = 0; i < len; i++) {
+      this.word[i / 8] |= (bytes[i] & 0xffL) << (8 * (i % 8));
+    }
+  }
+
   /** Read a bit vector from a file */
   public void read(BufferedRandomAccessFile raf) throws IOException {
     int len = raf.readNat();
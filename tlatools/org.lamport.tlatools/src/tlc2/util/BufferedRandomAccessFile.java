@@ -156,13 +156,19 @@ public final class BufferedRandomAccessFile extends java.io.RandomAccessFile {
         // SZ Feb 24, 2009: never read locally
         // this.closed = true;
         synchronized (mu) {
-            // grow "availBuffs" array if necessary
-            if (numAvailBuffs >= availBuffs.length) {
-                byte[][] newBuffs = new byte[numAvailBuffs + 10][];
-                System.arraycopy(availBuffs, 0, newBuffs, 0, numAvailBuffs);
-                availBuffs = newBuffs;
+            // A second close (e.g. by DiskFPSet#finalize) must not return the
+            // buffer to the pool again. Otherwise, two files would end up
+            // sharing the same buffer.
+            if (this.buff != null) {
+                // grow "availBuffs" array if necessary
+                if (numAvailBuffs >= availBuffs.length) {
+                    byte[][] newBuffs = new byte[numAvailBuffs + 10][];
+                    System.arraycopy(availBuffs, 0, newBuffs, 0, numAvailBuffs);
+                    availBuffs = newBuffs;
+                }
+                availBuffs[numAvailBuffs++] = this.buff;
+                this.buff = null;
             }
-            availBuffs[numAvailBuffs++] = this.buff;
         }
         super.close();
     }
@@ -7,6 +7,7 @@ package tlc2.util;
 
 import java.util.function.Function;
 
+import tla2sany.semantic.FormalParamNode;
 import tla2sany.semantic.SymbolNode;
 
 // Context is used two times:
@@ -29,19 +30,36 @@ public final class Context {
 	/**
 	 * A link list of name and value pairs. When adding <name, value> to the
 	 * context, we assume that name != null.
+	 * 
+	 * A context can alternatively bind all formal parameters of a single binder
+	 * (the formals of an operator definition or the bound identifiers of a
+	 * quantifier) at once. Such a frame stores the names and values in two arrays
+	 * instead of a chain of contexts. The position of a FormalParamNode in the
+	 * frame of its binder is resolved by the SpecProcessor (see
+	 * FormalParamNode#getSlot), which turns the lookup within a frame into a
+	 * single comparison. A frame whose names are not at their slots (e.g. a binder
+	 * the SpecProcessor did not see) is searched linearly.
 	 */
 
 	private final SymbolNode name;
 	private final Object value;
+	private final SymbolNode[] names;
+	private final Object[] values;
+	// True iff names[i].getSlot() == i for all i.
+	private final boolean slotted;
 	private final Context next;
 
-	public final static Context Empty = new Context(null, null, null);
+	public final static Context Empty = new Context(null, null, null, null, false, null);
 	
-	private final static Context BaseBranch = new Context(null, null, Empty);
+	private final static Context BaseBranch = new Context(null, null, null, null, false, Empty);
 	
-	private Context(SymbolNode name, Object value, final Context next) {
+	private Context(SymbolNode name, Object value, final SymbolNode[] names, final Object[] values,
+			final boolean slotted, final Context next) {
 		this.name = name;
 		this.value = value;
+		this.names = names;
+		this.values = values;
+		this.slotted = slotted;
 		this.next = next;
 	}
 
@@ -54,11 +72,53 @@ public final class Context {
 			// one (Branch -> Empty).
 			return BaseBranch;
 		}
-		return new Context(null, null, base);
+		return new Context(null, null, null, null, false, base);
 	}
 
 	public final Context cons(SymbolNode name, Object value) {
-		return new Context(name, value, this);
+		return new Context(name, value, null, null, false, this);
+	}
+
+	/**
+	 * Binds names[i] to values[i] for all i. Neither array is copied, thus the
+	 * caller must not modify them afterwards. names is usually the (immutable)
+	 * array of formal parameters of the binder, e.g. OpDefNode#getParams.
+	 */
+	public final Context cons(final SymbolNode[] names, final Object[] values) {
+		assert names.length == values.length;
+		if (names.length == 0) {
+			return this;
+		} else if (names.length == 1) {
+			// A frame does not pay off for a single binding.
+			return new Context(names[0], values[0], null, null, false, this);
+		}
+		return new Context(null, null, names, values, isSlotted(names), this);
+	}
+
+	private static boolean isSlotted(final SymbolNode[] names) {
+		for (int i = 0; i < names.length; i++) {
+			if (slotOf(names[i]) != i) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int slotOf(final SymbolNode var) {
+		return var instanceof FormalParamNode ? ((FormalParamNode) var).getSlot() : -1;
+	}
+
+	private final int indexOf(final SymbolNode var, final int slot) {
+		if (this.slotted && slot >= 0) {
+			// If var is bound by this frame, it is bound at its slot.
+			return slot < this.names.length && this.names[slot] == var ? slot : -1;
+		}
+		for (int i = 0; i < this.names.length; i++) {
+			if (this.names[i] == var) {
+				return i;
+			}
+		}
+		return -1;
 	}
 
 	/**
@@ -66,6 +126,7 @@ public final class Context {
 	 * context does not contain var.
 	 */
 	public final Object lookup(SymbolNode var) {
+		final int slot = slotOf(var);
 		Context cur = this;
 		// Follow the linked list of Contexts (chain) starting at this context
 		// until a Context has been reached whose name (SymbolNode) is identical
@@ -75,7 +136,12 @@ public final class Context {
 			// Check identity of value if match (this is slightly simpler
 			// compared to the second lookup method. Here we can ignore the else
 			// if branch since there is no cutoff.
-			if (var == cur.name) {
+			if (cur.names != null) {
+				final int idx = cur.indexOf(var, slot);
+				if (idx >= 0) {
+					return cur.values[idx];
+				}
+			} else if (var == cur.name) {
 				return cur.value;
 			}
 			cur = cur.next;
@@ -86,7 +152,13 @@ public final class Context {
 	public final Object lookup(final Function<SymbolNode, Boolean> f) {
 		Context cur = this;
 		while (cur != Empty) {
-			if (f.apply(cur.name)) {
+			if (cur.names != null) {
+				for (int i = cur.names.length - 1; i >= 0; i--) {
+					if (f.apply(cur.names[i])) {
+						return cur.values[i];
+					}
+				}
+			} else if (f.apply(cur.name)) {
 				return cur.value;
 			}
 			cur = cur.next;
@@ -97,7 +169,13 @@ public final class Context {
 	public final SymbolNode lookupName(final Function<SymbolNode, Boolean> f) {
 		Context cur = this;
 		while (cur != Empty) {
-			if (f.apply(cur.name)) {
+			if (cur.names != null) {
+				for (int i = cur.names.length - 1; i >= 0; i--) {
+					if (f.apply(cur.names[i])) {
+						return cur.names[i];
+					}
+				}
+			} else if (f.apply(cur.name)) {
 				return cur.name;
 			}
 			cur = cur.next;
@@ -115,6 +193,7 @@ public final class Context {
 	 *         could not be found in the search along the Context "chain"
 	 */
 	public final Object lookup(final SymbolNode var, final boolean cutoff) {
+		final int slot = slotOf(var);
 		Context cur = this;
 		// Follow the linked list of Contexts (chain) starting at this context until a Context has been
 		// reached whose name (SymbolNode) is identical to the searched for var. Stop if the Context's
@@ -122,7 +201,12 @@ public final class Context {
 		// above) or the Empty context (the base of all Context "chains") has been reached.
 		while (cur != Empty) {
 			// Check identity of value if not empty or branching
-			if (cur.name != null) {
+			if (cur.names != null) {
+				final int idx = cur.indexOf(var, slot);
+				if (idx >= 0) {
+					return cur.values[idx];
+				}
+			} else if (cur.name != null) {
 				if (var == cur.name) {
 					return cur.value;
 				}
@@ -137,24 +221,29 @@ public final class Context {
 	}
 
 	public final StringBuffer toString(StringBuffer sb) {
-		if (this.name == null) {
-			if (this == Empty) {
-				return sb;
+		boolean first = true;
+		for (Context cur = this; cur != Empty; cur = cur.next) {
+			if (cur.names != null) {
+				// Innermost binding first to match the order of a chain.
+				for (int i = cur.names.length - 1; i >= 0; i--) {
+					first = append(sb, first, cur.names[i], cur.values[i]);
+				}
+			} else if (cur.name != null) {
+				first = append(sb, first, cur.name, cur.value);
 			}
-			return this.next.toString(sb);
 		}
-		sb.append(this.name.getName());
-		sb.append("->");
-		sb.append(this.value);
-		Context cur;
-		for (cur = this.next; cur.name != null; cur = cur.next) {
+		return sb;
+	}
+
+	private static boolean append(final StringBuffer sb, final boolean first, final SymbolNode name,
+			final Object value) {
+		if (!first) {
 			sb.append(", ");
-			sb.append(cur.name.getName());
-			sb.append("->");
-			sb.append(cur.value);
 		}
-		cur.toString(sb);
-		return sb;
+		sb.append(name.getName());
+		sb.append("->");
+		sb.append(value);
+		return false;
 	}
 
 	public final String toString() {
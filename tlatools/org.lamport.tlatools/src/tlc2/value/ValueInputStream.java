@@ -5,6 +5,7 @@ package tlc2.value;
 import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
 
 import tlc2.TLCGlobals;
@@ -44,6 +45,11 @@ public final class ValueInputStream implements ValueConstants, IValueInputStream
       this(new File(fname));
   }
 
+  public ValueInputStream(final InputStream is) throws IOException {
+    this.dis = new BufferedDataInputStream(is);
+    this.handles = new HandleTable();
+  }
+
 	@Override
 	public final IValue read() throws IOException {
 		final byte kind = this.dis.readByte();
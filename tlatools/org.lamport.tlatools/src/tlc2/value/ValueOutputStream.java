@@ -35,6 +35,11 @@ public final class ValueOutputStream implements IValueOutputStream {
   public ValueOutputStream(String fname) throws IOException {
 	  this(fname, TLCGlobals.useGZIP);
   }
+
+  public ValueOutputStream(final OutputStream os) {
+	  this.dos = new BufferedDataOutputStream(os);
+	  this.handles = new HandleTable();
+  }
   
   public ValueOutputStream(String fname, boolean zip) throws IOException {
 	    if (zip) {
@@ -0,0 +1,494 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.value.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import tlc2.util.FP64;
+import tlc2.value.IMVPerm;
+import tlc2.value.IValue;
+
+/**
+ * Computes a canonical representative of the orbit of a state under symmetry
+ * without applying every permutation of the symmetry group.
+ * <p>
+ * The model values of each symmetry set are colored by the (permutation
+ * invariant) positions at which they occur in the state's values. The coloring
+ * is refined until it is stable, which usually discriminates all model values
+ * of a symmetry set. The model values are then mapped - ordered by color - onto
+ * the symmetry set's model values in canonical order. Only model values with the
+ * same color are enumerated in all orders, unless exchanging them leaves the
+ * state unchanged (e.g. all processes are idle). The lexicographically smallest
+ * of the resulting states is the representative.
+ * <p>
+ * Because the coloring commutes with the permutations of the symmetry group,
+ * all states of an orbit yield the same representative. The representative is
+ * generally not the one found by enumerating all permutations. The canonicalizer only
+ * handles symmetry groups that are the cross product of the symmetric groups of
+ * the symmetry sets, i.e. what TLC's Permutations operator yields.
+ */
+public final class SymmetryCanonicalizer {
+
+	private static final long MODEL_VALUE = 0x4D56L;
+	private static final long FCN = 0x46434EL;
+	private static final long DOM = 0x444F4DL;
+	private static final long VAL = 0x56414CL;
+	private static final long RCD = 0x524344L;
+	private static final long SET = 0x534554L;
+
+	/**
+	 * Signals a value whose model values the canonicalizer cannot color.
+	 */
+	@SuppressWarnings("serial")
+	private static final class Unsupported extends RuntimeException {
+		Unsupported() {
+			super(null, null, false, false);
+		}
+	}
+
+	private static final Unsupported UNSUPPORTED = new Unsupported();
+
+	/**
+	 * The order of the symmetry group, i.e. the number of permutations.
+	 */
+	private final long order;
+	/**
+	 * The indices of each symmetry set's model values ordered by
+	 * {@link ModelValue#compareTo(Object)}.
+	 */
+	private final int[][] cells;
+	/**
+	 * Maps a model value's index to its symmetry set or -1.
+	 */
+	private final int[] cellOf;
+
+	private SymmetryCanonicalizer(final long order, final int[][] cells, final int[] cellOf) {
+		this.order = order;
+		this.cells = cells;
+		this.cellOf = cellOf;
+	}
+
+	/**
+	 * @return A canonicalizer for the group of the given permutations or
+	 *         <code>null</code> if the group is not a cross product of symmetric
+	 *         groups.
+	 */
+	public static SymmetryCanonicalizer create(final IMVPerm[] perms) {
+		final ModelValue[] mvs = ModelValue.mvs;
+		final int[] parent = new int[mvs.length];
+		for (int i = 0; i < parent.length; i++) {
+			parent[i] = i;
+		}
+		// The orbits of the model values are the symmetry sets.
+		for (IMVPerm perm : perms) {
+			for (int i = 0; i < mvs.length; i++) {
+				final ModelValue mv = (ModelValue) perm.get(mvs[i]);
+				if (mv != null) {
+					parent[find(parent, i)] = find(parent, mv.index);
+				}
+			}
+		}
+		final int[] size = new int[mvs.length];
+		for (int i = 0; i < mvs.length; i++) {
+			size[find(parent, i)]++;
+		}
+		final List<List<ModelValue>> sets = new ArrayList<>();
+		final int[] setOfRoot = new int[mvs.length];
+		Arrays.fill(setOfRoot, -1);
+		for (int i = 0; i < mvs.length; i++) {
+			final int root = find(parent, i);
+			if (size[root] < 2) {
+				continue;
+			}
+			if (setOfRoot[root] < 0) {
+				setOfRoot[root] = sets.size();
+				sets.add(new ArrayList<>());
+			}
+			sets.get(setOfRoot[root]).add(mvs[i]);
+		}
+
+		// perms excludes the identity.
+		final long order = perms.length + 1L;
+		long product = 1L;
+		final int[][] cells = new int[sets.size()][];
+		final int[] cellOf = new int[mvs.length];
+		Arrays.fill(cellOf, -1);
+		for (int c = 0; c < cells.length; c++) {
+			final List<ModelValue> set = sets.get(c);
+			set.sort((a, b) -> a.compareTo(b));
+			cells[c] = new int[set.size()];
+			for (int k = 0; k < cells[c].length; k++) {
+				cells[c][k] = set.get(k).index;
+				cellOf[cells[c][k]] = c;
+				product *= k + 1;
+				if (product > order) {
+					return null;
+				}
+			}
+		}
+		if (product != order) {
+			return null;
+		}
+		return new SymmetryCanonicalizer(order, cells, cellOf);
+	}
+
+	private static int find(final int[] parent, int i) {
+		while (parent[i] != i) {
+			i = parent[i] = parent[parent[i]];
+		}
+		return i;
+	}
+
+	/**
+	 * @return The values of the representative of the given state's orbit or
+	 *         <code>null</code> if the values cannot be canonicalized, in which
+	 *         case all permutations have to be applied.
+	 */
+	public final IValue[] canonicalize(final IValue[] values) {
+		for (int i = 0; i < values.length; i++) {
+			values[i].deepNormalize();
+		}
+		final long[] colors;
+		try {
+			colors = refine(values);
+		} catch (Unsupported e) {
+			return null;
+		}
+
+		final ModelValue[] mvs = ModelValue.mvs;
+		final int[] target = new int[mvs.length];
+		final List<int[]> tiedMembers = new ArrayList<>();
+		final List<int[]> tiedSlots = new ArrayList<>();
+		long candidates = 1L;
+		for (int[] cell : this.cells) {
+			// Sort the model values by color, the k-th model value is mapped onto
+			// the k-th model value of the cell.
+			final Integer[] members = new Integer[cell.length];
+			for (int k = 0; k < cell.length; k++) {
+				members[k] = cell[k];
+			}
+			Arrays.sort(members, (a, b) -> Long.compare(colors[a], colors[b]));
+			for (int k = 0; k < cell.length;) {
+				int end = k + 1;
+				while (end < cell.length && colors[members[end]] == colors[members[k]]) {
+					end++;
+				}
+				for (int l = k; l < end; l++) {
+					target[members[l]] = cell[l];
+				}
+				if (end - k > 1 && !isAutomorphism(values, members, k, end)) {
+					final int[] tied = new int[end - k];
+					final int[] slots = new int[end - k];
+					for (int l = k; l < end; l++) {
+						tied[l - k] = members[l];
+						slots[l - k] = cell[l];
+						candidates *= l - k + 1;
+						if (candidates >= this.order) {
+							// No better than applying all permutations.
+							return null;
+						}
+					}
+					tiedMembers.add(tied);
+					tiedSlots.add(slots);
+				}
+				k = end;
+			}
+		}
+
+		final int sz = values.length;
+		final int[][] orders = new int[tiedMembers.size()][];
+		for (int t = 0; t < orders.length; t++) {
+			orders[t] = new int[tiedMembers.get(t).length];
+			for (int k = 0; k < orders[t].length; k++) {
+				orders[t][k] = k;
+			}
+		}
+		IValue[] minVals = null;
+		IValue[] vals = new IValue[sz];
+		NEXT_CANDIDATE: do {
+			for (int t = 0; t < orders.length; t++) {
+				final int[] tied = tiedMembers.get(t);
+				final int[] slots = tiedSlots.get(t);
+				for (int k = 0; k < tied.length; k++) {
+					target[tied[k]] = slots[orders[t][k]];
+				}
+			}
+			final MVPerm perm = new MVPerm();
+			for (int[] cell : this.cells) {
+				for (int m : cell) {
+					perm.put(mvs[m], mvs[target[m]]);
+				}
+			}
+			int cmp = minVals == null ? -1 : 0;
+			for (int j = 0; j < sz; j++) {
+				vals[j] = perm.size() == 0 ? values[j] : values[j].permute(perm);
+				if (cmp == 0) {
+					cmp = vals[j].compareTo(minVals[j]);
+					if (cmp > 0) {
+						continue NEXT_CANDIDATE;
+					}
+				}
+			}
+			if (cmp < 0) {
+				final IValue[] temp = minVals == null ? new IValue[sz] : minVals;
+				minVals = vals;
+				vals = temp;
+			}
+		} while (next(orders));
+		return minVals;
+	}
+
+	/**
+	 * Advances orders to the lexicographically next combination of permutations.
+	 * 
+	 * @return false if orders wrapped around.
+	 */
+	private static boolean next(final int[][] orders) {
+		for (int t = orders.length - 1; t >= 0; t--) {
+			final int[] a = orders[t];
+			int i = a.length - 2;
+			while (i >= 0 && a[i] > a[i + 1]) {
+				i--;
+			}
+			if (i >= 0) {
+				int j = a.length - 1;
+				while (a[j] < a[i]) {
+					j--;
+				}
+				swap(a, i, j);
+				reverse(a, i + 1);
+				return true;
+			}
+			// Wrapped around, continue with the next permutation of the
+			// preceding symmetry set.
+			reverse(a, 0);
+		}
+		return false;
+	}
+
+	private static void swap(final int[] a, final int i, final int j) {
+		final int tmp = a[i];
+		a[i] = a[j];
+		a[j] = tmp;
+	}
+
+	private static void reverse(final int[] a, int i) {
+		for (int j = a.length - 1; i < j; i++, j--) {
+			swap(a, i, j);
+		}
+	}
+
+	/**
+	 * @return true if exchanging any two of members[from..to) leaves values
+	 *         unchanged.
+	 */
+	private static boolean isAutomorphism(final IValue[] values, final Integer[] members, final int from,
+			final int to) {
+		final ModelValue[] mvs = ModelValue.mvs;
+		// The transpositions (from i) generate the symmetric group of members[from..to).
+		for (int i = from + 1; i < to; i++) {
+			final MVPerm transposition = new MVPerm();
+			transposition.put(mvs[members[from]], mvs[members[i]]);
+			transposition.put(mvs[members[i]], mvs[members[from]]);
+			for (int j = 0; j < values.length; j++) {
+				if (values[j].permute(transposition).compareTo(values[j]) != 0) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Colors the model values of the symmetry sets until the partition of the
+	 * model values into colors is stable.
+	 */
+	private long[] refine(final IValue[] values) {
+		long[] colors = new long[ModelValue.mvs.length];
+		int elements = 0;
+		for (int c = 0; c < this.cells.length; c++) {
+			for (int m : this.cells[c]) {
+				colors[m] = c + 1L;
+				elements++;
+			}
+		}
+		int classes = this.cells.length;
+		while (classes < elements) {
+			final long[] sigs = new long[colors.length];
+			for (int j = 0; j < values.length; j++) {
+				walk((Value) values[j], mix(j, values.length), colors, sigs);
+			}
+			final long[] refined = new long[colors.length];
+			for (int[] cell : this.cells) {
+				for (int m : cell) {
+					refined[m] = mix(colors[m], sigs[m]);
+				}
+			}
+			colors = refined;
+			final int n = countClasses(colors);
+			if (n == classes) {
+				break;
+			}
+			classes = n;
+		}
+		return colors;
+	}
+
+	private int countClasses(final long[] colors) {
+		int n = 0;
+		for (int[] cell : this.cells) {
+			final long[] c = new long[cell.length];
+			for (int k = 0; k < cell.length; k++) {
+				c[k] = colors[cell[k]];
+			}
+			Arrays.sort(c);
+			n++;
+			for (int k = 1; k < c.length; k++) {
+				if (c[k] != c[k - 1]) {
+					n++;
+				}
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Adds the context ctx of each occurrence of a model value of a symmetry set
+	 * in v to the model value's signature. The context of an occurrence is derived
+	 * from the path to it and the colored hashes of the values along the path.
+	 */
+	private void walk(final Value v, final long ctx, final long[] colors, final long[] sigs) {
+		if (v instanceof ModelValue) {
+			final int idx = ((ModelValue) v).index;
+			if (this.cellOf[idx] >= 0) {
+				sigs[idx] += mix(ctx, MODEL_VALUE);
+			}
+		} else if (v instanceof FcnRcdValue) {
+			final FcnRcdValue fcn = (FcnRcdValue) v;
+			final long h = hash(v, colors);
+			if (fcn.intv != null) {
+				for (int i = 0; i < fcn.values.length; i++) {
+					walk(fcn.values[i], mix(mix(ctx, i), h), colors, sigs);
+				}
+			} else {
+				for (int i = 0; i < fcn.domain.length; i++) {
+					walk(fcn.domain[i], mix(mix(ctx, DOM), mix(h, hash(fcn.values[i], colors))), colors, sigs);
+					walk(fcn.values[i], mix(mix(ctx, VAL), mix(h, hash(fcn.domain[i], colors))), colors, sigs);
+				}
+			}
+		} else if (v instanceof TupleValue) {
+			final Value[] elems = ((TupleValue) v).elems;
+			final long h = hash(v, colors);
+			for (int i = 0; i < elems.length; i++) {
+				walk(elems[i], mix(mix(ctx, i), h), colors, sigs);
+			}
+		} else if (v instanceof RecordValue) {
+			final RecordValue rcd = (RecordValue) v;
+			final long h = hash(v, colors);
+			for (int i = 0; i < rcd.names.length; i++) {
+				walk(rcd.values[i], mix(mix(ctx, rcd.names[i].hashCode()), h), colors, sigs);
+			}
+		} else if (v instanceof SetEnumValue) {
+			final ValueVec elems = ((SetEnumValue) v).elems;
+			final long h = mix(mix(ctx, SET), hash(v, colors));
+			for (int i = 0; i < elems.size(); i++) {
+				walk(elems.elementAt(i), h, colors, sigs);
+			}
+		} else if (!isAtom(v)) {
+			throw UNSUPPORTED;
+		}
+	}
+
+	/**
+	 * @return A hash of v in which the model values of the symmetry sets are
+	 *         replaced by their colors. Unordered collections are hashed by
+	 *         (commutative) sums.
+	 */
+	private long hash(final Value v, final long[] colors) {
+		if (v instanceof ModelValue) {
+			final int idx = ((ModelValue) v).index;
+			if (this.cellOf[idx] >= 0) {
+				return mix(MODEL_VALUE, colors[idx]);
+			}
+			return v.fingerPrint(FP64.New());
+		} else if (v instanceof FcnRcdValue) {
+			final FcnRcdValue fcn = (FcnRcdValue) v;
+			if (fcn.intv != null) {
+				return hash(mix(mix(FCN, fcn.intv.low), fcn.intv.high), fcn.values, colors);
+			}
+			long sum = 0L;
+			for (int i = 0; i < fcn.domain.length; i++) {
+				sum += mix(hash(fcn.domain[i], colors), hash(fcn.values[i], colors));
+			}
+			return mix(FCN, sum);
+		} else if (v instanceof TupleValue) {
+			final Value[] elems = ((TupleValue) v).elems;
+			// Hashed like the equal function with domain 1..Len(elems).
+			return hash(mix(mix(FCN, 1), elems.length), elems, colors);
+		} else if (v instanceof RecordValue) {
+			final RecordValue rcd = (RecordValue) v;
+			long sum = 0L;
+			for (int i = 0; i < rcd.names.length; i++) {
+				sum += mix(rcd.names[i].hashCode(), hash(rcd.values[i], colors));
+			}
+			return mix(RCD, sum);
+		} else if (v instanceof SetEnumValue) {
+			final ValueVec elems = ((SetEnumValue) v).elems;
+			long sum = 0L;
+			for (int i = 0; i < elems.size(); i++) {
+				sum += mix(SET, hash(elems.elementAt(i), colors));
+			}
+			return mix(mix(SET, elems.size()), sum);
+		} else if (isAtom(v)) {
+			return v.fingerPrint(FP64.New());
+		}
+		throw UNSUPPORTED;
+	}
+
+	private long hash(long h, final Value[] elems, final long[] colors) {
+		for (int i = 0; i < elems.length; i++) {
+			h = mix(h, hash(elems[i], colors));
+		}
+		return h;
+	}
+
+	/**
+	 * @return true if v cannot contain model values.
+	 */
+	private static boolean isAtom(final Value v) {
+		return v instanceof IntValue || v instanceof BoolValue || v instanceof StringValue
+				|| v instanceof IntervalValue || v instanceof UndefValue;
+	}
+
+	private static long mix(final long a, final long b) {
+		long z = a * 0x9E3779B97F4A7C15L + b;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
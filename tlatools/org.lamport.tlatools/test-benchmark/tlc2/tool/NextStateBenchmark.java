@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved.
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import tlc2.tool.impl.FastTool;
+import tlc2.util.FP64;
+import util.SimpleFilenameToStream;
+import util.ToolIO;
+
+/**
+ * Benchmarks the per-state work of a TLC worker (see
+ * {@link Worker#run()}) on a fixed corpus of specs from test-model: The
+ * generation of the successor states, their normalization, and their
+ * fingerprinting.
+ * <p>
+ * The spec is loaded once per trial. Since TLC keeps the spec in static fields
+ * (e.g. {@link TLCStateMut}), benchmarks have to be run with at least one fork
+ * (JMH's default) to load a different spec per fork.
+ */
+@State(Scope.Benchmark)
+public class NextStateBenchmark {
+
+	/*
+	 * Run with: java -jar target/benchmarks.jar -wi 2 -i 2 -f2 -rf json -rff
+	 * NextStateBenchmark-$(date +%s)-$(git rev-parse --short HEAD).json
+	 * -jvmArgsPrepend "-Xms8192m -Xmx8192m" -jvmArgsAppend
+	 * "-Dtlc2.tool.NextStateBenchmark.base=/home/markus/src/TLA/tla/tlatools/test-model" tlc2.tool.NextStateBenchmark
+	 */
+
+	private static final String BASE_PATH = System.getProperty(NextStateBenchmark.class.getName() + ".base");
+
+	/**
+	 * The spec relative to test-model. The config file has the same name as
+	 * the spec.
+	 */
+	@Param({ "DieHard", "EWD840/MC06", "VoteProof/MC" })
+	public String spec;
+
+	/**
+	 * The (maximum) number of reachable states the benchmarks iterate over.
+	 */
+	@Param({ "10000" })
+	public int corpus;
+
+	ITool tool;
+
+	private Action[] actions;
+
+	private TLCState[] states;
+
+	private int idx = 0;
+
+	@Setup
+	public void up() {
+		FP64.Init();
+
+		final File file = new File(BASE_PATH + File.separator + spec);
+		ToolIO.setUserDir(file.getParent());
+
+		tool = new FastTool("", file.getName(), file.getName(), new SimpleFilenameToStream());
+		actions = tool.getActions();
+
+		// Collect the states breadth-first to not only benchmark the initial
+		// states and their immediate successors.
+		final List<TLCState> reachable = new ArrayList<>();
+		final Set<Long> seen = new HashSet<>();
+		final StateVec inits = tool.getInitStates();
+		for (int i = 0; i < inits.size() && reachable.size() < corpus; i++) {
+			final TLCState init = inits.elementAt(i);
+			if (seen.add(init.fingerPrint())) {
+				reachable.add(init);
+			}
+		}
+		for (int i = 0; i < reachable.size() && reachable.size() < corpus; i++) {
+			for (Action action : actions) {
+				final StateVec successors = tool.getNextStates(action, reachable.get(i));
+				for (int j = 0; j < successors.size() && reachable.size() < corpus; j++) {
+					final TLCState successor = successors.elementAt(j);
+					if (seen.add(successor.fingerPrint())) {
+						reachable.add(successor);
+					}
+				}
+			}
+		}
+		states = reachable.toArray(new TLCState[reachable.size()]);
+	}
+
+	TLCState next() {
+		final TLCState state = states[idx];
+		idx = (idx + 1) % states.length;
+		return state;
+	}
+
+	@Benchmark
+	public void nextStates(final Blackhole bh) {
+		final TLCState state = next();
+		for (Action action : actions) {
+			bh.consume(tool.getNextStates(action, state));
+		}
+	}
+
+	@Benchmark
+	public long fingerPrint() {
+		// The states of the corpus have been normalized during setup.
+		return next().fingerPrint();
+	}
+
+	/**
+	 * The (freshly generated) successors of a state whose values have not
+	 * been normalized yet.
+	 */
+	@State(Scope.Thread)
+	public static class Successors {
+
+		StateVec successors;
+
+		@Setup(Level.Invocation)
+		public void up(final NextStateBenchmark b) {
+			successors = new StateVec(b.actions.length);
+			final TLCState state = b.next();
+			for (Action action : b.actions) {
+				final StateVec vec = b.tool.getNextStates(action, state);
+				for (int i = 0; i < vec.size(); i++) {
+					successors.addElement(vec.elementAt(i));
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public StateVec normalize(final Successors s) {
+		for (int i = 0; i < s.successors.size(); i++) {
+			s.successors.elementAt(i).deepNormalize();
+		}
+		return s.successors;
+	}
+
+	@Benchmark
+	public long nextStatesAndFingerPrint() {
+		// What a worker does for each state it takes from the queue (minus
+		// the FPSet and queue operations).
+		final TLCState state = next();
+		long fp = 0L;
+		for (Action action : actions) {
+			final StateVec successors = tool.getNextStates(action, state);
+			for (int i = 0; i < successors.size(); i++) {
+				fp ^= successors.elementAt(i).fingerPrint();
+			}
+		}
+		return fp;
+	}
+}
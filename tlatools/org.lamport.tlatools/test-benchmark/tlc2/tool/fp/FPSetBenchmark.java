@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved.
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import tlc2.util.BitVector;
+
+@State(Scope.Benchmark)
+public class FPSetBenchmark {
+
+	/*
+	 * Run with: java -jar target/benchmarks.jar -wi 2 -i 2 -f2 -t 4 -rf json -rff
+	 * FPSetBenchmark-$(date +%s)-$(git rev-parse --short HEAD).json
+	 * -jvmArgsPrepend "-Xms8192m -Xmx8192m -XX:MaxDirectMemorySize=8192m" tlc2.tool.fp.FPSetBenchmark
+	 *
+	 * The benchmarks insert ever new fingerprints. Thus, the in-memory tables
+	 * eventually fill up and the measurements include the flushes to disk.
+	 */
+
+	/**
+	 * MultiFPSet is what TLC uses by default: A MultiFPSet of (two)
+	 * OffHeapDiskFPSets.
+	 */
+	@Param({ "MSBDiskFPSet", "OffHeapDiskFPSet", "CompactOffHeapDiskFPSet", "MultiFPSet" })
+	public String impl;
+
+	private FPSet fpSet;
+
+	@Setup
+	public void up(final BenchmarkParams params) throws IOException {
+		final FPSetConfiguration fpSetConfig;
+		if ("MultiFPSet".equals(impl)) {
+			fpSetConfig = new FPSetConfiguration(.25d, OffHeapDiskFPSet.class.getName());
+			fpSet = FPSetFactory.getFPSet(fpSetConfig);
+		} else if ("MSBDiskFPSet".equals(impl)) {
+			fpSetConfig = new FPSetConfiguration(.25d, MSBDiskFPSet.class.getName());
+			fpSet = new MSBDiskFPSet(fpSetConfig);
+		} else if ("OffHeapDiskFPSet".equals(impl)) {
+			fpSetConfig = new FPSetConfiguration(.25d, OffHeapDiskFPSet.class.getName());
+			fpSet = new OffHeapDiskFPSet(fpSetConfig);
+		} else {
+			fpSetConfig = new FPSetConfiguration(.25d, CompactOffHeapDiskFPSet.class.getName());
+			fpSet = new CompactOffHeapDiskFPSet(fpSetConfig);
+		}
+		// Each JMH thread acts as a worker.
+		final int threads = params.getThreads();
+		fpSet.init(threads, Files.createTempDirectory(impl).toFile().toString(), impl);
+		fpSet.incWorkers(threads);
+	}
+
+	@TearDown
+	public void down() throws IOException {
+		fpSet.close();
+	}
+
+	@State(Scope.Thread)
+	public static class Fingerprints {
+
+		private long seed;
+		private long fp;
+		private long seen;
+
+		/**
+		 * A batch of the successors of a state (see Worker), most of which
+		 * have been seen before.
+		 */
+		final long[] batch = new long[16];
+		final BitVector batchSeen = new BitVector(16);
+
+		@Setup
+		public void up(final ThreadParams params) {
+			// Distinct (non-zero) seeds per thread.
+			seed = 15041980L * (params.getThreadIndex() + 1);
+			fp = seed;
+			seen = seed;
+		}
+
+		private static long xorshift(long x) {
+			x ^= x << 13;
+			x ^= x >>> 7;
+			x ^= x << 17;
+			return x;
+		}
+
+		/**
+		 * @return A fingerprint which has not been inserted yet.
+		 */
+		long next() {
+			fp = xorshift(fp);
+			return fp;
+		}
+
+		/**
+		 * @return A fingerprint which has already been inserted by this thread.
+		 */
+		long seen() {
+			if (seen == fp) {
+				// Replay the sequence from the beginning.
+				seen = seed;
+			}
+			seen = xorshift(seen);
+			return seen;
+		}
+	}
+
+	@Benchmark
+	public boolean put(final Fingerprints fps) throws IOException {
+		return fpSet.put(fps.next());
+	}
+
+	@Benchmark
+	public boolean putSeen(final Fingerprints fps) throws IOException {
+		// Most successor states have been seen before late in model checking.
+		// Thus, mix the insertion of a new fingerprint with the lookup of a
+		// known one.
+		fpSet.put(fps.next());
+		return fpSet.put(fps.seen());
+	}
+
+	@Benchmark
+	public BitVector putAll(final Fingerprints fps) throws IOException {
+		// Same ratio of new and seen fingerprints as putSeen.
+		final long[] batch = fps.batch;
+		for (int i = 0; i < batch.length; i += 2) {
+			batch[i] = fps.next();
+			batch[i + 1] = fps.seen();
+		}
+		fpSet.putAll(batch, batch.length, fps.batchSeen);
+		return fps.batchSeen;
+	}
+
+	@Benchmark
+	public boolean contains(final Fingerprints fps) throws IOException {
+		fpSet.put(fps.next());
+		return fpSet.contains(fps.seen());
+	}
+}
@@ -26,6 +26,7 @@
 package tlc2.tool.queue;
 
 import java.io.IOException;
+import java.nio.file.Files;
 
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -53,7 +54,7 @@ public class DiskQueueBenachmark {
 	@Param({"1", "2", "4", "8", "16", "32", "64"})
 	public int vars;
 
-	@Param({"DiskByteArrayQueue", "DiskStateQueue"})
+	@Param({"DiskByteArrayQueue", "DiskStateQueue", "OffHeapByteArrayQueue"})
 	public String impl;
 	
 	private IStateQueue dsq;
@@ -64,6 +65,8 @@ public class DiskQueueBenachmark {
     public void up() throws IOException {
 		if (impl.equals("DiskByteArrayQueue")) {
 			this.dsq = new DiskByteArrayQueue();
+		} else if (impl.equals("OffHeapByteArrayQueue")) {
+			this.dsq = new OffHeapByteArrayQueue(Files.createTempDirectory("OffHeapByteArrayQueue").toFile().toString());
 		} else {
 			this.dsq = new DiskStateQueue();
 		}
@@ -26,8 +26,10 @@
 package tlc2.tool.queue;
 
 import java.io.IOException;
+import java.nio.file.Files;
 
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Group;
 import org.openjdk.jmh.annotations.GroupThreads;
 import org.openjdk.jmh.annotations.Param;
@@ -38,20 +40,43 @@ import org.openjdk.jmh.annotations.TearDown;
 
 import tlc2.tool.TLCState;
 import tlc2.tool.TLCStates;
+import tlc2.util.IdThread;
 
+// WorkStealingStateQueue only gives each worker a deque of its own if the
+// worker is an IdThread. Thus, run the benchmark threads as IdThreads.
+@Fork(jvmArgs = { "-Djmh.executor=CUSTOM", "-Djmh.executor.class=tlc2.tool.queue.IdThreadExecutor" })
 @State(Scope.Group)
 public class StateQueueBenachmark {
 
+	/**
+	 * The number of threads in a group (producers and consumers).
+	 */
+	private static final int THREADS = 4;
+
 	@Param({"1", "2", "4", "8", "16", "32", "64"})
 	public int size;
 	
+	@Param({"DiskStateQueue", "MemStateQueue", "WorkStealingStateQueue"})
+	public String impl;
+	
 	private IStateQueue s;
 
 	private TLCState[] batch;
 
     @Setup
     public void up() throws IOException {
-        s = new DiskStateQueue();
+        if ("MemStateQueue".equals(impl)) {
+        	s = new MemStateQueue();
+        } else if ("WorkStealingStateQueue".equals(impl)) {
+        	if (!(Thread.currentThread() instanceof IdThread)) {
+        		// The forked VM's jvmArgs have been overridden on the command line.
+        		throw new IllegalStateException("Benchmark threads are no IdThreads, run with -jvmArgs \"-Djmh.executor=CUSTOM -Djmh.executor.class="
+        				+ IdThreadExecutor.class.getName() + "\"");
+        	}
+        	s = new WorkStealingStateQueue(Files.createTempDirectory("WorkStealingStateQueue").toFile().toString(), THREADS);
+        } else {
+        	s = new DiskStateQueue();
+        }
         
     	// balance off the costs for creating the TLCState[].
     	this.batch = new TLCState[size];
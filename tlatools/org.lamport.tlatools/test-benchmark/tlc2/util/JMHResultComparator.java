@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved.
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two result files written by JMH (-rf json) and reports the
+ * benchmarks whose score got worse by more than the given threshold (in
+ * percent) and the error margins of both results.
+ * <p>
+ * Run with: java -cp target/benchmarks.jar tlc2.util.JMHResultComparator
+ * baseline.json result.json [threshold]
+ * <p>
+ * Exits with 1 if at least one benchmark regressed.
+ */
+public class JMHResultComparator {
+
+	public static void main(final String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: JMHResultComparator baseline.json result.json [threshold in percent]");
+			System.exit(2);
+		}
+		final double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 5d;
+
+		final Map<String, Result> baseline = read(args[0]);
+		final Map<String, Result> results = read(args[1]);
+
+		int regressions = 0;
+		for (Map.Entry<String, Result> entry : results.entrySet()) {
+			final Result result = entry.getValue();
+			final Result base = baseline.get(entry.getKey());
+			if (base == null) {
+				System.out.printf("%-100s %15s %15.3f %s%n", entry.getKey(), "-", result.score, result.unit);
+				continue;
+			}
+			// Positive if result is better than base.
+			final double delta = (result.score - base.score) / base.score * 100d
+					* (result.higherIsBetter() ? 1d : -1d);
+			final boolean regression = -delta > threshold
+					&& Math.abs(result.score - base.score) > result.error + base.error;
+			if (regression) {
+				regressions++;
+			}
+			System.out.printf("%-100s %15.3f %15.3f %s %+7.2f%%%s%n", entry.getKey(), base.score, result.score,
+					result.unit, delta, regression ? " REGRESSION" : "");
+		}
+		for (String key : baseline.keySet()) {
+			if (!results.containsKey(key)) {
+				System.out.printf("%-100s %15.3f %15s%n", key, baseline.get(key).score, "-");
+			}
+		}
+		System.exit(regressions > 0 ? 1 : 0);
+	}
+
+	private static class Result {
+		final String mode;
+		final double score;
+		final double error;
+		final String unit;
+
+		Result(final String mode, final double score, final double error, final String unit) {
+			this.mode = mode;
+			this.score = score;
+			this.error = error;
+			this.unit = unit;
+		}
+
+		boolean higherIsBetter() {
+			// All other modes (avgt, sample, ss) measure time.
+			return "thrpt".equals(mode);
+		}
+	}
+
+	/**
+	 * @return The results keyed by benchmark, mode and parameters.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Map<String, Result> read(final String filename) throws IOException {
+		final String json = new String(Files.readAllBytes(Paths.get(filename)), StandardCharsets.UTF_8);
+		final List<Object> runs = (List<Object>) new Parser(json).parse();
+
+		final Map<String, Result> results = new LinkedHashMap<>();
+		for (Object o : runs) {
+			final Map<String, Object> run = (Map<String, Object>) o;
+			final String mode = (String) run.get("mode");
+
+			final StringBuilder key = new StringBuilder((String) run.get("benchmark"));
+			key.append(" ").append(mode);
+			if (run.containsKey("params")) {
+				// Sort to not depend on the order of the parameters.
+				final Map<String, Object> params = new TreeMap<>((Map<String, Object>) run.get("params"));
+				key.append(" ").append(params);
+			}
+
+			final Map<String, Object> metric = (Map<String, Object>) run.get("primaryMetric");
+			results.put(key.toString(), new Result(mode, toDouble(metric.get("score")),
+					toDouble(metric.get("scoreError")), (String) metric.get("scoreUnit")));
+		}
+		return results;
+	}
+
+	private static double toDouble(final Object o) {
+		// JMH writes NaN as a string.
+		return o instanceof Number ? ((Number) o).doubleValue() : Double.parseDouble(o.toString());
+	}
+
+	/**
+	 * Just enough of a JSON parser to read JMH's result files.
+	 */
+	private static class Parser {
+		private final String json;
+		private int pos = 0;
+
+		Parser(final String json) {
+			this.json = json;
+		}
+
+		Object parse() {
+			skipWhitespace();
+			final char c = json.charAt(pos);
+			if (c == '{') {
+				final Map<String, Object> map = new LinkedHashMap<>();
+				pos++;
+				skipWhitespace();
+				if (json.charAt(pos) == '}') {
+					pos++;
+					return map;
+				}
+				do {
+					skipWhitespace();
+					final String key = parseString();
+					skipWhitespace();
+					expect(':');
+					map.put(key, parse());
+					skipWhitespace();
+				} while (json.charAt(pos++) == ',');
+				return map;
+			} else if (c == '[') {
+				final List<Object> list = new ArrayList<>();
+				pos++;
+				skipWhitespace();
+				if (json.charAt(pos) == ']') {
+					pos++;
+					return list;
+				}
+				do {
+					list.add(parse());
+					skipWhitespace();
+				} while (json.charAt(pos++) == ',');
+				return list;
+			} else if (c == '"') {
+				return parseString();
+			} else if (json.startsWith("true", pos)) {
+				pos += 4;
+				return Boolean.TRUE;
+			} else if (json.startsWith("false", pos)) {
+				pos += 5;
+				return Boolean.FALSE;
+			} else if (json.startsWith("null", pos)) {
+				pos += 4;
+				return null;
+			}
+			final int start = pos;
+			while (pos < json.length() && "+-0123456789.eE".indexOf(json.charAt(pos)) >= 0) {
+				pos++;
+			}
+			return Double.parseDouble(json.substring(start, pos));
+		}
+
+		private String parseString() {
+			expect('"');
+			final StringBuilder buf = new StringBuilder();
+			char c;
+			while ((c = json.charAt(pos++)) != '"') {
+				if (c == '\\') {
+					c = json.charAt(pos++);
+					switch (c) {
+					case 'n':
+						c = '\n';
+						break;
+					case 't':
+						c = '\t';
+						break;
+					case 'r':
+						c = '\r';
+						break;
+					case 'b':
+						c = '\b';
+						break;
+					case 'f':
+						c = '\f';
+						break;
+					case 'u':
+						c = (char) Integer.parseInt(json.substring(pos, pos + 4), 16);
+						pos += 4;
+						break;
+					default:
+						// '"', '\\' and '/' stand for themselves.
+					}
+				}
+				buf.append(c);
+			}
+			return buf.toString();
+		}
+
+		private void expect(final char c) {
+			if (json.charAt(pos) != c) {
+				throw new IllegalArgumentException(String.format("Expected '%s' at position %s", c, pos));
+			}
+			pos++;
+		}
+
+		private void skipWhitespace() {
+			while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+				pos++;
+			}
+		}
+	}
+}
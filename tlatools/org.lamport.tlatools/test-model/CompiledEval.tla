@@ -0,0 +1,37 @@
+--------------------------- MODULE CompiledEval ---------------------------
+EXTENDS Naturals, Sequences
+
+Procs == {1, 2, 3}
+
+VARIABLES pc, msgs
+
+Init == /\ pc = [p \in Procs |-> "idle"]
+        /\ msgs = <<>>
+
+Send(p) == /\ pc[p] = "idle"
+           /\ pc' = [pc EXCEPT ![p] = "sent"]
+           /\ msgs' = Append(msgs, [from |-> p, val |-> Len(msgs)])
+
+Recv(p) == /\ pc[p] = "sent"
+           /\ \E i \in 1..Len(msgs) : msgs[i].from = p
+           /\ pc' = [pc EXCEPT ![p] = "done"]
+           /\ UNCHANGED msgs
+
+Next == \E p \in Procs : Send(p) \/ Recv(p)
+
+Spec == Init /\ [][Next]_<<pc, msgs>>
+
+TypeOK == /\ pc \in [Procs -> {"idle", "sent", "done"}]
+          /\ \A i \in 1..Len(msgs) : msgs[i].from \in Procs /\ msgs[i].val < 3
+
+Sent == {p \in Procs : pc[p] # "idle"}
+
+\* Violated once two processes are done.
+Inv == \A p, q \in Procs :
+          CASE pc[p] = "done" /\ p # q -> IF pc[q] = "done" THEN FALSE ELSE q \notin Sent \/ <<p, q>> # <<q, p>>
+            [] OTHER -> LET n == Len(msgs) IN n <= 3
+
+Constraint == \A p \in Procs : pc[p] \in {"idle", "sent", "done"} => Len(msgs) <= 3
+
+ActionConstraint == \E p \in Procs : pc'[p] # pc[p] \/ msgs' = msgs
+=============================================================================
@@ -0,0 +1,20 @@
+--------------------------- MODULE ParallelInit ---------------------------
+EXTENDS Naturals, FiniteSets
+
+VARIABLES x, y, z
+
+\* With four workers, the domain of y is too small to be partitioned, thus
+\* SUBSET (1..8) is. The second disjunct does not enumerate a domain at all.
+Init == \/ /\ y \in 1..3
+           /\ x \in SUBSET (1..8)
+           /\ z = Cardinality(x) + y
+        \/ /\ x = {}
+           /\ y = 0
+           /\ z = 0
+
+Next == UNCHANGED <<x, y, z>>
+
+Spec == Init /\ [][Next]_<<x, y, z>>
+
+Inv == z <= 11
+=============================================================================
@@ -0,0 +1,29 @@
+--------------------------- MODULE StateMemo ---------------------------
+EXTENDS Naturals, FiniteSets
+
+VARIABLES x, y
+
+Init == x = 0 /\ y = 0
+
+\* State-level definitions referenced by both actions and the invariants.
+Sum == x + y
+
+Below == {i \in 0..10 : i <= Sum}
+
+IncX == /\ Sum < 6
+        /\ x' = x + 1
+        /\ y' = y
+
+IncY == /\ Sum < 6
+        /\ Cardinality(Below) > 0
+        /\ y' = y + 1
+        /\ x' = x
+
+Spec == Init /\ [][IncX \/ IncY]_<<x, y>>
+
+Inv == Cardinality(Below) = Sum + 1
+
+TypeOK == Sum \in 0..6
+
+Constraint == Cardinality(Below) <= 7
+=============================================================================
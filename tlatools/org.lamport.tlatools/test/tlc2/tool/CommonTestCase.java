@@ -153,8 +153,8 @@ public abstract class CommonTestCase {
 	 * with capacity zero and subsequently grows BV when bits are set to true.
 	 * <p>
 	 * 
-	 * @see BitVector#read(BufferedRandomAccessFile)
-	 * @see BitVector#write(BufferedRandomAccessFile)
+	 * @see BitVector#readPacked(BufferedRandomAccessFile, int)
+	 * @see BitVector#writePacked(java.nio.ByteBuffer)
 	 * @see GraphNode#read(BufferedRandomAccessFile)
 	 * @see GraphNode#write(BufferedRandomAccessFile)
 	 * 
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import tlc2.output.EC;
+import tlc2.output.EC.ExitStatus;
+import tlc2.tool.impl.Tool;
+import tlc2.tool.liveness.ModelCheckerTestCase;
+
+public class CompiledEvalTest extends ModelCheckerTestCase {
+
+	public CompiledEvalTest() {
+		super("CompiledEval", ExitStatus.VIOLATION_SAFETY);
+	}
+
+	@Override
+	protected void beforeSetUp() {
+		System.setProperty(Tool.class.getName() + ".compile", Boolean.TRUE.toString());
+	}
+
+	@Test
+	public void testSpec() {
+		assertTrue(recorder.recorded(EC.TLC_FINISHED));
+		assertFalse(recorder.recorded(EC.GENERAL));
+		assertTrue(recorder.recordedWithStringValues(EC.TLC_STATS, "38", "32", "17"));
+		assertTrue(recorder.recordedWithStringValue(EC.TLC_INVARIANT_VIOLATED_BEHAVIOR, "Inv"));
+
+		final List<String> expectedTrace = new ArrayList<String>(5);
+		expectedTrace.add("/\\ msgs = <<>>\n/\\ pc = <<\"idle\", \"idle\", \"idle\">>");
+		expectedTrace.add("/\\ msgs = <<[from |-> 1, val |-> 0]>>\n/\\ pc = <<\"sent\", \"idle\", \"idle\">>");
+		expectedTrace.add("/\\ msgs = <<[from |-> 1, val |-> 0]>>\n/\\ pc = <<\"done\", \"idle\", \"idle\">>");
+		expectedTrace.add(
+				"/\\ msgs = <<[from |-> 1, val |-> 0], [from |-> 2, val |-> 1]>>\n/\\ pc = <<\"done\", \"sent\", \"idle\">>");
+		expectedTrace.add(
+				"/\\ msgs = <<[from |-> 1, val |-> 0], [from |-> 2, val |-> 1]>>\n/\\ pc = <<\"done\", \"done\", \"idle\">>");
+		assertTraceWith(recorder.getRecords(EC.TLC_STATE_PRINT2), expectedTrace);
+	}
+
+	@Override
+	protected boolean doCoverage() {
+		// Coverage disables the compiled tier.
+		return false;
+	}
+}
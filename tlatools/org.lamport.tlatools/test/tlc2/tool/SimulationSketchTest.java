@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SimulationSketchTest {
+
+	@Test
+	public void testAddContains() {
+		final SimulationSketch sketch = new SimulationSketch(0, 16);
+		assertFalse(sketch.contains(4711L));
+		assertTrue(sketch.add(4711L));
+		assertTrue(sketch.contains(4711L));
+		assertFalse(sketch.add(4711L));
+		assertEquals(1L, sketch.getDistinct());
+	}
+
+	@Test
+	public void testFalsePositives() {
+		final SimulationSketch sketch = new SimulationSketch(0, 20);
+		final Random rnd = new Random(4711L);
+		for (int i = 0; i < 10_000; i++) {
+			sketch.add(rnd.nextLong());
+		}
+		// Nothing added is ever lost...
+		rnd.setSeed(4711L);
+		for (int i = 0; i < 10_000; i++) {
+			assertTrue(sketch.contains(rnd.nextLong()));
+		}
+		// ...and with 2^20 bits for 10k fingerprints, few are reported to be added
+		// that were not.
+		int fp = 0;
+		for (int i = 0; i < 10_000; i++) {
+			if (sketch.contains(rnd.nextLong())) {
+				fp++;
+			}
+		}
+		assertTrue(fp < 10);
+		assertTrue(sketch.getDistinct() > 9_990L);
+	}
+
+	@Test
+	public void testTaken() {
+		final SimulationSketch sketch = new SimulationSketch(3, 12);
+		sketch.taken(1);
+		sketch.taken(1);
+		sketch.taken(2);
+		assertEquals(0L, sketch.getTaken(0));
+		assertEquals(2L, sketch.getTaken(1));
+		assertEquals(1L, sketch.getTaken(2));
+	}
+}
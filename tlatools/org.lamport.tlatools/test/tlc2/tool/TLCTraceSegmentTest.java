@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+public class TLCTraceSegmentTest {
+
+	private static final int RECORDS = 3 * 4096 + 17; // Spans multiple buffers.
+
+	@Test
+	public void testAppendRead() throws IOException {
+		final TLCTraceSegment segment = new TLCTraceSegment(createFilename());
+		assertEquals(0L, segment.append(TLCTraceSegment.INITIAL, 42L));
+		for (long i = 1; i < RECORDS; i++) {
+			assertEquals(i, segment.append(TLCTraceSegment.encode(3, i - 1), i * 31L));
+		}
+		assertEquals(RECORDS, segment.size());
+
+		// Read records from disk and from the buffer.
+		final long[] initial = segment.read(0L);
+		assertEquals(TLCTraceSegment.INITIAL, initial[0]);
+		assertEquals(42L, initial[1]);
+		for (long i = RECORDS - 1; i > 0; i--) {
+			final long[] record = segment.read(i);
+			assertEquals(3, TLCTraceSegment.worker(record[0]));
+			assertEquals(i - 1, TLCTraceSegment.index(record[0]));
+			assertEquals(i * 31L, record[1]);
+		}
+		segment.close();
+	}
+
+	@Test
+	public void testCheckpointRecover() throws IOException {
+		final String filename = createFilename();
+		TLCTraceSegment segment = new TLCTraceSegment(filename);
+		for (long i = 0; i < RECORDS; i++) {
+			segment.append(TLCTraceSegment.INITIAL, i);
+		}
+		segment.beginChkpt();
+		// Records appended after the checkpoint has begun are lost, even if
+		// appended before the checkpoint is committed.
+		segment.append(TLCTraceSegment.INITIAL, -2L);
+		segment.commitChkpt();
+		segment.append(TLCTraceSegment.INITIAL, -1L);
+		segment.close();
+
+		segment = new TLCTraceSegment(filename);
+		segment.recover();
+		assertEquals(RECORDS, segment.size());
+
+		final TLCTraceSegment.Enumerator elements = segment.elements();
+		for (long i = 0; i < RECORDS; i++) {
+			assertTrue(elements.hasMoreFP());
+			assertEquals(i, elements.nextFP());
+		}
+		assertFalse(elements.hasMoreFP());
+		elements.close();
+
+		// Appending after recovery overwrites the lost records.
+		assertEquals(RECORDS, segment.append(TLCTraceSegment.INITIAL, 4711L));
+		assertEquals(4711L, segment.read(RECORDS)[1]);
+		segment.close();
+	}
+
+	/**
+	 * Enumerating and checkpointing must not interfere with the owner which
+	 * appends records without acquiring the lock.
+	 */
+	@Test
+	public void testConcurrentReaders() throws Exception {
+		final String filename = createFilename();
+		final TLCTraceSegment segment = new TLCTraceSegment(filename);
+		final long records = 64 * 4096 + 17;
+		final Thread owner = new Thread() {
+			public void run() {
+				try {
+					for (long i = 0; i < records; i++) {
+						segment.append(TLCTraceSegment.INITIAL, i);
+					}
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		owner.start();
+		while (owner.isAlive()) {
+			final TLCTraceSegment.Enumerator elements = segment.elements();
+			long i = 0;
+			while (elements.hasMoreFP()) {
+				assertEquals(i++, elements.nextFP());
+			}
+			elements.close();
+			segment.beginChkpt();
+			segment.commitChkpt();
+		}
+		owner.join();
+		assertEquals(records, segment.size());
+		for (long i = 0; i < records; i++) {
+			assertEquals(i, segment.read(i)[1]);
+		}
+		segment.close();
+
+		final TLCTraceSegment recovered = new TLCTraceSegment(filename);
+		recovered.recover();
+		final TLCTraceSegment.Enumerator elements = recovered.elements();
+		long i = 0;
+		while (elements.hasMoreFP()) {
+			assertEquals(i++, elements.nextFP());
+		}
+		elements.close();
+		recovered.close();
+	}
+
+	private static String createFilename() throws IOException {
+		final File dir = Files.createTempDirectory("TLCTraceSegmentTest").toFile();
+		dir.deleteOnExit();
+		return dir.getAbsolutePath() + File.separator + "MC-0";
+	}
+}
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.distributed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.rmi.RemoteException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import tlc2.TLCGlobals;
+import tlc2.output.EC;
+import tlc2.output.MP;
+import tlc2.tool.CommonTestCase;
+import tlc2.tool.IStateFunctor;
+import tlc2.tool.TLCState;
+import tlc2.tool.WorkerException;
+import tlc2.tool.distributed.fp.IFPSetManager;
+import tlc2.tool.distributed.selector.BlockSelectorFactory;
+import tlc2.tool.distributed.transport.StreamEndpoint;
+import tlc2.tool.fp.FPSetConfiguration;
+import tlc2.util.FP64;
+import util.ToolIO;
+
+/**
+ * Tests that the successors of a worker that inserts into the fingerprint set
+ * directly (see TLCServer#WORKER_PUT_BLOCK) get explored even if the worker is
+ * lost before its result reaches the server.
+ */
+public class WorkerPutBlockTest extends CommonTestCase {
+
+	@Before
+	public void setUp() {
+		// Has to be set before TLCServer gets loaded.
+		System.setProperty(TLCServer.class.getName() + ".workerPutBlock", Boolean.TRUE.toString());
+
+		MP.setRecorder(recorder);
+		TLCGlobals.chkptDuration = 0;
+		FP64.Init();
+	}
+
+	@Test
+	public void testLostWorker() throws Exception {
+		ToolIO.setUserDir(BASE_PATH);
+		final TLCApp app = new TLCApp(BASE_PATH + "DieHard", "DieHard", false, null, new FPSetConfiguration());
+		final TLCServer server = new TLCServer(app);
+
+		// Enqueue the initial states like TLCServer#doInit.
+		app.getInitStates(new IStateFunctor() {
+			public Object addElement(final TLCState state) {
+				final long fp = state.fingerPrint();
+				if (!server.fpSetManager.put(fp)) {
+					try {
+						state.uid = server.trace.writeState(fp);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+					server.stateQueue.enqueue(state);
+				}
+				return state;
+			}
+		});
+
+		final LostTLCWorker worker = new LostTLCWorker(app, server.fpSetManager);
+		final TLCServerThread thread = new TLCServerThread(worker, worker.getURI(), server,
+				Executors.newCachedThreadPool(), BlockSelectorFactory.getBlockSelector(server));
+		thread.run();
+
+		// The worker got lost after it inserted the successors of the initial
+		// state. They have to be in the queue nevertheless.
+		final Set<Long> enqueued = new HashSet<Long>();
+		while (!server.stateQueue.isEmpty()) {
+			enqueued.add(server.stateQueue.dequeue().fingerPrint());
+		}
+		assertFalse(worker.inserted.isEmpty());
+		assertEquals(worker.inserted, enqueued);
+		assertFalse(recorder.recorded(EC.GENERAL));
+	}
+
+	/**
+	 * Inserts the fingerprints of the successor states like a TLCWorker does in
+	 * TLCServer#WORKER_PUT_BLOCK mode but is lost before it returns the result.
+	 */
+	private static class LostTLCWorker implements TLCWorkerRMI {
+
+		private final Set<Long> inserted = new HashSet<Long>();
+		private final DistApp work;
+		private final IFPSetManager fpSetManager;
+
+		public LostTLCWorker(final DistApp work, final IFPSetManager fpSetManager) {
+			this.work = work;
+			this.fpSetManager = fpSetManager;
+		}
+
+		public NextStateResult getNextStates(final TLCState[] states) throws RemoteException, WorkerException {
+			for (int i = 0; i < states.length; i++) {
+				final TLCState[] nstates = this.work.getNextStates(states[i]);
+				for (int j = 0; j < nstates.length; j++) {
+					final long fp = nstates[j].fingerPrint();
+					if (!this.fpSetManager.put(fp)) {
+						inserted.add(fp);
+					}
+				}
+			}
+			throw new RemoteException("Worker lost after inserting into the fingerprint set.");
+		}
+
+		public StreamEndpoint.Ticket openStreamEndpoint() throws RemoteException {
+			throw new RemoteException("Not supported by " + LostTLCWorker.class.getName());
+		}
+
+		public boolean isAlive() {
+			return false;
+		}
+
+		public void exit() {
+			// noop
+		}
+
+		public URI getURI() {
+			return URI.create("rmi://localhost:" + TLCServer.Port + "/0");
+		}
+
+		public double getCacheRateRatio() {
+			return -1d;
+		}
+	}
+}
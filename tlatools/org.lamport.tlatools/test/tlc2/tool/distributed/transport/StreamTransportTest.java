@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.distributed.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URI;
+import java.rmi.RemoteException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import tlc2.tool.TLCState;
+import tlc2.tool.TLCStateVec;
+import tlc2.tool.WorkerException;
+import tlc2.tool.distributed.NextStateResult;
+import tlc2.tool.distributed.TLCWorkerSmartProxy;
+import tlc2.tool.queue.DummyTLCState;
+import tlc2.util.LongVec;
+
+public class StreamTransportTest {
+
+	private static final long FAILING_UID = 42L;
+
+	private StreamEndpoint endpoint;
+	private StreamTransport transport;
+
+	@Before
+	public void setUp() throws IOException {
+		new StreamTLCState();
+		transport = new StreamTransport(new DummyWorker());
+	}
+
+	@After
+	public void tearDown() {
+		transport.close();
+		endpoint.close();
+	}
+
+	@Test
+	public void testPipelined() throws RemoteException, WorkerException {
+		// Send all units of work before the first result is received.
+		for (int i = 0; i < 3; i++) {
+			transport.send(states(i * 10, 5));
+		}
+		for (int i = 0; i < 3; i++) {
+			final NextStateResult result = transport.receive();
+			assertEquals(5, result.getStatesComputed());
+			final TLCStateVec[] nextStates = result.getNextStates();
+			final LongVec[] nextFps = result.getNextFingerprints();
+			assertEquals(2, nextStates.length);
+			// Successors with an even uid go to the first fingerprint server.
+			assertEquals(3, nextStates[0].size());
+			assertEquals(2, nextStates[1].size());
+			for (int j = 0; j < nextStates.length; j++) {
+				for (int k = 0; k < nextStates[j].size(); k++) {
+					final TLCState state = nextStates[j].elementAt(k);
+					assertEquals(i * 10 + 2 * k + j, state.uid);
+					assertEquals(state.uid * 31L, nextFps[j].elementAt(k));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testWorkerException() throws RemoteException, WorkerException {
+		transport.send(states(0, 1));
+		transport.send(states(FAILING_UID, 1));
+		transport.send(states(50, 1));
+
+		assertEquals(1, transport.receive().getStatesComputed());
+		try {
+			transport.receive();
+			fail();
+		} catch (WorkerException e) {
+			assertEquals(FAILING_UID, e.state1.uid);
+		}
+		// The stream stays usable after a failed unit of work.
+		assertEquals(50, transport.receive().getNextStates()[0].elementAt(0).uid);
+	}
+
+	@Test
+	public void testEmptyUnitOfWork() throws RemoteException, WorkerException {
+		transport.send(new TLCState[0]);
+		final NextStateResult result = transport.receive();
+		assertEquals(0, result.getStatesComputed());
+		assertEquals(0, result.getNextStates()[0].size());
+	}
+
+	@Test
+	public void testWrongToken() throws IOException, WorkerException {
+		// The endpoint serves one connection at a time.
+		transport.close();
+
+		final StreamEndpoint.Ticket ticket = endpoint.getTicket();
+		final byte[] token = ticket.getToken();
+		token[0]++;
+		final Socket socket = new Socket(ticket.getHost(), ticket.getPort());
+		try {
+			final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+			out.write(token);
+			Frames.write(out, Frames.encodeStates(states(0, 1)));
+			// The endpoint closes (or resets) the connection without a result.
+			try {
+				assertEquals(-1, socket.getInputStream().read());
+			} catch (SocketException reset) {
+				// expected
+			}
+		} finally {
+			socket.close();
+		}
+
+		// The endpoint still serves the server.
+		transport = new StreamTransport(new DummyWorker());
+		transport.send(states(0, 1));
+		assertEquals(1, transport.receive().getStatesComputed());
+	}
+
+	@Test
+	public void testInvalidFrameLength() {
+		final int[] lengths = new int[] { -1, 0, Frames.MAX_LENGTH + 1, Integer.MAX_VALUE };
+		for (int i = 0; i < lengths.length; i++) {
+			final int l = lengths[i];
+			final byte[] bytes = new byte[] { (byte) (l >>> 24), (byte) (l >>> 16), (byte) (l >>> 8), (byte) l };
+			try {
+				Frames.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+				fail("Accepted frame length " + l);
+			} catch (IOException expected) {
+				// The server handles it as a lost worker.
+			}
+		}
+	}
+
+	private static TLCState[] states(final long from, final int n) {
+		final TLCState[] states = new TLCState[n];
+		for (int i = 0; i < n; i++) {
+			states[i] = TLCState.Empty.createEmpty();
+			states[i].uid = from + i;
+		}
+		return states;
+	}
+
+	@SuppressWarnings("serial")
+	private static class StreamTLCState extends DummyTLCState {
+		public TLCState createEmpty() {
+			return new StreamTLCState();
+		}
+	}
+
+	private class DummyWorker extends TLCWorkerSmartProxy {
+
+		public DummyWorker() {
+			super(null);
+		}
+
+		public NextStateResult getNextStates(final TLCState[] states) throws RemoteException, WorkerException {
+			final TLCStateVec[] nextStates = new TLCStateVec[] { new TLCStateVec(), new TLCStateVec() };
+			final LongVec[] nextFps = new LongVec[] { new LongVec(), new LongVec() };
+			for (int i = 0; i < states.length; i++) {
+				if (states[i].uid == FAILING_UID) {
+					throw new WorkerException("Failing state", null, states[i], null, false);
+				}
+				final int server = (int) (states[i].uid % 2);
+				nextStates[server].addElement(states[i]);
+				nextFps[server].addElement(states[i].uid * 31L);
+			}
+			return new NextStateResult(nextStates, nextFps, 1L, states.length);
+		}
+
+		public StreamEndpoint.Ticket openStreamEndpoint() throws RemoteException {
+			if (endpoint == null) {
+				try {
+					endpoint = new StreamEndpoint(this, InetAddress.getLoopbackAddress(), "StreamTransportTest");
+				} catch (IOException e) {
+					throw new RemoteException(e.getMessage(), e);
+				}
+			}
+			return endpoint.getTicket();
+		}
+
+		public URI getURI() throws RemoteException {
+			return URI.create("rmi://localhost:0/");
+		}
+	}
+}
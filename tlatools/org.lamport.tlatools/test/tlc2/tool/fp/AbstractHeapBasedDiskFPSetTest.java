@@ -2,6 +2,7 @@
 package tlc2.tool.fp;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -134,6 +135,45 @@ public abstract class AbstractHeapBasedDiskFPSetTest {
 		}
 	}
 
+	@Test
+	public void testFPSetCheckpoint() throws IOException {
+		final String metadir = System.getProperty("java.io.tmpdir");
+		final String filename = this.getClass().getCanonicalName() + "testFPSetCheckpoint";
+
+		final DiskFPSet fpSet = getDiskFPSet(new FPSetConfiguration());
+		fpSet.init(1, metadir, filename);
+		for (long fp = 1; fp <= 1024; fp++) {
+			assertFalse(fpSet.put(fp));
+		}
+		fpSet.beginChkpt(filename);
+		fpSet.commitChkpt(filename);
+
+		// Flushing replaces the backing file, which leaves the checkpoint intact.
+		fpSet.forceFlush();
+		for (long fp = 1025; fp <= 2048; fp++) {
+			assertFalse(fpSet.put(fp));
+		}
+		final DiskFPSet recovered = getDiskFPSet(new FPSetConfiguration());
+		recovered.init(1, metadir, filename + "recovered");
+		recovered.recover(filename);
+		assertEquals(1024, recovered.size());
+		for (long fp = 1; fp <= 1024; fp++) {
+			assertTrue(recovered.contains(fp));
+		}
+		assertFalse(recovered.contains(1025L));
+
+		// A new run in the same metadir must not truncate the checkpoint.
+		fpSet.beginChkpt(filename);
+		fpSet.commitChkpt(filename);
+		final DiskFPSet rerun = getDiskFPSet(new FPSetConfiguration());
+		rerun.init(1, metadir, filename);
+		rerun.recover(filename);
+		assertEquals(2048, rerun.size());
+		for (long fp = 1; fp <= 2048; fp++) {
+			assertTrue(rerun.contains(fp));
+		}
+	}
+
 	/* Helper */
 
 	@SuppressWarnings("deprecation")
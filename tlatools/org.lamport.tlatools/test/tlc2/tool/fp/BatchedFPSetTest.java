@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import tlc2.util.BitVector;
+import util.TLCRuntime;
+
+/**
+ * Checks that {@link FPSet#putAll(long[], int, BitVector)} and
+ * {@link FPSet#containsAll(long[], int, BitVector)} of the {@link FPSet}s that
+ * process batches in sorted order yield the same results as
+ * {@link FPSet#put(long)} and {@link FPSet#contains(long)}.
+ * <p>
+ * The sets are not closed because OffHeapDiskFPSet's eviction also evicts the
+ * OffHeapDiskFPSets of previous tests.
+ */
+@RunWith(Parameterized.class)
+public class BatchedFPSetTest {
+
+	private static final String tmpdir = System.getProperty("java.io.tmpdir") + File.separator + "BatchedFPSetTest"
+			+ System.currentTimeMillis();
+
+	@Parameterized.Parameters(name = "{0}")
+	public static Collection<String> fpSets() {
+		return Arrays.asList(MSBDiskFPSet.class.getName(), OffHeapDiskFPSet.class.getName(),
+				MultiFPSet.class.getName());
+	}
+
+	private final String impl;
+
+	public BatchedFPSetTest(final String impl) {
+		this.impl = impl;
+	}
+
+	private FPSet getFPSet() throws IOException {
+		new File(tmpdir).mkdirs();
+		if (impl.equals(MultiFPSet.class.getName())) {
+			final FPSetConfiguration conf = new FPSetConfiguration(1d, MSBDiskFPSet.class.getName());
+			conf.setFpBits(2);
+			return new MultiFPSet(conf).init(1, tmpdir, impl);
+		}
+		// Small enough for the fingerprints of the test to not fit into memory.
+		final DummyFPSetConfiguration conf = new DummyFPSetConfiguration();
+		conf.setMemoryInFingerprintCnt(1024);
+		if (impl.equals(OffHeapDiskFPSet.class.getName())) {
+			Assume.assumeTrue(TLCRuntime.getInstance().getArchitecture() == TLCRuntime.ARCH.x86_64);
+			return new OffHeapDiskFPSet(conf).init(1, tmpdir, impl);
+		}
+		return new MSBDiskFPSet(conf).init(1, tmpdir, impl);
+	}
+
+	@Test
+	public void testPutAll() throws IOException {
+		final FPSet fpSet = getFPSet();
+
+		final Set<Long> expected = new HashSet<>();
+		final List<Long> history = new ArrayList<>();
+		final Random random = new Random(15041980L);
+
+		final long[] fps = new long[128];
+		final BitVector seen = new BitVector(fps.length);
+		for (int n = 0; n < 64; n++) {
+			// Every other fingerprint has been put before, either by an
+			// earlier batch or as part of this batch.
+			for (int i = 0; i < fps.length; i++) {
+				fps[i] = random.nextBoolean() && !history.isEmpty() ? history.get(random.nextInt(history.size()))
+						: getFingerprint(random);
+				history.add(fps[i]);
+			}
+			fpSet.putAll(fps, fps.length, seen);
+			for (int i = 0; i < fps.length; i++) {
+				assertEquals(!expected.add(fps[i]), seen.get(i));
+			}
+		}
+		assertEquals(expected.size(), fpSet.size());
+		if (fpSet instanceof DiskFPSet) {
+			// Some fingerprints have been looked up on disk.
+			assertTrue(((DiskFPSet) fpSet).getGrowDiskMark() > 0);
+		}
+
+		// containsAll does not add fingerprints.
+		for (int i = 0; i < fps.length; i++) {
+			fps[i] = i % 2 == 0 ? history.get(random.nextInt(history.size())) : getFingerprint(random);
+		}
+		fpSet.containsAll(fps, fps.length, seen);
+		for (int i = 0; i < fps.length; i++) {
+			assertEquals(expected.contains(fps[i]), seen.get(i));
+			assertEquals(fpSet.contains(fps[i]), seen.get(i));
+		}
+		assertEquals(expected.size(), fpSet.size());
+		
+		assertTrue(fpSet.checkInvariant());
+	}
+
+	@Test
+	public void testPutAllLen() throws IOException {
+		final FPSet fpSet = getFPSet();
+
+		// Only the first len fingerprints are put into the set.
+		final long[] fps = new long[] { 42L, 23L, 42L, 4711L };
+		final BitVector seen = new BitVector(fps.length);
+		fpSet.putAll(fps, 3, seen);
+		assertFalse(seen.get(0));
+		assertFalse(seen.get(1));
+		assertTrue(seen.get(2));
+		assertEquals(2, fpSet.size());
+		assertFalse(fpSet.contains(4711L));
+
+		fpSet.containsAll(fps, fps.length, seen);
+		assertTrue(seen.get(0));
+		assertTrue(seen.get(1));
+		assertTrue(seen.get(2));
+		assertFalse(seen.get(3));
+	}
+
+	private static long getFingerprint(final Random random) {
+		// Positive and non-zero.
+		return (((long) random.nextInt(Integer.MAX_VALUE - 1) + 1) << 32) | (random.nextInt() & 0xffffffffL);
+	}
+}
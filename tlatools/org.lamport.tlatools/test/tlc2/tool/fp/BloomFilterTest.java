@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BloomFilterTest {
+
+	@Before
+	public void setup() {
+		Assume.assumeTrue(LongArray.isSupported());
+	}
+
+	@Test
+	public void testNoFalseNegatives() throws IOException {
+		final int n = 100000;
+		// 10 bits per element.
+		final BloomFilter filter = new BloomFilter(n * 10L / 8L, 0.01d);
+		assertEquals(7, filter.getHashCnt());
+
+		Random random = new Random(4711L);
+		for (int i = 0; i < n; i++) {
+			filter.put(random.nextLong() & DiskFPSet.FLUSHED_MASK);
+		}
+		random = new Random(4711L);
+		for (int i = 0; i < n; i++) {
+			assertTrue(filter.mightContain(random.nextLong() & DiskFPSet.FLUSHED_MASK));
+		}
+
+		// The observed false positive rate of a blocked filter is slightly
+		// higher than the rate of a standard Bloom filter.
+		int falsePositives = 0;
+		random = new Random(815L);
+		for (int i = 0; i < n; i++) {
+			if (filter.mightContain(random.nextLong() & DiskFPSet.FLUSHED_MASK)) {
+				falsePositives++;
+			}
+		}
+		final double expected = filter.getFalsePositiveRate(n);
+		assertTrue(expected < 0.01d);
+		assertTrue(falsePositives / (double) n < 2 * expected);
+	}
+
+	@Test
+	public void testOffHeapDiskFPSet() throws IOException {
+		final DummyFPSetConfiguration fpSetConfig = new DummyFPSetConfiguration();
+		fpSetConfig.setMemoryInFingerprintCnt(1024);
+		fpSetConfig.setBloomFilterMemoryInBytes(1024 * 64);
+
+		final String tmpdir = System.getProperty("java.io.tmpdir") + File.separator + "BloomFilterTest"
+				+ System.currentTimeMillis();
+		new File(tmpdir).mkdirs();
+
+		final DiskFPSet fpSet = new OffHeapDiskFPSet(fpSetConfig);
+		fpSet.init(1, tmpdir, "BloomFilterTest");
+		assertEquals(1024L * 64L, fpSet.getBloomFilterSize());
+
+		final long seed = 1473793977852L;
+		final int n = 1024 * 16;
+		Random random = new Random(seed);
+		for (int i = 0; i < n; i++) {
+			assertFalse(fpSet.put(random.nextLong() & DiskFPSet.FLUSHED_MASK));
+		}
+		assertTrue(fpSet.getGrowDiskMark() > 1);
+		// Most of the lookups of the (new) fingerprints above never went to disk.
+		assertTrue(fpSet.getBloomFilterNegativeCnt() > fpSet.getDiskLookupCnt());
+
+		random = new Random(seed);
+		for (int i = 0; i < n; i++) {
+			assertTrue(fpSet.contains(random.nextLong() & DiskFPSet.FLUSHED_MASK));
+		}
+		assertTrue(fpSet.checkInvariant());
+		assertTrue(fpSet.getBloomFilterFPR() > 0d && fpSet.getBloomFilterFPR() < 0.01d);
+
+		fpSet.close();
+	}
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import util.TLCRuntime;
+
+public class CompactOffHeapDiskFPSetTest {
+
+	protected static final String filename = "CompactOffHeapDiskFPSetTest";
+
+	@Before
+	public void setup() {
+		Assume.assumeTrue(TLCRuntime.getInstance().getArchitecture() == TLCRuntime.ARCH.x86_64);
+	}
+
+	protected DiskFPSet getFPSet(final FPSetConfiguration fpSetConfig) throws IOException {
+		return new CompactOffHeapDiskFPSet(fpSetConfig, false);
+	}
+
+	@Test
+	public void testSlotsSmallerThanFingerprints() throws IOException {
+		final DummyFPSetConfiguration fpSetConfig = new DummyFPSetConfiguration();
+		fpSetConfig.setMemoryInFingerprintCnt(1L << 20);
+
+		final CompactOffHeapDiskFPSet fpSet = new CompactOffHeapDiskFPSet(fpSetConfig, false);
+		// 2^20 longs with ~40 bit slots yield 2^21 slots (2^20 * 64 / 40)
+		// which imply ~20 bits of a fingerprint. 
+		assertTrue(fpSet.getSlotBits() < 48);
+		assertTrue(fpSet.getOverallCapacity() > (1L << 20));
+	}
+
+	@Test
+	public void testInsertAndFlush1() throws IOException {
+		doTest(1473793977852L, 4096, 3);
+	}
+
+	@Test
+	public void testInsertAndFlush2() throws IOException {
+		doTest(1473839150698L, 8192, 5);
+	}
+
+	@Test
+	public void testInsertAndFlush3() throws IOException {
+		doTest(1473871209569L, 1 << 16, 4);
+	}
+
+	@Test
+	public void testClusteredFingerprints() throws IOException {
+		// Fingerprints which only differ in their low bits share a quotient and
+		// thus end up in long runs and clusters.
+		final DummyFPSetConfiguration fpSetConfig = new DummyFPSetConfiguration();
+		fpSetConfig.setMemoryInFingerprintCnt(4096);
+
+		final DiskFPSet fpSet = getFPSet(fpSetConfig);
+		fpSet.init(1, createTmpFile(), filename);
+
+		final Set<Long> expected = new HashSet<Long>();
+		final Random random = new Random(4711L);
+		for (int i = 0; i < 16; i++) {
+			final long base = getFingerprint(random) & ~0xFFFFL;
+			for (long j = 0; j < 512; j++) {
+				final long fp = base | (j * 97L & 0xFFFFL);
+				assertEquals(!expected.add(fp), fpSet.put(fp));
+			}
+		}
+		for (Long fp : expected) {
+			assertTrue(fpSet.contains(fp));
+			assertTrue(fpSet.put(fp));
+		}
+		assertEquals(expected.size(), fpSet.size());
+		assertTrue(fpSet.checkInvariant());
+		fpSet.close();
+	}
+
+	private void doTest(final long rgenseed, final int length, final int flushes) throws IOException {
+		final DummyFPSetConfiguration fpSetConfig = new DummyFPSetConfiguration();
+		fpSetConfig.setMemoryInFingerprintCnt(length);
+
+		final DiskFPSet fpSet = getFPSet(fpSetConfig);
+		fpSet.init(1, createTmpFile(), filename);
+
+		final Set<Long> expected = new HashSet<Long>();
+		final List<Long> inserted = new ArrayList<Long>();
+		final Random random = new Random(rgenseed);
+		for (int f = 0; f < flushes; f++) {
+			for (int i = 0; i < length / 2; i++) {
+				final long fp = getFingerprint(random);
+				assertEquals(!expected.add(fp), fpSet.put(fp));
+				inserted.add(fp);
+			}
+			// Re-insert known fingerprints (on disk and in memory).
+			for (int i = 0; i < length / 2; i++) {
+				assertTrue(fpSet.put(inserted.get(random.nextInt(inserted.size()))));
+			}
+
+			fpSet.forceFlush();
+			// put triggers the flush
+			final long fp = getFingerprint(random);
+			assertEquals(!expected.add(fp), fpSet.put(fp));
+			assertTrue(fpSet.getTblCnt() <= 1);
+			assertEquals(expected.size(), fpSet.size());
+		}
+
+		for (Long fp : expected) {
+			assertTrue(fpSet.contains(fp));
+		}
+		for (int i = 0; i < length; i++) {
+			final long fp = getFingerprint(random);
+			assertEquals(expected.contains(fp), fpSet.contains(fp));
+		}
+		assertEquals(expected.size(), fpSet.size());
+		assertTrue(fpSet.checkInvariant());
+		assertTrue(fpSet.getGrowDiskMark() >= flushes);
+		fpSet.close();
+	}
+
+	private static String createTmpFile() {
+		final String tmpdir = System.getProperty("java.io.tmpdir") + File.separator + "CompactOffHeapDiskFPSetTest"
+				+ System.nanoTime();
+		new File(tmpdir).mkdirs();
+		return tmpdir;
+	}
+
+	private static long getFingerprint(final Random random) {
+		return (((long) random.nextInt(Integer.MAX_VALUE - 1) + 1) << 32) | (random.nextInt() & 0xffffffffL);
+	}
+}
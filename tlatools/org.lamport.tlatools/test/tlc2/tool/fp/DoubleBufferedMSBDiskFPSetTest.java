@@ -0,0 +1,259 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.rmi.RemoteException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import tlc2.util.BitVector;
+import util.Assert.TLCRuntimeException;
+
+public class DoubleBufferedMSBDiskFPSetTest extends MSBDiskFPSetTest2 {
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.MSBDiskFPSetTest2#getDiskFPSet(tlc2.tool.fp.FPSetConfiguration)
+	 */
+	@Override
+	protected DiskFPSet getDiskFPSet(final FPSetConfiguration fpSetConfig) throws RemoteException {
+		return new MSBDiskFPSet(fpSetConfig, true);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.MSBDiskFPSetTest2#getLowerLimit()
+	 */
+	@Override
+	protected long getLowerLimit() {
+		// The frozen table takes up half of the memory.
+		return 1L << 9;
+	}
+
+	@Test
+	public void testConcurrentPutsDuringBackgroundMerges() throws Exception {
+		final int numThreads = 4;
+		final int length = 1 << 16;
+
+		final DummyFPSetConfiguration fpSetConfig = new DummyFPSetConfiguration();
+		fpSetConfig.setMemoryInFingerprintCnt(1 << 12);
+		final DiskFPSet fpSet = getDiskFPSet(fpSetConfig);
+		fpSet.init(numThreads, System.getProperty("java.io.tmpdir"),
+				getClass().getName() + System.currentTimeMillis());
+
+		final Set<Long> unique = new HashSet<Long>();
+		final Random random = new Random(4711L);
+		while (unique.size() < length) {
+			unique.add((random.nextLong() & 0x7FFFFFFFFFFFFFFFL) | 1L);
+		}
+		final long[] fps = new long[length];
+		int n = 0;
+		for (Long fp : unique) {
+			fps[n++] = fp;
+		}
+
+		// Every thread inserts all fingerprints starting at a different
+		// offset. Thus, each fingerprint is inserted numThreads times, possibly
+		// concurrently with a swap of the tables or the disk file. Half of
+		// the threads use the batched put.
+		final AtomicLong inserted = new AtomicLong();
+		final Throwable[] failure = new Throwable[1];
+		final Thread[] threads = new Thread[numThreads];
+		for (int t = 0; t < numThreads; t++) {
+			final int offset = t * (length / numThreads);
+			final boolean batched = t % 2 == 1;
+			threads[t] = new Thread(() -> {
+				try {
+					final long[] batch = new long[64];
+					final BitVector seen = new BitVector(batch.length);
+					for (int i = 0; i < length; i += batch.length) {
+						for (int j = 0; j < batch.length; j++) {
+							batch[j] = fps[(offset + i + j) % length];
+						}
+						if (batched) {
+							fpSet.putAll(batch, batch.length, seen);
+							for (int j = 0; j < batch.length; j++) {
+								if (!seen.get(j)) {
+									inserted.incrementAndGet();
+								}
+							}
+						} else {
+							for (int j = 0; j < batch.length; j++) {
+								if (!fpSet.put(batch[j])) {
+									inserted.incrementAndGet();
+								}
+							}
+						}
+					}
+				} catch (Throwable e) {
+					synchronized (failure) {
+						failure[0] = e;
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		synchronized (failure) {
+			if (failure[0] != null) {
+				throw new AssertionError(failure[0]);
+			}
+		}
+
+		// Each fingerprint has been new to exactly one put.
+		assertEquals(length, inserted.get());
+		assertTrue(fpSet.getGrowDiskMark() > 1);
+		assertEquals(length, fpSet.size());
+		for (long fp : fps) {
+			assertTrue(fpSet.contains(fp));
+		}
+		assertTrue(fpSet.checkInvariant());
+		fpSet.close();
+	}
+
+	@Test
+	public void testInsertsWaitForSlowMerge() throws Exception {
+		final int numThreads = 4;
+
+		final DummyFPSetConfiguration fpSetConfig = new DummyFPSetConfiguration();
+		fpSetConfig.setMemoryInFingerprintCnt(1 << 12);
+		final DiskFPSet fpSet = new SlowMergeMSBDiskFPSet(fpSetConfig);
+		fpSet.init(numThreads, System.getProperty("java.io.tmpdir"),
+				getClass().getName() + "testSlowMerge" + System.currentTimeMillis());
+
+		// Insert continuously while the merges sleep. The fresh table must
+		// not grow beyond maxTblCnt (plus one concurrent insert per thread)
+		// while the frozen one is being merged.
+		final long maxTblCnt = fpSet.getMaxTblCnt();
+		final long length = maxTblCnt * 4;
+		final AtomicLong maxObserved = new AtomicLong();
+		final Throwable[] failure = new Throwable[1];
+		final Thread[] threads = new Thread[numThreads];
+		for (int t = 0; t < numThreads; t++) {
+			final long offset = t;
+			threads[t] = new Thread(() -> {
+				try {
+					for (long fp = 1 + offset; fp <= length; fp += numThreads) {
+						fpSet.put(fp * 0x9E3779B97F4A7C15L);
+						maxObserved.accumulateAndGet(fpSet.getTblCnt(), Math::max);
+					}
+				} catch (Throwable e) {
+					synchronized (failure) {
+						failure[0] = e;
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		synchronized (failure) {
+			if (failure[0] != null) {
+				throw new AssertionError(failure[0]);
+			}
+		}
+
+		assertTrue(maxObserved.get() + " > " + maxTblCnt, maxObserved.get() <= maxTblCnt + numThreads);
+		assertTrue(fpSet.getGrowDiskMark() > 1);
+		assertEquals(length, fpSet.size());
+		for (long fp = 1; fp <= length; fp++) {
+			assertTrue(fpSet.contains(fp * 0x9E3779B97F4A7C15L));
+		}
+		fpSet.close();
+	}
+
+	@Test(expected = TLCRuntimeException.class)
+	public void testDoubleBufferRequiresMergeFrozen() throws RemoteException {
+		final DummyFPSetConfiguration fpSetConfig = new DummyFPSetConfiguration();
+		fpSetConfig.setMemoryInFingerprintCnt(1 << 12);
+		new NoMergeFrozenDiskFPSet(fpSetConfig);
+	}
+
+	@SuppressWarnings("serial")
+	private static class SlowMergeMSBDiskFPSet extends MSBDiskFPSet {
+
+		SlowMergeMSBDiskFPSet(final FPSetConfiguration fpSetConfig) throws RemoteException {
+			super(fpSetConfig, true);
+		}
+
+		/* (non-Javadoc)
+		 * @see tlc2.tool.fp.MSBDiskFPSet#mergeFrozen(long[][], long, tlc2.tool.fp.MappedFPFile.Reader, java.io.RandomAccessFile)
+		 */
+		@Override
+		protected long[] mergeFrozen(final long[][] table, final long cnt, final MappedFPFile.Reader in,
+				final RandomAccessFile outRAF) throws IOException {
+			try {
+				Thread.sleep(100L);
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			}
+			return super.mergeFrozen(table, cnt, in, outRAF);
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static class NoMergeFrozenDiskFPSet extends HeapBasedDiskFPSet {
+
+		NoMergeFrozenDiskFPSet(final FPSetConfiguration fpSetConfig) throws RemoteException {
+			super(fpSetConfig, true);
+		}
+	}
+
+	@Test
+	public void testCheckpointWaitsForBackgroundMerge() throws IOException {
+		final DummyFPSetConfiguration fpSetConfig = new DummyFPSetConfiguration();
+		fpSetConfig.setMemoryInFingerprintCnt(1 << 10);
+		final String filename = getClass().getName() + "testCheckpoint" + System.currentTimeMillis();
+		final DiskFPSet fpSet = getDiskFPSet(fpSetConfig);
+		fpSet.init(1, System.getProperty("java.io.tmpdir"), filename);
+
+		final long limit = fpSet.getMaxTblCnt() * 3;
+		for (long fp = 1; fp <= limit; fp++) {
+			fpSet.put(fp * 0x9E3779B97F4A7C15L);
+		}
+		fpSet.beginChkpt(filename);
+		fpSet.commitChkpt(filename);
+
+		final DiskFPSet recovered = getDiskFPSet(new FPSetConfiguration());
+		recovered.init(1, System.getProperty("java.io.tmpdir"), filename + "recovered");
+		recovered.recover(filename);
+		assertEquals(fpSet.size(), recovered.size());
+		for (long fp = 1; fp <= limit; fp++) {
+			assertTrue(recovered.contains(fp * 0x9E3779B97F4A7C15L));
+		}
+		fpSet.close();
+	}
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import tlc2.util.BufferedRandomAccessFile;
+import util.TLCRuntime;
+
+public class MappedFPFileTest {
+
+	@Test
+	public void testSegments() throws IOException {
+		final File file = File.createTempFile("MappedFPFileTest", ".fp");
+		file.deleteOnExit();
+
+		final int elements = 1025;
+		final BufferedRandomAccessFile raf = new BufferedRandomAccessFile(file, "rw");
+		for (long i = 0; i < elements; i++) {
+			raf.writeLong(i * 3L);
+		}
+		raf.close();
+
+		// 32 byte segments hold four fingerprints each, thus the file is
+		// mapped with 257 segments where the last segment is partial.
+		final MappedFPFile mfp = new MappedFPFile(file.getAbsolutePath(), 5);
+		assertEquals(elements, mfp.size());
+		for (long i = 0; i < elements; i++) {
+			assertEquals(i * 3L, mfp.get(i));
+		}
+
+		final MappedFPFile.Reader reader = mfp.reader(elements - 2);
+		assertEquals((elements - 2) * 3L, reader.readLong());
+		assertEquals((elements - 1) * 3L, reader.readLong());
+		try {
+			reader.readLong();
+			fail("Expected EOFException");
+		} catch (EOFException expected) {
+		}
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		final File file = File.createTempFile("MappedFPFileTest", ".fp");
+		file.deleteOnExit();
+
+		final MappedFPFile mfp = new MappedFPFile(file.getAbsolutePath());
+		assertEquals(0L, mfp.size());
+	}
+
+	@Test
+	public void testOffHeapDiskFPSet() throws IOException {
+		Assume.assumeTrue(TLCRuntime.getInstance().getArchitecture() == TLCRuntime.ARCH.x86_64);
+
+		final String key = DiskFPSet.class.getName() + ".mmap";
+		final String old = System.setProperty(key, Boolean.TRUE.toString());
+		try {
+			final DummyFPSetConfiguration fpSetConfig = new DummyFPSetConfiguration();
+			fpSetConfig.setMemoryInFingerprintCnt(1024);
+
+			final String tmpdir = System.getProperty("java.io.tmpdir") + File.separator + "MappedFPFileTest"
+					+ System.currentTimeMillis();
+			new File(tmpdir).mkdirs();
+
+			final DiskFPSet fpSet = new OffHeapDiskFPSet(fpSetConfig);
+			fpSet.init(1, tmpdir, "MappedFPFileTest");
+
+			// Insert enough fingerprints to cause several evictions which each
+			// merge the table with the mapped file.
+			final long seed = 1473793977852L;
+			final int n = 1024 * 16;
+			Random random = new Random(seed);
+			for (int i = 0; i < n; i++) {
+				fpSet.put((random.nextLong() & DiskFPSet.FLUSHED_MASK) | 1L);
+			}
+			assertTrue(fpSet.getGrowDiskMark() > 1);
+			assertTrue(fpSet.mapped != null);
+			assertTrue(fpSet.getFileCnt() == fpSet.mapped.size());
+
+			random = new Random(seed);
+			for (int i = 0; i < n; i++) {
+				assertTrue(fpSet.contains((random.nextLong() & DiskFPSet.FLUSHED_MASK) | 1L));
+			}
+			assertFalse(fpSet.contains(2L));
+			assertTrue(fpSet.checkInvariant());
+
+			fpSet.close();
+		} finally {
+			if (old == null) {
+				System.clearProperty(key);
+			} else {
+				System.setProperty(key, old);
+			}
+		}
+	}
+}
@@ -57,7 +57,7 @@ public class CodePlexBug08AgentRingTest extends ModelCheckerTestCase {
 		assertTrue(recorder.recorded(EC.TLC_TEMPORAL_PROPERTY_VIOLATED));
 		assertTrue(recorder.recorded(EC.TLC_COUNTER_EXAMPLE));
 
-		assertNodeAndPtrSizes(8496L, 2880L);
+		assertNodeAndPtrSizes(5371L, 2880L);
 		
 		// Assert the error trace
 		assertTrue(recorder.recorded(EC.TLC_STATE_PRINT2));
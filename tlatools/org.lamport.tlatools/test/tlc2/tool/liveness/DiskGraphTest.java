@@ -32,15 +32,20 @@ import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.Random;
 
 import org.junit.Test;
 
 import tlc2.util.BitVector;
 import tlc2.util.LongVec;
+import tlc2.util.MemIntQueue;
 import tlc2.util.statistics.FixedSizedBucketStatistics;
 import tlc2.util.statistics.IBucketStatistics;
+import util.Assert.TLCRuntimeException;
 
 public class DiskGraphTest {
 
@@ -234,6 +239,160 @@ public class DiskGraphTest {
 		assertTrue(node.transExists(3, -1));
 	}
 	
+	/*
+	 * Test that a GraphNode serialized by GraphNode#toBytes (outside of the
+	 * graph's lock) reads back identical to one written by the DiskGraph.
+	 */
+	@Test
+	public void testAddSerializedNode() throws IOException {
+		final AbstractDiskGraph dg = getDiskGraph();
+		final int slen = 3;
+		final int alen = 70; // more than one word of checks
+		final BitVector acts = new BitVector(alen * 2);
+		acts.set(1);
+		acts.set(alen + 69);
+
+		final GraphNode node = new GraphNode(1L, NO_TABLEAU);
+		node.setCheckState(new boolean[] { true, false, true });
+		node.addTransition(2L, NO_TABLEAU, slen, alen, acts, 0, 2);
+		node.addTransition(Long.MAX_VALUE, NO_TABLEAU, slen, alen, acts, alen, 1);
+		node.realign();
+		dg.addNode(node, node.toBytes());
+		dg.addNode(new GraphNode(2L, NO_TABLEAU));
+
+		dg.makeNodePtrTbl();
+
+		final GraphNode read = dg.getNode(1L, NO_TABLEAU);
+		assertEquals(node.getTransition(slen, alen), read.getTransition(slen, alen));
+		assertTrue(read.getCheckState(0));
+		assertFalse(read.getCheckState(1));
+		assertTrue(read.getCheckState(2));
+		assertEquals(0, dg.getNode(2L, NO_TABLEAU).succSize());
+	}
+	
+	/*
+	 * Test that MappedGraphNode reads the same successors and checks as
+	 * getNode even if records straddle the (tiny) segments of the mapping.
+	 */
+	@Test
+	public void testMappedGraphNode() throws IOException {
+		final AbstractDiskGraph dg = getDiskGraph();
+		final Random rnd = new Random(4711L);
+		final int slen = 2;
+		final int alen = 3;
+		final int[] tidxs = new int[200];
+		for (int n = 0; n < tidxs.length; n++) {
+			tidxs[n] = rnd.nextBoolean() ? NO_TABLEAU : rnd.nextInt(Integer.MAX_VALUE);
+			final GraphNode node = new GraphNode(n, tidxs[n]);
+			node.setCheckState(new boolean[] { rnd.nextBoolean(), rnd.nextBoolean() });
+			final int succs = rnd.nextInt(70);
+			for (int i = 0; i < succs; i++) {
+				final BitVector acts = new BitVector(alen);
+				for (int j = 0; j < alen; j++) {
+					if (rnd.nextInt(4) == 0) {
+						acts.set(j);
+					}
+				}
+				node.addTransition(rnd.nextLong(), rnd.nextInt(3) == 0 ? rnd.nextInt(Integer.MAX_VALUE) : NO_TABLEAU,
+						slen, alen, acts, 0, succs - i);
+			}
+			dg.addNode(node);
+		}
+		dg.makeNodePtrTbl();
+
+		// 16 byte segments
+		final MappedGraphNode mapped = new MappedGraphNode(dg.map(4));
+		for (int n = 0; n < tidxs.length; n++) {
+			final long ptr = dg.getPtr(n, tidxs[n]);
+			final GraphNode node = dg.getNodeFromDisk(n, tidxs[n], ptr);
+			mapped.read(n, tidxs[n], ptr);
+			assertEquals(node.succSize(), mapped.succSize());
+			for (int i = 0; i < slen; i++) {
+				assertEquals(node.getCheckState(i), mapped.getCheckState(i));
+			}
+			for (int i = 0; i < node.succSize(); i++) {
+				assertEquals(node.getStateFP(i), mapped.getStateFP(i));
+				assertEquals(node.getTidx(i), mapped.getTidx(i));
+				for (int j = 0; j < alen; j++) {
+					assertEquals(node.getCheckAction(slen, alen, i, j), mapped.getCheckAction(slen, alen, i, j));
+				}
+				assertEquals(node.getCheckAction(slen, alen, i, new int[] { 0, 2 }),
+						mapped.getCheckAction(slen, alen, i, new int[] { 0, 2 }));
+			}
+		}
+	}
+
+	/*
+	 * Test that a checkpoint of the node records prior to the compact format
+	 * is rejected instead of being misread.
+	 */
+	@Test
+	public void testRecoverOldFormat() throws IOException {
+		final AbstractDiskGraph dg = getDiskGraph();
+		dg.addNode(new GraphNode(1L, NO_TABLEAU));
+		dg.beginChkpt();
+		dg.commitChkpt();
+		dg.recover();
+
+		// A version 1 checkpoint has no header but only the two file pointers.
+		final DataOutputStream dos = new DataOutputStream(
+				new FileOutputStream(dg.metadir + File.separator + "dgraph_" + NUMBER_OF_SOLUTIONS + ".chkpt"));
+		dos.writeLong(0L);
+		dos.writeLong(0L);
+		dos.close();
+		try {
+			dg.recover();
+			fail("Recovered a version 1 checkpoint");
+		} catch (TLCRuntimeException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("version 1"));
+		}
+	}
+
+	/*
+	 * Test that the nodes (re-)added since the last completed check are the
+	 * new ones.
+	 */
+	@Test
+	public void testNewNodesSinceLastCheck() throws IOException {
+		final AbstractDiskGraph dg = getDiskGraph();
+		GraphNode node = new GraphNode(1, NO_TABLEAU);
+		node.addTransition(2, NO_TABLEAU, -1, -1, NO_ACTIONS, 0, 0);
+		dg.addNode(node);
+		dg.addNode(new GraphNode(2, NO_TABLEAU));
+		assertFalse(dg.isIncremental());
+
+		dg.beginCheck();
+		// Nodes added during the check are new for the next one.
+		node = new GraphNode(3, NO_TABLEAU);
+		node.addTransition(1, NO_TABLEAU, -1, -1, NO_ACTIONS, 0, 0);
+		dg.addNode(node);
+		dg.recordSize();
+		assertTrue(dg.isIncremental());
+
+		// Re-adding node 1 with an additional successor writes a new record.
+		node = dg.getNode(1, NO_TABLEAU);
+		node.addTransition(3, NO_TABLEAU, -1, -1, NO_ACTIONS, 0, 0);
+		dg.addNode(node);
+
+		dg.makeNodePtrTbl();
+		assertTrue(dg.isNew(dg.getPtr(1, NO_TABLEAU)));
+		assertFalse(dg.isNew(dg.getPtr(2, NO_TABLEAU)));
+		assertTrue(dg.isNew(dg.getPtr(3, NO_TABLEAU)));
+
+		final MemIntQueue queue = new MemIntQueue(null, null);
+		dg.enqueueNewNodes(queue);
+		assertEquals(5 * 2, queue.size());
+		assertEquals(3L, queue.dequeueLong());
+		assertEquals(NO_TABLEAU, queue.dequeueInt());
+		assertEquals(dg.getPtr(3, NO_TABLEAU), queue.dequeueLong());
+		assertEquals(1L, queue.dequeueLong());
+		assertEquals(NO_TABLEAU, queue.dequeueInt());
+		assertEquals(dg.getPtr(1, NO_TABLEAU), queue.dequeueLong());
+
+		dg.reset();
+		assertFalse(dg.isIncremental());
+	}
+
 	/*
 	 * Test that adding a GraphNode twice (same fingerprint & tableau idx) but
 	 * with different successors afterwards yields the union of the successors.
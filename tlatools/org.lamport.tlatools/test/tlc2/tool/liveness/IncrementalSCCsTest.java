@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved.
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.liveness;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IncrementalSCCsTest {
+
+	@Test
+	public void testSelfLoop() {
+		final IncrementalSCCs sccs = new IncrementalSCCs(0L, false);
+		sccs.addEdge(0, 1, 0L);
+		assertFalse(sccs.hasAccepting());
+		assertTrue(sccs.addEdge(1, 1, 0L));
+	}
+
+	@Test
+	public void testCycle() {
+		final IncrementalSCCs sccs = new IncrementalSCCs(0b11L, true);
+		assertFalse(sccs.addEdge(0, 1, 0L));
+		assertFalse(sccs.addEdge(1, 2, 0b10L));
+		assertFalse(sccs.label(0, 0b01L));
+		// Closes the cycle 0 -> 1 -> 2 -> 0 which has both labels.
+		assertTrue(sccs.addEdge(2, 0, 0L));
+	}
+
+	@Test
+	public void testEdgeLabelOutsideOfCycle() {
+		final IncrementalSCCs sccs = new IncrementalSCCs(0b1L, true);
+		// 0 -> 1 is not part of the cycle 1 -> 2 -> 1.
+		assertFalse(sccs.addEdge(0, 1, 0b1L));
+		assertFalse(sccs.addEdge(2, 1, 0L));
+		assertFalse(sccs.addEdge(1, 2, 0L));
+		assertFalse(sccs.hasAccepting());
+	}
+
+	/**
+	 * Compares {@link IncrementalSCCs} with a search of the complete graph after
+	 * each edge.
+	 */
+	@Test
+	public void testRandom() {
+		final Random rnd = new Random(4711L);
+		for (int round = 0; round < 300; round++) {
+			final int n = 2 + rnd.nextInt(40);
+			final int m = rnd.nextInt(3 * n);
+			final int bits = 1 + rnd.nextInt(3);
+			final long all = (1L << bits) - 1L;
+
+			final IncrementalSCCs sccs = new IncrementalSCCs(all, true);
+			final long[] nodeLabels = new long[n];
+			final List<int[]> edges = new ArrayList<int[]>();
+			final List<Long> edgeLabels = new ArrayList<Long>();
+			for (int i = 0; i < m; i++) {
+				if (rnd.nextInt(4) == 0) {
+					final int u = rnd.nextInt(n);
+					final long l = 1L << rnd.nextInt(bits);
+					nodeLabels[u] |= l;
+					sccs.label(u, l);
+				} else {
+					// Favor edges to nodes with a higher id similar to a BFS.
+					final int u = rnd.nextInt(n);
+					final int v = rnd.nextInt(5) == 0 ? rnd.nextInt(n) : Math.min(n - 1, u + rnd.nextInt(4));
+					final long l = rnd.nextInt(3) == 0 ? 1L << rnd.nextInt(bits) : 0L;
+					edges.add(new int[] { u, v });
+					edgeLabels.add(l);
+					sccs.addEdge(u, v, l);
+				}
+				assertEquals("round " + round + " step " + i, hasAccepting(n, nodeLabels, edges, edgeLabels, all),
+						sccs.hasAccepting());
+			}
+		}
+	}
+
+	private static boolean hasAccepting(final int n, final long[] nodeLabels, final List<int[]> edges,
+			final List<Long> edgeLabels, final long all) {
+		final boolean[][] reach = new boolean[n][n];
+		for (int[] e : edges) {
+			reach[e[0]][e[1]] = true;
+		}
+		// Transitive closure (Floyd-Warshall).
+		for (int k = 0; k < n; k++) {
+			for (int i = 0; i < n; i++) {
+				if (reach[i][k]) {
+					for (int j = 0; j < n; j++) {
+						reach[i][j] |= reach[k][j];
+					}
+				}
+			}
+		}
+		for (int u = 0; u < n; u++) {
+			if (!reach[u][u]) {
+				continue;
+			}
+			// u is on a cycle, collect the labels of its SCC.
+			long l = 0L;
+			for (int v = 0; v < n; v++) {
+				if (v == u || (reach[u][v] && reach[v][u])) {
+					l |= nodeLabels[v];
+				}
+			}
+			for (int i = 0; i < edges.size(); i++) {
+				final int[] e = edges.get(i);
+				if ((e[0] == u || (reach[u][e[0]] && reach[e[0]][u]))
+						&& (e[1] == u || (reach[u][e[1]] && reach[e[1]][u]))) {
+					l |= edgeLabels.get(i);
+				}
+			}
+			if ((l & all) == all) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.liveness;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+public class ParallelSCCsTest {
+
+	private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+	@AfterClass
+	public static void shutdown() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void testSelfLoop() {
+		// 0 -> 1 -> 1
+		final ParallelSCCs sccs = new ParallelSCCs(2, new int[] { 0, 1, 2 }, new int[] { 1, 1 });
+		final List<Set<Integer>> found = search(sccs);
+		assertEquals(1, found.size());
+		assertEquals(set(1), found.get(0));
+	}
+
+	@Test
+	public void testStop() {
+		// Two cycles 0 <-> 1 and 2 <-> 3.
+		final ParallelSCCs sccs = new ParallelSCCs(4, new int[] { 0, 1, 2, 3, 4 }, new int[] { 1, 0, 3, 2 });
+		final ConcurrentLinkedQueue<int[]> found = new ConcurrentLinkedQueue<int[]>();
+		assertTrue(sccs.search(pool, scc -> found.add(scc)));
+		assertEquals(1, found.size());
+	}
+
+	/**
+	 * Compares {@link ParallelSCCs} with the SCCs derived from the transitive
+	 * closure of the graph. The small thresholds make the forward-backward
+	 * search (instead of Tarjan's algorithm) decompose all but the smallest
+	 * sets.
+	 */
+	@Test
+	public void testRandom() {
+		final Random rnd = new Random(4711L);
+		for (int round = 0; round < 300; round++) {
+			final int n = 1 + rnd.nextInt(60);
+			final int m = rnd.nextInt(3 * n);
+			final List<List<Integer>> succs = new ArrayList<List<Integer>>();
+			for (int i = 0; i < n; i++) {
+				succs.add(new ArrayList<Integer>());
+			}
+			for (int i = 0; i < m; i++) {
+				// Favor edges to nodes with a higher id similar to a BFS.
+				final int u = rnd.nextInt(n);
+				final int v = rnd.nextInt(5) == 0 ? rnd.nextInt(n) : Math.min(n - 1, u + rnd.nextInt(4));
+				succs.get(u).add(v);
+			}
+			final int[] offsets = new int[n + 1];
+			final int[] targets = new int[m];
+			for (int u = 0, k = 0; u < n; u++) {
+				for (int v : succs.get(u)) {
+					targets[k++] = v;
+				}
+				offsets[u + 1] = k;
+			}
+
+			final ParallelSCCs sccs = new ParallelSCCs(n, offsets, targets, rnd.nextInt(4), 1 + rnd.nextInt(4));
+			final List<Set<Integer>> found = search(sccs);
+			assertEquals("round " + round, nontrivialSCCs(n, succs), new HashSet<Set<Integer>>(found));
+			assertEquals("round " + round, found.size(), new HashSet<Set<Integer>>(found).size());
+			for (Set<Integer> scc : found) {
+				final int c = sccs.component(scc.iterator().next());
+				for (int v = 0; v < n; v++) {
+					assertEquals("round " + round, scc.contains(v), sccs.component(v) == c);
+				}
+			}
+		}
+	}
+
+	private static List<Set<Integer>> search(final ParallelSCCs sccs) {
+		final ConcurrentLinkedQueue<Set<Integer>> found = new ConcurrentLinkedQueue<Set<Integer>>();
+		assertFalse(sccs.search(pool, scc -> {
+			final Set<Integer> s = new HashSet<Integer>();
+			for (int v : scc) {
+				s.add(v);
+			}
+			found.add(s);
+			return false;
+		}));
+		return new ArrayList<Set<Integer>>(found);
+	}
+
+	private static Set<Set<Integer>> nontrivialSCCs(final int n, final List<List<Integer>> succs) {
+		final boolean[][] reach = new boolean[n][n];
+		for (int u = 0; u < n; u++) {
+			for (int v : succs.get(u)) {
+				reach[u][v] = true;
+			}
+		}
+		// Transitive closure (Floyd-Warshall).
+		for (int k = 0; k < n; k++) {
+			for (int i = 0; i < n; i++) {
+				if (reach[i][k]) {
+					for (int j = 0; j < n; j++) {
+						reach[i][j] |= reach[k][j];
+					}
+				}
+			}
+		}
+		final Set<Set<Integer>> sccs = new HashSet<Set<Integer>>();
+		for (int u = 0; u < n; u++) {
+			if (reach[u][u]) {
+				final Set<Integer> scc = new HashSet<Integer>();
+				for (int v = 0; v < n; v++) {
+					if (v == u || (reach[u][v] && reach[v][u])) {
+						scc.add(v);
+					}
+				}
+				sccs.add(scc);
+			}
+		}
+		return sccs;
+	}
+
+	private static Set<Integer> set(final int... vs) {
+		final Set<Integer> s = new HashSet<Integer>();
+		for (int v : vs) {
+			s.add(v);
+		}
+		return s;
+	}
+}
@@ -0,0 +1,267 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved.
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.queue;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class OffHeapByteArrayQueueTest {
+
+	private static final int SegmentSize = 1024;
+
+	private static byte[] state(final long n) {
+		// Vary the length of the states to not align with the segment size.
+		final byte[] bytes = new byte[8 + (int) (n % 37)];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) (n >>> (8 * (i % 8)));
+		}
+		return bytes;
+	}
+
+	private static void enqueue(final OffHeapByteArrayQueue queue, final byte[] state) {
+		queue.enqueueInner(state);
+		queue.len++;
+	}
+
+	private static byte[] dequeue(final OffHeapByteArrayQueue queue) {
+		queue.len--;
+		return queue.dequeueInner();
+	}
+
+	private static int swapFiles(final OffHeapByteArrayQueue queue) {
+		final String[] names = new File(queue.getDiskdir()).list((dir, name) -> name.matches("[0-9]+"));
+		return names.length;
+	}
+
+	@Test
+	public void testFIFO() throws IOException {
+		final OffHeapByteArrayQueue queue = new OffHeapByteArrayQueue(SegmentSize, 2);
+
+		// Interleave enqueues and dequeues such that segments are swapped to disk
+		// and read back.
+		final Random rnd = new Random(4711L);
+		long enq = 0L, deq = 0L;
+		int maxSwapFiles = 0;
+		for (int round = 0; round < 32; round++) {
+			final int n = rnd.nextInt(2000);
+			for (int i = 0; i < n; i++) {
+				enqueue(queue, state(enq++));
+			}
+			maxSwapFiles = Math.max(maxSwapFiles, swapFiles(queue));
+			final int m = rnd.nextInt(2000);
+			for (int i = 0; i < m && deq < enq; i++) {
+				assertArrayEquals(state(deq), queue.peekInner());
+				assertArrayEquals(state(deq++), dequeue(queue));
+			}
+			assertEquals(enq - deq, queue.size());
+		}
+		while (deq < enq) {
+			assertArrayEquals(state(deq++), dequeue(queue));
+		}
+		assertTrue(queue.isEmpty());
+		assertTrue(maxSwapFiles > 0);
+		// Swap files are deleted once read back (absent a checkpoint).
+		assertEquals(0, swapFiles(queue));
+	}
+
+	@Test
+	public void testLargeState() throws IOException {
+		final OffHeapByteArrayQueue queue = new OffHeapByteArrayQueue(SegmentSize, 2);
+
+		final byte[] large = new byte[3 * SegmentSize];
+		new Random(4711L).nextBytes(large);
+		for (int i = 0; i < 100; i++) {
+			enqueue(queue, state(i));
+		}
+		enqueue(queue, large);
+		for (int i = 100; i < 200; i++) {
+			enqueue(queue, state(i));
+		}
+
+		for (int i = 0; i < 100; i++) {
+			assertArrayEquals(state(i), dequeue(queue));
+		}
+		assertArrayEquals(large, dequeue(queue));
+		for (int i = 100; i < 200; i++) {
+			assertArrayEquals(state(i), dequeue(queue));
+		}
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testCheckpointRecover() throws IOException {
+		final OffHeapByteArrayQueue queue = new OffHeapByteArrayQueue(SegmentSize, 3);
+		for (int i = 0; i < 1000; i++) {
+			enqueue(queue, state(i));
+		}
+		for (int i = 0; i < 100; i++) {
+			assertArrayEquals(state(i), dequeue(queue));
+		}
+		assertTrue(swapFiles(queue) > 0);
+
+		queue.beginChkpt();
+		queue.commitChkpt();
+
+		// Consume all states and thus the swap files referenced by the checkpoint
+		// and add some more.
+		for (int i = 100; i < 1000; i++) {
+			assertArrayEquals(state(i), dequeue(queue));
+		}
+		for (int i = 1000; i < 2000; i++) {
+			enqueue(queue, state(i));
+		}
+
+		final OffHeapByteArrayQueue recovered = new OffHeapByteArrayQueue(queue.getDiskdir(), SegmentSize, 3);
+		recovered.recover();
+		assertEquals(900, recovered.size());
+		for (int i = 100; i < 1000; i++) {
+			assertArrayEquals(state(i), dequeue(recovered));
+		}
+		assertTrue(recovered.isEmpty());
+
+		// A second checkpoint makes the swap files of the first one obsolete.
+		queue.beginChkpt();
+		queue.commitChkpt();
+		for (int i = 1000; i < 2000; i++) {
+			assertArrayEquals(state(i), dequeue(queue));
+		}
+		queue.beginChkpt();
+		queue.commitChkpt();
+		assertEquals(0, swapFiles(queue));
+	}
+
+	@Test
+	public void testModifiedDuringCheckpoint() throws IOException {
+		// A single segment that is emptied and refilled between beginChkpt and
+		// commitChkpt.
+		OffHeapByteArrayQueue queue = new OffHeapByteArrayQueue(SegmentSize, 3);
+		for (int i = 0; i < 10; i++) {
+			enqueue(queue, state(i));
+		}
+		queue.beginChkpt();
+		for (int i = 0; i < 10; i++) {
+			assertArrayEquals(state(i), dequeue(queue));
+		}
+		for (int i = 10; i < 20; i++) {
+			enqueue(queue, state(i));
+		}
+		queue.commitChkpt();
+
+		OffHeapByteArrayQueue recovered = new OffHeapByteArrayQueue(queue.getDiskdir(), SegmentSize, 3);
+		recovered.recover();
+		for (int i = 0; i < 10; i++) {
+			assertArrayEquals(state(i), dequeue(recovered));
+		}
+		assertTrue(recovered.isEmpty());
+		for (int i = 10; i < 20; i++) {
+			assertArrayEquals(state(i), dequeue(queue));
+		}
+
+		// Segments that are consumed, swapped and (would be) reused between
+		// beginChkpt and commitChkpt.
+		queue = new OffHeapByteArrayQueue(SegmentSize, 3);
+		for (int i = 0; i < 1000; i++) {
+			enqueue(queue, state(i));
+		}
+		for (int i = 0; i < 100; i++) {
+			assertArrayEquals(state(i), dequeue(queue));
+		}
+		queue.beginChkpt();
+		for (int i = 100; i < 1000; i++) {
+			assertArrayEquals(state(i), dequeue(queue));
+		}
+		for (int i = 1000; i < 2000; i++) {
+			enqueue(queue, state(i));
+		}
+		queue.commitChkpt();
+
+		recovered = new OffHeapByteArrayQueue(queue.getDiskdir(), SegmentSize, 3);
+		recovered.recover();
+		assertEquals(900, recovered.size());
+		for (int i = 100; i < 1000; i++) {
+			assertArrayEquals(state(i), dequeue(recovered));
+		}
+		assertTrue(recovered.isEmpty());
+		for (int i = 1000; i < 2000; i++) {
+			assertArrayEquals(state(i), dequeue(queue));
+		}
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testIncrementalCheckpoint() throws IOException {
+		// The memory budget suffices to never swap.
+		final OffHeapByteArrayQueue queue = new OffHeapByteArrayQueue(SegmentSize, 1000);
+		for (int i = 0; i < 1000; i++) {
+			enqueue(queue, state(i));
+		}
+		assertEquals(0, swapFiles(queue));
+
+		// All but the first and the last segment are written to files of their
+		// own, which subsequent checkpoints reference.
+		queue.beginChkpt();
+		queue.commitChkpt();
+		assertTrue(swapFiles(queue) > 0);
+		final File chkpt = new File(queue.getDiskdir(), "queue.chkpt");
+		assertTrue(chkpt.length() < 3 * SegmentSize);
+
+		for (int i = 0; i < 100; i++) {
+			assertArrayEquals(state(i), dequeue(queue));
+		}
+		for (int i = 1000; i < 1100; i++) {
+			enqueue(queue, state(i));
+		}
+		queue.beginChkpt();
+		queue.commitChkpt();
+		assertTrue(chkpt.length() < 3 * SegmentSize);
+
+		final OffHeapByteArrayQueue recovered = new OffHeapByteArrayQueue(queue.getDiskdir(), SegmentSize, 1000);
+		recovered.recover();
+		assertEquals(1000, recovered.size());
+		for (int i = 100; i < 1100; i++) {
+			assertArrayEquals(state(i), dequeue(recovered));
+		}
+		assertTrue(recovered.isEmpty());
+
+		// Once dequeued, the files are deleted by the commit of a subsequent
+		// checkpoint.
+		for (int i = 100; i < 1100; i++) {
+			assertArrayEquals(state(i), dequeue(queue));
+		}
+		queue.beginChkpt();
+		queue.commitChkpt();
+		queue.beginChkpt();
+		queue.commitChkpt();
+		assertEquals(0, swapFiles(queue));
+	}
+}
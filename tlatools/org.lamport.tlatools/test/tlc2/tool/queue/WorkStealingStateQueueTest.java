@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved.
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.tool.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import tlc2.tool.TLCState;
+import tlc2.util.IdThread;
+
+public class WorkStealingStateQueueTest extends StateQueueTest {
+
+	@Before
+	public void setUp() throws Exception {
+		sQueue = new WorkStealingStateQueue("", 1);
+	}
+
+	/*
+	 * Each worker "explores" a binary tree of depth 12 by enqueueing two successors
+	 * per dequeued state. Only worker 0 gets the root, all others have to steal.
+	 * The queue has to detect termination once all trees are exhausted.
+	 */
+	@Test(timeout = 60000L)
+	public void testStealAndTerminate() throws InterruptedException {
+		final int numWorkers = 4;
+		final int depth = 12;
+		final WorkStealingStateQueue queue = new WorkStealingStateQueue("", numWorkers);
+		queue.enqueue(new DummyTLCState(0L));
+
+		final AtomicLong dequeued = new AtomicLong();
+		final long[] perWorker = new long[numWorkers];
+		final IdThread[] workers = new IdThread[numWorkers];
+		for (int i = 0; i < numWorkers; i++) {
+			final int id = i;
+			workers[i] = new IdThread(() -> {
+				TLCState state;
+				while ((state = queue.sDequeue()) != null) {
+					dequeued.incrementAndGet();
+					perWorker[id]++;
+					final long level = state.fingerPrint();
+					if (level < depth) {
+						queue.sEnqueue(new DummyTLCState(level + 1));
+						queue.sEnqueue(new DummyTLCState(level + 1));
+					}
+				}
+				queue.finishAll();
+			}, "WorkStealingStateQueueTest-" + i, i);
+			workers[i].start();
+		}
+		for (int i = 0; i < numWorkers; i++) {
+			workers[i].join();
+		}
+
+		assertEquals((1L << (depth + 1)) - 1, dequeued.get());
+		assertTrue(queue.isEmpty());
+		assertNull(queue.dequeue());
+	}
+
+	@Test(timeout = 60000L)
+	public void testSuspendResume() throws InterruptedException {
+		final int numWorkers = 2;
+		final WorkStealingStateQueue queue = new WorkStealingStateQueue("", numWorkers);
+		for (int i = 0; i < 1000; i++) {
+			queue.enqueue(new DummyTLCState(i));
+		}
+
+		final IdThread[] workers = new IdThread[numWorkers];
+		for (int i = 0; i < numWorkers; i++) {
+			workers[i] = new IdThread(() -> {
+				TLCState state;
+				while ((state = queue.sDequeue()) != null) {
+					// Keep the queue busy forever.
+					queue.sEnqueue(state);
+				}
+			}, "WorkStealingStateQueueTest-" + i, i);
+			workers[i].start();
+		}
+
+		for (int i = 0; i < 10; i++) {
+			assertTrue(queue.suspendAll());
+			// No states are lost when workers get suspended.
+			assertEquals(1000L, queue.size());
+			queue.resumeAll();
+		}
+
+		queue.finishAll();
+		for (int i = 0; i < numWorkers; i++) {
+			workers[i].join();
+		}
+		assertFalse(queue.suspendAll());
+	}
+}
@@ -18,6 +18,7 @@ import tlc2.TestMPRecorder;
 import tlc2.output.EC;
 import tlc2.tool.CommonTestCase;
 import tlc2.tool.ITool;
+import tlc2.tool.SimulationSketch;
 import tlc2.tool.SimulationWorker;
 import tlc2.tool.SimulationWorker.SimulationWorkerError;
 import tlc2.tool.SimulationWorker.SimulationWorkerResult;
@@ -27,6 +28,7 @@ import tlc2.tool.impl.FastTool;
 import tlc2.tool.impl.Tool;
 import tlc2.tool.liveness.ILiveCheck;
 import tlc2.tool.liveness.NoOpLiveCheck;
+import tlc2.util.FP64;
 import util.FileUtil;
 import util.SimpleFilenameToStream;
 import util.TLAConstants;
@@ -427,4 +429,32 @@ public class SimulationWorkerTest extends CommonTestCase {
 		assertEquals(70, numOfGenStates.longValue());
 		assertEquals(5, numOfGenTraces.longValue());
 	}
+	
+	@Test
+	public void testSwarmVisitsNovelStates() throws Exception {
+		FP64.Init();
+		ITool tool = new FastTool("", "BasicMultiTrace", TLAConstants.Files.MODEL_CHECK_FILE_BASENAME, new SimpleFilenameToStream());
+		
+		StateVec initStates = tool.getInitStates();
+		ILiveCheck liveCheck =  new NoOpLiveCheck(tool, "BasicMultiTrace");
+		BlockingQueue<SimulationWorkerResult> resultQueue = new LinkedBlockingQueue<>();
+
+		// Each trace picks one of the 10 branches and traverses it to its end. Steered
+		// towards novel states, 10 traces visit all 1 + 10 * 6 states (10 uniformly
+		// random traces pick 10 distinct branches with probability 10!/10^10).
+		SimulationSketch sketch = new SimulationSketch(tool.getActions().length);
+		SimulationWorker worker = new SimulationWorker(0, tool, initStates, resultQueue, 0, 100, 10, false, null,
+				liveCheck, new LongAdder(), new LongAdder(), sketch);
+
+		worker.start();
+		worker.join();
+		assertFalse(resultQueue.take().isError());
+		assertEquals(61, sketch.getDistinct());
+		
+		long taken = 0;
+		for (int i = 0; i < tool.getActions().length; i++) {
+			taken += sketch.getTaken(i);
+		}
+		assertEquals(60, taken);
+	}
 }
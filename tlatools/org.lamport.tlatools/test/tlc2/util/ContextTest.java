@@ -35,6 +35,7 @@ import org.w3c.dom.Element;
 
 import tla2sany.parser.SyntaxTreeNode;
 import tla2sany.semantic.AbortException;
+import tla2sany.semantic.FormalParamNode;
 import tla2sany.semantic.ModuleNode;
 import tla2sany.semantic.OpApplNode;
 import tla2sany.semantic.SymbolNode;
@@ -165,6 +166,73 @@ public class ContextTest {
 		assertEquals(value, lookup);
 	}
 	
+	@Test
+	public void testLookupFrame() {
+		final DummySymbolNode outer = new DummySymbolNode("outer");
+		final DummySymbolNode a = new DummySymbolNode("a");
+		final DummySymbolNode b = new DummySymbolNode("b");
+		final DummySymbolNode c = new DummySymbolNode("c");
+
+		// Ctx c -> Frame (a, b) -> Ctx outer -> Ctx Empty
+		final Context ctx = Context.Empty.cons(outer, "outer").cons(new SymbolNode[] { a, b }, new Object[] { "a", "b" })
+				.cons(c, "c");
+
+		assertEquals("a", ctx.lookup(a));
+		assertEquals("b", ctx.lookup(b));
+		assertEquals("c", ctx.lookup(c));
+		assertEquals("outer", ctx.lookup(outer));
+		assertNull(ctx.lookup(new DummySymbolNode("d")));
+		assertEquals("b", ctx.lookup(s -> s == b));
+		assertEquals(b, ctx.lookupName(s -> s.getName().toString().equals("b")));
+		assertEquals("[c->c, b->b, a->a, outer->outer]", ctx.toString());
+	}
+
+	@Test
+	public void testLookupFrameShadows() {
+		final DummySymbolNode a = new DummySymbolNode("a");
+		final DummySymbolNode b = new DummySymbolNode("b");
+
+		final Context ctx = Context.Empty.cons(a, "outer").cons(new SymbolNode[] { a, b }, new Object[] { "a", "b" });
+		assertEquals("a", ctx.lookup(a));
+		assertEquals("a", ctx.lookup(a, true));
+	}
+
+	@Test
+	public void testLookupFrameCutOff() {
+		final DummySymbolNode a = new DummySymbolNode("a");
+		final DummySymbolNode b = new DummySymbolNode("b");
+		final DummySymbolNode c = new DummySymbolNode("c");
+
+		// Ctx c -> Ctx Branch -> Frame (a, b) -> Ctx Empty
+		final Context frame = Context.Empty.cons(new SymbolNode[] { a, b }, new Object[] { "a", "b" });
+		final Context ctx = Context.branch(frame).cons(c, "c");
+
+		assertEquals("b", ctx.lookup(b, false));
+		assertNull(ctx.lookup(b, true));
+		assertEquals("c", ctx.lookup(c, true));
+	}
+
+	@Test
+	public void testLookupSlottedFrame() {
+		final FormalParamNode a = new FormalParamNode(UniqueString.uniqueStringOf("a"), 0, new SyntaxTreeNode(), null, null);
+		final FormalParamNode b = new FormalParamNode(UniqueString.uniqueStringOf("b"), 0, new SyntaxTreeNode(), null, null);
+		final FormalParamNode c = new FormalParamNode(UniqueString.uniqueStringOf("c"), 0, new SyntaxTreeNode(), null, null);
+		a.setSlot(0);
+		b.setSlot(1);
+		c.setSlot(0);
+
+		// Frame (c, b) -> Frame (a, b) -> Frame (b, a) -> Ctx Empty where the
+		// outermost frame binds b and a at positions other than their slots.
+		final Context ctx = Context.Empty.cons(new SymbolNode[] { b, a }, new Object[] { "b1", "a1" })
+				.cons(new SymbolNode[] { a, b }, new Object[] { "a2", "b2" })
+				.cons(new SymbolNode[] { c, b }, new Object[] { "c3", "b3" });
+
+		assertEquals("c3", ctx.lookup(c));
+		assertEquals("b3", ctx.lookup(b));
+		assertEquals("a2", ctx.lookup(a));
+		assertEquals("a1", Context.Empty.cons(new SymbolNode[] { b, a }, new Object[] { "b1", "a1" }).lookup(a));
+	}
+
 	// Need a dummy for the instance identity checks in Context 
 	private static class DummySymbolNode extends SymbolNode {
 
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * Contributors:
+ *   Markus Alexander Kuppe - initial API and implementation
+ ******************************************************************************/
+package tlc2.value.impl;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import tlc2.value.IMVPerm;
+import tlc2.value.IValue;
+import util.UniqueString;
+
+public class SymmetryCanonicalizerTest {
+
+	private static final int N = 4;
+
+	private static ModelValue[] procs;
+	private static ModelValue other;
+
+	@BeforeClass
+	public static void setup() {
+		procs = new ModelValue[N];
+		for (int i = 0; i < N; i++) {
+			procs[i] = (ModelValue) ModelValue.make("p" + i);
+		}
+		other = (ModelValue) ModelValue.make("q");
+		ModelValue.setValues();
+	}
+
+	@Test
+	public void testCyclicGroup() {
+		// The rotations of p0, p1, p2 are not all permutations of the three.
+		final List<IMVPerm> rotations = new ArrayList<>();
+		for (int r = 1; r < 3; r++) {
+			final MVPerm perm = new MVPerm();
+			for (int i = 0; i < 3; i++) {
+				perm.put(procs[i], procs[(i + r) % 3]);
+			}
+			rotations.add(perm);
+		}
+		assertNull(SymmetryCanonicalizer.create(rotations.toArray(new IMVPerm[rotations.size()])));
+	}
+
+	/**
+	 * Checks that all states of an orbit have the same representative, which
+	 * is a state of the orbit.
+	 */
+	@Test
+	public void testRandom() {
+		final IMVPerm[] perms = permutations();
+		final SymmetryCanonicalizer canonicalizer = SymmetryCanonicalizer.create(perms);
+		assertNotNull(canonicalizer);
+
+		final Random rnd = new Random(4711L);
+		for (int round = 0; round < 500; round++) {
+			final IValue[] state = randomState(rnd);
+			final IValue[] canonical = canonicalizer.canonicalize(state);
+			assertNotNull(canonical);
+
+			boolean inOrbit = equals(state, canonical);
+			for (IMVPerm perm : perms) {
+				inOrbit |= equals(permute(state, perm), canonical);
+			}
+			assertTrue("round " + round, inOrbit);
+
+			for (int i = 0; i < 5; i++) {
+				final IValue[] symmetric = permute(state, perms[rnd.nextInt(perms.length)]);
+				assertTrue("round " + round, equals(canonical, canonicalizer.canonicalize(symmetric)));
+			}
+		}
+	}
+
+	private static IMVPerm[] permutations() {
+		final List<IMVPerm> perms = new ArrayList<>();
+		permutations(new int[N], 0, new boolean[N], perms);
+		return perms.toArray(new IMVPerm[perms.size()]);
+	}
+
+	private static void permutations(final int[] image, final int i, final boolean[] used, final List<IMVPerm> perms) {
+		if (i == N) {
+			final MVPerm perm = new MVPerm();
+			for (int j = 0; j < N; j++) {
+				perm.put(procs[j], procs[image[j]]);
+			}
+			// Like MVPerms, omit the identity.
+			if (perm.size() > 0) {
+				perms.add(perm);
+			}
+			return;
+		}
+		for (int j = 0; j < N; j++) {
+			if (!used[j]) {
+				used[j] = true;
+				image[i] = j;
+				permutations(image, i + 1, used, perms);
+				used[j] = false;
+			}
+		}
+	}
+
+	private static IValue[] randomState(final Random rnd) {
+		// [p \in Procs |-> 0..2]
+		final Value[] pc = new Value[N];
+		for (int i = 0; i < N; i++) {
+			pc[i] = IntValue.gen(rnd.nextInt(3));
+		}
+		// SUBSET Procs
+		final List<Value> set = new ArrayList<>();
+		for (int i = 0; i < N; i++) {
+			if (rnd.nextBoolean()) {
+				set.add(procs[i]);
+			}
+		}
+		// Seq(Procs \cup {q})
+		final Value[] queue = new Value[rnd.nextInt(4)];
+		for (int i = 0; i < queue.length; i++) {
+			queue[i] = rnd.nextInt(5) == 0 ? other : procs[rnd.nextInt(N)];
+		}
+		// [msg : Procs, ack : BOOLEAN]
+		final RecordValue rcd = new RecordValue(new UniqueString[] { UniqueString.uniqueStringOf("msg"),
+				UniqueString.uniqueStringOf("ack") },
+				new Value[] { procs[rnd.nextInt(N)], rnd.nextBoolean() ? BoolValue.ValTrue : BoolValue.ValFalse },
+				false);
+		return new IValue[] { new FcnRcdValue(procs.clone(), pc, false),
+				new SetEnumValue(set.toArray(new Value[set.size()]), false), new TupleValue(queue), rcd };
+	}
+
+	private static IValue[] permute(final IValue[] state, final IMVPerm perm) {
+		final IValue[] res = new IValue[state.length];
+		for (int i = 0; i < state.length; i++) {
+			res[i] = state[i].permute(perm);
+		}
+		return res;
+	}
+
+	private static boolean equals(final IValue[] a, final IValue[] b) {
+		for (int i = 0; i < a.length; i++) {
+			if (a[i].compareTo(b[i]) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+}